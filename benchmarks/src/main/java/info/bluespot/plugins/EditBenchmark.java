@@ -0,0 +1,149 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the model edits, on a copy of a synthetic model.
+ * <p>
+ * Every edit works on a new copy of the model; the <code>copy</code> benchmark measures the copy alone, to be
+ * subtracted from the others.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@BenchmarkMode( { Mode.Throughput, Mode.AverageTime } )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class EditBenchmark
+{
+    /**
+     * Model size (number of dependencies and properties).
+     */
+    @Param( { "10", "100", "1000", "10000", "50000" } )
+    public int size;
+
+    private Model model;
+
+    private DependencyMatcher matcher;
+
+    private OrderedProperties properties;
+
+    private List<Dependency> dependencies;
+
+    private EditScript script;
+
+    @Setup
+    public void setUp()
+        throws Exception
+    {
+        model = SyntheticPom.generate( size );
+
+        // A tenth of the dependencies: exact coordinates, wildcards and regular expressions
+        matcher = new DependencyMatcher();
+        matcher.add( "org.synthetic.group1" );
+        matcher.add( "org.synthetic.group2:*-api" );
+        matcher.add( "/org\\.synthetic\\.group3[0-9]/:/artifact-[0-9]+-impl/" );
+
+        // Half of the properties are new, a quarter overwritten and a quarter unchanged
+        properties = new OrderedProperties();
+        for ( int i = 0; i < size; i++ )
+        {
+            String name = "synthetic.property" + ( i * 2 );
+            String current = model.getProperties().getProperty( name );
+            properties.setProperty( name, current != null && i % 2 == 0 ? current : "value" + i );
+        }
+
+        // Half of the dependencies are already on the model (with another version)
+        Model other = SyntheticPom.generate( size * 2, SyntheticPom.SEED + 1 );
+        dependencies = new ArrayList<Dependency>( other.getDependencies().subList( size, size * 2 ) );
+        for ( int i = 0; i < size / 2; i++ )
+        {
+            Dependency existing = model.getDependencies().get( i ).clone();
+            existing.setVersion( "2.0." + i );
+            dependencies.set( i, existing );
+        }
+
+        script = EditScript.parse( new StringReader(
+            "set-project version=2.0.0 name=\"Synthetic project\" url=https://example.com/\n"
+                + "add-properties synthetic.version=2.0.0\n"
+                + "delete-dependency org.synthetic.group4:*\n"
+                + "add-dependency org.synthetic.added:added-artifact:1.0.0 scope=test\n" ) );
+    }
+
+    @Benchmark
+    public Model copy()
+    {
+        return ( model.clone() );
+    }
+
+    @Benchmark
+    public List<Dependency> deleteDependencies()
+    {
+        return ( matcher.removeFrom( model.clone(), true, true ) );
+    }
+
+    @Benchmark
+    public PropertyMerge.Counts mergeProperties()
+    {
+        return ( PropertyMerge.merge( model.clone(), properties ) );
+    }
+
+    @Benchmark
+    public Model addDependencies()
+    {
+        Model copy = model.clone();
+        DependencyIndex index = new DependencyIndex( copy.getDependencies() );
+        for ( Dependency dependency : dependencies )
+        {
+            index.merge( dependency, DependencyIndex.ConflictPolicy.UPDATE );
+        }
+        return ( copy );
+    }
+
+    @Benchmark
+    public Model applyScript()
+    {
+        Model copy = model.clone();
+        script.apply( copy );
+        return ( copy );
+    }
+}
@@ -0,0 +1,133 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.model.Model;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for reading and writing POM files.
+ * <p>
+ * Every save changes the project version, so the file is always written (an unchanged model is not). The files are
+ * never flushed to the device, to measure the plugin rather than the disk.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@BenchmarkMode( { Mode.Throughput, Mode.AverageTime } )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class LoadSaveBenchmark
+{
+    /**
+     * Model size (number of dependencies and properties).
+     */
+    @Param( { "10", "100", "1000", "10000", "50000" } )
+    public int size;
+
+    private File directory;
+
+    private String pom;
+
+    private Model model;
+
+    private ModelCache cache;
+
+    private SaveOptions plain;
+
+    private SaveOptions preserving;
+
+    private long saves;
+
+    @Setup
+    public void setUp()
+        throws IOException, XmlPullParserException
+    {
+        directory = Files.createTempDirectory( "pomutils-bench" ).toFile();
+        pom = new File( directory, "pom.xml" ).getPath();
+        SyntheticPom.write( SyntheticPom.generate( size ), new File( pom ) );
+        model = POMUtils.loadModel( pom );
+
+        cache = new ModelCache( 1 );
+        plain = new SaveOptions();
+        plain.setWriter( new PomWriter( PomWriter.FsyncPolicy.NEVER ) );
+        preserving = new SaveOptions();
+        preserving.setPreserveFormatting( true );
+        preserving.setWriter( new PomWriter( PomWriter.FsyncPolicy.NEVER ) );
+    }
+
+    @TearDown
+    public void tearDown()
+        throws IOException
+    {
+        FileUtils.deleteDirectory( directory );
+    }
+
+    @Benchmark
+    public Model load()
+        throws IOException, XmlPullParserException
+    {
+        return ( POMUtils.loadModel( pom ) );
+    }
+
+    @Benchmark
+    public Model loadCached()
+        throws IOException, XmlPullParserException
+    {
+        return ( POMUtils.loadModel( pom, cache ) );
+    }
+
+    @Benchmark
+    public boolean save()
+        throws IOException
+    {
+        model.setVersion( "1.0." + ( saves++ ) );
+        return ( POMUtils.saveModel( model, pom, null, plain ) );
+    }
+
+    @Benchmark
+    public boolean savePreservingFormatting()
+        throws IOException
+    {
+        model.setVersion( "1.0." + ( saves++ ) );
+        return ( POMUtils.saveModel( model, pom, null, preserving ) );
+    }
+}
@@ -0,0 +1,167 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.Random;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Profile;
+import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
+
+/**
+ * Generates synthetic project models for the benchmarks.
+ * <p>
+ * The models are deterministic: the same size and seed always give the same POM, so the results of different runs
+ * (and different versions of the plugin) can be compared. A model of size <i>n</i> has <i>n</i> dependencies,
+ * <i>n</i> properties, <i>n / 10</i> managed dependencies and one profile every hundred dependencies (up to 50), each
+ * one with a few dependencies and properties of its own.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class SyntheticPom
+{
+    /**
+     * Default seed for the random values.
+     */
+    public static final long SEED = 0x504f4dL;
+
+    /**
+     * Maximum number of profiles on a model.
+     */
+    private static final int MAX_PROFILES = 50;
+
+    private static final String[] SCOPES = { null, "compile", "test", "provided", "runtime" };
+
+    /**
+     * Generates a model with the default seed.
+     *
+     * @param size Model size (number of dependencies and properties).
+     * @return The project model.
+     */
+    public static Model generate( int size )
+    {
+        return ( generate( size, SEED ) );
+    }
+
+    /**
+     * Generates a model.
+     *
+     * @param size Model size (number of dependencies and properties).
+     * @param seed Seed for the random values.
+     * @return The project model.
+     */
+    public static Model generate( int size, long seed )
+    {
+        Random random = new Random( seed );
+
+        Model model = new Model();
+        model.setModelVersion( "4.0.0" );
+        model.setGroupId( "info.bluespot.synthetic" );
+        model.setArtifactId( "synthetic-" + size );
+        model.setVersion( "1.0.0-SNAPSHOT" );
+        model.setPackaging( "jar" );
+        model.setName( "Synthetic project (" + size + ")" );
+
+        model.setProperties( properties( "synthetic", size, random ) );
+        for ( int i = 0; i < size; i++ )
+        {
+            model.addDependency( dependency( i, random ) );
+        }
+
+        DependencyManagement management = new DependencyManagement();
+        for ( int i = 0; i < size / 10; i++ )
+        {
+            management.addDependency( dependency( size + i, random ) );
+        }
+        model.setDependencyManagement( management );
+
+        int profiles = Math.min( size / 100, MAX_PROFILES );
+        for ( int p = 0; p < profiles; p++ )
+        {
+            Profile profile = new Profile();
+            profile.setId( "profile-" + p );
+            profile.setProperties( properties( "profile" + p, 10, random ) );
+            for ( int i = 0; i < 5; i++ )
+            {
+                profile.addDependency( dependency( random.nextInt( size ), random ) );
+            }
+            model.addProfile( profile );
+        }
+        return ( model );
+    }
+
+    /**
+     * Writes a model to a file.
+     *
+     * @param model Project model.
+     * @param file POM file.
+     * @throws IOException I/O error.
+     */
+    public static void write( Model model, File file )
+        throws IOException
+    {
+        try ( OutputStream out = Files.newOutputStream( file.toPath() ) )
+        {
+            new MavenXpp3Writer().write( out, model );
+        }
+    }
+
+    /**
+     * Gets the dependency number 'i' (the same coordinates for the same number, with random version and scope).
+     */
+    private static Dependency dependency( int i, Random random )
+    {
+        Dependency dependency = new Dependency();
+        dependency.setGroupId( "org.synthetic.group" + ( i % 37 ) );
+        dependency.setArtifactId( "artifact-" + i + ( i % 5 == 0 ? "-api" : "-impl" ) );
+        dependency.setVersion( random.nextInt( 10 ) + "." + random.nextInt( 20 ) + "." + random.nextInt( 100 ) );
+        dependency.setScope( SCOPES[random.nextInt( SCOPES.length )] );
+        if ( random.nextInt( 10 ) == 0 )
+        {
+            Exclusion exclusion = new Exclusion();
+            exclusion.setGroupId( "org.excluded" );
+            exclusion.setArtifactId( "excluded-" + random.nextInt( 100 ) );
+            dependency.addExclusion( exclusion );
+        }
+        return ( dependency );
+    }
+
+    /**
+     * Gets a set of random properties.
+     */
+    private static Properties properties( String prefix, int count, Random random )
+    {
+        Properties properties = new OrderedProperties();
+        for ( int i = 0; i < count; i++ )
+        {
+            properties.setProperty( prefix + ".property" + i, Long.toHexString( random.nextLong() ) );
+        }
+        return ( properties );
+    }
+}
@@ -0,0 +1,18 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def pom = new XmlSlurper().parse("target/it/add-dependencies/alternate-pom.xml")
+
+def coordinates = { dependencies ->
+  dependencies.dependency.collect { it.artifactId.text() + ":" + it.classifier.text() + ":" + it.version.text() }
+}
+
+// The existing dependency is updated and nothing is duplicated by the second run
+assert coordinates(pom.dependencies) == [ "existing-library::1.1.0", "new-library::2.0.0",
+                                          "new-library:tests:2.0.0", "slf4j-api::1.7.32" ]
+
+// The managed dependency goes to the new profile
+def profile = pom.profiles.profile.find { it.id.text() == "testing" }
+assert coordinates(profile.dependencyManagement.dependencies) == [ "junit-bom::5.8.1" ]
+assert profile.dependencyManagement.dependencies.dependency[0].scope.text() == "import"
@@ -0,0 +1,13 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def pom = new XmlSlurper().parse("target/it/add-properties-from-files/alternate-pom.xml")
+
+// The last file wins, and the existing properties keep their place
+assert pom.properties.children().collect { it.name() } ==
+    [ "server.port", "server.protocol", "server.hostname", "server.timeout" ]
+assert pom.properties."server.hostname".text() == "prod.example.com"
+assert pom.properties."server.protocol".text() == "https"
+assert pom.properties."server.port".text() == "8080"
+assert pom.properties."server.timeout".text() == "30"
@@ -0,0 +1,16 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def pom = new XmlSlurper().parse("target/it/add-properties-sections/alternate-pom.xml")
+
+def profile = { id -> pom.profiles.profile.find { it.id.text() == id } }
+
+// The properties out of any section go to the general section
+assert pom.properties."server.protocol".text() == "https"
+
+// The existing profile is updated and the missing ones are created
+assert pom.profiles.profile.collect { it.id.text() } == [ "prod-eu", "dev-eu", "prod-us" ]
+assert profile("prod-eu").properties."server.hostname".text() == "eu.example.com"
+assert profile("dev-eu").properties."server.hostname".text() == "dev-eu.example.com"
+assert profile("prod-us").properties."server.port".text() == "8443"
@@ -0,0 +1,22 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def base = "target/it/apply-edits-directory/poms/"
+
+// Edited files
+[ "service-a/pom.xml", "examples/example-b/pom.xml" ].each { file ->
+
+  def pom = new XmlSlurper().parse(base + file)
+
+  println("  " + file + " : " + pom.version)
+
+  assert pom.version == '2.0.0'
+}
+
+// Excluded file
+def skipped = new XmlSlurper().parse(base + "skipped/service-c/pom.xml")
+
+println("  skipped/service-c/pom.xml : " + skipped.version)
+
+assert skipped.version == '1.0-SNAPSHOT'
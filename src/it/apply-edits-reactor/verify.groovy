@@ -0,0 +1,16 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def edited = [ "pom.xml", "module-a/pom.xml", "module-b/pom.xml" ].findAll { file ->
+
+  def pom = new XmlSlurper().parse("target/it/apply-edits-reactor/" + file)
+
+  assert pom instanceof groovy.util.slurpersupport.GPathResult
+
+  println("  " + file + " : reactor.edited = " + pom.properties.'reactor.edited')
+
+  pom.properties.'reactor.edited' == 'true'
+}
+
+assert edited.size() == 3
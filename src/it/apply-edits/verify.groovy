@@ -0,0 +1,26 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def pom = new XmlSlurper().parse("target/it/apply-edits/alternate-pom.xml")
+
+assert pom instanceof groovy.util.slurpersupport.GPathResult
+
+println("-- Edited project --")
+println("     version : " + pom.version)
+println(" description : " + pom.description)
+println("--")
+
+// Project information
+assert pom.version == '2.0.0'
+assert pom.description == 'Release 2.0.0'
+
+// Dependencies: the old one is removed, the new one is added
+assert pom.dependencies.dependency.size() == 1
+assert pom.dependencies.dependency.artifactId == 'brand-new-library'
+assert pom.dependencies.dependency.scope == 'provided'
+
+// Properties
+assert pom.properties.'server.env' == 'prod'
+assert pom.properties.'server.port' == '8080'
+assert pom.profiles.profile.find{ profile -> profile.id.text() == "deployment" }.properties.'server.hostname' == 'a1b2c3.example.com'
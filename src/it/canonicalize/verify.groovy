@@ -0,0 +1,33 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def file = new File("target/it/canonicalize/alternate-pom.xml")
+
+println("-- Modified POM --")
+println(file.text)
+println("--")
+
+def project = new XmlSlurper().parse(file)
+
+// Properties sorted by name
+assert project.properties.children()*.name() == [ "guava.version", "junit.version", "slf4j.version" ]
+
+// Managed dependencies: duplicates removed (the last one wins), sorted by coordinates and the imports last (in order)
+def managed = project.dependencyManagement.dependencies.dependency
+assert managed*.artifactId*.text() == [ "guava", "slf4j-api", "spring-boot-dependencies", "jackson-bom" ]
+assert managed[0].version.text() == '${guava.version}'
+
+// Dependencies: duplicates removed, the winner takes the place of the first one and the order is kept
+def dependencies = project.dependencies.dependency
+assert dependencies*.artifactId*.text() == [ "slf4j-api", "junit", "guava" ]
+assert dependencies[1].version.text() == "4.12"
+
+// Directory mode: the same dependencies in any order give the same file
+def one = new File("target/it/canonicalize/poms/one/pom.xml").text
+def two = new File("target/it/canonicalize/poms/two/pom.xml").text
+assert one.replace("module-one", "module-two") == two
+
+def module = new XmlSlurper().parseText(one)
+assert module.dependencies.dependency*.artifactId*.text() == [ "commons-io", "slf4j-api", "junit" ]
+assert module.dependencies.dependency[0].version.text() == "2.11.0"
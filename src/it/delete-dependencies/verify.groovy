@@ -0,0 +1,12 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def pom = new XmlSlurper().parse("target/it/delete-dependencies/alternate-pom.xml")
+
+def artifacts = { dependencies -> dependencies.dependency.collect { it.artifactId.text() } }
+
+// Only the library that doesn't match any pattern is left on every section
+assert artifacts(pom.dependencies) == [ "kept-library" ]
+assert artifacts(pom.dependencyManagement.dependencies) == [ "kept-library" ]
+assert artifacts(pom.profiles.profile[0].dependencies).isEmpty()
@@ -0,0 +1,35 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+// ISO-8859-1 file: rewritten with the same encoding
+def latin1 = new File("target/it/encoding/latin1-pom.xml").getText("ISO-8859-1")
+
+println("-- Modified POM (ISO-8859-1) --")
+println(latin1)
+println("--")
+
+assert latin1.startsWith('<?xml version="1.0" encoding="ISO-8859-1"?>')
+assert latin1.contains("<version>1.2.3</version>")
+assert latin1.contains("<name>Gesti\u00f3n de se\u00f1ales</name>")
+assert latin1.contains("<description>A\u00f1o, canci\u00f3n, caf\u00e9</description>")
+
+// ISO-8859-1 file with characters out of the encoding: written as character references (not as '?')
+def refs = new File("target/it/encoding/latin1-refs-pom.xml").getText("ISO-8859-1")
+
+println("-- Modified POM (ISO-8859-1, character references) --")
+println(refs)
+println("--")
+
+assert refs.startsWith('<?xml version="1.0" encoding="ISO-8859-1"?>')
+assert refs.contains("<name>Gesti\u00f3n de se\u00f1ales</name>")
+assert refs.contains("<description>A\u00f1o &#x20AC; &#x4E2D;</description>")
+assert new XmlSlurper().parse(new File("target/it/encoding/latin1-refs-pom.xml")).description.text() == "A\u00f1o \u20ac \u4e2d"
+
+// UTF-8 file with a byte order mark: modified in place, keeping the mark
+def bytes = new File("target/it/encoding/bom-pom.xml").bytes
+def original = new File("src/it/encoding/bom-pom.xml").bytes
+def expected = new String(original, "UTF-8").replace("<version>1.0-SNAPSHOT</version>", "<version>1.2.3</version>")
+
+assert bytes[0] == (byte) 0xEF && bytes[1] == (byte) 0xBB && bytes[2] == (byte) 0xBF
+assert new String(bytes, "UTF-8") == expected
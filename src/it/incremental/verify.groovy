@@ -0,0 +1,19 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def file = new File("target/it/incremental/alternate-pom.xml")
+def log = new File("target/it/incremental/build.log").text
+
+println("-- Modified POM --")
+println(file.text)
+println("--")
+
+// The first build adds the properties
+def project = new XmlSlurper().parse(file)
+assert project.properties.'dev.server.hostname'.text() == "a1b2c3.example.com"
+assert project.properties.'prod.server.port'.text() == "443"
+
+// The second one has nothing to do
+assert new File("target/it/incremental/target/pomutils-fingerprints/add-properties-incremental.properties").isFile()
+assert log.count("Nothing has changed since the last execution (skipped).") == 1
@@ -0,0 +1,28 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def csv = new File("target/it/inventory/target/old-log4j.csv")
+def jsonl = new File("target/it/inventory/target/inventory.jsonl")
+
+println("-- Inventories --")
+println(csv.text)
+println(jsonl.text)
+println("--")
+
+// Only the log4j-core versions under 2.17 (with the version property resolved)
+def rows = csv.readLines()
+assert rows[0] == "pom,kind,profile,groupId,artifactId,version,type,classifier,scope,name,value"
+assert rows.size() == 3
+assert rows.contains("poms/app/pom.xml,dependency,,org.apache.logging.log4j,log4j-core,2.14.1,jar,,,,")
+assert rows.contains("poms/platform/pom.xml,managed-dependency,legacy,org.apache.logging.log4j,log4j-core,2.16.0,jar,,,,")
+
+// Everything, but only the 'server.*' properties
+def records = jsonl.readLines()
+assert records.size() == 10
+assert records.count { it.contains('"kind":"project"') } == 3
+assert records.contains('{"pom":"poms/app/pom.xml","kind":"project","groupId":"com.example","artifactId":"app","version":"3.0.0","type":"jar"}')
+assert records.contains('{"pom":"poms/app/pom.xml","kind":"property","name":"server.port","value":"8080"}')
+assert records.contains('{"pom":"poms/platform/pom.xml","kind":"property","name":"server.hostname","value":"www.example.com"}')
+assert records.contains('{"pom":"poms/app/pom.xml","kind":"dependency","groupId":"junit","artifactId":"junit","version":"4.13.2","type":"jar","scope":"test"}')
+assert records.contains('{"pom":"poms/platform/pom.xml","kind":"profile","profile":"legacy","name":"legacy"}')
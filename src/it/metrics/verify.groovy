@@ -0,0 +1,23 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def reports = new File( "target/it/metrics/target/pomutils-metrics" )
+def report = new File( reports, "modify-project-set-version.json" ).text
+def again = new File( reports, "modify-project-set-version-again.json" ).text
+
+println( "-- Metrics report --" )
+println( report )
+println( "--" )
+
+// Every phase of the first execution has been timed
+assert report.contains( '"goal": "modify-project"' )
+assert report.contains( '"files": 1' )
+[ "read", "parse", "mutate", "serialize", "write" ].each { phase ->
+  assert report =~ /"${phase}": \{ "count": 1, "totalMs": [0-9.]+, "p50Ms": [0-9.]+, "p95Ms": [0-9.]+, "maxMs": [0-9.]+ \}/
+}
+assert report.contains( '"written": true' )
+
+// The second execution doesn't write the file
+assert again.contains( '"written": false' )
+assert again.contains( '"write": { "count": 0' )
@@ -0,0 +1,15 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def file = new File("target/it/model-cache/alternate-pom.xml")
+def project = new XmlSlurper().parse(file)
+
+println("-- Modified POM --")
+println(file.text)
+println("--")
+
+// Every goal sees the changes of the previous ones
+assert project.version.text() == "2.0.0"
+assert project.dependencies.dependency.find { it.artifactId.text() == "junit" }.version.text() == "4.13.2"
+assert project.properties.cached.text() == "true"
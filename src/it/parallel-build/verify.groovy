@@ -0,0 +1,21 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def file = new File("target/it/parallel-build/shared-pom.xml")
+def log = new File("target/it/parallel-build/build.log").text
+
+println("-- Modified POM --")
+println(file.text)
+println("--")
+
+// No execution has overwritten the properties of the others
+def project = new XmlSlurper().parse(file)
+assert project.properties.'shared.version'.text() == "1.0.0"
+["module-a", "module-b", "module-c", "module-d"].each {
+    assert project.properties."${it}.built".text() == "true"
+}
+
+// The goals are thread-safe
+assert !log.contains("not marked as thread-safe")
+assert !log.contains("not marked as @threadSafe")
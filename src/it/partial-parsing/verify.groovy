@@ -0,0 +1,16 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def file = new File("target/it/partial-parsing/alternate-pom.xml")
+def original = new File("src/it/partial-parsing/alternate-pom.xml").text
+
+// Only the version and the profile properties have changed: the rest of the file is kept as it is
+def expected = original.replace("<version>1.0-SNAPSHOT</version>", "<version>1.2.3</version>")
+                       .replace("<skipTests>true</skipTests>", "<skipTests>true</skipTests>\n        <java.version>11</java.version>")
+
+println("-- Modified POM --")
+println(file.text)
+println("--")
+
+assert file.text == expected
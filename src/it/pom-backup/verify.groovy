@@ -0,0 +1,13 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def file = new File("target/it/pom-backup/alternate-pom.xml")
+def backup = new File("target/it/pom-backup/alternate-pom.xml.bak")
+
+// The backup keeps the original contents
+assert backup.text == new File("src/it/pom-backup/alternate-pom.xml").text
+assert new XmlSlurper().parse(file).version.text() == "1.0.0"
+
+// No temporary files are left behind
+assert new File("target/it/pom-backup").list().findAll { it.endsWith(".tmp") }.isEmpty()
@@ -0,0 +1,90 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+
+def dir = new File("target/it/pom-editor-api")
+def pom = new File(dir, "app-pom.xml").path
+
+// Load the editor without Maven: only the plugin, the Maven model and the Plexus utilities (the versions of the plugin
+// build), over the platform classes
+def repo = new File("target/local-repo")
+def plugin = new File(repo, "info/bluespot/pomutils-maven-plugin").listFiles().find { it.isDirectory() }
+def jars = [
+  new File(plugin, "pomutils-maven-plugin-" + plugin.name + ".jar"),
+  new File(repo, "org/apache/maven/maven-model/3.8.1/maven-model-3.8.1.jar"),
+  new File(repo, "org/codehaus/plexus/plexus-utils/3.2.1/plexus-utils-3.2.1.jar")
+].each { assert it.isFile() }
+def loader = new URLClassLoader(jars*.toURI()*.toURL() as URL[], ClassLoader.systemClassLoader.parent)
+def PomEditor = loader.loadClass("info.bluespot.plugins.PomEditor")
+
+try {
+  loader.loadClass("org.apache.maven.plugin.AbstractMojo")
+  assert false : "The Maven plugin API is on the class path"
+} catch (ClassNotFoundException e) {
+  // Expected
+}
+
+// Fluent edits
+assert PomEditor.open(pom)
+  .addDependency("org.slf4j:slf4j-api:1.7.32")
+  .deleteDependencies("junit")
+  .setProperties([ "java.version": "11" ])
+  .setVersion("2.0.0")
+  .save()
+assert !PomEditor.open(pom).setVersion("2.0.0").save()
+
+// Two editors of the same file: the second one applies its edits over the file saved by the first one
+def first = PomEditor.open(pom)
+def second = PomEditor.open(pom)
+first.setProperties([ "first": "true" ])
+second.addDependency("com.example:second:1.0")
+assert first.save()
+assert second.save()
+
+// Two threads editing the same file, each one with its own editors
+def pool = Executors.newFixedThreadPool(2)
+[ "a", "b" ].collect { name ->
+  pool.submit({
+    (1..20).each { i ->
+      PomEditor.open(pom).setProperties([ (name + "." + i): String.valueOf(i) ]).save()
+    }
+  } as Callable)
+}*.get()
+
+// Two threads sharing an editor
+def shared = PomEditor.open(pom)
+[ "c", "d" ].collect { name ->
+  pool.submit({
+    (1..20).each { i ->
+      shared.setProperties([ (name + "." + i): String.valueOf(i) ])
+    }
+    shared.save()
+  } as Callable)
+}*.get()
+pool.shutdown()
+
+// Every edit is there
+def project = new XmlSlurper().parse(new File(pom))
+
+println("-- Edited project --")
+println("      version : " + project.version)
+println(" dependencies : " + project.dependencies.dependency.artifactId*.text())
+println("   properties : " + project.properties.children().size())
+println("--")
+
+assert project.version == '2.0.0'
+assert project.dependencies.dependency.artifactId*.text() == [ 'slf4j-api', 'second' ]
+assert project.properties.'java.version' == '11'
+assert project.properties.first == 'true'
+[ "a", "b", "c", "d" ].each { name ->
+  (1..20).each { i ->
+    assert project.properties."${name}.${i}" == String.valueOf(i)
+  }
+}
+assert project.properties.children().size() == 3 + 80
+
+// Only the editors in the same JVM are waited for by default: no lock file
+assert !new File(pom + ".lock").exists()
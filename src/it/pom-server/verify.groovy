@@ -0,0 +1,58 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def dir = new File("target/it/pom-server")
+
+// The server only needs the plugin, the Maven model and the Plexus utilities (the versions of the plugin build)
+def repo = new File("target/local-repo")
+def plugin = new File(repo, "info/bluespot/pomutils-maven-plugin").listFiles().find { it.isDirectory() }
+def classpath = [
+  new File(plugin, "pomutils-maven-plugin-" + plugin.name + ".jar"),
+  new File(repo, "org/apache/maven/maven-model/3.8.1/maven-model-3.8.1.jar"),
+  new File(repo, "org/codehaus/plexus/plexus-utils/3.2.1/plexus-utils-3.2.1.jar")
+].each { assert it.isFile() }*.absolutePath.join(File.pathSeparator)
+
+// Pipe the requests (two of them on the same file, one malformed) and read all the responses
+def java = new File(System.getProperty("java.home"), "bin/java").path
+def server = new ProcessBuilder(java, "-cp", classpath, "info.bluespot.plugins.PomServer", "--threads", "4")
+  .directory(dir).redirectError(ProcessBuilder.Redirect.INHERIT).start()
+server.outputStream.withStream { it << new File(dir, "requests.jsonl").bytes }
+def lines = server.inputStream.readLines("UTF-8")
+assert server.waitFor() == 0
+
+println("-- Responses --")
+lines.each { println(it) }
+println("--")
+
+// Responses: {"id": 1, "pom": "app-pom.xml", "status": "written", ...}
+assert lines.size() == 7
+def status = lines.collectEntries { line ->
+  def id = (line =~ /^\{"id": (null|\d+),/)[0][1]
+  [ (id == 'null' ? null : id as int): (line =~ /"status": "(\w+)"/)[0][1] ]
+}
+
+assert status[1] == 'written'
+assert status[2] == 'written'
+assert status[3] == 'written'
+assert status[5] == 'unchanged'
+assert status[6] == 'error'
+assert status[7] == 'written'
+assert status[null] == 'error'
+assert lines.find { it.startsWith('{"id": 6,') }.contains("missing-pom.xml")
+assert lines.findAll { !it.contains('"status": "error"') }.every { it.contains('"write": ') }
+
+// The requests on the same file are applied in order
+def app = new XmlSlurper().parse(new File(dir, "app-pom.xml"))
+assert app.version == '3.0.0'
+assert app.dependencies.dependency.size() == 1
+assert app.dependencies.dependency.artifactId == 'new-library'
+assert app.properties.'app.released' == 'true'
+
+def backup = new XmlSlurper().parse(new File(dir, "app-pom.xml.bak"))
+assert backup.version == '3.0.0'
+assert backup.properties.'app.released'.isEmpty()
+
+def lib = new XmlSlurper().parse(new File(dir, "lib-pom.xml"))
+assert lib.version == '2.0.0'
+assert lib.dependencies.dependency.artifactId == 'old-library'
@@ -0,0 +1,15 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def file = new File("target/it/preserve-formatting/alternate-pom.xml")
+def original = new File("src/it/preserve-formatting/alternate-pom.xml").text
+
+// Only the version has changed: comments and blank lines are kept
+def expected = original.replace("<version>1.0-SNAPSHOT</version>", "<version>1.2.3</version>")
+
+println("-- Modified POM --")
+println(file.text)
+println("--")
+
+assert file.text == expected
@@ -0,0 +1,44 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def dir = new File("target/it/release-version")
+def root = new File(dir, "pom.xml")
+def a = new File(dir, "module-a/pom.xml")
+def b = new File(dir, "module-b/pom.xml")
+def c = new File(dir, "module-c/pom.xml")
+
+[root, a, b, c].each {
+    println("-- ${it} --")
+    println(it.text)
+}
+println("--")
+
+// The root module and the references to the reactor modules
+def project = new XmlSlurper().parse(root)
+assert project.version.text() == "1.0.0"
+def managed = project.dependencyManagement.dependencies.dependency
+assert managed.find { it.artifactId == "module-a" }.version.text() == "1.0.0"
+assert managed.find { it.artifactId == "external" }.version.text() == "1.0.0-SNAPSHOT"
+
+// A module inheriting the version
+project = new XmlSlurper().parse(a)
+assert project.parent.version.text() == "1.0.0"
+assert project.version.size() == 0
+
+// A module with its own version and references on the profiles
+project = new XmlSlurper().parse(b)
+assert project.parent.version.text() == "1.0.0"
+assert project.version.text() == "1.0.0"
+assert project.profiles.profile.find { it.id == "with-a" }.dependencies.dependency.version.text() == "1.0.0"
+assert project.profiles.profile.find { it.id == "with-c" }.dependencies.dependency.version.text() == "0.9.0"
+
+// A module with another version
+project = new XmlSlurper().parse(c)
+assert project.parent.version.text() == "1.0.0"
+assert project.version.text() == "0.9.0"
+assert project.dependencies.dependency.version.text() == '${project.parent.version}'
+
+// The formatting is kept
+assert root.text.contains("<!-- Not a reactor module: left as it is -->")
+assert a.text.contains("<!-- The version is inherited -->")
@@ -0,0 +1,37 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def file = new File("target/it/rename-properties/alternate-pom.xml")
+
+println("-- Modified POM --")
+println(file.text)
+println("--")
+
+def project = new XmlSlurper().parse(file)
+
+// Renamed properties
+assert project.properties.'spring-framework.version'.text() == "5.3.20"
+assert project.properties.'spring.version'.size() == 0
+assert project.properties.'jackson-bom.version'.text() == "2.13.3"
+assert project.properties.'jackson.version'.size() == 0
+assert project.properties.'spring-boot.version'.text() == "2.7.0"
+
+// The new name already existed: its value is kept
+assert project.properties.'maven.compiler.release'.text() == "17"
+assert project.properties.'compiler.release'.size() == 0
+
+// References everywhere
+assert project.properties.'spring-context.version'.text() == '${spring-framework.version}'
+def managed = project.dependencyManagement.dependencies.dependency
+assert managed.find { it.artifactId == "spring-core" }.version.text() == '${spring-framework.version}'
+assert managed.find { it.artifactId == "spring-boot" }.version.text() == '${spring-boot.version}'
+assert managed.find { it.artifactId == "jackson-databind" }.version.text() == '${jackson-bom.version}'
+def compiler = project.build.plugins.plugin.configuration
+assert compiler.release.text() == '${maven.compiler.release}'
+assert compiler.compilerArgs.arg.text() == '-Aspring=${spring-framework.version}'
+
+// Profiles and literal rewrites
+def legacy = project.profiles.profile.find { it.id == "legacy" }
+assert legacy.properties.'spring-framework.version'.text() == "4.3.30.RELEASE"
+assert legacy.repositories.repository.url.text() == "https://repo.example.com/legacy"
@@ -0,0 +1,12 @@
+//
+// Generates the files of the 'scale-add-dependencies' integration test
+//
+
+def ScalePoms = new GroovyClassLoader( getClass().classLoader ).parseClass( new File( "src/it/scale-support/ScalePoms.groovy" ) )
+def dir = new File( "target/it/scale-add-dependencies" )
+
+ScalePoms.project( new File( dir, "alternate-pom.xml" ),
+                   [ dependencies: 5000, managed: 500, properties: 1000, profiles: 20, profileDependencies: 50 ] )
+
+// Half of the dependencies in the file are already on the POM (with other versions)
+ScalePoms.dependencyFile( new File( dir, "dependencies.txt" ), 2500, 10000 )
@@ -0,0 +1,18 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def ScalePoms = new GroovyClassLoader( getClass().classLoader ).parseClass( new File( "src/it/scale-support/ScalePoms.groovy" ) )
+def pom = new XmlSlurper().parse( "target/it/scale-add-dependencies/alternate-pom.xml" )
+
+// The existing dependencies are updated in place and the new ones appended, without duplicates
+def dependencies = pom.dependencies.dependency.list()
+assert dependencies.size() == 12500
+assert dependencies.collect { it.artifactId.text() } == ( 0..<12500 ).collect { ScalePoms.artifactId( it ) }
+( 2500..<12500 ).each { assert dependencies[it].version.text() == "${100 + it % 7}.0.0" }
+
+// The other sections are untouched
+assert pom.dependencyManagement.dependencies.dependency.size() == 500
+assert pom.profiles.profile.size() == 20
+
+ScalePoms.checkTimeBudget( new File( "target/it/scale-add-dependencies/build.log" ), 60 )
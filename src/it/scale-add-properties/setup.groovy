@@ -0,0 +1,12 @@
+//
+// Generates the files of the 'scale-add-properties' integration test
+//
+
+def ScalePoms = new GroovyClassLoader( getClass().classLoader ).parseClass( new File( "src/it/scale-support/ScalePoms.groovy" ) )
+def dir = new File( "target/it/scale-add-properties" )
+
+ScalePoms.project( new File( dir, "alternate-pom.xml" ),
+                   [ properties: 20000, profiles: 20, profileProperties: 1000 ] )
+
+// Half of the properties in the file are already on the POM, and so are the profiles
+ScalePoms.propertyFile( new File( dir, "scale.properties" ), 20000, ( 0..<10 ).collect { "profile-${it}" }, 1000 )
@@ -0,0 +1,23 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def ScalePoms = new GroovyClassLoader( getClass().classLoader ).parseClass( new File( "src/it/scale-support/ScalePoms.groovy" ) )
+def pom = new XmlSlurper().parse( "target/it/scale-add-properties/alternate-pom.xml" )
+
+// The existing properties keep their place and the new ones are appended
+def properties = pom.properties.children().list()
+assert properties.size() == 30000
+assert properties[0..<20000].collect { it.name() } == ( 0..<20000 ).collect { "scale.property${it}" }
+assert properties[20000..<30000].collect { it.name() } == ( 10000..<20000 ).collect { "scale.property${it * 2}" }
+assert properties[0].text() == "file-value-0"
+assert properties[29999].text() == "file-value-19999"
+
+// Every profile section goes to its profile
+def profiles = pom.profiles.profile.list()
+assert profiles.size() == 20
+( 0..<10 ).each { assert profiles[it].properties.children().size() == 1500 }
+( 10..<20 ).each { assert profiles[it].properties.children().size() == 1000 }
+assert profiles[3].properties."profile3.property0".text() == "profile-3-value-0"
+
+ScalePoms.checkTimeBudget( new File( "target/it/scale-add-properties/build.log" ), 60 )
@@ -0,0 +1,11 @@
+//
+// Generates the POM tree of the 'scale-apply-edits' integration test
+//
+
+def ScalePoms = new GroovyClassLoader( getClass().classLoader ).parseClass( new File( "src/it/scale-support/ScalePoms.groovy" ) )
+
+// 1 + 4 + 16 + 64 + 256 files
+def count = ScalePoms.reactor( new File( "target/it/scale-apply-edits/poms" ), 4, 4,
+                               [ dependencies: 200, managed: 50, properties: 200, profiles: 2,
+                                 profileDependencies: 20 ] )
+assert count == 341
@@ -0,0 +1,20 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def ScalePoms = new GroovyClassLoader( getClass().classLoader ).parseClass( new File( "src/it/scale-support/ScalePoms.groovy" ) )
+def poms = []
+new File( "target/it/scale-apply-edits/poms" ).eachFileRecurse { if ( it.name == "pom.xml" ) poms << it }
+assert poms.size() == 341
+
+// Every file of the tree has been edited
+poms.each { file ->
+  def pom = new XmlSlurper().parse( file )
+  assert pom.version.text() == "2.0.0"
+  assert pom.properties."scale.edited".text() == "true"
+  assert !pom.dependencies.dependency.any { it.groupId.text() == "org.scale.group1" }
+  assert pom.dependencies.dependency.list().last().artifactId.text() == "added-library"
+  assert pom.dependencies.dependency.size() == 200 - 6 + 1
+}
+
+ScalePoms.checkTimeBudget( new File( "target/it/scale-apply-edits/build.log" ), 120 )
@@ -0,0 +1,8 @@
+//
+// Generates the POM of the 'scale-delete-dependencies' integration test
+//
+
+def ScalePoms = new GroovyClassLoader( getClass().classLoader ).parseClass( new File( "src/it/scale-support/ScalePoms.groovy" ) )
+
+ScalePoms.project( new File( "target/it/scale-delete-dependencies/alternate-pom.xml" ),
+                   [ dependencies: 10000, managed: 1000, properties: 1000, profiles: 20, profileDependencies: 100 ] )
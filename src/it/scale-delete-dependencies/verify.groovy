@@ -0,0 +1,23 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def ScalePoms = new GroovyClassLoader( getClass().classLoader ).parseClass( new File( "src/it/scale-support/ScalePoms.groovy" ) )
+def original = new XmlSlurper().parse( "target/it/scale-delete-dependencies/alternate-pom.xml.bak" )
+def pom = new XmlSlurper().parse( "target/it/scale-delete-dependencies/alternate-pom.xml" )
+
+def deleted = { it.groupId.text() ==~ /org\.scale\.group(1|2|3[0-9])/ }
+def sections = { project ->
+  [ project.dependencies, project.dependencyManagement.dependencies ] +
+    project.profiles.profile.collect { it.dependencies }
+}
+
+// Every section keeps exactly the dependencies that don't match, in the same order
+[ sections( original ), sections( pom ) ].transpose().each { before, after ->
+  def kept = before.dependency.findAll { !deleted( it ) }.collect { it.artifactId.text() }
+  assert after.dependency.collect { it.artifactId.text() } == kept
+}
+assert original.dependencies.dependency.size() == 10000
+assert pom.dependencies.dependency.size() < 10000
+
+ScalePoms.checkTimeBudget( new File( "target/it/scale-delete-dependencies/build.log" ), 60 )
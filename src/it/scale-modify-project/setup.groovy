@@ -0,0 +1,9 @@
+//
+// Generates the POM of the 'scale-modify-project' integration test
+//
+
+def ScalePoms = new GroovyClassLoader( getClass().classLoader ).parseClass( new File( "src/it/scale-support/ScalePoms.groovy" ) )
+
+ScalePoms.project( new File( "target/it/scale-modify-project/alternate-pom.xml" ),
+                   [ dependencies: 20000, managed: 2000, properties: 5000, profiles: 20, profileDependencies: 100,
+                     profileProperties: 100 ] )
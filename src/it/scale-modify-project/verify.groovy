@@ -0,0 +1,15 @@
+//
+// Groovy script for a 'quick-and-dirty' integration test
+//
+
+def ScalePoms = new GroovyClassLoader( getClass().classLoader ).parseClass( new File( "src/it/scale-support/ScalePoms.groovy" ) )
+def original = new File( "target/it/scale-modify-project/alternate-pom.xml.bak" ).readLines( "UTF-8" )
+def modified = new File( "target/it/scale-modify-project/alternate-pom.xml" ).readLines( "UTF-8" )
+
+// Only the version line has changed
+assert modified.size() == original.size()
+def changed = ( 0..<original.size() ).findAll { original[it] != modified[it] }
+assert changed.size() == 1
+assert modified[changed[0]] == "  <version>2.0.0</version>"
+
+ScalePoms.checkTimeBudget( new File( "target/it/scale-modify-project/build.log" ), 60 )
@@ -0,0 +1,185 @@
+//
+// Deterministic generator of large POM files and module trees for the scale integration tests
+//
+// The same options and seed always give the same files, so a slow or failing run can be reproduced. Dependency
+// number 'i' always has the same coordinates ('org.scale.group<i % 37>:artifact-<i>'), so the tests can generate
+// files that overlap with a generated POM.
+//
+
+class ScalePoms
+{
+  static final long SEED = 0x504f4dL
+
+  static final List<String> SCOPES = [ null, "compile", "test", "provided", "runtime" ]
+
+  /**
+   * Writes a POM file. Options (all optional): artifactId, version, dependencies, managed, properties, profiles,
+   * profileDependencies, profileProperties, modules (list of module names) and seed.
+   */
+  static void project( File file, Map options )
+  {
+    def random = new Random( options.seed ?: SEED )
+    int dependencies = options.dependencies ?: 0
+    int managed = options.managed ?: 0
+    int profiles = options.profiles ?: 0
+
+    file.parentFile?.mkdirs()
+    file.withWriter( "UTF-8" ) { out ->
+      out << '<?xml version="1.0" encoding="UTF-8"?>\n'
+      out << '<project xmlns="http://maven.apache.org/POM/4.0.0" '
+      out << 'xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance" '
+      out << 'xsi:schemaLocation="http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd">\n'
+      out << '  <modelVersion>4.0.0</modelVersion>\n'
+      out << '  <groupId>it.tests.scale</groupId>\n'
+      out << "  <artifactId>${options.artifactId ?: 'scale'}</artifactId>\n"
+      out << "  <version>${options.version ?: '1.0-SNAPSHOT'}</version>\n"
+      out << "  <packaging>${options.modules ? 'pom' : 'jar'}</packaging>\n"
+      if ( options.modules )
+      {
+        out << '  <modules>\n'
+        options.modules.each { out << "    <module>${it}</module>\n" }
+        out << '  </modules>\n'
+      }
+      writeProperties( out, "  ", "scale", options.properties ?: 0, random )
+      if ( managed > 0 )
+      {
+        out << '  <dependencyManagement>\n'
+        writeDependencies( out, "    ", dependencies, managed, random )
+        out << '  </dependencyManagement>\n'
+      }
+      writeDependencies( out, "  ", 0, dependencies, random )
+      if ( profiles > 0 )
+      {
+        out << '  <profiles>\n'
+        for ( int p = 0; p < profiles; p++ )
+        {
+          out << '    <profile>\n'
+          out << "      <id>profile-${p}</id>\n"
+          writeProperties( out, "      ", "profile${p}", options.profileProperties ?: 0, random )
+          writeDependencies( out, "      ", dependencies + managed + p * 1000, options.profileDependencies ?: 0,
+                             random )
+          out << '    </profile>\n'
+        }
+        out << '  </profiles>\n'
+      }
+      out << '</project>\n'
+    }
+  }
+
+  /**
+   * Writes a module tree: every POM has 'fanout' modules down to 'depth' levels, with the given project options.
+   *
+   * @return The number of POM files written.
+   */
+  static int reactor( File directory, int depth, int fanout, Map options, String name = "root" )
+  {
+    def modules = depth > 0 ? ( 0..<fanout ).collect { "${name}-${it}" } : []
+    project( new File( directory, "pom.xml" ),
+             options + [ artifactId: name, modules: modules, seed: ( options.seed ?: SEED ) + name.hashCode() ] )
+
+    int count = 1
+    modules.each { count += reactor( new File( directory, it ), depth - 1, fanout, options, it ) }
+    return count
+  }
+
+  /**
+   * Writes a dependency file (for the 'dependencyFile' parameter) with the dependencies from 'from' to
+   * 'from + count - 1'. Their versions are always different from the ones on the generated POM files.
+   */
+  static void dependencyFile( File file, int from, int count )
+  {
+    file.withWriter( "UTF-8" ) { out ->
+      for ( int i = from; i < from + count; i++ )
+      {
+        out << "${groupId( i )}:${artifactId( i )}:${100 + i % 7}.0.0 scope=${i % 2 ? 'compile' : 'test'}\n"
+      }
+    }
+  }
+
+  /**
+   * Writes a property file with 'count' properties on the default section ('scale.property<n>', the same names as
+   * the generated POM files) and on every profile section.
+   */
+  static void propertyFile( File file, int count, List<String> profiles = [], int profileCount = 0 )
+  {
+    file.withWriter( "UTF-8" ) { out ->
+      for ( int i = 0; i < count; i++ )
+      {
+        out << "scale.property${i * 2}=file-value-${i}\n"
+      }
+      profiles.eachWithIndex { profile, p ->
+        out << "\n[profile:${profile}]\n"
+        for ( int i = 0; i < profileCount; i++ )
+        {
+          out << "profile${p}.property${i * 2}=${profile}-value-${i}\n"
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks the time taken by the Maven build of a test against a budget (in seconds).
+   */
+  static void checkTimeBudget( File buildLog, double maxSeconds )
+  {
+    def matcher = buildLog.text =~ /Total time:\s+([0-9:.,]+) (s|min|h)/
+    assert matcher.find() : "No build time on ${buildLog}"
+
+    double seconds = 0
+    matcher.group( 1 ).replace( ',', '.' ).split( ':' ).each { seconds = seconds * 60 + Double.parseDouble( it ) }
+    if ( matcher.group( 2 ) == "min" && !matcher.group( 1 ).contains( ':' ) )
+    {
+      seconds *= 60
+    }
+
+    println( "-- Build time: ${seconds} s (budget: ${maxSeconds} s) --" )
+    assert seconds <= maxSeconds : "The build took ${seconds} s (budget: ${maxSeconds} s)"
+  }
+
+  static String groupId( int i )
+  {
+    "org.scale.group${i % 37}"
+  }
+
+  static String artifactId( int i )
+  {
+    "artifact-${i}"
+  }
+
+  private static void writeDependencies( Writer out, String indent, int from, int count, Random random )
+  {
+    if ( count <= 0 )
+    {
+      return
+    }
+    out << "${indent}<dependencies>\n"
+    for ( int i = from; i < from + count; i++ )
+    {
+      out << "${indent}  <dependency>\n"
+      out << "${indent}    <groupId>${groupId( i )}</groupId>\n"
+      out << "${indent}    <artifactId>${artifactId( i )}</artifactId>\n"
+      out << "${indent}    <version>${random.nextInt( 10 )}.${random.nextInt( 20 )}.${random.nextInt( 100 )}</version>\n"
+      def scope = SCOPES[random.nextInt( SCOPES.size() )]
+      if ( scope )
+      {
+        out << "${indent}    <scope>${scope}</scope>\n"
+      }
+      out << "${indent}  </dependency>\n"
+    }
+    out << "${indent}</dependencies>\n"
+  }
+
+  private static void writeProperties( Writer out, String indent, String prefix, int count, Random random )
+  {
+    if ( count <= 0 )
+    {
+      return
+    }
+    out << "${indent}<properties>\n"
+    for ( int i = 0; i < count; i++ )
+    {
+      out << "${indent}  <${prefix}.property${i}>${Long.toHexString( random.nextLong() )}</${prefix}.property${i}>\n"
+    }
+    out << "${indent}</properties>\n"
+  }
+}
@@ -0,0 +1,648 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Base class for the goals that modify a POM file.
+ * <p>
+ * It holds the parameters shared by all the goals (the POM file, the backup file and the writing options) and the
+ * methods for opening and saving a {@link PomEditor} with them.
+ * </p>
+ * <p>
+ * It also runs the goals that edit many POM files (the modules of the reactor or the files under a directory) with a
+ * {@link PomBatch}: every file is processed by a task in a pool of worker threads and the results are reported at
+ * the end.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public abstract class AbstractPOMMojo
+    extends AbstractMojo
+{
+    // PARAMETERS ............................................................
+
+    /**
+     * Keeps a copy of the current POM file before modifying it.
+     */
+    @Parameter( property = "pomBackup", required = false, readonly = true )
+    protected String pomBackup;
+
+    /**
+     * Specifies a POM file to modify.
+     */
+    @Parameter( property = "pomFile", required = false, readonly = true, defaultValue = "pom.xml" )
+    protected String pomFile;
+
+    /**
+     * Rewrites only the modified elements of the POM file, keeping comments and formatting. Changes that can't be
+     * applied that way make the whole model to be written as usual.
+     */
+    @Parameter( property = "preserveFormatting", required = false, readonly = true, defaultValue = "false" )
+    protected boolean preserveFormatting;
+
+    /**
+     * Maximum number of parsed POM models shared between the executions of this plugin in the same build (zero
+     * disables the cache). Only the first execution of the build sets the cache size.
+     */
+    @Parameter( property = "modelCacheSize", required = false, readonly = true, defaultValue = "64" )
+    protected int modelCacheSize;
+
+    /**
+     * When the written POM files are flushed to the storage device: <code>ALWAYS</code> (after every file),
+     * <code>NEVER</code> or <code>BATCH</code> (once at the end of the goal). The files are always replaced atomically,
+     * so they can't be left half written if the build is killed.
+     */
+    @Parameter( property = "fsync", required = false, readonly = true, defaultValue = "ALWAYS" )
+    protected PomWriter.FsyncPolicy fsync;
+
+    /**
+     * Waits for the executions writing the same POM file in other Maven processes too, with a lock file next to it
+     * (<code>pom.xml.lock</code>, created the first time the file is written). The executions in the same process
+     * always wait for each other.
+     */
+    @Parameter( property = "processLock", required = false, readonly = true, defaultValue = "false" )
+    protected boolean processLock;
+
+    /**
+     * Parses only the sections of the POM file the goal edits (for instance, the properties) and copies the rest of
+     * the file back as it is, as with <code>preserveFormatting</code>. Faster on large POM files.
+     */
+    @Parameter( property = "partialParsing", required = false, readonly = true, defaultValue = "false" )
+    protected boolean partialParsing;
+
+    /**
+     * Records the time spent on reading, parsing, modifying, serializing and writing every POM file, the bytes read
+     * and written and the size of the models, and writes them as a JSON report to <code>metricsDirectory</code>.
+     */
+    @Parameter( property = "metrics", required = false, readonly = true, defaultValue = "false" )
+    protected boolean metrics;
+
+    /**
+     * Directory for the metrics reports (one file by goal execution: <code>goal-executionId.json</code>).
+     */
+    @Parameter( property = "metricsDirectory", required = false, readonly = true,
+                defaultValue = "${project.build.directory}/pomutils-metrics" )
+    protected File metricsDirectory;
+
+    /**
+     * Also writes a summary of the metrics (latency by phase) to the log.
+     */
+    @Parameter( property = "metricsSummary", required = false, readonly = true, defaultValue = "false" )
+    protected boolean metricsSummary;
+
+    /**
+     * Skips the goal when neither its parameters, the POM file nor its input files have changed since its last
+     * successful execution. The fingerprints of the executions are stored on <code>fingerprintDirectory</code>.
+     */
+    @Parameter( property = "incremental", required = false, readonly = true, defaultValue = "false" )
+    protected boolean incremental;
+
+    /**
+     * Directory for the fingerprints of the executions (one file by goal execution:
+     * <code>goal-executionId.properties</code>).
+     */
+    @Parameter( property = "fingerprintDirectory", required = false, readonly = true,
+                defaultValue = "${project.build.directory}/pomutils-fingerprints" )
+    protected File fingerprintDirectory;
+
+    /**
+     * Current Maven session.
+     */
+    @Parameter( defaultValue = "${session}", required = true, readonly = true )
+    protected MavenSession session;
+
+    /**
+     * Current goal execution.
+     */
+    @Parameter( defaultValue = "${mojoExecution}", required = true, readonly = true )
+    protected MojoExecution mojoExecution;
+
+    /**
+     * Metrics of the current execution (created on demand).
+     */
+    private PomMetrics pomMetrics;
+
+    /**
+     * Fingerprint of the current execution (only for incremental executions).
+     */
+    private BuildFingerprint fingerprint;
+
+    // METHODS ...............................................................
+
+    /**
+     * Opens the POM file for editing.
+     *
+     * @return The editor with the project model.
+     * @throws MojoExecutionException Error while loading the model.
+     */
+    protected PomEditor openEditor()
+        throws MojoExecutionException
+    {
+        return ( openEditor( null ) );
+    }
+
+    /**
+     * Opens the POM file for editing some sections (only parsed with the <code>partialParsing</code> parameter).
+     *
+     * @param sections Sections edited by the goal (<code>null</code> for the whole model).
+     * @return The editor with the project model.
+     * @throws MojoExecutionException Error while loading the model.
+     */
+    protected PomEditor openEditor( PomSections sections )
+        throws MojoExecutionException
+    {
+        try
+        {
+            SaveOptions options = getSaveOptions();
+            PomEditor editor = PomEditor.open( pomFile, options, partialParsing ? sections : null );
+            ModelCache cache = options.getCache();
+            if ( cache != null && getLog().isDebugEnabled() )
+            {
+                getLog().debug( "Model cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses." );
+            }
+            return ( editor );
+        }
+        catch ( IOException | XmlPullParserException e )
+        {
+            throw new MojoExecutionException( "Error while loading the Maven project model.", e );
+        }
+    }
+
+    /**
+     * Saves the edited model on the POM file (creating the backup if requested).
+     *
+     * @param editor The editor returned by {@link #openEditor()}.
+     * @throws MojoExecutionException Error while writing the model.
+     */
+    protected void save( PomEditor editor )
+        throws MojoExecutionException
+    {
+        try
+        {
+            if ( !editor.save( pomBackup ) )
+            {
+                getLog().info( "The POM file is already up to date (not written)." );
+            }
+            editor.getOptions().getWriter().sync();
+            if ( fingerprint != null )
+            {
+                fingerprint.save();
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "I/O error while writing the POM file.", e );
+        }
+        reportMetrics();
+    }
+
+    /**
+     * Checks if the goal can be skipped (with the <code>incremental</code> parameter): the parameters of the goal,
+     * the POM file and the input files (see {@link #getInputFiles()}) are the same as after the last successful
+     * execution. Otherwise, the new fingerprint is stored when the POM file is saved.
+     *
+     * @return 'true' if the goal has nothing to do.
+     * @throws MojoExecutionException I/O error.
+     */
+    protected boolean isUpToDate()
+        throws MojoExecutionException
+    {
+        if ( !incremental )
+        {
+            return ( false );
+        }
+
+        String goal = mojoExecution != null ? mojoExecution.getGoal() : "pomutils";
+        String executionId = mojoExecution != null ? mojoExecution.getExecutionId() : "default";
+        try
+        {
+            fingerprint = BuildFingerprint.load( new File( fingerprintDirectory, goal + "-" + executionId
+                + ".properties" ) );
+            if ( mojoExecution != null )
+            {
+                fingerprint.parameter( "plugin", mojoExecution.getMojoDescriptor().getPluginDescriptor().getId() );
+            }
+            for ( Map.Entry<String, String> parameter : getParameters().entrySet() )
+            {
+                fingerprint.parameter( parameter.getKey(), parameter.getValue() );
+            }
+            fingerprint.file( new File( pomFile != null ? pomFile : POMUtils.DEFAULT_POM_FILE ) );
+            for ( File input : getInputFiles() )
+            {
+                fingerprint.file( input );
+            }
+
+            if ( fingerprint.matches() )
+            {
+                getLog().info( "Nothing has changed since the last execution (skipped)." );
+                return ( true );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "I/O error while checking the execution fingerprint.", e );
+        }
+        return ( false );
+    }
+
+    /**
+     * Gets the files read by the goal, besides the POM file (for the incremental executions).
+     *
+     * @return The input files (none by default).
+     */
+    protected List<File> getInputFiles()
+    {
+        return ( Collections.<File> emptyList() );
+    }
+
+    /**
+     * Gets the values of the goal parameters: all the fields of the goal class with a simple value (text, number,
+     * file, enumeration or arrays and collections of them), sorted by name.
+     *
+     * @return The parameter values, by field name.
+     */
+    private Map<String, String> getParameters()
+    {
+        Map<String, String> parameters = new TreeMap<String, String>();
+        for ( Class<?> type = getClass(); type != AbstractMojo.class; type = type.getSuperclass() )
+        {
+            for ( Field field : type.getDeclaredFields() )
+            {
+                if ( Modifier.isStatic( field.getModifiers() ) || field.isSynthetic() || !isSimple( field.getType() ) )
+                {
+                    continue;
+                }
+                field.setAccessible( true );
+                Object value;
+                try
+                {
+                    value = field.get( this );
+                }
+                catch ( IllegalAccessException e )
+                {
+                    throw new IllegalStateException( "Can't read the parameter '" + field.getName() + "'.", e );
+                }
+                parameters.put( field.getName(), value instanceof Object[] ? Arrays.toString( (Object[]) value )
+                                : value != null ? value.toString() : null );
+            }
+        }
+        return ( parameters );
+    }
+
+    /**
+     * Checks if the values of a parameter type have a stable text form.
+     */
+    private static boolean isSimple( Class<?> type )
+    {
+        return ( type.isPrimitive() || CharSequence.class.isAssignableFrom( type )
+            || Number.class.isAssignableFrom( type ) || type == Boolean.class || type.isEnum() || type == File.class
+            || type.isArray() && !type.getComponentType().isPrimitive() && isSimple( type.getComponentType() )
+            || Collection.class.isAssignableFrom( type ) );
+    }
+
+    /**
+     * Creates the options for writing POM files from the goal parameters. Goals writing several files should use the
+     * same options for all of them and call {@link PomWriter#sync()} at the end.
+     *
+     * @return The writing options.
+     */
+    protected SaveOptions getSaveOptions()
+    {
+        SaveOptions options = new SaveOptions();
+        options.setPreserveFormatting( preserveFormatting );
+        options.setCache( getModelCache() );
+        options.setWriter( new PomWriter( fsync ) );
+        options.setProcessLock( processLock );
+        options.setMetrics( getMetrics() );
+        return ( options );
+    }
+
+    /**
+     * Gets the model cache of the current build.
+     *
+     * @return The cache or <code>null</code> if it's disabled.
+     */
+    protected ModelCache getModelCache()
+    {
+        return ( ModelCache.forSession( session, modelCacheSize ) );
+    }
+
+    /**
+     * Gets the metrics of the current execution.
+     *
+     * @return The metrics or <code>null</code> if they are disabled.
+     */
+    protected PomMetrics getMetrics()
+    {
+        if ( metrics && pomMetrics == null )
+        {
+            pomMetrics = new PomMetrics();
+        }
+        return ( pomMetrics );
+    }
+
+    /**
+     * Writes the metrics report (and the log summary, if requested). Goals writing several files should call it at
+     * the end.
+     *
+     * @throws MojoExecutionException I/O error.
+     */
+    protected void reportMetrics()
+        throws MojoExecutionException
+    {
+        if ( pomMetrics == null )
+        {
+            return;
+        }
+
+        String goal = mojoExecution != null ? mojoExecution.getGoal() : "pomutils";
+        String executionId = mojoExecution != null ? mojoExecution.getExecutionId() : "default";
+        File report = new File( metricsDirectory, goal + "-" + executionId + ".json" );
+        try
+        {
+            pomMetrics.writeReport( report, goal );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "I/O error while writing the metrics report.", e );
+        }
+        getLog().debug( "Metrics report written to '" + report + "'." );
+
+        if ( metricsSummary )
+        {
+            for ( String line : pomMetrics.summary() )
+            {
+                getLog().info( line );
+            }
+        }
+    }
+
+    // BATCHES ...............................................................
+
+    /**
+     * Gets the module POM files of the build (or of the <code>modules</code> tree of the POM file when it's not a
+     * multi-module build). A multi-module build invokes the goal for every module: only the execution root gets the
+     * modules.
+     *
+     * @return The module POM files, or <code>null</code> if the current project is not the execution root.
+     * @throws MojoExecutionException Error reading the modules tree.
+     */
+    protected List<File> getModules()
+        throws MojoExecutionException
+    {
+        if ( session.getProjects().size() > 1 && !session.getCurrentProject().isExecutionRoot() )
+        {
+            getLog().debug( "The modules are processed from the execution root project." );
+            return ( null );
+        }
+
+        try
+        {
+            return ( session.getProjects().size() > 1 ? ModuleTree.fromSession( session )
+                            : ModuleTree.fromModules( new File( pomFile ) ) );
+        }
+        catch ( IOException | XmlPullParserException e )
+        {
+            throw new MojoExecutionException( "Error while reading the modules tree.", e );
+        }
+    }
+
+    /**
+     * Runs a task over some POM files in parallel.
+     *
+     * @param poms POM files.
+     * @param threads Number of worker threads (zero for one per available processor).
+     * @param task Task for every file.
+     * @return The results, in the order of the files.
+     * @throws MojoExecutionException Interrupted.
+     */
+    protected List<PomBatch.Result> runOnModules( List<File> poms, int threads, PomBatch.Task task )
+        throws MojoExecutionException
+    {
+        try
+        {
+            return ( new PomBatch( threads ).run( poms, task ) );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while processing the modules.", e );
+        }
+    }
+
+    /**
+     * Runs a task over every module POM of the reactor (see {@link #getModules()}), writing the files with the same
+     * options, and reports the results.
+     *
+     * @param action What is done with the modules, for the log ("<code>Canonicalizing</code>").
+     * @param done The same, for the failure message ("<code>canonicalized</code>").
+     * @param threads Number of worker threads (zero for one per available processor).
+     * @param options Writing options of the task.
+     * @param task Task for every module.
+     * @throws MojoExecutionException Error collecting the modules.
+     * @throws MojoFailureException Some modules couldn't be processed.
+     */
+    protected void executeOnReactor( String action, String done, int threads, SaveOptions options,
+                                     PomBatch.Task task )
+        throws MojoExecutionException, MojoFailureException
+    {
+        List<File> poms = getModules();
+        if ( poms == null )
+        {
+            return;
+        }
+
+        getLog().info( action + " " + poms.size() + " modules." );
+        List<PomBatch.Result> results = runOnModules( poms, threads, task );
+        sync( options );
+
+        for ( PomBatch.Result result : results )
+        {
+            logResult( result );
+        }
+        checkFailures( results, "modules", done );
+    }
+
+    /**
+     * Runs a task over every POM file under a directory, writing the files with the same options. The files are
+     * processed while the directory is still being walked, with a bounded number of them in flight (see
+     * {@link PomBatch#stream(PomFinder, PomBatch.Task, PomBatch.Listener)}). The model cache is not used: every file
+     * is visited once.
+     *
+     * @param action What is done with the files, for the log ("<code>Canonicalizing</code>").
+     * @param done The same, for the failure message ("<code>canonicalized</code>").
+     * @param baseDirectory Base directory.
+     * @param includes POM files to process (glob patterns relative to the base directory).
+     * @param excludes Files to skip (glob patterns relative to the base directory).
+     * @param threads Number of worker threads (zero for one per available processor).
+     * @param virtualThreads Uses virtual threads when running on Java 21 or newer.
+     * @param options Writing options of the task (the cache is removed from them).
+     * @param task Task for every file.
+     * @throws MojoExecutionException Error walking the directory.
+     * @throws MojoFailureException Some files couldn't be processed.
+     */
+    protected void executeOnDirectory( String action, String done, String baseDirectory, String[] includes,
+                                       String[] excludes, int threads, boolean virtualThreads, SaveOptions options,
+                                       PomBatch.Task task )
+        throws MojoExecutionException, MojoFailureException
+    {
+        getLog().info( action + " the POM files under '" + baseDirectory + "'" );
+        options.setCache( null );
+
+        PomFinder finder = new PomFinder( Paths.get( baseDirectory ), includes, excludes );
+        PomBatch.Summary summary;
+        try
+        {
+            PomBatch batch = new PomBatch( threads, virtualThreads );
+            summary = batch.stream( finder, task, result -> {
+                if ( result.isSuccess() )
+                {
+                    getLog().debug( describe( result ) );
+                }
+                else
+                {
+                    logResult( result );
+                }
+            } );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "I/O error while looking for POM files.", e );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while processing the POM files.", e );
+        }
+
+        sync( options );
+
+        getLog().info( summary.getTotal() + " POM files processed in " + summary.getMillis() + " ms." );
+        if ( summary.getFailures() > 0 )
+        {
+            throw new MojoFailureException( summary.getFailures() + " of " + summary.getTotal()
+                + " POM files couldn't be " + done + "." );
+        }
+    }
+
+    /**
+     * Logs the result of a task for a POM file.
+     *
+     * @param result Result.
+     */
+    protected void logResult( PomBatch.Result result )
+    {
+        if ( result.isSuccess() )
+        {
+            getLog().info( describe( result ) );
+        }
+        else
+        {
+            getLog().error( "  " + result.getPom() + ": " + result.getError().getMessage() );
+        }
+    }
+
+    /**
+     * Fails if a task couldn't process some of the POM files (the errors must have been reported already).
+     *
+     * @param results Results of the batch.
+     * @param files What the files are, for the message ("<code>modules</code>").
+     * @param done What was done with the files, for the message ("<code>edited</code>").
+     * @throws MojoFailureException Some files have failed.
+     */
+    protected void checkFailures( List<PomBatch.Result> results, String files, String done )
+        throws MojoFailureException
+    {
+        int failures = 0;
+        for ( PomBatch.Result result : results )
+        {
+            failures += result.isSuccess() ? 0 : 1;
+        }
+        if ( failures > 0 )
+        {
+            throw new MojoFailureException( failures + " of " + results.size() + " " + files + " couldn't be " + done
+                + "." );
+        }
+    }
+
+    /**
+     * Flushes the files written in a batch (only with the <code>BATCH</code> fsync policy) and reports the metrics.
+     *
+     * @param options Writing options of the batch.
+     * @throws MojoExecutionException I/O error.
+     */
+    protected void sync( SaveOptions options )
+        throws MojoExecutionException
+    {
+        try
+        {
+            options.getWriter().sync();
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "I/O error while flushing the POM files.", e );
+        }
+        reportMetrics();
+    }
+
+    /**
+     * Gets the backup file for a module POM (the backup file name is taken relative to the module directory).
+     *
+     * @param pom Module POM file.
+     * @return Backup file name or <code>null</code> if there's no backup.
+     */
+    protected String backupFile( File pom )
+    {
+        if ( pomBackup == null )
+        {
+            return ( null );
+        }
+        return ( new File( pom.getParentFile(), new File( pomBackup ).getName() ).getPath() );
+    }
+
+    /**
+     * Describes a successful result.
+     */
+    private static String describe( PomBatch.Result result )
+    {
+        String message = result.getMessage() != null ? result.getMessage() + ", " : "";
+        return ( "  " + result.getPom() + " (" + message + result.getMillis() + " ms)" );
+    }
+}
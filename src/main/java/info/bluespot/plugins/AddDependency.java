@@ -19,41 +19,52 @@ package info.bluespot.plugins;
  * under the License.
  */
 
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.maven.model.Dependency;
-import org.apache.maven.model.Model;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
 /**
  * Adds a dependency to a POM file.
  * <p>
- * The <code>artifactId</code> and the <code>groupId</code> of the dependency are needed parameters.
+ * The <code>artifactId</code> and the <code>groupId</code> of the dependency are needed parameters. Many dependencies
+ * can be added at once with the <code>dependencies</code> parameter or a <code>dependencyFile</code>; a dependency
+ * that is already on the POM (same <code>groupId</code>, <code>artifactId</code>, <code>type</code> and
+ * <code>classifier</code>) is handled following the <code>onConflict</code> policy, so running the goal again doesn't
+ * duplicate it.
  * </p>
  * 
  * @since 1.0.0
  */
-@Mojo( name = "add-dependency", requiresProject = true, inheritByDefault = false )
+@Mojo( name = "add-dependency", requiresProject = true, inheritByDefault = false, threadSafe = true )
 public class AddDependency
-    extends AbstractMojo
+    extends AbstractPOMMojo
 {
     // PARAMETERS ............................................................
 
     /**
      * Dependency's <code>ArtifactId</code>.
      */
-    @Parameter( property = "artifactId", required = true, readonly = true )
+    @Parameter( property = "artifactId", required = false, readonly = true )
     private String artifactId;
 
     /**
      * Dependency's <code>GroupId</code>.
      */
-    @Parameter( property = "groupId", required = true, readonly = true )
+    @Parameter( property = "groupId", required = false, readonly = true )
     private String groupId;
 
     /**
@@ -74,6 +85,14 @@ public class AddDependency
     @Parameter( property = "type", required = false, readonly = true )
     private String type;
 
+    /**
+     * Dependency's <code>classifier</code>.
+     * 
+     * @since 1.1.0
+     */
+    @Parameter( property = "classifier", required = false, readonly = true )
+    private String classifier;
+
     /**
      * Dependency's <code>scope</code>.
      */
@@ -87,16 +106,55 @@ public class AddDependency
     private Boolean optional;
 
     /**
-     * Keeps a copy of the current POM file before modifying it.
+     * Dependencies to add, with the <code>apply-edits</code> syntax:
+     * '<code>groupId:artifactId[:version[:type[:classifier]]] [scope=...] [optional=true] ...</code>'.
+     * 
+     * @since 1.1.0
+     */
+    @Parameter( property = "dependencies", required = false, readonly = true )
+    private String[] dependencies;
+
+    /**
+     * A file with a dependency per line (same syntax as the <code>dependencies</code> parameter). Blank lines and
+     * lines starting with '<code>#</code>' are ignored.
+     * 
+     * @since 1.1.0
+     */
+    @Parameter( property = "dependencyFile", required = false, readonly = true )
+    private String dependencyFile;
+
+    /**
+     * Dependency file encoding (UTF-8 by default).
+     * 
+     * @since 1.1.0
+     */
+    @Parameter( property = "dependencyFileEncoding", required = false, readonly = true, defaultValue = "UTF-8" )
+    private String dependencyFileEncoding;
+
+    /**
+     * Adds the dependencies to the <code>dependencyManagement</code> section.
+     * 
+     * @since 1.1.0
+     */
+    @Parameter( property = "managed", required = false, readonly = true, defaultValue = "false" )
+    private boolean managed;
+
+    /**
+     * Adds the dependencies to a profile (it's created if it doesn't exist).
+     * 
+     * @since 1.1.0
      */
-    @Parameter( property = "pomBackup", required = false, readonly = true )
-    private String pomBackup;
+    @Parameter( property = "profile", required = false, readonly = true )
+    private String profile;
 
     /**
-     * Specifies a POM file to modify.
+     * What to do with a dependency that is already on the POM: <code>UPDATE</code> (sets the new version, scope,
+     * etc.), <code>SKIP</code>, <code>REPLACE</code> or <code>FAIL</code>.
+     * 
+     * @since 1.1.0
      */
-    @Parameter( property = "pomFile", required = false, readonly = true, defaultValue = "pom.xml" )
-    private String pomFile;
+    @Parameter( property = "onConflict", required = false, readonly = true, defaultValue = "UPDATE" )
+    private DependencyIndex.ConflictPolicy onConflict;
 
     // METHODS ...............................................................
 
@@ -107,56 +165,153 @@ public class AddDependency
     public void execute()
         throws MojoExecutionException, MojoFailureException
     {
-        getLog().info( "Adding the dependency " + groupId + ":" + artifactId );
-
-        // Load the model
-        Model model;
-        try
+        if ( isUpToDate() )
         {
-            model = POMUtils.loadModel( pomFile );
+            return;
         }
-        catch ( IOException | XmlPullParserException e )
+
+        List<Dependency> newDependencies = collectDependencies();
+        if ( newDependencies.isEmpty() )
         {
-            throw new MojoExecutionException( "Error while loading the Maven model.", e );
+            throw new MojoExecutionException( "A GroupId and an ArtifactId (or a dependency list) are needed for "
+                + "adding a dependency." );
         }
 
-        // Creating a dependency object
-        Dependency dependency = new Dependency();
-
-        dependency.setArtifactId( artifactId );
-        dependency.setGroupId( groupId );
-        if ( version != null )
+        if ( newDependencies.size() == 1 )
         {
-            dependency.setVersion( version );
+            getLog().info( "Adding the dependency " + newDependencies.get( 0 ).getGroupId() + ":"
+                + newDependencies.get( 0 ).getArtifactId() );
         }
-        if ( systemPath != null )
+        else
         {
-            dependency.setSystemPath( systemPath );
+            getLog().info( "Adding " + newDependencies.size() + " dependencies." );
         }
-        if ( type != null )
+
+        // Load the model
+        PomSections sections = PomSections.of( managed ? "dependencyManagement" : "dependencies" );
+        PomEditor editor = openEditor( profile != null ? sections.with( "profiles" ) : sections );
+
+        // Add the dependencies to the model (indexing the current ones)
+        Map<DependencyIndex.Outcome, Integer> counts;
+        try
         {
-            dependency.setType( type );
+            counts = editor.addDependencies( newDependencies, managed, profile, onConflict );
         }
-        if ( scope != null )
+        catch ( IllegalStateException e )
         {
-            dependency.setScope( scope );
+            throw new MojoFailureException( e.getMessage(), e );
         }
-        if ( optional )
+        getLog().info( counts.get( DependencyIndex.Outcome.ADDED ) + " added, "
+            + counts.get( DependencyIndex.Outcome.UPDATED ) + " updated, "
+            + counts.get( DependencyIndex.Outcome.UNCHANGED ) + " unchanged." );
+
+        // Save the model
+        save( editor );
+    }
+
+    /**
+     * The dependency file is an input of the goal.
+     */
+    @Override
+    protected List<File> getInputFiles()
+    {
+        return ( dependencyFile != null ? Collections.singletonList( new File( dependencyFile ) )
+                        : Collections.<File> emptyList() );
+    }
+
+    /**
+     * Gets all the dependencies to add, from the single dependency parameters, the list and the file.
+     *
+     * @return The dependencies (in order).
+     * @throws MojoExecutionException I/O error reading the dependency file.
+     * @throws MojoFailureException Syntax error on a dependency.
+     */
+    private List<Dependency> collectDependencies()
+        throws MojoExecutionException, MojoFailureException
+    {
+        List<Dependency> collected = new ArrayList<Dependency>();
+
+        // Creating a dependency object from the parameters
+        if ( groupId != null || artifactId != null )
         {
-            dependency.setOptional( true );
-        }
+            if ( groupId == null || artifactId == null )
+            {
+                throw new MojoExecutionException( "Both the GroupId and the ArtifactId are needed." );
+            }
 
-        // Add the dependency to the model
-        model.addDependency( dependency );
+            Dependency dependency = new Dependency();
+            dependency.setArtifactId( artifactId );
+            dependency.setGroupId( groupId );
+            if ( version != null )
+            {
+                dependency.setVersion( version );
+            }
+            if ( systemPath != null )
+            {
+                dependency.setSystemPath( systemPath );
+            }
+            if ( type != null )
+            {
+                dependency.setType( type );
+            }
+            if ( classifier != null )
+            {
+                dependency.setClassifier( classifier );
+            }
+            if ( scope != null )
+            {
+                dependency.setScope( scope );
+            }
+            if ( optional )
+            {
+                dependency.setOptional( true );
+            }
+            collected.add( dependency );
+        }
 
-        // Save the model
         try
         {
-            POMUtils.saveModel( model, pomFile, pomBackup );
+            // The dependency list parameter
+            if ( dependencies != null )
+            {
+                for ( int i = 0; i < dependencies.length; i++ )
+                {
+                    if ( !dependencies[i].trim().isEmpty() )
+                    {
+                        collected.add( EditScript.parseDependency( dependencies[i], i + 1 ) );
+                    }
+                }
+            }
+
+            // The dependency file
+            if ( dependencyFile != null )
+            {
+                try ( BufferedReader reader =
+                    Files.newBufferedReader( Paths.get( dependencyFile ), Charset.forName( dependencyFileEncoding ) ) )
+                {
+                    int lineNumber = 0;
+                    String line;
+                    while ( ( line = reader.readLine() ) != null )
+                    {
+                        lineNumber++;
+                        String trimmed = line.trim();
+                        if ( !trimmed.isEmpty() && !trimmed.startsWith( "#" ) )
+                        {
+                            collected.add( EditScript.parseDependency( trimmed, lineNumber ) );
+                        }
+                    }
+                }
+                catch ( IOException e )
+                {
+                    throw new MojoExecutionException( "I/O error while reading the dependency file.", e );
+                }
+            }
         }
-        catch ( IOException e )
+        catch ( ParseException e )
         {
-            throw new MojoExecutionException( "I/O error while writing the Maven model.", e );
+            throw new MojoFailureException( "Invalid dependency: " + e.getMessage(), e );
         }
+
+        return ( collected );
     }
 }
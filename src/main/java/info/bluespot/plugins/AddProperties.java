@@ -20,28 +20,24 @@ package info.bluespot.plugins;
  */
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.charset.Charset;
-import java.util.Enumeration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
-import org.apache.maven.model.Model;
-import org.apache.maven.model.Profile;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
 /**
  * Adds properties to a POM file.
  * <p>
- * Properties can be provided in a Java property file or via the '<code>properties</code>' parameter as a list (comma
- * separated).
+ * Properties can be provided in Java property files or via the '<code>properties</code>' parameter as a list (comma
+ * separated). The property files are loaded in parallel and merged in order: a property on a file replaces the same
+ * property on the previous files, and the '<code>properties</code>' parameter replaces them all.
  * </p>
  * <p>
  * The properties can be stored in the general <code>properties</code> section of the POM or in a specific profile using
@@ -50,9 +46,9 @@ import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
  *
  * @since 1.0.0
  */
-@Mojo( name = "add-properties", requiresProject = false, inheritByDefault = false )
+@Mojo( name = "add-properties", requiresProject = false, inheritByDefault = false, threadSafe = true )
 public class AddProperties
-    extends AbstractMojo
+    extends AbstractPOMMojo
 {
     // PARAMETERS ............................................................
 
@@ -62,6 +58,15 @@ public class AddProperties
     @Parameter( property = "propertiesFile", required = false, readonly = true )
     private String propertiesFile;
 
+    /**
+     * Several property files, from the lowest to the highest precedence (loaded after the
+     * <code>propertiesFile</code>).
+     * 
+     * @since 1.1.0
+     */
+    @Parameter( property = "propertiesFiles", required = false, readonly = true )
+    private String[] propertiesFiles;
+
     /**
      * Adds a set of properties (comma separated).
      *
@@ -78,18 +83,6 @@ public class AddProperties
     @Parameter( property = "profile", required = false, readonly = true )
     private String profile;
 
-    /**
-     * Saves a copy of the current POM before the modification.
-     */
-    @Parameter( property = "pomBackup", required = false, readonly = true )
-    private String pomBackup;
-
-    /**
-     * Selects a different POM file to act on.
-     */
-    @Parameter( property = "pomFile", required = false, readonly = true, defaultValue = "pom.xml" )
-    private String pomFile;
-
     /**
      * Properties encoding (UTF-8 by default).
      */
@@ -106,80 +99,129 @@ public class AddProperties
         throws MojoExecutionException, MojoFailureException
     {
         // Check: we need a properties file or the properties list
-        if ( propertiesFile == null && properties == null )
+        if ( propertiesFile == null && propertiesFiles == null && properties == null )
         {
             getLog().warn( "This goal needs the properties list parameter or a properties file." );
             return;
         }
-
-        // Load the model
-        Model model;
-        try
-        {
-            model = POMUtils.loadModel( pomFile );
-        }
-        catch ( IOException | XmlPullParserException e )
+        if ( isUpToDate() )
         {
-            throw new MojoExecutionException( "Error loading the Maven model:", e );
+            return;
         }
 
-        // Get the properties from the file or the list parameter
-        Properties properties;
+        // Get the properties from the files and the list parameter
+        Map<String, OrderedProperties> sections;
         try
         {
-            properties = loadProperties();
+            sections = loadProperties();
         }
         catch ( IOException ioe )
         {
             throw new MojoExecutionException( "I/O error while reading the properties file.", ioe );
         }
-
-        // Check if a profile is provided
-        if ( profile == null )
+        catch ( InterruptedException e )
         {
-            // Add the properties to the general section on the POM
-            addToProperties( model, properties );
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while reading the properties files.", e );
         }
-        else
+
+        // Load the model
+        boolean profiles = profile != null || sections.size() > 1;
+        PomEditor editor = openEditor( profiles ? PomSections.of( "properties", "profiles" )
+                        : PomSections.of( "properties" ) );
+
+        // Add every section to its profile (the missing ones are created)
+        for ( Map.Entry<String, OrderedProperties> section : sections.entrySet() )
         {
-            // Add the properties to a specific profile
-            addToProfile( model, properties, profile );
+            boolean defaultSection = PropertyMerge.DEFAULT_SECTION.equals( section.getKey() );
+            if ( defaultSection && section.getValue().isEmpty() && sections.size() > 1 )
+            {
+                // Only profile sections on the files
+                continue;
+            }
+
+            String profileId = defaultSection ? profile : section.getKey();
+            if ( profileId == null )
+            {
+                // Add the properties to the general section on the POM
+                getLog().info( "Adding general properties to the model." );
+                addTo( editor, null, section.getValue() );
+            }
+            else
+            {
+                // Add the properties to a specific profile
+                getLog().info( "Adding properties to the profile: '" + profileId + "'" );
+                addTo( editor, profileId, section.getValue() );
+            }
         }
 
-        // Save the model
-        try
+        // Save the model (just once for all the sections)
+        save( editor );
+    }
+
+    /**
+     * The property files are inputs of the goal.
+     */
+    @Override
+    protected List<File> getInputFiles()
+    {
+        List<File> files = new ArrayList<File>();
+        if ( propertiesFile != null )
         {
-            POMUtils.saveModel( model, pomFile, pomBackup );
+            files.add( new File( propertiesFile ) );
         }
-        catch ( IOException e )
+        if ( propertiesFiles != null )
         {
-            throw new MojoExecutionException( "I/O error while writing the POM file.", e );
+            for ( String name : propertiesFiles )
+            {
+                files.add( new File( name.trim() ) );
+            }
         }
+        return ( files );
     }
 
     /**
-     * Generates a properties map from a specified properties file or the list parameter.
+     * Generates the properties maps from the specified properties files and the list parameter.
      *
-     * @throws IOException I/O error reading the properties file.
-     * @return The properties map.
+     * @throws IOException I/O error reading the properties files.
+     * @throws InterruptedException Interrupted while reading the properties files.
+     * @return The properties maps, by profile section (the list parameter goes to the default section).
      */
-    private Properties loadProperties()
-        throws IOException
+    private Map<String, OrderedProperties> loadProperties()
+        throws IOException, InterruptedException
     {
-        Properties mergedProperties = new Properties();
-
-        // Check if the properties file is provided
+        // Collect the readable files
+        List<File> files = new ArrayList<File>();
+        List<String> names = new ArrayList<String>();
         if ( propertiesFile != null )
         {
-            File file = new File( propertiesFile );
-
+            names.add( propertiesFile );
+        }
+        if ( propertiesFiles != null )
+        {
+            for ( String name : propertiesFiles )
+            {
+                names.add( name.trim() );
+            }
+        }
+        for ( String name : names )
+        {
+            File file = new File( name );
             if ( file.canRead() )
             {
-                InputStream is = new FileInputStream( file );
-                mergedProperties.load( new InputStreamReader( is, Charset.forName( propertiesEncoding ) ) );
+                files.add( file );
+            }
+            else
+            {
+                getLog().warn( "Can't read the properties file '" + name + "' (skipped)." );
             }
         }
 
+        // Load the files in parallel
+        Map<String, OrderedProperties> sections = PropertyMerge.load( files, Charset.forName( propertiesEncoding ),
+                                                                      Runtime.getRuntime().availableProcessors() );
+        Properties mergedProperties = sections.get( PropertyMerge.DEFAULT_SECTION );
+
         // Check if the properties parameter is defined
         if ( properties != null )
         {
@@ -191,86 +233,19 @@ public class AddProperties
             }
         }
 
-        return ( mergedProperties );
-    }
-
-    /**
-     * Adds the properties to the general section on the POM model.
-     * 
-     * @param model Maven model.
-     * @param properties Property map for inclusion.
-     */
-    private void addToProperties( Model model, Properties properties )
-    {
-        getLog().info( "Adding general properties to the model." );
-
-        // Get the current properties and add the new ones
-        Properties modelProperties = model.getProperties();
-
-        Enumeration<Object> keys = properties.keys();
-        while ( keys.hasMoreElements() )
-        {
-            Object key = keys.nextElement();
-            modelProperties.put( key, properties.get( key ) );
-        }
-
-        model.setProperties( modelProperties );
+        return ( sections );
     }
 
     /**
-     * Adds the properties to a specific profile section.
+     * Adds the properties to a section on the POM model (the general section or a profile).
      * 
-     * @param model Maven model.
-     * @param properties Property map for inclusion.
-     * @param profile Name (ID) of the profile to add the profile in.
+     * @param editor POM editor.
+     * @param profileId Profile ID (<code>null</code> for the general section).
+     * @param newProperties Property map for inclusion.
      */
-    private void addToProfile( Model model, Properties properties, String profile )
+    private void addTo( PomEditor editor, String profileId, Properties newProperties )
     {
-        getLog().info( "Adding properties to the profile: '" + profile + "'" );
-
-        // Get the current profile list
-        Profile modelProfile = null;
-        for ( Profile profileIdx : model.getProfiles() )
-        {
-            if ( profileIdx.getId().equals( profile ) )
-            {
-                // Profile found
-                modelProfile = profileIdx;
-                break;
-            }
-        }
-
-        // If we haven't found the profile, just create it
-        if ( modelProfile == null )
-        {
-            // Create the profile
-            modelProfile = new Profile();
-            modelProfile.setId( profile );
-
-            // Add the properties
-            Enumeration<Object> keys = properties.keys();
-            while ( keys.hasMoreElements() )
-            {
-                Object key = keys.nextElement();
-                modelProfile.addProperty( (String) key, (String) properties.get( key ) );
-            }
-
-            // Add the profile to the current model
-            model.addProfile( modelProfile );
-        }
-        else
-        {
-            // Add the profile to the existing profile
-            Properties profileProperties = modelProfile.getProperties();
-
-            Enumeration<Object> keys = properties.keys();
-            while ( keys.hasMoreElements() )
-            {
-                Object key = keys.nextElement();
-                profileProperties.put( key, properties.get( key ) );
-            }
-
-            modelProfile.setProperties( profileProperties );
-        }
+        PropertyMerge.Counts counts = editor.mergeProperties( profileId, newProperties );
+        getLog().info( counts + "." );
     }
 }
@@ -0,0 +1,193 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Applies a list of edit operations (an "edit script") to a POM file.
+ * <p>
+ * All the operations are applied to the same project model, so the POM is read and written only once no matter how
+ * many operations the script contains. See {@link EditScript} for the script syntax.
+ * </p>
+ * <p>
+ * With the <code>reactor</code> parameter, the script is applied to every module of the build (or of the
+ * <code>modules</code> tree of the POM file when it's not a multi-module build) using a pool of worker threads.
+ * </p>
+ * <p>
+ * With the <code>baseDirectory</code> parameter, the script is applied to every POM file found under that directory
+ * (see the <code>includes</code> and <code>excludes</code> parameters). The files are edited while the directory is
+ * still being walked, with a bounded number of them in flight.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+@Mojo( name = "apply-edits", requiresProject = false, inheritByDefault = false, threadSafe = true )
+public class ApplyEdits
+    extends AbstractPOMMojo
+{
+    // PARAMETERS ............................................................
+
+    /**
+     * Edit script file: one operation per line.
+     */
+    @Parameter( property = "editScript", required = true, readonly = true )
+    private String editScript;
+
+    /**
+     * Edit script encoding (UTF-8 by default).
+     */
+    @Parameter( property = "editScriptEncoding", required = false, readonly = true, defaultValue = "UTF-8" )
+    private String editScriptEncoding;
+
+    /**
+     * Applies the script to all the modules of the reactor instead of a single POM file.
+     */
+    @Parameter( property = "reactor", required = false, readonly = true, defaultValue = "false" )
+    private boolean reactor;
+
+    /**
+     * Number of worker threads for the reactor mode (by default, one per available processor).
+     */
+    @Parameter( property = "threads", required = false, readonly = true, defaultValue = "0" )
+    private int threads;
+
+    /**
+     * Applies the script to all the POM files found under this directory instead of a single POM file.
+     */
+    @Parameter( property = "baseDirectory", required = false, readonly = true )
+    private String baseDirectory;
+
+    /**
+     * POM files to edit under the <code>baseDirectory</code> (glob patterns relative to that directory).
+     */
+    @Parameter( property = "includes", required = false, readonly = true, defaultValue = "**/pom.xml" )
+    private String[] includes;
+
+    /**
+     * Files to skip under the <code>baseDirectory</code> (glob patterns relative to that directory).
+     */
+    @Parameter( property = "excludes", required = false, readonly = true, defaultValue = "**/target/**" )
+    private String[] excludes;
+
+    /**
+     * Uses virtual threads for the <code>baseDirectory</code> mode when running on Java 21 or newer. The
+     * <code>threads</code> parameter is then the number of files edited at the same time.
+     */
+    @Parameter( property = "virtualThreads", required = false, readonly = true, defaultValue = "true" )
+    private boolean virtualThreads;
+
+    // METHODS ...............................................................
+
+    /**
+     * Main goal method.
+     */
+    @Override
+    public void execute()
+        throws MojoExecutionException, MojoFailureException
+    {
+        // Only a single POM file can be checked for changes
+        if ( baseDirectory == null && !reactor && isUpToDate() )
+        {
+            return;
+        }
+
+        // Read the script before touching the POM: a syntax error must not leave a half-edited file
+        EditScript script;
+        try
+        {
+            script = EditScript.load( editScript, editScriptEncoding );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "I/O error while reading the edit script.", e );
+        }
+        catch ( ParseException e )
+        {
+            throw new MojoFailureException( "Invalid edit script '" + editScript + "': " + e.getMessage(), e );
+        }
+
+        String action = "Applying " + script.getEdits().size() + " edits to";
+        if ( baseDirectory != null )
+        {
+            SaveOptions options = getSaveOptions();
+            executeOnDirectory( action, "edited", baseDirectory, includes, excludes, threads, virtualThreads, options,
+                                pom -> applyTo( script, pom, options ) );
+            return;
+        }
+        if ( reactor )
+        {
+            SaveOptions options = getSaveOptions();
+            executeOnReactor( action, "edited", threads, options, pom -> applyTo( script, pom, options ) );
+            return;
+        }
+
+        getLog().info( "Applying " + script.getEdits().size() + " edits to '" + pomFile + "'" );
+
+        // Load the model
+        PomEditor editor = openEditor();
+
+        // Apply all the operations over the same model
+        for ( EditScript.Edit edit : script.getEdits() )
+        {
+            getLog().info( edit.describe() );
+        }
+        editor.apply( script );
+
+        // Save the model (just once)
+        save( editor );
+    }
+
+    /**
+     * The edit script is an input of the goal.
+     */
+    @Override
+    protected List<File> getInputFiles()
+    {
+        return ( Collections.singletonList( new File( editScript ) ) );
+    }
+
+    /**
+     * Applies the script to a POM file (reactor and directory modes).
+     *
+     * @param script Edit script.
+     * @param pom POM file.
+     * @param options How to write the file.
+     * @return A message if the file has not been written.
+     * @throws IOException I/O error.
+     * @throws XmlPullParserException Problem while reading the POM.
+     */
+    private String applyTo( EditScript script, File pom, SaveOptions options )
+        throws IOException, XmlPullParserException
+    {
+        boolean written = PomEditor.open( pom.getPath(), options ).apply( script ).save( backupFile( pom ) );
+        return ( written ? null : "unchanged" );
+    }
+}
@@ -0,0 +1,242 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The fingerprint of a goal execution: a hash of its parameters and the state of the files it reads and writes.
+ * <p>
+ * The fingerprint of the last successful execution is stored on a property file. A new execution with the same
+ * fingerprint would leave the POM file as it is, so the goal can be skipped without parsing anything.
+ * </p>
+ * <p>
+ * The files are identified by their contents (a SHA-256 hash), but the hash stored for a file is reused while the
+ * file keeps its size and modification time, so checking an unchanged build only takes a few file stats.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class BuildFingerprint
+{
+    private static final String PARAMETERS = "parameters";
+
+    private static final String FILES = "files";
+
+    private static final String FILE = "file.";
+
+    /**
+     * Where the fingerprint is stored.
+     */
+    private final File state;
+
+    /**
+     * The stored fingerprint (empty if there's none).
+     */
+    private final Properties previous;
+
+    /**
+     * Parameter values.
+     */
+    private final StringBuilder parameters = new StringBuilder();
+
+    /**
+     * Files of the execution.
+     */
+    private final List<File> files = new ArrayList<File>();
+
+    private BuildFingerprint( File state, Properties previous )
+    {
+        this.state = state;
+        this.previous = previous;
+    }
+
+    /**
+     * Starts a new fingerprint, reading the stored one.
+     *
+     * @param state Fingerprint file (it doesn't need to exist).
+     * @return The new (empty) fingerprint.
+     * @throws IOException I/O error.
+     */
+    public static BuildFingerprint load( File state )
+        throws IOException
+    {
+        Properties previous = new Properties();
+        if ( state.isFile() )
+        {
+            try ( Reader reader = Files.newBufferedReader( state.toPath(), StandardCharsets.UTF_8 ) )
+            {
+                previous.load( reader );
+            }
+        }
+        return ( new BuildFingerprint( state, previous ) );
+    }
+
+    /**
+     * Adds a parameter value.
+     *
+     * @param name Parameter name.
+     * @param value Parameter value (optional).
+     */
+    public void parameter( String name, String value )
+    {
+        parameters.append( name );
+        if ( value != null )
+        {
+            parameters.append( '=' ).append( value );
+        }
+        parameters.append( '\n' );
+    }
+
+    /**
+     * Adds a file (an input or the POM file). A missing file is also part of the fingerprint.
+     *
+     * @param file The file.
+     */
+    public void file( File file )
+    {
+        files.add( file.getAbsoluteFile() );
+    }
+
+    /**
+     * Checks the fingerprint against the stored one.
+     *
+     * @return 'true' if nothing has changed since the stored fingerprint was saved.
+     * @throws IOException I/O error.
+     */
+    public boolean matches()
+        throws IOException
+    {
+        return ( current( true ).equals( previous ) );
+    }
+
+    /**
+     * Stores the fingerprint, with the current state of the files (after a successful execution).
+     *
+     * @throws IOException I/O error.
+     */
+    public void save()
+        throws IOException
+    {
+        // The files have probably been written: hash them again
+        Properties current = current( false );
+
+        Files.createDirectories( state.getAbsoluteFile().getParentFile().toPath() );
+        try ( OutputStream output = Files.newOutputStream( state.toPath() ) )
+        {
+            current.store( output, "pomutils build fingerprint" );
+        }
+    }
+
+    /**
+     * Builds the fingerprint properties.
+     *
+     * @param reuse Reuse the stored hashes of the files with the same size and modification time.
+     */
+    private Properties current( boolean reuse )
+        throws IOException
+    {
+        Properties current = new Properties();
+        byte[] parametersText = parameters.toString().getBytes( StandardCharsets.UTF_8 );
+        current.setProperty( PARAMETERS, hex( sha256().digest( parametersText ) ) );
+        current.setProperty( FILES, String.valueOf( files.size() ) );
+
+        for ( int i = 0; i < files.size(); i++ )
+        {
+            File file = files.get( i );
+            String prefix = FILE + i + ".";
+            current.setProperty( prefix + "path", file.getPath() );
+            if ( !file.isFile() )
+            {
+                current.setProperty( prefix + "sha256", "missing" );
+                continue;
+            }
+
+            String size = String.valueOf( file.length() );
+            String modified = String.valueOf( file.lastModified() );
+            current.setProperty( prefix + "size", size );
+            current.setProperty( prefix + "modified", modified );
+
+            boolean unchanged = reuse && file.getPath().equals( previous.getProperty( prefix + "path" ) )
+                && size.equals( previous.getProperty( prefix + "size" ) )
+                && modified.equals( previous.getProperty( prefix + "modified" ) )
+                && previous.getProperty( prefix + "sha256" ) != null;
+            current.setProperty( prefix + "sha256",
+                                 unchanged ? previous.getProperty( prefix + "sha256" ) : hash( file ) );
+        }
+        return ( current );
+    }
+
+    /**
+     * Gets the SHA-256 hash of a file.
+     */
+    private static String hash( File file )
+        throws IOException
+    {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate( 64 * 1024 );
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) )
+        {
+            while ( channel.read( buffer ) >= 0 )
+            {
+                buffer.flip();
+                digest.update( buffer );
+                buffer.clear();
+            }
+        }
+        return ( hex( digest.digest() ) );
+    }
+
+    private static MessageDigest sha256()
+    {
+        try
+        {
+            return ( MessageDigest.getInstance( "SHA-256" ) );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            // Every Java platform must support SHA-256
+            throw new IllegalStateException( "SHA-256 is not available.", e );
+        }
+    }
+
+    private static String hex( byte[] bytes )
+    {
+        StringBuilder hex = new StringBuilder( bytes.length * 2 );
+        for ( byte b : bytes )
+        {
+            hex.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+        }
+        return ( hex.toString() );
+    }
+}
@@ -0,0 +1,194 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Puts POM files in a canonical form: removes the duplicate dependencies and sorts the dependencies, managed
+ * dependencies and properties in a stable order (see {@link PomCanonicalizer}).
+ * <p>
+ * Files with the same contents get the same bytes, and canonical files are left as they are. The goal can be applied
+ * to a single POM file, to every module of the build (the <code>reactor</code> parameter) or to every POM file under a
+ * directory (the <code>baseDirectory</code> parameter); the files are canonicalized in parallel.
+ * </p>
+ *
+ * <pre>
+ *   mvn pomutils:canonicalize -Dreactor -DdependencyOrder=SCOPE
+ * </pre>
+ *
+ * @since 1.1.0
+ */
+@Mojo( name = "canonicalize", requiresProject = false, inheritByDefault = false, threadSafe = true )
+public class Canonicalize
+    extends AbstractPOMMojo
+{
+    /**
+     * Sections edited by the goal (with the <code>partialParsing</code> parameter).
+     */
+    private static final PomSections SECTIONS = PomSections.of( "properties", "dependencyManagement", "dependencies",
+                                                                "profiles" );
+
+    // PARAMETERS ............................................................
+
+    /**
+     * Which declaration of a duplicate dependency is kept: <code>FIRST</code>, <code>LAST</code> (the one Maven uses)
+     * or <code>HIGHEST_VERSION</code>.
+     */
+    @Parameter( property = "duplicatePolicy", required = false, readonly = true, defaultValue = "LAST" )
+    private PomCanonicalizer.DuplicatePolicy duplicatePolicy;
+
+    /**
+     * Order of the dependencies: <code>NONE</code> (the dependency order is the classpath order),
+     * <code>COORDINATES</code> or <code>SCOPE</code> (then by coordinates).
+     */
+    @Parameter( property = "dependencyOrder", required = false, readonly = true, defaultValue = "NONE" )
+    private PomCanonicalizer.DependencyOrder dependencyOrder;
+
+    /**
+     * Order of the managed dependencies: <code>NONE</code>, <code>COORDINATES</code> or <code>SCOPE</code>. The BOM
+     * imports always keep their order.
+     */
+    @Parameter( property = "managedDependencyOrder", required = false, readonly = true,
+                defaultValue = "COORDINATES" )
+    private PomCanonicalizer.DependencyOrder managedDependencyOrder;
+
+    /**
+     * Order of the properties: <code>NONE</code> or <code>NAME</code>.
+     */
+    @Parameter( property = "propertyOrder", required = false, readonly = true, defaultValue = "NAME" )
+    private PomCanonicalizer.PropertyOrder propertyOrder;
+
+    /**
+     * Canonicalizes all the modules of the reactor instead of a single POM file.
+     */
+    @Parameter( property = "reactor", required = false, readonly = true, defaultValue = "false" )
+    private boolean reactor;
+
+    /**
+     * Number of worker threads for the reactor and directory modes (by default, one per available processor).
+     */
+    @Parameter( property = "threads", required = false, readonly = true, defaultValue = "0" )
+    private int threads;
+
+    /**
+     * Canonicalizes all the POM files found under this directory instead of a single POM file.
+     */
+    @Parameter( property = "baseDirectory", required = false, readonly = true )
+    private String baseDirectory;
+
+    /**
+     * POM files to canonicalize under the <code>baseDirectory</code> (glob patterns relative to that directory).
+     */
+    @Parameter( property = "includes", required = false, readonly = true, defaultValue = "**/pom.xml" )
+    private String[] includes;
+
+    /**
+     * Files to skip under the <code>baseDirectory</code> (glob patterns relative to that directory).
+     */
+    @Parameter( property = "excludes", required = false, readonly = true, defaultValue = "**/target/**" )
+    private String[] excludes;
+
+    /**
+     * Uses virtual threads for the <code>baseDirectory</code> mode when running on Java 21 or newer.
+     */
+    @Parameter( property = "virtualThreads", required = false, readonly = true, defaultValue = "true" )
+    private boolean virtualThreads;
+
+    // METHODS ...............................................................
+
+    /**
+     * Main goal method.
+     */
+    @Override
+    public void execute()
+        throws MojoExecutionException, MojoFailureException
+    {
+        PomCanonicalizer canonicalizer = new PomCanonicalizer();
+        canonicalizer.setDuplicatePolicy( duplicatePolicy );
+        canonicalizer.setDependencyOrder( dependencyOrder );
+        canonicalizer.setManagedDependencyOrder( managedDependencyOrder );
+        canonicalizer.setPropertyOrder( propertyOrder );
+
+        if ( baseDirectory != null )
+        {
+            SaveOptions options = getBatchOptions( canonicalizer );
+            executeOnDirectory( "Canonicalizing", "canonicalized", baseDirectory, includes, excludes, threads,
+                                virtualThreads, options, pom -> canonicalize( canonicalizer, pom, options ) );
+            return;
+        }
+        if ( reactor )
+        {
+            SaveOptions options = getBatchOptions( canonicalizer );
+            executeOnReactor( "Canonicalizing", "canonicalized", threads, options,
+                              pom -> canonicalize( canonicalizer, pom, options ) );
+            return;
+        }
+        if ( isUpToDate() )
+        {
+            return;
+        }
+
+        getLog().info( "Canonicalizing '" + pomFile + "'" );
+        PomEditor editor = openEditor( SECTIONS );
+        getLog().info( editor.canonicalize( canonicalizer ) + " duplicate dependencies removed." );
+        editor.getOptions().setKeepPropertyOrder( canonicalizer.sortsProperties() );
+        save( editor );
+    }
+
+    /**
+     * Creates the writing options shared by all the files of a batch.
+     *
+     * @param canonicalizer The canonical form.
+     * @return The options.
+     */
+    private SaveOptions getBatchOptions( PomCanonicalizer canonicalizer )
+    {
+        SaveOptions options = getSaveOptions();
+        options.setKeepPropertyOrder( canonicalizer.sortsProperties() );
+        return ( options );
+    }
+
+    /**
+     * Canonicalizes a POM file (reactor and directory modes).
+     *
+     * @param canonicalizer The canonical form.
+     * @param pom POM file.
+     * @param options How to write the file.
+     * @return What has been done.
+     * @throws IOException I/O error.
+     * @throws XmlPullParserException Problem while reading the POM.
+     */
+    private String canonicalize( PomCanonicalizer canonicalizer, File pom, SaveOptions options )
+        throws IOException, XmlPullParserException
+    {
+        PomEditor editor = PomEditor.open( pom.getPath(), options, partialParsing ? SECTIONS : null );
+        int removed = editor.canonicalize( canonicalizer );
+        boolean written = editor.save( backupFile( pom ) );
+        return ( ( written ? "canonicalized" : "already canonical" ) + ", " + removed + " duplicates removed" );
+    }
+}
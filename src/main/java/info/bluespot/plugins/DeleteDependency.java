@@ -19,30 +19,27 @@ package info.bluespot.plugins;
  * under the License.
  */
 
-import java.io.IOException;
 import java.util.List;
-import java.util.Vector;
 
 import org.apache.maven.model.Dependency;
-import org.apache.maven.model.Model;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
 /**
  * Removes a dependency from the POM.
  * <p>
- * This goal looks for a matching dependency and removes it from the POM file.
+ * This goal looks for the matching dependencies and removes them from the POM file. Several coordinates (with
+ * wildcards and regular expressions, see {@link DependencyMatcher}) can be removed at once with the
+ * <code>dependencies</code> parameter.
  * </p>
  * 
  * @since 1.0.0
  */
-@Mojo( name = "delete-dependency", requiresProject = true, inheritByDefault = false )
+@Mojo( name = "delete-dependency", requiresProject = true, inheritByDefault = false, threadSafe = true )
 public class DeleteDependency
-    extends AbstractMojo
+    extends AbstractPOMMojo
 {
     // PARAMETERS ............................................................
 
@@ -55,7 +52,7 @@ public class DeleteDependency
     /**
      * Dependency <code>GroupId</code>.
      */
-    @Parameter( property = "groupId", required = true, readonly = true )
+    @Parameter( property = "groupId", required = false, readonly = true )
     private String groupId;
 
     /**
@@ -65,16 +62,29 @@ public class DeleteDependency
     private String version;
 
     /**
-     * Keeps a copy of the current POM file before modifying it.
+     * Dependency coordinates to remove (<code>groupId[:artifactId[:version]]</code>, with '<code>*</code>' and
+     * '<code>?</code>' wildcards or <code>/regular expressions/</code> as parts).
+     * 
+     * @since 1.1.0
      */
-    @Parameter( property = "pomBackup", required = false, readonly = true )
-    private String pomBackup;
+    @Parameter( property = "dependencies", required = false, readonly = true )
+    private String[] dependencies;
 
     /**
-     * Specifies a POM file to modify.
+     * Also removes the matching managed dependencies (<code>dependencyManagement</code>).
+     * 
+     * @since 1.1.0
      */
-    @Parameter( property = "pomFile", required = false, readonly = true, defaultValue = "pom.xml" )
-    private String pomFile;
+    @Parameter( property = "includeManaged", required = false, readonly = true, defaultValue = "false" )
+    private boolean includeManaged;
+
+    /**
+     * Also removes the matching dependencies of the profiles.
+     * 
+     * @since 1.1.0
+     */
+    @Parameter( property = "includeProfiles", required = false, readonly = true, defaultValue = "false" )
+    private boolean includeProfiles;
 
     // METHODS ...............................................................
 
@@ -85,142 +95,70 @@ public class DeleteDependency
     public void execute()
         throws MojoExecutionException, MojoFailureException
     {
-        // Just check if all the GAV is null
-        if ( artifactId == null && groupId == null && version == null )
+        if ( isUpToDate() )
         {
-            throw new MojoExecutionException( "An ArtifactId, GroupId or Version parameter is needed for dependency deletion." );
+            return;
         }
 
-        getLog().info( "Removing dependency: '" + groupId + ":" + artifactId + "'" );
-
-        // Loads the model
-        Model model;
-        try
+        // Build the matcher with all the coordinates
+        DependencyMatcher matcher = new DependencyMatcher();
+        if ( artifactId != null || groupId != null || version != null )
         {
-            model = POMUtils.loadModel( pomFile );
+            matcher.add( groupId, artifactId, version );
+            getLog().info( "Removing dependency: '" + groupId + ":" + artifactId + "'" );
         }
-        catch ( IOException | XmlPullParserException e )
+        if ( dependencies != null )
         {
-            // Exception loading the model
-            throw new MojoExecutionException( "Error while loading the Maven project model:", e );
-        }
-
-        // Gets the dependency list and iterate over it
-        List<Dependency> dependencyList = model.getDependencies();
-        Vector<Dependency> newDependencyList = new Vector<Dependency>();
-
-        for ( Dependency dependency : dependencyList )
-        {
-            // It a matching dependency is found, just skip it; if not, the dependency
-            // is added to the new list.
-            if ( matches( dependency ) )
+            for ( String coordinates : dependencies )
             {
-                getLog().info( "Dependency found (removed)." );
-            }
-            else
-            {
-                newDependencyList.add( dependency );
+                try
+                {
+                    matcher.add( coordinates );
+                }
+                catch ( IllegalArgumentException e )
+                {
+                    throw new MojoFailureException( e.getMessage(), e );
+                }
+                getLog().info( "Removing dependency: '" + coordinates.trim() + "'" );
             }
         }
 
-        // Set the new (filtered) dependency list
-        model.setDependencies( newDependencyList );
-
-        // Save the model
-        try
-        {
-            POMUtils.saveModel( model, pomFile, pomBackup );
-        }
-        catch ( IOException e )
+        // Just check if there's something to look for
+        if ( matcher.isEmpty() )
         {
-            // Exception
-            throw new MojoExecutionException( "Error while writing the POM file:", e );
+            throw new MojoExecutionException( "An ArtifactId, GroupId or Version parameter (or a dependency list) is "
+                + "needed for dependency deletion." );
         }
-    }
 
-    /**
-     * Auxiliary method for match a dependency with 'whatever' has been provided (the <code>groupId</code>, the
-     * </code>artifactId</code>, both of them, all the GAV coordinates, etc.).
-     * 
-     * @param dependency A dependency object from the POM.
-     * @return 'true' if there's any match.
-     */
-    private boolean matches( Dependency dependency )
-    {
-        // Look for all the matches
-        return ( matchesGroupId( dependency ) && matchesArtifactId( dependency ) && matchesVersion( dependency ) );
-    }
-
-    /**
-     * Auxiliary method for check a <code>GroupId</code> match.
-     * 
-     * @param dependency A dependency object from the POM.
-     * @return 'true' if the <code>GroupId</code> matches.
-     */
-    private boolean matchesGroupId( Dependency dependency )
-    {
-        // If the GroupId is not provided, it's OK (the match could be over the ArtifactId or the version)
-        if ( groupId == null )
+        // Load the model
+        PomSections sections = PomSections.of( "dependencies" );
+        if ( includeManaged )
         {
-            return ( true );
+            sections = sections.with( "dependencyManagement" );
         }
-
-        if ( groupId.equals( dependency.getGroupId() ) )
+        if ( includeProfiles )
         {
-            return ( true );
+            sections = sections.with( "profiles" );
         }
-        else
-        {
-            return ( false );
-        }
-    }
+        PomEditor editor = openEditor( sections );
 
-    /**
-     * Auxiliary method for check a <code>ArtifactId</code> match.
-     * 
-     * @param dependency A dependency object from the POM.
-     * @return 'true' if the <code>ArtifactId</code> matches.
-     */
-    private boolean matchesArtifactId( Dependency dependency )
-    {
-        // If the ArtifactId is not provided, it's OK (the match could be over the GroupId or the version)
-        if ( artifactId == null )
+        // Remove all the matching dependencies in one pass
+        List<Dependency> removed = editor.removeDependencies( matcher, includeManaged, includeProfiles );
+        for ( Dependency dependency : removed )
         {
-            return ( true );
+            getLog().debug( "  " + dependency.getManagementKey() + ":" + dependency.getVersion() );
         }
-
-        if ( artifactId.equals( dependency.getArtifactId() ) )
+        if ( removed.isEmpty() )
         {
-            return ( true );
+            getLog().info( "No matching dependencies found." );
         }
         else
         {
-            return ( false );
-        }
-    }
-
-    /**
-     * Auxiliary method for check a <code>Version</code> match.
-     * 
-     * @param dependency A dependency object from the POM.
-     * @return 'true' if the <code>Version</code> matches.
-     */
-    private boolean matchesVersion( Dependency dependency )
-    {
-        // If the Version is not provided, it's OK
-        if ( version == null )
-        {
-            return ( true );
+            getLog().info( removed.size() == 1 ? "Dependency found (removed)."
+                            : removed.size() + " dependencies found (removed)." );
         }
 
-        if ( version.equals( dependency.getVersion() ) )
-        {
-            return ( true );
-        }
-        else
-        {
-            return ( false );
-        }
+        // Save the model
+        save( editor );
     }
-
 }
@@ -0,0 +1,257 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.ModelBase;
+
+/**
+ * A dependency list indexed by the dependency key (<code>groupId:artifactId:type[:classifier]</code>), for adding many
+ * dependencies without duplicating the existing ones.
+ * <p>
+ * The index is built once over the list; every added dependency is then inserted, updated or skipped with a single
+ * lookup, following a {@link ConflictPolicy}.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class DependencyIndex
+{
+    /**
+     * The indexed list (modified in place).
+     */
+    private final List<Dependency> dependencies;
+
+    /**
+     * Position of the dependencies on the list, by key.
+     */
+    private final Map<String, Integer> index;
+
+    /**
+     * Indexes a dependency list.
+     *
+     * @param dependencies Dependency list (the new dependencies are added to it).
+     */
+    public DependencyIndex( List<Dependency> dependencies )
+    {
+        this.dependencies = dependencies;
+        this.index = new HashMap<String, Integer>( dependencies.size() * 2 );
+        for ( int i = 0; i < dependencies.size(); i++ )
+        {
+            index.putIfAbsent( dependencies.get( i ).getManagementKey(), i );
+        }
+    }
+
+    /**
+     * Gets the dependency list of a section of the model (creating the section if needed).
+     *
+     * @param model Maven model.
+     * @param managed Use the managed dependencies (<code>dependencyManagement</code>).
+     * @param profileId Profile ID (<code>null</code> for the main section). A missing profile is created.
+     * @return The section dependency list.
+     */
+    public static List<Dependency> sectionOf( Model model, boolean managed, String profileId )
+    {
+        return ( sectionOf( new ProfileIndex( model ), managed, profileId ) );
+    }
+
+    /**
+     * Gets the dependency list of a section of a model (creating the section if needed), looking up the profile on
+     * an existing index.
+     *
+     * @param profiles Profiles of the model.
+     * @param managed Use the managed dependencies (<code>dependencyManagement</code>).
+     * @param profileId Profile ID (<code>null</code> for the main section). A missing profile is created.
+     * @return The section dependency list.
+     */
+    public static List<Dependency> sectionOf( ProfileIndex profiles, boolean managed, String profileId )
+    {
+        ModelBase section = profileId != null ? profiles.getOrCreate( profileId ) : profiles.getModel();
+
+        if ( !managed )
+        {
+            return ( section.getDependencies() );
+        }
+        if ( section.getDependencyManagement() == null )
+        {
+            section.setDependencyManagement( new DependencyManagement() );
+        }
+        return ( section.getDependencyManagement().getDependencies() );
+    }
+
+    /**
+     * Adds a dependency to the list.
+     *
+     * @param dependency New dependency (it's copied).
+     * @param policy What to do if there's already a dependency with the same key.
+     * @return What has been done.
+     * @throws IllegalStateException There's already a dependency with the same key and the policy is
+     *             <code>FAIL</code>.
+     */
+    public Outcome merge( Dependency dependency, ConflictPolicy policy )
+    {
+        String key = dependency.getManagementKey();
+        Integer position = index.get( key );
+
+        if ( position == null )
+        {
+            index.put( key, dependencies.size() );
+            dependencies.add( dependency.clone() );
+            return ( Outcome.ADDED );
+        }
+
+        Dependency existing = dependencies.get( position );
+        switch ( policy )
+        {
+            case SKIP:
+                return ( Outcome.UNCHANGED );
+            case FAIL:
+                throw new IllegalStateException( "The dependency '" + key + "' already exists." );
+            case REPLACE:
+                if ( sameAs( existing, dependency ) )
+                {
+                    return ( Outcome.UNCHANGED );
+                }
+                dependencies.set( position, dependency.clone() );
+                return ( Outcome.UPDATED );
+            default:
+                return ( update( existing, dependency ) ? Outcome.UPDATED : Outcome.UNCHANGED );
+        }
+    }
+
+    /**
+     * Copies the fields set on a dependency to an existing one.
+     *
+     * @return 'true' if something has changed.
+     */
+    private static boolean update( Dependency existing, Dependency dependency )
+    {
+        Dependency before = existing.clone();
+        if ( dependency.getVersion() != null )
+        {
+            existing.setVersion( dependency.getVersion() );
+        }
+        if ( dependency.getScope() != null )
+        {
+            existing.setScope( dependency.getScope() );
+        }
+        if ( dependency.getSystemPath() != null )
+        {
+            existing.setSystemPath( dependency.getSystemPath() );
+        }
+        if ( dependency.getOptional() != null )
+        {
+            existing.setOptional( dependency.getOptional() );
+        }
+        if ( !dependency.getExclusions().isEmpty() )
+        {
+            List<Exclusion> exclusions = new ArrayList<Exclusion>();
+            for ( Exclusion exclusion : dependency.getExclusions() )
+            {
+                exclusions.add( exclusion.clone() );
+            }
+            existing.setExclusions( exclusions );
+        }
+        return ( !sameAs( before, existing ) );
+    }
+
+    /**
+     * Compares all the fields of two dependencies with the same key.
+     */
+    private static boolean sameAs( Dependency a, Dependency b )
+    {
+        if ( !Objects.equals( a.getVersion(), b.getVersion() ) || !Objects.equals( a.getScope(), b.getScope() )
+            || !Objects.equals( a.getSystemPath(), b.getSystemPath() )
+            || !Objects.equals( a.getOptional(), b.getOptional() )
+            || a.getExclusions().size() != b.getExclusions().size() )
+        {
+            return ( false );
+        }
+        for ( int i = 0; i < a.getExclusions().size(); i++ )
+        {
+            Exclusion x = a.getExclusions().get( i );
+            Exclusion y = b.getExclusions().get( i );
+            if ( !Objects.equals( x.getGroupId(), y.getGroupId() )
+                || !Objects.equals( x.getArtifactId(), y.getArtifactId() ) )
+            {
+                return ( false );
+            }
+        }
+        return ( true );
+    }
+
+    // TYPES .................................................................
+
+    /**
+     * What to do when an added dependency is already on the list.
+     */
+    public enum ConflictPolicy
+    {
+        /**
+         * Keeps the existing dependency as it is.
+         */
+        SKIP,
+
+        /**
+         * Sets the fields of the new dependency (version, scope, etc.) on the existing one.
+         */
+        UPDATE,
+
+        /**
+         * Replaces the existing dependency with the new one.
+         */
+        REPLACE,
+
+        /**
+         * Fails.
+         */
+        FAIL
+    }
+
+    /**
+     * What has been done with an added dependency.
+     */
+    public enum Outcome
+    {
+        /**
+         * The dependency has been added to the list.
+         */
+        ADDED,
+
+        /**
+         * An existing dependency has been modified or replaced.
+         */
+        UPDATED,
+
+        /**
+         * The list already had the dependency.
+         */
+        UNCHANGED
+    }
+}
@@ -0,0 +1,316 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Profile;
+
+/**
+ * Matches dependencies against a set of coordinates.
+ * <p>
+ * Every coordinate is written as <code>groupId[:artifactId[:version]]</code>; the missing parts match anything. Each
+ * part can be:
+ * </p>
+ * <ul>
+ * <li>A literal value: <code>org.slf4j</code>.</li>
+ * <li>A wildcard pattern, where '<code>*</code>' matches any sequence of characters and '<code>?</code>' a single
+ * one: <code>org.springframework:*</code>, <code>*:*-test:*</code>.</li>
+ * <li>A regular expression between slashes: <code>/com\.example(\..+)?/:/.+-(api|impl)/</code>.</li>
+ * </ul>
+ * <p>
+ * The exact coordinates are kept on hash sets, so matching a dependency against any number of them takes a few
+ * lookups; only the patterns are checked one by one.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class DependencyMatcher
+{
+    /**
+     * Exact <code>groupId</code> coordinates.
+     */
+    private final Set<String> groups = new HashSet<String>();
+
+    /**
+     * Exact <code>groupId:artifactId</code> coordinates.
+     */
+    private final Set<String> artifacts = new HashSet<String>();
+
+    /**
+     * Exact <code>groupId:artifactId:version</code> coordinates.
+     */
+    private final Set<String> versions = new HashSet<String>();
+
+    /**
+     * Coordinates with patterns.
+     */
+    private final List<Pattern[]> patterns = new ArrayList<Pattern[]>();
+
+    /**
+     * Adds a coordinate (with wildcards or regular expressions).
+     *
+     * @param coordinates Coordinates: <code>groupId[:artifactId[:version]]</code>.
+     * @return This matcher.
+     * @throws IllegalArgumentException Invalid coordinates or regular expression.
+     */
+    public DependencyMatcher add( String coordinates )
+    {
+        String[] parts = coordinates.trim().split( ":", -1 );
+        if ( parts.length > 3 || parts[0].isEmpty() )
+        {
+            throw new IllegalArgumentException( "Invalid dependency coordinates '" + coordinates
+                + "' (groupId[:artifactId[:version]] expected)." );
+        }
+
+        Pattern[] compiled = new Pattern[3];
+        boolean exact = true;
+        for ( int i = 0; i < parts.length; i++ )
+        {
+            String part = parts[i];
+            if ( isRegex( part ) )
+            {
+                compiled[i] = compileRegex( part, coordinates );
+                exact = false;
+            }
+            else if ( part.indexOf( '*' ) >= 0 || part.indexOf( '?' ) >= 0 )
+            {
+                compiled[i] = compileWildcard( part );
+                exact = false;
+            }
+            else if ( !part.isEmpty() )
+            {
+                compiled[i] = Pattern.compile( Pattern.quote( part ) );
+            }
+        }
+
+        if ( exact )
+        {
+            return ( add( parts[0], part( parts, 1 ), part( parts, 2 ) ) );
+        }
+        patterns.add( compiled );
+        return ( this );
+    }
+
+    /**
+     * Adds an exact coordinate.
+     *
+     * @param groupId Dependency <code>groupId</code> (<code>null</code> matches any).
+     * @param artifactId Dependency <code>artifactId</code> (<code>null</code> matches any).
+     * @param version Dependency version (<code>null</code> matches any).
+     * @return This matcher.
+     */
+    public DependencyMatcher add( String groupId, String artifactId, String version )
+    {
+        if ( groupId != null && artifactId == null && version == null )
+        {
+            groups.add( groupId );
+        }
+        else if ( groupId != null && artifactId != null && version == null )
+        {
+            artifacts.add( groupId + ":" + artifactId );
+        }
+        else if ( groupId != null && artifactId != null )
+        {
+            versions.add( groupId + ":" + artifactId + ":" + version );
+        }
+        else
+        {
+            // Not a prefix of the coordinates: it can't be indexed
+            patterns.add( new Pattern[] { literal( groupId ), literal( artifactId ), literal( version ) } );
+        }
+        return ( this );
+    }
+
+    /**
+     * @return 'true' if no coordinates have been added.
+     */
+    public boolean isEmpty()
+    {
+        return ( groups.isEmpty() && artifacts.isEmpty() && versions.isEmpty() && patterns.isEmpty() );
+    }
+
+    /**
+     * Checks a dependency against all the coordinates.
+     *
+     * @param dependency A dependency.
+     * @return 'true' if any of the coordinates matches.
+     */
+    public boolean matches( Dependency dependency )
+    {
+        String groupId = valueOf( dependency.getGroupId() );
+        String artifactId = valueOf( dependency.getArtifactId() );
+        String version = valueOf( dependency.getVersion() );
+
+        if ( groups.contains( groupId ) || artifacts.contains( groupId + ":" + artifactId )
+            || versions.contains( groupId + ":" + artifactId + ":" + version ) )
+        {
+            return ( true );
+        }
+
+        for ( Pattern[] pattern : patterns )
+        {
+            if ( matches( pattern[0], groupId ) && matches( pattern[1], artifactId )
+                && matches( pattern[2], version ) )
+            {
+                return ( true );
+            }
+        }
+        return ( false );
+    }
+
+    /**
+     * Removes the matching dependencies from a model, in a single pass over every dependency list.
+     *
+     * @param model Maven model.
+     * @param managed Also removes the managed dependencies (<code>dependencyManagement</code>).
+     * @param profiles Also removes the dependencies (and managed dependencies) of the profiles.
+     * @return The removed dependencies.
+     */
+    public List<Dependency> removeFrom( Model model, boolean managed, boolean profiles )
+    {
+        List<Dependency> removed = new ArrayList<Dependency>();
+
+        model.setDependencies( filter( model.getDependencies(), removed ) );
+        if ( managed )
+        {
+            filter( model.getDependencyManagement(), removed );
+        }
+
+        if ( profiles )
+        {
+            for ( Profile profile : model.getProfiles() )
+            {
+                profile.setDependencies( filter( profile.getDependencies(), removed ) );
+                if ( managed )
+                {
+                    filter( profile.getDependencyManagement(), removed );
+                }
+            }
+        }
+        return ( removed );
+    }
+
+    /**
+     * Removes the matching dependencies from a dependency management section (if any).
+     */
+    private void filter( DependencyManagement management, List<Dependency> removed )
+    {
+        if ( management != null )
+        {
+            management.setDependencies( filter( management.getDependencies(), removed ) );
+        }
+    }
+
+    /**
+     * Gets the dependencies that don't match, adding the rest to the removed list.
+     */
+    private List<Dependency> filter( List<Dependency> dependencies, List<Dependency> removed )
+    {
+        List<Dependency> kept = new ArrayList<Dependency>( dependencies.size() );
+        for ( Dependency dependency : dependencies )
+        {
+            if ( matches( dependency ) )
+            {
+                removed.add( dependency );
+            }
+            else
+            {
+                kept.add( dependency );
+            }
+        }
+        return ( kept );
+    }
+
+    // PATTERNS ..............................................................
+
+    private static boolean matches( Pattern pattern, String value )
+    {
+        return ( pattern == null || pattern.matcher( value ).matches() );
+    }
+
+    private static boolean isRegex( String part )
+    {
+        return ( part.length() >= 2 && part.startsWith( "/" ) && part.endsWith( "/" ) );
+    }
+
+    private static Pattern compileRegex( String part, String coordinates )
+    {
+        try
+        {
+            return ( Pattern.compile( part.substring( 1, part.length() - 1 ) ) );
+        }
+        catch ( PatternSyntaxException e )
+        {
+            throw new IllegalArgumentException( "Invalid regular expression on '" + coordinates + "': "
+                + e.getDescription() + ".", e );
+        }
+    }
+
+    private static Pattern compileWildcard( String part )
+    {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for ( char c : part.toCharArray() )
+        {
+            if ( c == '*' || c == '?' )
+            {
+                if ( literal.length() > 0 )
+                {
+                    regex.append( Pattern.quote( literal.toString() ) );
+                    literal.setLength( 0 );
+                }
+                regex.append( c == '*' ? ".*" : "." );
+            }
+            else
+            {
+                literal.append( c );
+            }
+        }
+        if ( literal.length() > 0 )
+        {
+            regex.append( Pattern.quote( literal.toString() ) );
+        }
+        return ( Pattern.compile( regex.toString() ) );
+    }
+
+    private static Pattern literal( String value )
+    {
+        return ( value != null ? Pattern.compile( Pattern.quote( value ) ) : null );
+    }
+
+    private static String part( String[] parts, int index )
+    {
+        return ( index < parts.length && !parts[index].isEmpty() ? parts[index] : null );
+    }
+
+    private static String valueOf( String value )
+    {
+        return ( value != null ? value : "" );
+    }
+}
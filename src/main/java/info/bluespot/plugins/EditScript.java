@@ -0,0 +1,724 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Profile;
+
+/**
+ * A list of POM edit operations read from a plain text script.
+ * <p>
+ * Each non-empty line of the script is an operation: the operation name followed by its arguments, separated by
+ * blanks. Values containing blanks can be enclosed in double quotes. Lines starting with '<code>#</code>' are
+ * comments.
+ * </p>
+ *
+ * <pre>
+ *   # Release edits
+ *   set-project version=2.0.0 name="My project"
+ *   add-dependency com.example:my-library:1.0.0 scope=provided
+ *   delete-dependency com.example:old-library org.legacy:*
+ *   add-properties server.env=prod server.port=8080
+ *   add-profile-properties deployment server.hostname=abc.example.com
+ * </pre>
+ *
+ * @since 1.1.0
+ */
+public class EditScript
+{
+    /**
+     * Script operations in the script order.
+     */
+    private final List<Edit> edits;
+
+    /**
+     * Creates a script from a list of operations.
+     *
+     * @param edits Operation list.
+     */
+    public EditScript( List<Edit> edits )
+    {
+        this.edits = Collections.unmodifiableList( edits );
+    }
+
+    /**
+     * Reads an edit script from a file.
+     *
+     * @param scriptFile Script file name.
+     * @param encoding Script file encoding.
+     * @return The parsed script.
+     * @throws IOException I/O error reading the script.
+     * @throws ParseException Syntax error on the script (the error offset is the line number).
+     */
+    public static EditScript load( String scriptFile, String encoding )
+        throws IOException, ParseException
+    {
+        try ( Reader reader = Files.newBufferedReader( new File( scriptFile ).toPath(), Charset.forName( encoding ) ) )
+        {
+            return ( parse( reader ) );
+        }
+    }
+
+    /**
+     * Parses an edit script.
+     *
+     * @param reader Script contents.
+     * @return The parsed script.
+     * @throws IOException I/O error reading the script.
+     * @throws ParseException Syntax error on the script (the error offset is the line number).
+     */
+    public static EditScript parse( Reader reader )
+        throws IOException, ParseException
+    {
+        List<Edit> edits = new ArrayList<Edit>();
+        BufferedReader lines = new BufferedReader( reader );
+
+        String line;
+        int lineNumber = 0;
+        while ( ( line = lines.readLine() ) != null )
+        {
+            lineNumber++;
+            Edit edit = parseLine( line, lineNumber );
+            if ( edit != null )
+            {
+                edits.add( edit );
+            }
+        }
+
+        return ( new EditScript( edits ) );
+    }
+
+    /**
+     * Parses a dependency written as the arguments of the <code>add-dependency</code> operation:
+     * '<code>groupId:artifactId[:version[:type[:classifier]]]</code>' followed by optional '<code>key=value</code>'
+     * attributes.
+     *
+     * @param spec Dependency specification.
+     * @param lineNumber Line number (for error messages).
+     * @return The dependency.
+     * @throws ParseException Syntax error on the specification.
+     */
+    public static Dependency parseDependency( String spec, int lineNumber )
+        throws ParseException
+    {
+        return ( parseDependency( tokenize( spec.trim(), lineNumber ), lineNumber ) );
+    }
+
+    /**
+     * Parses a single script line.
+     *
+     * @param line Script line.
+     * @param lineNumber Line number (for error messages).
+     * @return The operation or <code>null</code> for blank lines and comments.
+     * @throws ParseException Syntax error on the line.
+     */
+    public static Edit parseLine( String line, int lineNumber )
+        throws ParseException
+    {
+        String trimmed = line.trim();
+        if ( trimmed.isEmpty() || trimmed.startsWith( "#" ) )
+        {
+            return ( null );
+        }
+
+        List<String> tokens = tokenize( trimmed, lineNumber );
+        String operation = tokens.get( 0 );
+        List<String> arguments = tokens.subList( 1, tokens.size() );
+
+        if ( "add-dependency".equals( operation ) )
+        {
+            return ( new AddDependencyEdit( parseDependency( arguments, lineNumber ) ) );
+        }
+        else if ( "delete-dependency".equals( operation ) )
+        {
+            if ( arguments.isEmpty() )
+            {
+                throw new ParseException( "Line " + lineNumber + ": dependency coordinates are needed for '"
+                    + operation + "'.", lineNumber );
+            }
+            try
+            {
+                return ( new DeleteDependencyEdit( arguments ) );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                throw new ParseException( "Line " + lineNumber + ": " + e.getMessage(), lineNumber );
+            }
+        }
+        else if ( "set-project".equals( operation ) )
+        {
+            Map<String, String> values = parseAssignments( arguments, 0, lineNumber );
+            for ( String key : values.keySet() )
+            {
+                if ( !SetProjectEdit.FIELDS.contains( key ) )
+                {
+                    throw new ParseException( "Line " + lineNumber + ": unknown project field '" + key + "'.",
+                                              lineNumber );
+                }
+            }
+            return ( new SetProjectEdit( values ) );
+        }
+        else if ( "add-properties".equals( operation ) )
+        {
+            return ( new AddPropertiesEdit( null, parseAssignments( arguments, 0, lineNumber ) ) );
+        }
+        else if ( "add-profile-properties".equals( operation ) )
+        {
+            if ( arguments.isEmpty() )
+            {
+                throw new ParseException( "Line " + lineNumber + ": a profile ID is needed for '" + operation + "'.",
+                                          lineNumber );
+            }
+            return ( new AddPropertiesEdit( arguments.get( 0 ), parseAssignments( arguments, 1, lineNumber ) ) );
+        }
+
+        throw new ParseException( "Line " + lineNumber + ": unknown operation '" + operation + "'.", lineNumber );
+    }
+
+    /**
+     * Applies all the script operations to a model.
+     *
+     * @param model Maven model.
+     */
+    public void apply( Model model )
+    {
+        apply( model, null );
+    }
+
+    /**
+     * Applies all the script operations to the model of a POM file.
+     * <p>
+     * Consecutive <code>add-dependency</code> operations share the same dependency index, so adding many
+     * dependencies takes a single pass over the existing ones.
+     * </p>
+     *
+     * @param model Maven model.
+     * @param pom POM file (for the Flight Recorder events).
+     */
+    public void apply( Model model, File pom )
+    {
+        DependencyIndex index = null;
+        for ( Edit edit : edits )
+        {
+            if ( edit instanceof AddDependencyEdit )
+            {
+                if ( index == null )
+                {
+                    index = new DependencyIndex( model.getDependencies() );
+                }
+                PomEvents.Mutation event = PomEvents.mutation( pom, edit.getOperation() );
+                ( (AddDependencyEdit) edit ).apply( index );
+                event.end( 1 );
+            }
+            else
+            {
+                // The other operations can change the dependency list
+                index = null;
+                apply( edit, model, pom );
+            }
+        }
+    }
+
+    /**
+     * Applies an operation to the model of a POM file, recording a Flight Recorder event.
+     *
+     * @param edit Operation.
+     * @param model Maven model.
+     * @param pom POM file (optional).
+     */
+    public static void apply( Edit edit, Model model, File pom )
+    {
+        PomEvents.Mutation event = PomEvents.mutation( pom, edit.getOperation() );
+        edit.apply( model );
+        event.end( 1 );
+    }
+
+    /**
+     * Gets the sections of the POM the script can modify (see {@link Edit#getSections()}).
+     *
+     * @return The sections, or <code>null</code> if the script can modify any section.
+     */
+    public PomSections getSections()
+    {
+        PomSections sections = PomSections.of();
+        for ( Edit edit : edits )
+        {
+            PomSections modified = edit.getSections();
+            if ( modified == null )
+            {
+                return ( null );
+            }
+            sections = sections.with( modified );
+        }
+        return ( sections );
+    }
+
+    /**
+     * Returns the script operations.
+     *
+     * @return Operation list (read only).
+     */
+    public List<Edit> getEdits()
+    {
+        return ( edits );
+    }
+
+    // PARSING ...............................................................
+
+    /**
+     * Splits a line by blanks, keeping the double quoted sections together.
+     *
+     * @param line Script line.
+     * @param lineNumber Line number (for error messages).
+     * @return The token list (never empty).
+     * @throws ParseException Unbalanced quotes.
+     */
+    private static List<String> tokenize( String line, int lineNumber )
+        throws ParseException
+    {
+        List<String> tokens = new ArrayList<String>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        boolean inToken = false;
+
+        for ( int i = 0; i < line.length(); i++ )
+        {
+            char c = line.charAt( i );
+
+            if ( quoted )
+            {
+                if ( c == '\\' && i + 1 < line.length() )
+                {
+                    current.append( line.charAt( ++i ) );
+                }
+                else if ( c == '"' )
+                {
+                    quoted = false;
+                }
+                else
+                {
+                    current.append( c );
+                }
+            }
+            else if ( c == '"' )
+            {
+                quoted = true;
+                inToken = true;
+            }
+            else if ( Character.isWhitespace( c ) )
+            {
+                if ( inToken )
+                {
+                    tokens.add( current.toString() );
+                    current.setLength( 0 );
+                    inToken = false;
+                }
+            }
+            else
+            {
+                current.append( c );
+                inToken = true;
+            }
+        }
+
+        if ( quoted )
+        {
+            throw new ParseException( "Line " + lineNumber + ": unbalanced quotes.", lineNumber );
+        }
+        if ( inToken )
+        {
+            tokens.add( current.toString() );
+        }
+
+        return ( tokens );
+    }
+
+    /**
+     * Parses a list of '<code>key=value</code>' arguments, keeping their order.
+     */
+    private static Map<String, String> parseAssignments( List<String> arguments, int from, int lineNumber )
+        throws ParseException
+    {
+        Map<String, String> assignments = new LinkedHashMap<String, String>();
+
+        for ( String argument : arguments.subList( from, arguments.size() ) )
+        {
+            int equalsPosition = argument.indexOf( '=' );
+            if ( equalsPosition <= 0 )
+            {
+                throw new ParseException( "Line " + lineNumber + ": '" + argument + "' is not a 'key=value' pair.",
+                                          lineNumber );
+            }
+            assignments.put( argument.substring( 0, equalsPosition ), argument.substring( equalsPosition + 1 ) );
+        }
+
+        return ( assignments );
+    }
+
+    /**
+     * Parses a dependency: '<code>groupId:artifactId[:version[:type[:classifier]]]</code>' followed by optional
+     * '<code>key=value</code>' attributes (<code>scope</code>, <code>systemPath</code>, <code>optional</code>, etc.).
+     */
+    private static Dependency parseDependency( List<String> arguments, int lineNumber )
+        throws ParseException
+    {
+        if ( arguments.isEmpty() )
+        {
+            throw new ParseException( "Line " + lineNumber + ": dependency coordinates are needed.", lineNumber );
+        }
+
+        String[] coordinates = arguments.get( 0 ).split( ":", -1 );
+        if ( coordinates.length < 2 || coordinates.length > 5 || coordinates[0].isEmpty()
+            || coordinates[1].isEmpty() )
+        {
+            throw new ParseException( "Line " + lineNumber + ": invalid dependency coordinates '" + arguments.get( 0 )
+                + "' (groupId:artifactId[:version[:type[:classifier]]]).", lineNumber );
+        }
+
+        Dependency dependency = new Dependency();
+        dependency.setGroupId( coordinates[0] );
+        dependency.setArtifactId( coordinates[1] );
+        if ( coordinates.length > 2 && !coordinates[2].isEmpty() )
+        {
+            dependency.setVersion( coordinates[2] );
+        }
+        if ( coordinates.length > 3 && !coordinates[3].isEmpty() )
+        {
+            dependency.setType( coordinates[3] );
+        }
+        if ( coordinates.length > 4 && !coordinates[4].isEmpty() )
+        {
+            dependency.setClassifier( coordinates[4] );
+        }
+
+        for ( Map.Entry<String, String> attribute : parseAssignments( arguments, 1, lineNumber ).entrySet() )
+        {
+            String value = attribute.getValue();
+            switch ( attribute.getKey() )
+            {
+                case "version":
+                    dependency.setVersion( value );
+                    break;
+                case "type":
+                    dependency.setType( value );
+                    break;
+                case "classifier":
+                    dependency.setClassifier( value );
+                    break;
+                case "scope":
+                    dependency.setScope( value );
+                    break;
+                case "systemPath":
+                    dependency.setSystemPath( value );
+                    break;
+                case "optional":
+                    dependency.setOptional( Boolean.parseBoolean( value ) );
+                    break;
+                default:
+                    throw new ParseException( "Line " + lineNumber + ": unknown dependency attribute '"
+                        + attribute.getKey() + "'.", lineNumber );
+            }
+        }
+
+        return ( dependency );
+    }
+
+    // OPERATIONS ............................................................
+
+    /**
+     * A single edit operation over the project model.
+     */
+    public interface Edit
+    {
+        /**
+         * Applies the operation.
+         *
+         * @param model Maven model.
+         */
+        void apply( Model model );
+
+        /**
+         * Short description of the operation (for logging).
+         *
+         * @return The description.
+         */
+        String describe();
+
+        /**
+         * Name of the operation (the script keyword).
+         *
+         * @return The operation name.
+         */
+        String getOperation();
+
+        /**
+         * Sections of the POM the operation can modify (only those are compared when the POM is saved with
+         * <code>preserveFormatting</code>, see {@link PomSplicer}).
+         *
+         * @return The sections, or <code>null</code> if the operation can modify any section.
+         */
+        default PomSections getSections()
+        {
+            return ( null );
+        }
+    }
+
+    /**
+     * Adds a dependency (or updates the existing one with the same key).
+     */
+    static class AddDependencyEdit
+        implements Edit
+    {
+        private final Dependency dependency;
+
+        AddDependencyEdit( Dependency dependency )
+        {
+            this.dependency = dependency;
+        }
+
+        @Override
+        public void apply( Model model )
+        {
+            apply( new DependencyIndex( model.getDependencies() ) );
+        }
+
+        /**
+         * Applies the operation over an index of the dependencies.
+         *
+         * @param index Index of the model dependencies.
+         */
+        void apply( DependencyIndex index )
+        {
+            // Running the script again doesn't duplicate the dependency
+            index.merge( dependency, DependencyIndex.ConflictPolicy.UPDATE );
+        }
+
+        @Override
+        public String getOperation()
+        {
+            return ( "add-dependency" );
+        }
+
+        @Override
+        public PomSections getSections()
+        {
+            return ( PomSections.of( "dependencies" ) );
+        }
+
+        @Override
+        public String describe()
+        {
+            return ( "Adding the dependency " + dependency.getGroupId() + ":" + dependency.getArtifactId() );
+        }
+    }
+
+    /**
+     * Removes the dependencies matching '<code>groupId[:artifactId[:version]]</code>'. Empty components match any
+     * value.
+     */
+    static class DeleteDependencyEdit
+        implements Edit
+    {
+        private final List<String> coordinates;
+
+        private final DependencyMatcher matcher = new DependencyMatcher();
+
+        DeleteDependencyEdit( List<String> coordinates )
+        {
+            this.coordinates = coordinates;
+            for ( String coordinate : coordinates )
+            {
+                matcher.add( coordinate );
+            }
+        }
+
+        @Override
+        public void apply( Model model )
+        {
+            matcher.removeFrom( model, false, false );
+        }
+
+        @Override
+        public String getOperation()
+        {
+            return ( "delete-dependency" );
+        }
+
+        @Override
+        public PomSections getSections()
+        {
+            return ( PomSections.of( "dependencies" ) );
+        }
+
+        @Override
+        public String describe()
+        {
+            return ( "Removing dependency: '" + String.join( "', '", coordinates ) + "'" );
+        }
+    }
+
+    /**
+     * Modifies the basic project information (GroupId, ArtifactId, version, name, description and URL).
+     */
+    static class SetProjectEdit
+        implements Edit
+    {
+        static final List<String> FIELDS =
+            Arrays.asList( "groupId", "artifactId", "version", "name", "description", "url" );
+
+        private final Map<String, String> values;
+
+        SetProjectEdit( Map<String, String> values )
+        {
+            this.values = values;
+        }
+
+        @Override
+        public void apply( Model model )
+        {
+            for ( Map.Entry<String, String> entry : values.entrySet() )
+            {
+                String value = entry.getValue();
+                switch ( entry.getKey() )
+                {
+                    case "groupId":
+                        model.setGroupId( value );
+                        break;
+                    case "artifactId":
+                        model.setArtifactId( value );
+                        break;
+                    case "version":
+                        model.setVersion( value );
+                        break;
+                    case "name":
+                        model.setName( value );
+                        break;
+                    case "description":
+                        model.setDescription( value );
+                        break;
+                    default:
+                        model.setUrl( value );
+                        break;
+                }
+            }
+        }
+
+        @Override
+        public String getOperation()
+        {
+            return ( "set-project" );
+        }
+
+        @Override
+        public PomSections getSections()
+        {
+            return ( PomSections.of( values.keySet().toArray( new String[values.size()] ) ) );
+        }
+
+        @Override
+        public String describe()
+        {
+            return ( "Setting the project information " + values );
+        }
+    }
+
+    /**
+     * Adds (or replaces) properties on the general section or on a profile.
+     */
+    static class AddPropertiesEdit
+        implements Edit
+    {
+        private final String profile;
+
+        private final Map<String, String> properties;
+
+        AddPropertiesEdit( String profile, Map<String, String> properties )
+        {
+            this.profile = profile;
+            this.properties = properties;
+        }
+
+        @Override
+        public void apply( Model model )
+        {
+            if ( profile == null )
+            {
+                model.getProperties().putAll( properties );
+                return;
+            }
+
+            Profile modelProfile = null;
+            for ( Profile profileIdx : model.getProfiles() )
+            {
+                if ( profile.equals( profileIdx.getId() ) )
+                {
+                    modelProfile = profileIdx;
+                    break;
+                }
+            }
+
+            if ( modelProfile == null )
+            {
+                modelProfile = new Profile();
+                modelProfile.setId( profile );
+                model.addProfile( modelProfile );
+            }
+
+            modelProfile.getProperties().putAll( properties );
+        }
+
+        @Override
+        public String getOperation()
+        {
+            return ( profile != null ? "add-profile-properties" : "add-properties" );
+        }
+
+        @Override
+        public PomSections getSections()
+        {
+            return ( PomSections.of( profile != null ? "profiles" : "properties" ) );
+        }
+
+        @Override
+        public String describe()
+        {
+            if ( profile == null )
+            {
+                return ( "Adding " + properties.size() + " general properties to the model." );
+            }
+            return ( "Adding " + properties.size() + " properties to the profile: '" + profile + "'" );
+        }
+    }
+}
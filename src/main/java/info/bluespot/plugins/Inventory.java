@@ -0,0 +1,297 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Writes an inventory of POM files: their coordinates, dependencies, managed dependencies, properties and profiles,
+ * one record per line, as CSV or JSON Lines. This goal doesn't modify any POM file.
+ * <p>
+ * The inventory can be taken from a single POM file, from the modules of the build (the <code>reactor</code>
+ * parameter) or from all the POM files under a directory (the <code>baseDirectory</code> parameter). The files are
+ * read in parallel and their records are written as soon as they are extracted, so the memory usage doesn't depend
+ * on the number of files. The filters (record kinds, dependency coordinates and versions, property names) are applied
+ * while extracting the records, and only the POM sections holding the selected kinds are parsed.
+ * </p>
+ *
+ * <pre>
+ *   mvn pomutils:inventory -DbaseDirectory=. -Dkinds=dependency,managed-dependency \
+ *       -DdependencyFilter=org.apache.logging.log4j:log4j-core -DversionRange="[,2.17)"
+ * </pre>
+ *
+ * @since 1.1.0
+ */
+@Mojo( name = "inventory", requiresProject = false, inheritByDefault = false, threadSafe = true )
+public class Inventory
+    extends AbstractPOMMojo
+{
+    // PARAMETERS ............................................................
+
+    /**
+     * Inventory file (by default, <code>pom-inventory.csv</code> or <code>pom-inventory.jsonl</code> on the build
+     * directory).
+     */
+    @Parameter( property = "inventoryFile", required = false, readonly = true )
+    private File inventoryFile;
+
+    /**
+     * Inventory file format: <code>CSV</code> or <code>JSONL</code> (JSON Lines).
+     */
+    @Parameter( property = "inventoryFormat", required = false, readonly = true, defaultValue = "CSV" )
+    private InventoryWriter.Format inventoryFormat;
+
+    /**
+     * Kinds of records (comma separated): <code>project</code>, <code>dependency</code>,
+     * <code>managed-dependency</code>, <code>property</code> and <code>profile</code> (all of them by default).
+     */
+    @Parameter( property = "kinds", required = false, readonly = true )
+    private String[] kinds;
+
+    /**
+     * Only the dependencies with these coordinates (<code>groupId[:artifactId[:version]]</code>, with wildcards or
+     * regular expressions, as for the <code>delete-dependency</code> goal).
+     */
+    @Parameter( property = "dependencyFilter", required = false, readonly = true )
+    private String[] dependencyFilter;
+
+    /**
+     * Only the dependencies with a version on this range (for instance, <code>[,2.17)</code>). The properties of the
+     * POM file on the dependency versions are replaced first.
+     */
+    @Parameter( property = "versionRange", required = false, readonly = true )
+    private String versionRange;
+
+    /**
+     * Only the properties with these names (with '<code>*</code>' and '<code>?</code>' wildcards).
+     */
+    @Parameter( property = "propertyFilter", required = false, readonly = true )
+    private String[] propertyFilter;
+
+    /**
+     * Takes the inventory of all the modules of the reactor instead of a single POM file.
+     */
+    @Parameter( property = "reactor", required = false, readonly = true, defaultValue = "false" )
+    private boolean reactor;
+
+    /**
+     * Takes the inventory of all the POM files found under this directory instead of a single POM file.
+     */
+    @Parameter( property = "baseDirectory", required = false, readonly = true )
+    private String baseDirectory;
+
+    /**
+     * POM files under the <code>baseDirectory</code> (glob patterns relative to that directory).
+     */
+    @Parameter( property = "includes", required = false, readonly = true, defaultValue = "**/pom.xml" )
+    private String[] includes;
+
+    /**
+     * Files to skip under the <code>baseDirectory</code> (glob patterns relative to that directory).
+     */
+    @Parameter( property = "excludes", required = false, readonly = true, defaultValue = "**/target/**" )
+    private String[] excludes;
+
+    /**
+     * Number of worker threads (by default, one per available processor).
+     */
+    @Parameter( property = "threads", required = false, readonly = true, defaultValue = "0" )
+    private int threads;
+
+    /**
+     * Uses virtual threads for the <code>baseDirectory</code> mode when running on Java 21 or newer.
+     */
+    @Parameter( property = "virtualThreads", required = false, readonly = true, defaultValue = "true" )
+    private boolean virtualThreads;
+
+    /**
+     * Build directory (for the default inventory file).
+     */
+    @Parameter( defaultValue = "${project.build.directory}", required = true, readonly = true )
+    private File buildDirectory;
+
+    // METHODS ...............................................................
+
+    /**
+     * Main goal method.
+     */
+    @Override
+    public void execute()
+        throws MojoExecutionException, MojoFailureException
+    {
+        // Run only once for the whole build (this goal is also invoked for every module)
+        if ( reactor && baseDirectory == null && session.getProjects().size() > 1
+            && !session.getCurrentProject().isExecutionRoot() )
+        {
+            getLog().debug( "The reactor inventory is taken from the execution root project." );
+            return;
+        }
+
+        final PomInventory inventory = createInventory();
+        final PomMetrics metrics = getMetrics();
+        File file = inventoryFile != null ? inventoryFile
+                        : new File( buildDirectory, "pom-inventory." + inventoryFormat.getExtension() );
+
+        int failures = 0;
+        int total = 0;
+        try ( final InventoryWriter writer = new InventoryWriter( file, inventoryFormat ) )
+        {
+            if ( baseDirectory != null )
+            {
+                getLog().info( "Taking the inventory of the POM files under '" + baseDirectory + "'" );
+                PomFinder finder = new PomFinder( Paths.get( baseDirectory ), includes, excludes );
+                PomBatch batch = new PomBatch( threads, virtualThreads );
+                PomBatch.Summary summary =
+                    batch.stream( finder, pom -> read( inventory, pom, writer, metrics ), this::report );
+                failures = summary.getFailures();
+                total = summary.getTotal();
+            }
+            else if ( reactor )
+            {
+                List<File> poms = session.getProjects().size() > 1 ? ModuleTree.fromSession( session )
+                                : ModuleTree.fromModules( new File( pomFile ) );
+                getLog().info( "Taking the inventory of " + poms.size() + " modules." );
+                List<PomBatch.Result> results =
+                    new PomBatch( threads ).run( poms, pom -> read( inventory, pom, writer, metrics ) );
+                for ( PomBatch.Result result : results )
+                {
+                    report( result );
+                    failures += result.isSuccess() ? 0 : 1;
+                    total++;
+                }
+            }
+            else
+            {
+                getLog().info( "Taking the inventory of '" + pomFile + "'" );
+                read( inventory, new File( pomFile ), writer, metrics );
+                total = 1;
+            }
+            getLog().info( writer.getCount() + " records of " + total + " POM files written to '" + file + "'" );
+        }
+        catch ( IOException | XmlPullParserException e )
+        {
+            throw new MojoExecutionException( "Error while taking the inventory.", e );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while taking the inventory.", e );
+        }
+        reportMetrics();
+
+        if ( failures > 0 )
+        {
+            throw new MojoFailureException( failures + " of " + total + " POM files couldn't be read." );
+        }
+    }
+
+    /**
+     * Creates the inventory extractor with the filters.
+     *
+     * @return The extractor.
+     * @throws MojoFailureException Invalid filter.
+     */
+    private PomInventory createInventory()
+        throws MojoFailureException
+    {
+        PomInventory inventory = new PomInventory();
+        try
+        {
+            if ( kinds != null && kinds.length > 0 )
+            {
+                Set<PomInventory.Kind> selected = EnumSet.noneOf( PomInventory.Kind.class );
+                for ( String kind : kinds )
+                {
+                    selected.add( PomInventory.Kind.of( kind ) );
+                }
+                inventory.setKinds( selected );
+            }
+            if ( dependencyFilter != null )
+            {
+                DependencyMatcher matcher = new DependencyMatcher();
+                for ( String coordinates : dependencyFilter )
+                {
+                    matcher.add( coordinates );
+                }
+                inventory.setDependencyFilter( matcher );
+            }
+            inventory.setVersionRange( versionRange );
+            if ( propertyFilter != null )
+            {
+                inventory.setPropertyFilter( propertyFilter );
+            }
+        }
+        catch ( IllegalArgumentException | InvalidVersionSpecificationException e )
+        {
+            throw new MojoFailureException( "Invalid inventory filter: " + e.getMessage(), e );
+        }
+        return ( inventory );
+    }
+
+    /**
+     * Reads a POM file and writes its records (only the sections of the selected records are parsed).
+     *
+     * @param inventory Inventory extractor.
+     * @param pom POM file.
+     * @param writer Inventory writer.
+     * @param metrics Reading metrics (optional).
+     * @return The number of records, as a message.
+     * @throws IOException I/O error.
+     * @throws XmlPullParserException Problem while reading the POM.
+     */
+    private String read( PomInventory inventory, File pom, InventoryWriter writer, PomMetrics metrics )
+        throws IOException, XmlPullParserException
+    {
+        Model model = POMUtils.loadModel( pom.getPath(), null, metrics, inventory.getSections() );
+        List<PomInventory.Record> records = inventory.extract( pom, model );
+        writer.write( records );
+        return ( records.size() + " records" );
+    }
+
+    /**
+     * Logs the result for a POM file.
+     *
+     * @param result Result.
+     */
+    private void report( PomBatch.Result result )
+    {
+        if ( result.isSuccess() )
+        {
+            getLog().debug( "  " + result.getPom() + " (" + result.getMessage() + ", " + result.getMillis() + " ms)" );
+        }
+        else
+        {
+            getLog().error( "  " + result.getPom() + ": " + result.getError().getMessage() );
+        }
+    }
+}
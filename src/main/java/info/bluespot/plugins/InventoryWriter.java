@@ -0,0 +1,204 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes inventory records (see {@link PomInventory}) to a CSV or JSON Lines file as they are extracted.
+ * <p>
+ * The records of every POM file are written together (the files can be handled by several threads) and nothing is
+ * kept in memory, so the inventory of any number of POM files can be written.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class InventoryWriter
+    implements Closeable
+{
+    /**
+     * CSV columns.
+     */
+    private static final String HEADER = "pom,kind,profile,groupId,artifactId,version,type,classifier,scope,name,value";
+
+    /**
+     * File format.
+     */
+    private final Format format;
+
+    /**
+     * Output file writer.
+     */
+    private final Writer writer;
+
+    /**
+     * Number of records written.
+     */
+    private long count;
+
+    /**
+     * Creates the inventory file (UTF-8).
+     *
+     * @param file Inventory file (the missing directories are created).
+     * @param format File format.
+     * @throws IOException I/O error.
+     */
+    public InventoryWriter( File file, Format format )
+        throws IOException
+    {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if ( directory != null )
+        {
+            Files.createDirectories( directory.toPath() );
+        }
+        this.format = format;
+        this.writer = Files.newBufferedWriter( file.toPath(), StandardCharsets.UTF_8 );
+        if ( format == Format.CSV )
+        {
+            writer.write( HEADER );
+            writer.write( '\n' );
+        }
+    }
+
+    /**
+     * Writes the records of a POM file.
+     *
+     * @param records The records.
+     * @throws IOException I/O error.
+     */
+    public synchronized void write( List<PomInventory.Record> records )
+        throws IOException
+    {
+        for ( PomInventory.Record record : records )
+        {
+            writer.write( format == Format.CSV ? csv( record ) : json( record ) );
+            writer.write( '\n' );
+        }
+        count += records.size();
+    }
+
+    /**
+     * @return Number of records written.
+     */
+    public synchronized long getCount()
+    {
+        return ( count );
+    }
+
+    @Override
+    public synchronized void close()
+        throws IOException
+    {
+        writer.close();
+    }
+
+    /**
+     * Formats a record as a CSV line.
+     */
+    private static String csv( PomInventory.Record record )
+    {
+        StringBuilder line = new StringBuilder( 128 );
+        String[] values = values( record );
+        for ( int i = 0; i < values.length; i++ )
+        {
+            if ( i > 0 )
+            {
+                line.append( ',' );
+            }
+            String value = values[i];
+            if ( value == null )
+            {
+                continue;
+            }
+            if ( value.indexOf( ',' ) >= 0 || value.indexOf( '"' ) >= 0 || value.indexOf( '\n' ) >= 0
+                || value.indexOf( '\r' ) >= 0 )
+            {
+                line.append( '"' ).append( value.replace( "\"", "\"\"" ) ).append( '"' );
+            }
+            else
+            {
+                line.append( value );
+            }
+        }
+        return ( line.toString() );
+    }
+
+    /**
+     * Formats a record as a JSON object (only with the fields that are set).
+     */
+    private static String json( PomInventory.Record record )
+    {
+        StringBuilder line = new StringBuilder( 128 ).append( '{' );
+        String[] names = HEADER.split( "," );
+        String[] values = values( record );
+        for ( int i = 0; i < values.length; i++ )
+        {
+            if ( values[i] != null )
+            {
+                line.append( line.length() > 1 ? "," : "" ).append( Json.quote( names[i] ) ).append( ':' )
+                    .append( Json.quote( values[i] ) );
+            }
+        }
+        return ( line.append( '}' ).toString() );
+    }
+
+    /**
+     * Gets the record values, in column order.
+     */
+    private static String[] values( PomInventory.Record record )
+    {
+        return ( new String[] { record.getPom(), record.getKind().getName(), record.getProfile(),
+            record.getGroupId(), record.getArtifactId(), record.getVersion(), record.getType(),
+            record.getClassifier(), record.getScope(), record.getName(), record.getValue() } );
+    }
+
+    // TYPES .................................................................
+
+    /**
+     * Inventory file formats.
+     */
+    public enum Format
+    {
+        /**
+         * Comma separated values, with a header line.
+         */
+        CSV,
+
+        /**
+         * A JSON object per line (JSON Lines).
+         */
+        JSONL;
+
+        /**
+         * @return The usual file extension.
+         */
+        public String getExtension()
+        {
+            return ( name().toLowerCase( Locale.ROOT ) );
+        }
+    }
+}
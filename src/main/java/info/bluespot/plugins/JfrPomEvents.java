@@ -0,0 +1,192 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The Flight Recorder implementation of the {@link PomEvents}. This class is only loaded when the Flight Recorder API
+ * is available; the methods return <code>null</code> when the event type is not enabled.
+ *
+ * @since 1.1.0
+ */
+final class JfrPomEvents
+{
+    /**
+     * Instances for checking if the event types are enabled (never committed).
+     */
+    private static final LoadEvent LOAD = new LoadEvent();
+
+    private static final MutationEvent MUTATION = new MutationEvent();
+
+    private static final SaveEvent SAVE = new SaveEvent();
+
+    private JfrPomEvents()
+    {
+    }
+
+    static PomEvents.Load load( File pom )
+    {
+        if ( !LOAD.isEnabled() )
+        {
+            return ( null );
+        }
+        LoadEvent event = new LoadEvent();
+        event.path = pom.getPath();
+        event.begin();
+        return ( event );
+    }
+
+    static PomEvents.Mutation mutation( File pom, String operation )
+    {
+        if ( !MUTATION.isEnabled() )
+        {
+            return ( null );
+        }
+        MutationEvent event = new MutationEvent();
+        event.path = pom != null ? pom.getPath() : null;
+        event.operation = operation;
+        event.begin();
+        return ( event );
+    }
+
+    static PomEvents.Save save( File pom )
+    {
+        if ( !SAVE.isEnabled() )
+        {
+            return ( null );
+        }
+        SaveEvent event = new SaveEvent();
+        event.path = pom.getPath();
+        event.begin();
+        return ( event );
+    }
+
+    // TYPES .................................................................
+
+    @Name( "info.bluespot.pomutils.Load" )
+    @Label( "POM Load" )
+    @Category( { "Maven", "POM Utils" } )
+    @Description( "A POM file read and parsed (or taken from the model cache)" )
+    static class LoadEvent
+        extends Event
+        implements PomEvents.Load
+    {
+        @Label( "Path" )
+        String path;
+
+        @Label( "Bytes Read" )
+        @DataAmount
+        long bytes;
+
+        @Label( "Cached" )
+        @Description( "The model has been taken from the model cache" )
+        boolean cached;
+
+        @Override
+        public void end( long bytes, boolean cached )
+        {
+            end();
+            if ( shouldCommit() )
+            {
+                this.bytes = bytes;
+                this.cached = cached;
+                commit();
+            }
+        }
+    }
+
+    @Name( "info.bluespot.pomutils.Mutation" )
+    @Label( "POM Mutation" )
+    @Category( { "Maven", "POM Utils" } )
+    @Description( "A change on a POM model (dependencies, properties, project information)" )
+    static class MutationEvent
+        extends Event
+        implements PomEvents.Mutation
+    {
+        @Label( "Path" )
+        String path;
+
+        @Label( "Operation" )
+        String operation;
+
+        @Label( "Count" )
+        @Description( "Number of elements added, modified or removed" )
+        int count;
+
+        @Override
+        public void end( int count )
+        {
+            end();
+            if ( shouldCommit() )
+            {
+                this.count = count;
+                commit();
+            }
+        }
+    }
+
+    @Name( "info.bluespot.pomutils.Save" )
+    @Label( "POM Save" )
+    @Category( { "Maven", "POM Utils" } )
+    @Description( "A POM model serialized and written (if it has changed)" )
+    static class SaveEvent
+        extends Event
+        implements PomEvents.Save
+    {
+        @Label( "Path" )
+        String path;
+
+        @Label( "Bytes Read" )
+        @DataAmount
+        long bytesRead;
+
+        @Label( "Bytes Written" )
+        @DataAmount
+        long bytesWritten;
+
+        @Label( "Written" )
+        boolean written;
+
+        @Label( "Preserve Formatting" )
+        boolean preserveFormatting;
+
+        @Override
+        public void end( long bytesRead, long bytesWritten, boolean preserveFormatting )
+        {
+            end();
+            if ( shouldCommit() )
+            {
+                this.bytesRead = bytesRead;
+                this.bytesWritten = bytesWritten;
+                this.written = bytesWritten > 0;
+                this.preserveFormatting = preserveFormatting;
+                commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON support for the reports and the server protocol (the plugin has no JSON library on its classpath).
+ * <p>
+ * The parser reads any JSON value: objects are returned as (ordered) maps, arrays as lists, numbers as doubles and the
+ * rest as strings, booleans or <code>null</code>.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public final class Json
+{
+    private final String text;
+
+    private int position;
+
+    private Json( String text )
+    {
+        this.text = text;
+    }
+
+    /**
+     * Parses a JSON value.
+     *
+     * @param text JSON text.
+     * @return The value (a map, list, string, double, boolean or <code>null</code>).
+     * @throws IllegalArgumentException Invalid JSON.
+     */
+    public static Object parse( String text )
+    {
+        Json parser = new Json( text );
+        Object value = parser.value();
+        parser.skipBlanks();
+        if ( parser.position < text.length() )
+        {
+            throw parser.error( "end of text expected" );
+        }
+        return ( value );
+    }
+
+    /**
+     * Quotes a string as a JSON string.
+     *
+     * @param value String value (<code>null</code> gives <code>null</code>).
+     * @return The JSON string.
+     */
+    public static String quote( String value )
+    {
+        if ( value == null )
+        {
+            return ( "null" );
+        }
+
+        StringBuilder quoted = new StringBuilder( value.length() + 2 ).append( '"' );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            switch ( c )
+            {
+                case '"':
+                case '\\':
+                    quoted.append( '\\' ).append( c );
+                    break;
+                case '\n':
+                    quoted.append( "\\n" );
+                    break;
+                case '\r':
+                    quoted.append( "\\r" );
+                    break;
+                case '\t':
+                    quoted.append( "\\t" );
+                    break;
+                default:
+                    if ( c < 0x20 )
+                    {
+                        quoted.append( String.format( "\\u%04x", (int) c ) );
+                    }
+                    else
+                    {
+                        quoted.append( c );
+                    }
+                    break;
+            }
+        }
+        return ( quoted.append( '"' ).toString() );
+    }
+
+    // PARSING ...............................................................
+
+    private Object value()
+    {
+        skipBlanks();
+        if ( position >= text.length() )
+        {
+            throw error( "value expected" );
+        }
+
+        char c = text.charAt( position );
+        switch ( c )
+        {
+            case '{':
+                return ( object() );
+            case '[':
+                return ( array() );
+            case '"':
+                return ( string() );
+            case 't':
+                return ( literal( "true", Boolean.TRUE ) );
+            case 'f':
+                return ( literal( "false", Boolean.FALSE ) );
+            case 'n':
+                return ( literal( "null", null ) );
+            default:
+                return ( number() );
+        }
+    }
+
+    private Map<String, Object> object()
+    {
+        Map<String, Object> object = new LinkedHashMap<String, Object>();
+        position++;
+        skipBlanks();
+        if ( peek( '}' ) )
+        {
+            return ( object );
+        }
+        do
+        {
+            skipBlanks();
+            if ( position >= text.length() || text.charAt( position ) != '"' )
+            {
+                throw error( "member name expected" );
+            }
+            String name = string();
+            skipBlanks();
+            expect( ':' );
+            object.put( name, value() );
+            skipBlanks();
+        }
+        while ( peek( ',' ) );
+        expect( '}' );
+        return ( object );
+    }
+
+    private List<Object> array()
+    {
+        List<Object> array = new ArrayList<Object>();
+        position++;
+        skipBlanks();
+        if ( peek( ']' ) )
+        {
+            return ( array );
+        }
+        do
+        {
+            array.add( value() );
+            skipBlanks();
+        }
+        while ( peek( ',' ) );
+        expect( ']' );
+        return ( array );
+    }
+
+    private String string()
+    {
+        StringBuilder value = new StringBuilder();
+        position++;
+        while ( position < text.length() )
+        {
+            char c = text.charAt( position++ );
+            if ( c == '"' )
+            {
+                return ( value.toString() );
+            }
+            if ( c != '\\' )
+            {
+                value.append( c );
+                continue;
+            }
+            if ( position >= text.length() )
+            {
+                break;
+            }
+            char escaped = text.charAt( position++ );
+            switch ( escaped )
+            {
+                case 'b':
+                    value.append( '\b' );
+                    break;
+                case 'f':
+                    value.append( '\f' );
+                    break;
+                case 'n':
+                    value.append( '\n' );
+                    break;
+                case 'r':
+                    value.append( '\r' );
+                    break;
+                case 't':
+                    value.append( '\t' );
+                    break;
+                case 'u':
+                    if ( position + 4 > text.length() )
+                    {
+                        throw error( "invalid unicode escape" );
+                    }
+                    try
+                    {
+                        value.append( (char) Integer.parseInt( text.substring( position, position + 4 ), 16 ) );
+                    }
+                    catch ( NumberFormatException e )
+                    {
+                        throw error( "invalid unicode escape" );
+                    }
+                    position += 4;
+                    break;
+                default:
+                    value.append( escaped );
+                    break;
+            }
+        }
+        throw error( "unterminated string" );
+    }
+
+    private Double number()
+    {
+        int start = position;
+        while ( position < text.length() && "+-0123456789.eE".indexOf( text.charAt( position ) ) >= 0 )
+        {
+            position++;
+        }
+        try
+        {
+            return ( Double.valueOf( text.substring( start, position ) ) );
+        }
+        catch ( NumberFormatException e )
+        {
+            position = start;
+            throw error( "value expected" );
+        }
+    }
+
+    private Object literal( String literal, Object value )
+    {
+        if ( !text.startsWith( literal, position ) )
+        {
+            throw error( "value expected" );
+        }
+        position += literal.length();
+        return ( value );
+    }
+
+    private boolean peek( char c )
+    {
+        if ( position < text.length() && text.charAt( position ) == c )
+        {
+            position++;
+            return ( true );
+        }
+        return ( false );
+    }
+
+    private void expect( char c )
+    {
+        if ( !peek( c ) )
+        {
+            throw error( "'" + c + "' expected" );
+        }
+    }
+
+    private void skipBlanks()
+    {
+        while ( position < text.length() && Character.isWhitespace( text.charAt( position ) ) )
+        {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error( String message )
+    {
+        return ( new IllegalArgumentException( "Invalid JSON at position " + position + ": " + message + "." ) );
+    }
+}
@@ -0,0 +1,283 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Model;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+
+/**
+ * A cache of parsed project models shared by all the executions of the plugin in a Maven session.
+ * <p>
+ * When several goals of this plugin are bound in the same build, every one of them reads the same POM file. The cache
+ * keeps the parsed model of the last files read or written, so only the first goal parses the file and the next ones
+ * get a copy of the model written by the previous one.
+ * </p>
+ * <p>
+ * An entry is used only if the file still has the same size, modification time and contents (a SHA-256 hash), so
+ * changes made to the file outside of the plugin are always seen. The cache keeps a bounded number of entries,
+ * discarding the least recently used ones. The models are copied on the way in and out, so the callers can modify
+ * them freely.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class ModelCache
+{
+    /**
+     * Key of the cache on the session data.
+     */
+    private static final String SESSION_KEY = ModelCache.class.getName();
+
+    /**
+     * Cached models by canonical path (in access order).
+     */
+    private final Map<String, Entry> entries;
+
+    /**
+     * Number of models taken from the cache.
+     */
+    private int hits;
+
+    /**
+     * Number of models parsed.
+     */
+    private int misses;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxEntries Maximum number of models to keep.
+     */
+    public ModelCache( final int maxEntries )
+    {
+        this.entries = new LinkedHashMap<String, Entry>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, Entry> eldest )
+            {
+                return ( size() > maxEntries );
+            }
+        };
+    }
+
+    /**
+     * Gets the cache of a Maven session, creating it on the first call.
+     *
+     * @param session Maven session.
+     * @param maxEntries Maximum number of models to keep (only used when the cache is created).
+     * @return The session cache, or <code>null</code> if caching is disabled (<code>maxEntries</code> is zero or
+     *         less) or there's no session.
+     */
+    public static ModelCache forSession( MavenSession session, int maxEntries )
+    {
+        if ( maxEntries <= 0 || session == null || session.getRepositorySession() == null )
+        {
+            return ( null );
+        }
+
+        RepositorySystemSession repositorySession = session.getRepositorySession();
+        SessionData data = repositorySession.getData();
+        Object cache = data.get( SESSION_KEY );
+        if ( !( cache instanceof ModelCache ) )
+        {
+            // Another execution may be creating it at the same time
+            data.set( SESSION_KEY, null, new ModelCache( maxEntries ) );
+            cache = data.get( SESSION_KEY );
+        }
+
+        // A cache created by another version of the plugin (another class realm) is not usable
+        return ( cache instanceof ModelCache ? (ModelCache) cache : null );
+    }
+
+    /**
+     * Reads a POM file, using the cached model if the file hasn't changed.
+     *
+     * @param pom POM file.
+     * @return A copy of the project model.
+     * @throws IOException I/O error.
+     * @throws XmlPullParserException Problem while reading the POM.
+     */
+    public Model load( File pom )
+        throws IOException, XmlPullParserException
+    {
+        PomSource source = PomSource.read( pom );
+        Model model = get( pom, source.getBytes() );
+        if ( model != null )
+        {
+            return ( model );
+        }
+
+        model = source.parse();
+        put( pom, source.getBytes(), model );
+        return ( model );
+    }
+
+    /**
+     * Gets the cached model of a file, if it's still valid for its current contents.
+     *
+     * @param pom POM file.
+     * @param contents Current contents of the file.
+     * @return A copy of the cached model, or <code>null</code> if there's no valid model for these contents.
+     * @throws IOException I/O error.
+     */
+    public Model get( File pom, byte[] contents )
+        throws IOException
+    {
+        return ( get( pom, ByteBuffer.wrap( contents ) ) );
+    }
+
+    /**
+     * Gets the cached model of a file, if it's still valid for its current contents.
+     *
+     * @param pom POM file.
+     * @param contents Current contents of the file (read or memory-mapped).
+     * @return A copy of the cached model, or <code>null</code> if there's no valid model for these contents.
+     * @throws IOException I/O error.
+     */
+    public Model get( File pom, ByteBuffer contents )
+        throws IOException
+    {
+        String key = pom.getCanonicalPath();
+        long modified = pom.lastModified();
+        byte[] hash = hash( contents );
+
+        Model model = null;
+        synchronized ( this )
+        {
+            Entry entry = entries.get( key );
+            if ( entry != null && entry.size == contents.remaining() && entry.modified == modified
+                && Arrays.equals( entry.hash, hash ) )
+            {
+                hits++;
+                model = entry.model;
+            }
+            else
+            {
+                misses++;
+            }
+        }
+        return ( model != null ? model.clone() : null );
+    }
+
+    /**
+     * Stores the model of a file (after reading or writing it).
+     *
+     * @param pom POM file.
+     * @param contents Current contents of the file.
+     * @param model Project model of these contents (it's copied).
+     * @throws IOException I/O error.
+     */
+    public void put( File pom, byte[] contents, Model model )
+        throws IOException
+    {
+        put( pom, ByteBuffer.wrap( contents ), model );
+    }
+
+    /**
+     * Stores the model of a file (after reading or writing it).
+     *
+     * @param pom POM file.
+     * @param contents Current contents of the file (read or memory-mapped).
+     * @param model Project model of these contents (it's copied).
+     * @throws IOException I/O error.
+     */
+    public void put( File pom, ByteBuffer contents, Model model )
+        throws IOException
+    {
+        Entry entry = new Entry( contents.remaining(), pom.lastModified(), hash( contents ), model.clone() );
+        String key = pom.getCanonicalPath();
+        synchronized ( this )
+        {
+            entries.put( key, entry );
+        }
+    }
+
+    /**
+     * @return Number of models taken from the cache.
+     */
+    public synchronized int getHits()
+    {
+        return ( hits );
+    }
+
+    /**
+     * @return Number of lookups that found no valid model.
+     */
+    public synchronized int getMisses()
+    {
+        return ( misses );
+    }
+
+    /**
+     * Gets the SHA-256 hash of the file contents.
+     */
+    private static byte[] hash( ByteBuffer contents )
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance( "SHA-256" );
+            digest.update( contents.duplicate() );
+            return ( digest.digest() );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            // Every Java platform must support SHA-256
+            throw new IllegalStateException( "SHA-256 is not available.", e );
+        }
+    }
+
+    // TYPES .................................................................
+
+    /**
+     * A cached model and the state of the file it belongs to.
+     */
+    private static class Entry
+    {
+        private final long size;
+
+        private final long modified;
+
+        private final byte[] hash;
+
+        private final Model model;
+
+        Entry( long size, long modified, byte[] hash, Model model )
+        {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+            this.model = model;
+        }
+    }
+}
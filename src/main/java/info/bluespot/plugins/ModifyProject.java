@@ -19,28 +19,24 @@ package info.bluespot.plugins;
  * under the License.
  */
 
-import java.io.IOException;
-
-import org.apache.maven.model.Model;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
 /**
  * Modifies the basic project information: GroupId, ArtifactId, etc.
  * <p>
  * Note: this goal doesn't support multi-module project at this moment. Changing any GAV component will break parent
- * relationships or dependencies in multi-module setups.
+ * relationships or dependencies in multi-module setups (see {@link ReleaseVersion} for changing the version of all
+ * the modules).
  * </p>
  * 
  * @since 1.0.0
  */
-@Mojo( name = "modify-project", requiresProject = true, inheritByDefault = false )
+@Mojo( name = "modify-project", requiresProject = true, inheritByDefault = false, threadSafe = true )
 public class ModifyProject
-    extends AbstractMojo
+    extends AbstractPOMMojo
 {
     // PARAMETERS ............................................................
 
@@ -80,18 +76,6 @@ public class ModifyProject
     @Parameter( property = "url", required = false, readonly = true )
     private String url;
 
-    /**
-     * Keeps a copy of the current POM file before modifying it.
-     */
-    @Parameter( property = "pomBackup", required = false, readonly = true )
-    private String pomBackup;
-
-    /**
-     * Specifies a POM file to modify.
-     */
-    @Parameter( property = "pomFile", required = false, readonly = true, defaultValue = "pom.xml" )
-    private String pomFile;
-
     // METHODS ...............................................................
 
     /**
@@ -101,65 +85,52 @@ public class ModifyProject
     public void execute()
         throws MojoExecutionException, MojoFailureException
     {
-
-        // Loads the model
-        Model model;
-        try
+        if ( isUpToDate() )
         {
-            model = POMUtils.loadModel( pomFile );
-        }
-        catch ( IOException | XmlPullParserException e )
-        {
-            // Exception loading the model
-            throw new MojoExecutionException( "Error while loading the Maven project model:", e );
+            return;
         }
 
+        // Load the model
+        PomEditor editor = openEditor( PomSections.PROJECT_INFO );
+
         // Modify the project information...
         if ( groupId != null )
         {
             getLog().info( "Setting the groupId to '" + groupId + "'" );
-            model.setGroupId( groupId );
+            editor.setGroupId( groupId );
         }
 
         if ( artifactId != null )
         {
             getLog().info( "Setting the artifactId to '" + artifactId + "'" );
-            model.setArtifactId( artifactId );
+            editor.setArtifactId( artifactId );
         }
 
         if ( version != null )
         {
             getLog().info( "Setting the version to '" + version + "'" );
-            model.setVersion( version );
+            editor.setVersion( version );
         }
 
         if ( name != null )
         {
             getLog().info( "Setting the name to '" + name + "'" );
-            model.setName( name );
+            editor.setName( name );
         }
 
         if ( description != null )
         {
             getLog().info( "Setting the description to '" + description + "'" );
-            model.setDescription( description );
+            editor.setDescription( description );
         }
 
         if ( url != null )
         {
             getLog().info( "Setting the URL to '" + url + "'" );
-            model.setUrl( url );
+            editor.setUrl( url );
         }
 
         // Save the model
-        try
-        {
-            POMUtils.saveModel( model, pomFile, pomBackup );
-        }
-        catch ( IOException e )
-        {
-            // Exception
-            throw new MojoExecutionException( "Error while writing the POM file:", e );
-        }
+        save( editor );
     }
 }
@@ -0,0 +1,202 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.ModelBase;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.Profile;
+
+/**
+ * The modules of a reactor indexed by their <code>groupId:artifactId</code>, for changing the version of all of them
+ * at once.
+ * <p>
+ * The index is built once from the module models. Then, every module is edited on its own: its version, the version
+ * of its parent and the version of its dependencies and managed dependencies (also on the profiles) are changed when
+ * they point to a module of the reactor with the old version. Every reference is checked with a single lookup, so the
+ * cost doesn't depend on the number of modules.
+ * </p>
+ * <p>
+ * Only literal versions are changed: references to <code>${project.version}</code> already follow the project
+ * version, and versions taken from other properties are left as they are. The <code>${project.groupId}</code>
+ * references of the dependencies are resolved.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class ModuleIndex
+{
+    /**
+     * Version of the modules, by <code>groupId:artifactId</code>.
+     */
+    private final Map<String, String> versions = new HashMap<String, String>();
+
+    /**
+     * Adds a module to the index (the groupId and the version can be inherited from the parent).
+     *
+     * @param model Module model.
+     */
+    public void add( Model model )
+    {
+        versions.putIfAbsent( groupIdOf( model ) + ":" + model.getArtifactId(), versionOf( model ) );
+    }
+
+    /**
+     * Gets the version of a module.
+     *
+     * @param groupId Module groupId.
+     * @param artifactId Module artifactId.
+     * @return The module version, or <code>null</code> if it's not a module of the reactor.
+     */
+    public String getVersion( String groupId, String artifactId )
+    {
+        return ( versions.get( groupId + ":" + artifactId ) );
+    }
+
+    /**
+     * @return Number of modules.
+     */
+    public int size()
+    {
+        return ( versions.size() );
+    }
+
+    /**
+     * Changes the version of a module and its references to the other modules, from an old version to a new one.
+     * Only the modules with the old version (and the references to them with that version) are changed.
+     *
+     * @param model Module model.
+     * @param oldVersion Current version of the modules.
+     * @param newVersion New version.
+     * @return Number of versions changed on the model.
+     */
+    public int setVersion( Model model, String oldVersion, String newVersion )
+    {
+        int changes = 0;
+        String groupId = groupIdOf( model );
+        String version = versionOf( model );
+
+        // Parent
+        Parent parent = model.getParent();
+        boolean parentChanged = false;
+        if ( parent != null && matches( parent.getGroupId(), parent.getArtifactId(), parent.getVersion(),
+                                        oldVersion ) )
+        {
+            parent.setVersion( newVersion );
+            parentChanged = true;
+            changes++;
+        }
+
+        // The module itself (a module inheriting the old version from an outer parent gets its own version)
+        if ( matches( groupId, model.getArtifactId(), version, oldVersion ) )
+        {
+            if ( model.getVersion() != null || !parentChanged )
+            {
+                model.setVersion( newVersion );
+                changes++;
+            }
+        }
+
+        // Dependencies
+        changes += setVersion( model, groupId, oldVersion, newVersion );
+        for ( Profile profile : model.getProfiles() )
+        {
+            changes += setVersion( profile, groupId, oldVersion, newVersion );
+        }
+
+        return ( changes );
+    }
+
+    /**
+     * Changes the version of the dependencies and managed dependencies of a model section.
+     */
+    private int setVersion( ModelBase section, String groupId, String oldVersion, String newVersion )
+    {
+        int changes = setVersion( section.getDependencies(), groupId, oldVersion, newVersion );
+        if ( section.getDependencyManagement() != null )
+        {
+            changes += setVersion( section.getDependencyManagement().getDependencies(), groupId, oldVersion,
+                                   newVersion );
+        }
+        return ( changes );
+    }
+
+    /**
+     * Changes the version of the dependencies of a list.
+     */
+    private int setVersion( List<Dependency> dependencies, String groupId, String oldVersion, String newVersion )
+    {
+        int changes = 0;
+        for ( Dependency dependency : dependencies )
+        {
+            String dependencyGroupId = dependency.getGroupId();
+            if ( "${project.groupId}".equals( dependencyGroupId ) || "${pom.groupId}".equals( dependencyGroupId ) )
+            {
+                dependencyGroupId = groupId;
+            }
+            if ( matches( dependencyGroupId, dependency.getArtifactId(), dependency.getVersion(), oldVersion ) )
+            {
+                dependency.setVersion( newVersion );
+                changes++;
+            }
+        }
+        return ( changes );
+    }
+
+    /**
+     * Checks if a reference points to a module with the old version.
+     */
+    private boolean matches( String groupId, String artifactId, String version, String oldVersion )
+    {
+        return ( oldVersion.equals( version ) && oldVersion.equals( getVersion( groupId, artifactId ) ) );
+    }
+
+    /**
+     * Gets the groupId of a model (inherited from the parent if needed).
+     */
+    private static String groupIdOf( Model model )
+    {
+        if ( model.getGroupId() == null && model.getParent() != null )
+        {
+            return ( model.getParent().getGroupId() );
+        }
+        return ( model.getGroupId() );
+    }
+
+    /**
+     * Gets the version of a model (inherited from the parent if needed).
+     *
+     * @param model Maven model.
+     * @return The version (<code>null</code> if there's none).
+     */
+    public static String versionOf( Model model )
+    {
+        if ( model.getVersion() == null && model.getParent() != null )
+        {
+            return ( model.getParent().getVersion() );
+        }
+        return ( model.getVersion() );
+    }
+}
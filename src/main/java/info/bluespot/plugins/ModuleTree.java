@@ -0,0 +1,102 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Collects the POM files of a multi-module project.
+ *
+ * @since 1.1.0
+ */
+public class ModuleTree
+{
+    /**
+     * Gets the POM files of the projects in the Maven session (the reactor).
+     *
+     * @param session Maven session.
+     * @return The POM files, in reactor order.
+     */
+    public static List<File> fromSession( MavenSession session )
+    {
+        List<File> poms = new ArrayList<File>();
+        for ( MavenProject project : session.getProjects() )
+        {
+            if ( project.getFile() != null )
+            {
+                poms.add( project.getFile() );
+            }
+        }
+        return ( poms );
+    }
+
+    /**
+     * Walks the <code>modules</code> tree from a root POM.
+     * <p>
+     * Only the <code>modules</code> section of the project is followed (modules declared in profiles are not).
+     * </p>
+     *
+     * @param rootPom Root POM file.
+     * @return The POM files (the root one first), without duplicates.
+     * @throws IOException I/O error reading a POM.
+     * @throws XmlPullParserException Problem while reading a POM.
+     */
+    public static List<File> fromModules( File rootPom )
+        throws IOException, XmlPullParserException
+    {
+        Set<File> poms = new LinkedHashSet<File>();
+        Deque<File> pending = new ArrayDeque<File>();
+        pending.add( rootPom.getCanonicalFile() );
+
+        while ( !pending.isEmpty() )
+        {
+            File pom = pending.removeFirst();
+            if ( !poms.add( pom ) )
+            {
+                continue;
+            }
+
+            Model model = POMUtils.loadModel( pom.getPath() );
+            for ( String module : model.getModules() )
+            {
+                File moduleFile = new File( pom.getParentFile(), module );
+                if ( moduleFile.isDirectory() )
+                {
+                    moduleFile = new File( moduleFile, "pom.xml" );
+                }
+                pending.add( moduleFile.getCanonicalFile() );
+            }
+        }
+
+        return ( new ArrayList<File>( poms ) );
+    }
+}
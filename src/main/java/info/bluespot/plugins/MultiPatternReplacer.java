@@ -0,0 +1,225 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Replaces many strings at once in a single pass over the text (an Aho-Corasick automaton).
+ * <p>
+ * The patterns are compiled once into a trie with failure links; every text is then scanned once no matter how many
+ * patterns there are. When several patterns match at the same position, the longest one wins, and the matches don't
+ * overlap (the leftmost one wins). Texts without any match are returned as they are, without copying them.
+ * </p>
+ * <p>
+ * A compiled replacer is immutable and can be shared by several threads.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class MultiPatternReplacer
+{
+    /**
+     * Root of the automaton.
+     */
+    private final Node root = new Node( 0 );
+
+    /**
+     * Number of patterns.
+     */
+    private final int size;
+
+    /**
+     * Compiles the patterns.
+     *
+     * @param replacements Replacement of every pattern, by pattern (empty patterns are ignored).
+     */
+    public MultiPatternReplacer( Map<String, String> replacements )
+    {
+        int count = 0;
+        for ( Map.Entry<String, String> replacement : replacements.entrySet() )
+        {
+            String pattern = replacement.getKey();
+            if ( pattern.isEmpty() )
+            {
+                continue;
+            }
+
+            Node node = root;
+            for ( int i = 0; i < pattern.length(); i++ )
+            {
+                final int depth = i + 1;
+                node = node.next.computeIfAbsent( pattern.charAt( i ), c -> new Node( depth ) );
+            }
+            node.replacement = replacement.getValue();
+            count++;
+        }
+        size = count;
+
+        link();
+    }
+
+    /**
+     * Sets the failure links (breadth first) and the longest pattern that ends on every node.
+     */
+    private void link()
+    {
+        Queue<Node> pending = new ArrayDeque<Node>();
+        for ( Node child : root.next.values() )
+        {
+            child.fail = root;
+            child.output = child.replacement != null ? child : null;
+            pending.add( child );
+        }
+
+        while ( !pending.isEmpty() )
+        {
+            Node node = pending.remove();
+            for ( Map.Entry<Character, Node> edge : node.next.entrySet() )
+            {
+                char c = edge.getKey();
+                Node child = edge.getValue();
+
+                Node fail = node.fail;
+                while ( fail != null && !fail.next.containsKey( c ) )
+                {
+                    fail = fail.fail;
+                }
+                child.fail = fail != null ? fail.next.get( c ) : root;
+                child.output = child.replacement != null ? child : child.fail.output;
+                pending.add( child );
+            }
+        }
+    }
+
+    /**
+     * @return Number of patterns.
+     */
+    public int size()
+    {
+        return ( size );
+    }
+
+    /**
+     * Replaces all the patterns found on a text.
+     *
+     * @param text Text (may be <code>null</code>).
+     * @return The text with the replacements (the same instance if nothing has been replaced).
+     */
+    public String replace( String text )
+    {
+        if ( text == null || size == 0 )
+        {
+            return ( text );
+        }
+
+        // Longest match starting at every position
+        Node[] matches = null;
+        Node node = root;
+        for ( int i = 0; i < text.length(); i++ )
+        {
+            char c = text.charAt( i );
+            Node next = node.next.get( c );
+            while ( next == null && node != root )
+            {
+                node = node.fail;
+                next = node.next.get( c );
+            }
+            node = next != null ? next : root;
+
+            // The longest pattern ending here starts first; shorter ones are reached through the failure links
+            for ( Node match = node.output; match != null; match = match.fail.output )
+            {
+                int start = i - match.depth + 1;
+                if ( matches == null )
+                {
+                    matches = new Node[text.length()];
+                }
+                if ( matches[start] == null || matches[start].depth < match.depth )
+                {
+                    matches[start] = match;
+                }
+            }
+        }
+        if ( matches == null )
+        {
+            return ( text );
+        }
+
+        // Leftmost matches, without overlapping
+        StringBuilder result = new StringBuilder( text.length() + 16 );
+        int i = 0;
+        while ( i < text.length() )
+        {
+            Node match = matches[i];
+            if ( match != null )
+            {
+                result.append( match.replacement );
+                i += match.depth;
+            }
+            else
+            {
+                result.append( text.charAt( i++ ) );
+            }
+        }
+        return ( result.toString() );
+    }
+
+    // TYPES .................................................................
+
+    /**
+     * A node of the automaton (a prefix of one or more patterns).
+     */
+    private static class Node
+    {
+        /**
+         * Length of the prefix.
+         */
+        private final int depth;
+
+        /**
+         * Transitions.
+         */
+        private final Map<Character, Node> next = new HashMap<Character, Node>( 4 );
+
+        /**
+         * Longest proper suffix of the prefix that is also a prefix of some pattern.
+         */
+        private Node fail;
+
+        /**
+         * Longest pattern that ends on this node (this node or one of its failure links).
+         */
+        private Node output;
+
+        /**
+         * Replacement if the prefix is a whole pattern.
+         */
+        private String replacement;
+
+        private Node( int depth )
+        {
+            this.depth = depth;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A <code>Properties</code> object that keeps its keys in insertion order.
+ * <p>
+ * The Maven model stores the properties in a plain <code>java.util.Properties</code> (a hash table), so they are
+ * written in hash order. The model properties are replaced with this class before writing them, so the POM always
+ * gets the same output for the same contents.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class OrderedProperties
+    extends Properties
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Key order.
+     */
+    private final Set<Object> order = new LinkedHashSet<Object>();
+
+    /**
+     * Creates a new properties object with the order of the existing keys on a document first. The rest of the keys
+     * keep their order if the properties are already ordered, or are sorted otherwise.
+     *
+     * @param properties Current properties.
+     * @param documentOrder Order of the keys on the document (keys not present on the properties are ignored).
+     * @return The ordered properties.
+     */
+    public static OrderedProperties of( Properties properties, List<String> documentOrder )
+    {
+        OrderedProperties ordered = new OrderedProperties();
+
+        for ( String key : documentOrder )
+        {
+            if ( properties.containsKey( key ) )
+            {
+                ordered.put( key, properties.get( key ) );
+            }
+        }
+
+        Collection<Object> others = properties instanceof OrderedProperties ? new ArrayList<Object>()
+                        : new TreeSet<Object>();
+        for ( Object key : properties.keySet() )
+        {
+            if ( !ordered.containsKey( key ) )
+            {
+                others.add( key );
+            }
+        }
+        for ( Object key : others )
+        {
+            ordered.put( key, properties.get( key ) );
+        }
+
+        return ( ordered );
+    }
+
+    @Override
+    public synchronized Object put( Object key, Object value )
+    {
+        Object previous = super.put( key, value );
+        order.add( key );
+        return ( previous );
+    }
+
+    @Override
+    public synchronized void putAll( Map<?, ?> map )
+    {
+        for ( Map.Entry<?, ?> entry : map.entrySet() )
+        {
+            put( entry.getKey(), entry.getValue() );
+        }
+    }
+
+    @Override
+    public synchronized Object putIfAbsent( Object key, Object value )
+    {
+        Object previous = get( key );
+        return ( previous != null ? previous : put( key, value ) );
+    }
+
+    @Override
+    public synchronized Object remove( Object key )
+    {
+        order.remove( key );
+        return ( super.remove( key ) );
+    }
+
+    @Override
+    public synchronized void clear()
+    {
+        order.clear();
+        super.clear();
+    }
+
+    @Override
+    public synchronized Object clone()
+    {
+        OrderedProperties copy = new OrderedProperties();
+        copy.putAll( this );
+        return ( copy );
+    }
+
+    @Override
+    public synchronized Enumeration<Object> keys()
+    {
+        return ( Collections.enumeration( orderedKeys() ) );
+    }
+
+    @Override
+    public Enumeration<?> propertyNames()
+    {
+        return ( keys() );
+    }
+
+    @Override
+    public synchronized Set<String> stringPropertyNames()
+    {
+        Set<String> names = new LinkedHashSet<String>();
+        for ( Object key : orderedKeys() )
+        {
+            if ( key instanceof String && get( key ) instanceof String )
+            {
+                names.add( (String) key );
+            }
+        }
+        return ( Collections.unmodifiableSet( names ) );
+    }
+
+    @Override
+    public Set<Object> keySet()
+    {
+        return ( new AbstractSet<Object>()
+        {
+            @Override
+            public Iterator<Object> iterator()
+            {
+                return ( new KeyIterator<Object>()
+                {
+                    @Override
+                    Object value( Object key )
+                    {
+                        return ( key );
+                    }
+                } );
+            }
+
+            @Override
+            public int size()
+            {
+                return ( OrderedProperties.this.size() );
+            }
+        } );
+    }
+
+    @Override
+    public Set<Map.Entry<Object, Object>> entrySet()
+    {
+        return ( new AbstractSet<Map.Entry<Object, Object>>()
+        {
+            @Override
+            public Iterator<Map.Entry<Object, Object>> iterator()
+            {
+                return ( new KeyIterator<Map.Entry<Object, Object>>()
+                {
+                    @Override
+                    Map.Entry<Object, Object> value( final Object key )
+                    {
+                        return ( new AbstractMap.SimpleEntry<Object, Object>( key, get( key ) )
+                        {
+                            private static final long serialVersionUID = 1L;
+
+                            @Override
+                            public Object setValue( Object value )
+                            {
+                                super.setValue( value );
+                                return ( put( key, value ) );
+                            }
+                        } );
+                    }
+                } );
+            }
+
+            @Override
+            public int size()
+            {
+                return ( OrderedProperties.this.size() );
+            }
+        } );
+    }
+
+    @Override
+    public Collection<Object> values()
+    {
+        List<Object> values = new ArrayList<Object>();
+        for ( Object key : orderedKeys() )
+        {
+            values.add( get( key ) );
+        }
+        return ( Collections.unmodifiableList( values ) );
+    }
+
+    /**
+     * Gets a snapshot of the keys in order. Keys added through methods that don't keep the order go at the end.
+     *
+     * @return The key list.
+     */
+    private synchronized List<Object> orderedKeys()
+    {
+        List<Object> keys = new ArrayList<Object>( size() );
+        for ( Object key : order )
+        {
+            if ( super.containsKey( key ) )
+            {
+                keys.add( key );
+            }
+        }
+        if ( keys.size() < size() )
+        {
+            for ( Object key : super.keySet() )
+            {
+                if ( !order.contains( key ) )
+                {
+                    keys.add( key );
+                }
+            }
+        }
+        return ( keys );
+    }
+
+    /**
+     * Iterator over a snapshot of the keys, removing through the properties object.
+     */
+    private abstract class KeyIterator<T>
+        implements Iterator<T>
+    {
+        private final Iterator<Object> keys = orderedKeys().iterator();
+
+        private Object last;
+
+        @Override
+        public boolean hasNext()
+        {
+            return ( keys.hasNext() );
+        }
+
+        @Override
+        public T next()
+        {
+            last = keys.next();
+            return ( value( last ) );
+        }
+
+        @Override
+        public void remove()
+        {
+            if ( last == null )
+            {
+                throw new IllegalStateException();
+            }
+            OrderedProperties.this.remove( last );
+            last = null;
+        }
+
+        abstract T value( Object key );
+    }
+}
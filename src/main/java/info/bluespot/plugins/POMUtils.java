@@ -21,11 +21,19 @@ package info.bluespot.plugins;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import org.apache.maven.model.Model;
+import org.apache.maven.model.Profile;
 import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
@@ -40,7 +48,7 @@ public class POMUtils
     /**
      * POM file to use (default file name).
      */
-    private static String DEFAULT_POM_FILE = "pom.xml";
+    static final String DEFAULT_POM_FILE = "pom.xml";
 
     /**
      * Reads the POM model from the default file name.
@@ -57,6 +65,10 @@ public class POMUtils
 
     /**
      * Reads the POM model from a file name.
+     * <p>
+     * The file encoding is taken from its byte order mark or XML declaration (see {@link PomSource}), not from the
+     * platform default.
+     * </p>
      * 
      * @param pomFile File name.
      * @throws IsNotAPOMException The file is not a valid POM.
@@ -81,12 +93,123 @@ public class POMUtils
             throw new FileNotFoundException( "File not found: '" + pom + "'." );
         }
 
-        // Read the file
-        FileReader fr = new FileReader( pomFile );
-        MavenXpp3Reader xpp3reader = new MavenXpp3Reader();
+        // Read the file (at once) and get the model using the XPP3 library
+        model = PomSource.read( pomFile ).parse();
 
-        // Get the model using the XPP3 library
-        model = xpp3reader.read( fr );
+        return ( model );
+    }
+
+    /**
+     * Reads the POM model from a file name, through a model cache.
+     * 
+     * @param pom File name.
+     * @param cache Model cache (optional: without a cache, the file is always parsed).
+     * @return The project model (a copy of the cached one).
+     * @throws XmlPullParserException Problem while reading the POM.
+     * @throws IOException I/O error.
+     */
+    protected static Model loadModel( String pom, ModelCache cache )
+        throws FileNotFoundException, IOException, XmlPullParserException
+    {
+        return ( loadModel( pom, cache, null ) );
+    }
+
+    /**
+     * Reads the POM model from a file name, through a model cache and recording the time spent on reading and
+     * parsing the file.
+     * 
+     * @param pom File name.
+     * @param cache Model cache (optional: without a cache, the file is always parsed).
+     * @param metrics Metrics of the file (optional).
+     * @return The project model (a copy of the cached one).
+     * @throws XmlPullParserException Problem while reading the POM.
+     * @throws IOException I/O error.
+     */
+    protected static Model loadModel( String pom, ModelCache cache, PomMetrics metrics )
+        throws FileNotFoundException, IOException, XmlPullParserException
+    {
+        return ( loadModel( pom, cache, metrics, null ) );
+    }
+
+    /**
+     * Reads the POM model, or only some sections of it (see {@link PomSections}), from a file name. The partial
+     * models are not cached.
+     * 
+     * @param pom File name.
+     * @param cache Model cache (optional: without a cache, the file is always parsed).
+     * @param metrics Metrics of the file (optional).
+     * @param sections Sections to read (optional: the whole model by default).
+     * @return The project model (a copy of the cached one).
+     * @throws XmlPullParserException Problem while reading the POM.
+     * @throws IOException I/O error.
+     */
+    protected static Model loadModel( String pom, ModelCache cache, PomMetrics metrics, PomSections sections )
+        throws FileNotFoundException, IOException, XmlPullParserException
+    {
+        return ( loadModel( new File( pom != null ? pom : DEFAULT_POM_FILE ), cache, metrics, sections, null ) );
+    }
+
+    /**
+     * Reads the POM model, or only some sections of it, from a file (see
+     * {@link #loadModel(String, ModelCache, PomMetrics, PomSections)}).
+     * 
+     * @param pomFile POM file.
+     * @param cache Model cache (optional).
+     * @param metrics Metrics of the file (optional).
+     * @param sections Sections to read (optional).
+     * @param contents Receives the contents of the file the model has been read from (optional).
+     * @return The project model.
+     * @throws XmlPullParserException Problem while reading the POM.
+     * @throws IOException I/O error.
+     */
+    static Model loadModel( File pomFile, ModelCache cache, PomMetrics metrics, PomSections sections,
+                            Consumer<PomSource> contents )
+        throws FileNotFoundException, IOException, XmlPullParserException
+    {
+        PomEvents.Load event = PomEvents.load( pomFile );
+
+        if ( cache == null && metrics == null && sections == null && contents == null )
+        {
+            Model model = loadModel( pomFile.getPath() );
+            event.end( pomFile.length(), false );
+            return ( model );
+        }
+
+        // Check the file
+        if ( !pomFile.exists() )
+        {
+            throw new FileNotFoundException( "File not found: '" + pomFile.getPath() + "'." );
+        }
+
+        PomMetrics.Sample sample = metrics != null ? metrics.sample( pomFile ) : null;
+        long start = System.nanoTime();
+
+        PomSource source = PomSource.read( pomFile );
+        if ( sample != null )
+        {
+            start = sample.time( PomMetrics.Phase.READ, start );
+        }
+        if ( contents != null )
+        {
+            contents.accept( source );
+        }
+
+        Model model = cache != null && sections == null ? cache.get( pomFile, source.getBytes() ) : null;
+        boolean cached = model != null;
+        if ( model == null )
+        {
+            model = source.parse( sections );
+            if ( cache != null && sections == null )
+            {
+                cache.put( pomFile, source.getBytes(), model );
+            }
+        }
+        if ( sample != null )
+        {
+            sample.time( PomMetrics.Phase.PARSE, start );
+            sample.loaded( source.size() );
+        }
+        event.end( source.size(), cached );
 
         return ( model );
     }
@@ -95,12 +218,13 @@ public class POMUtils
      * Saves the model on the default POM file.
      * 
      * @param model Maven model object.
+     * @return 'false' if the file already had the same contents (it's not written then).
      * @throws IOException I/O error.
      */
-    protected static void saveModel( Model model )
+    protected static boolean saveModel( Model model )
         throws IOException
     {
-        saveModel( model, DEFAULT_POM_FILE, null );
+        return ( saveModel( model, DEFAULT_POM_FILE, null ) );
     }
 
     /**
@@ -108,41 +232,376 @@ public class POMUtils
      * 
      * @param model Maven model object.
      * @param pom POM file name.
+     * @return 'false' if the file already had the same contents (it's not written then).
+     * @throws IOException I/O error.
+     */
+    protected static boolean saveModel( Model model, String pom )
+        throws IOException
+    {
+        return ( saveModel( model, pom, null ) );
+    }
+
+    /**
+     * Saves the model on a specified POM file name, creating a backup file if there's an existing file with this name.
+     * 
+     * @param model Maven model object.
+     * @param pom POM file name.
+     * @param pomBackup A backup file name for an existing POM file (optional).
+     * @return 'false' if the file already had the same contents (it's not written then).
      * @throws IOException I/O error.
      */
-    protected static void saveModel( Model model, String pom )
+    protected static boolean saveModel( Model model, String pom, String pomBackup )
         throws IOException
     {
-        saveModel( model, pom, null );
+        return ( saveModel( model, pom, pomBackup, false ) );
     }
 
     /**
      * Saves the model on a specified POM file name, creating a backup file if there's an existing file with this name.
+     * <p>
+     * When <code>preserveFormatting</code> is set, only the changed elements are rewritten on the existing file (see
+     * {@link PomSplicer}); comments and formatting are kept. If the changes can't be applied that way, the whole
+     * model is written as usual.
+     * </p>
+     * <p>
+     * The properties are written in a stable order: the existing ones keep their order on the file and the new ones
+     * are sorted by name. If the result is the same as the existing file, nothing is written (and no backup is made),
+     * so the file modification time doesn't change.
+     * </p>
+     * <p>
+     * An existing file keeps its encoding and byte order mark.
+     * </p>
+     * 
+     * @param model Maven model object.
+     * @param pom POM file name.
+     * @param pomBackup A backup file name for an existing POM file (optional).
+     * @param preserveFormatting Modifies the existing file in place instead of rewriting the whole model.
+     * @return 'false' if the file already had the same contents (it's not written then).
+     * @throws IOException I/O error.
+     */
+    protected static boolean saveModel( Model model, String pom, String pomBackup, boolean preserveFormatting )
+        throws IOException
+    {
+        SaveOptions options = new SaveOptions();
+        options.setPreserveFormatting( preserveFormatting );
+        return ( saveModel( model, pom, pomBackup, options ) );
+    }
+
+    /**
+     * Saves the model on a specified POM file name (see {@link #saveModel(Model, String, String, boolean)}).
+     * <p>
+     * The file is replaced atomically (see {@link PomWriter}): it never gets half written, and the backup is made
+     * without moving the current file away. If the options have a model cache, the written model is stored on it for
+     * the next readers of the file.
+     * </p>
      * 
      * @param model Maven model object.
      * @param pom POM file name.
      * @param pomBackup A backup file name for an existing POM file (optional).
+     * @param options How to write the file.
+     * @return 'false' if the file already had the same contents (it's not written then).
+     * @throws IOException I/O error.
+     */
+    protected static boolean saveModel( Model model, String pom, String pomBackup, SaveOptions options )
+        throws IOException
+    {
+        return ( saveModel( model, pom, pomBackup, options, null ) );
+    }
+
+    /**
+     * Saves a model, or only some sections of it (see {@link PomSections}), on a specified POM file name.
+     * <p>
+     * The sections of a partial model are always applied to the existing file as with <code>preserveFormatting</code>
+     * (the rest of the file is kept as it is). If that's not possible, the whole model is read from the file, the
+     * sections are copied to it and it's written as usual. The partial models are not cached.
+     * </p>
+     * <p>
+     * Writers of the same file (other threads, or other processes with {@link SaveOptions#isProcessLock()}) wait for
+     * each other (see {@link PomLocks}).
+     * </p>
+     * 
+     * @param model Maven model object (a partial one if there are sections).
+     * @param pom POM file name.
+     * @param pomBackup A backup file name for an existing POM file (optional).
+     * @param options How to write the file.
+     * @param sections Sections of the partial model (optional).
+     * @return 'false' if the file already had the same contents (it's not written then).
      * @throws IOException I/O error.
      */
-    protected static void saveModel( Model model, String pom, String pomBackup )
+    protected static boolean saveModel( Model model, String pom, String pomBackup, SaveOptions options,
+                                        PomSections sections )
         throws IOException
     {
         File pomFile = new File( pom );
+        PomLocks.Lock lock = PomLocks.lock( pomFile );
+        try
+        {
+            while ( true )
+            {
+                PomSource original = pomFile.exists() ? PomSource.read( pomFile ) : null;
+                try
+                {
+                    return ( saveModel( model, pomFile, original, pomBackup, options, sections, null ) != null );
+                }
+                catch ( PomLocks.ModifiedException e )
+                {
+                    // Written by another process before it was locked: write over the new contents
+                }
+            }
+        }
+        finally
+        {
+            lock.close();
+        }
+    }
+
+    /**
+     * Saves a model, or only some sections of it, on a POM file (see
+     * {@link #saveModel(Model, String, String, SaveOptions, PomSections)}). The caller must hold the lock of the file
+     * (see {@link PomLocks}) since its current contents have been read. With {@link SaveOptions#isProcessLock()}, the
+     * file is locked for the other processes just before it's written, and it must be read again if one of them has
+     * written it in the meantime.
+     * <p>
+     * When the caller knows which sections of the model have been modified (see {@link PomEditor}), only those are
+     * parsed from the original text and compared to apply the changes in place. Otherwise the whole models are
+     * compared, which costs about as much as writing the whole model.
+     * </p>
+     * 
+     * @param model Maven model object (a partial one if there are sections).
+     * @param pomFile POM file.
+     * @param original Current contents of the file (<code>null</code> if it doesn't exist).
+     * @param pomBackup A backup file name for an existing POM file (optional).
+     * @param options How to write the file.
+     * @param sections Sections of the partial model (optional).
+     * @param changed Sections modified since the original contents were read (<code>null</code> if unknown).
+     * @return The new contents of the file, or <code>null</code> if it already had the same contents (it's not written
+     *         then).
+     * @throws PomLocks.ModifiedException The file has been written by another process since it was read.
+     * @throws IOException I/O error.
+     */
+    static byte[] saveModel( Model model, File pomFile, PomSource original, String pomBackup, SaveOptions options,
+                             PomSections sections, PomSections changed )
+        throws IOException
+    {
+        ModelCache cache = sections == null ? options.getCache() : null;
+
+        PomMetrics.Sample sample = options.getMetrics() != null ? options.getMetrics().sample( pomFile ) : null;
+        if ( sample != null )
+        {
+            sample.saving();
+        }
+        PomEvents.Save event = PomEvents.save( pomFile );
+        long start = System.nanoTime();
+
+        // Current contents (already read)
+        if ( sample != null )
+        {
+            start = sample.time( PomMetrics.Phase.READ, start );
+        }
+        String originalText = original != null ? original.decode() : null;
+        PomDocument originalDocument = scan( originalText );
+
+        // Keep the properties order stable (the file order, unless the model order is wanted)
+        orderProperties( model, options.isKeepPropertyOrder() ? null : originalDocument );
+
+        // Try to apply just the changes over the existing file
+        String text = null;
+        if ( ( options.isPreserveFormatting() || sections != null ) && originalDocument != null )
+        {
+            // A partial model can only be compared on its own sections
+            PomSections compared = changed;
+            if ( sections != null && changed != null && !sections.getNames().containsAll( changed.getNames() ) )
+            {
+                compared = null;
+            }
+            try
+            {
+                Model originalModel = cache != null ? cache.get( pomFile, original.getBytes() ) : null;
+                if ( originalModel == null )
+                {
+                    PomSections parsed = sections != null ? sections : compared;
+                    originalModel = parsed != null ? parsed.parse( originalText )
+                                    : new MavenXpp3Reader().read( new StringReader( originalText ) );
+                }
+                text = PomSplicer.splice( originalText, originalModel, model, compared );
+            }
+            catch ( XmlPullParserException e )
+            {
+                // The existing file is not a valid POM: just overwrite it
+                text = null;
+            }
+        }
+
+        // Serialize the whole model
+        if ( text == null )
+        {
+            StringWriter writer = new StringWriter();
+            new MavenXpp3Writer().write( writer, sections != null ? wholeModel( model, originalText, sections )
+                            : model );
+            text = writer.toString();
+        }
+
+        // Nothing to do if the contents are the same
+        byte[] bytes = original != null ? original.encode( text )
+                        : PomSource.encode( text, charsetOf( model ), pomFile.getPath() );
+        int originalLength = original != null ? original.size() : 0;
+        if ( sample != null )
+        {
+            start = sample.time( PomMetrics.Phase.SERIALIZE, start );
+        }
+        if ( original != null && original.contentEquals( bytes ) )
+        {
+            if ( cache != null )
+            {
+                cache.put( pomFile, bytes, model );
+            }
+            if ( sample != null )
+            {
+                sample.saved( model, originalLength, 0 );
+            }
+            event.end( originalLength, 0, options.isPreserveFormatting() );
+            return ( null );
+        }
+
+        // Wait for the other processes, now that the file is going to be written
+        if ( options.isProcessLock() )
+        {
+            PomLocks.lockProcesses( pomFile, original );
+        }
+
+        // Save the model (keeping the existing file as the backup, if a backup name is provided)
+        options.getWriter().write( pomFile.toPath(), bytes, pomBackup != null ? Paths.get( pomBackup ) : null );
+        if ( sample != null )
+        {
+            sample.time( PomMetrics.Phase.WRITE, start );
+            sample.saved( model, originalLength, bytes.length );
+        }
+        if ( cache != null )
+        {
+            cache.put( pomFile, bytes, model );
+        }
+        event.end( originalLength, bytes.length, options.isPreserveFormatting() );
+
+        return ( bytes );
+    }
+
+    /**
+     * Copies the sections of a partial model to the whole model of the original file.
+     * 
+     * @param model Partial model.
+     * @param originalText Current POM file contents (optional).
+     * @param sections Sections of the partial model.
+     * @return The whole model.
+     * @throws IOException The whole model can't be read.
+     */
+    private static Model wholeModel( Model model, String originalText, PomSections sections )
+        throws IOException
+    {
+        Model whole;
+        try
+        {
+            whole = originalText != null ? new MavenXpp3Reader().read( new StringReader( originalText ) ) : new Model();
+        }
+        catch ( XmlPullParserException e )
+        {
+            throw new IOException( "The POM file can't be read again: " + e.getMessage(), e );
+        }
+        sections.copy( model, whole );
+        whole.setModelEncoding( model.getModelEncoding() );
+        return ( whole );
+    }
+
+    /**
+     * Replaces the model properties (general and profiles) with ordered ones: the properties already on the file
+     * keep their order, and the new ones go after them (in their current order if the properties are already ordered,
+     * or sorted by name).
+     * 
+     * @param model Maven model object.
+     * @param document Current POM file contents (optional).
+     */
+    private static void orderProperties( Model model, PomDocument document )
+    {
+        PomDocument.Element project = document != null ? document.getRoot() : null;
 
-        // If the output file exists and a backup name is provided...
-        if ( pomFile.exists() && pomBackup != null )
+        model.setProperties( OrderedProperties.of( model.getProperties(), propertyNames( project ) ) );
+
+        // Profile sections on the document, by ID
+        Map<String, PomDocument.Element> profiles = new HashMap<String, PomDocument.Element>();
+        PomDocument.Element profilesElement = project != null ? project.getChild( "profiles" ) : null;
+        if ( profilesElement != null )
         {
-            // ...rename the current existing file to the backup one.
-            File pomBackupFile = new File( pomBackup );
-            pomFile.renameTo( pomBackupFile );
+            for ( PomDocument.Element profile : profilesElement.getChildren( "profile" ) )
+            {
+                PomDocument.Element id = profile.getChild( "id" );
+                if ( id != null )
+                {
+                    profiles.put( document.textOf( id ), profile );
+                }
+            }
         }
 
-        // Save the model
-        MavenXpp3Writer xpp3writer = new MavenXpp3Writer();
-        FileWriter writer = new FileWriter( pomFile );
+        for ( Profile profile : model.getProfiles() )
+        {
+            profile.setProperties( OrderedProperties.of( profile.getProperties(),
+                                                         propertyNames( profiles.get( profile.getId() ) ) ) );
+        }
+    }
+
+    /**
+     * Gets the property names of a project or profile element, in document order.
+     * 
+     * @param parent Project or profile element (optional).
+     * @return The property names.
+     */
+    private static List<String> propertyNames( PomDocument.Element parent )
+    {
+        List<String> names = new ArrayList<String>();
+        PomDocument.Element properties = parent != null ? parent.getChild( "properties" ) : null;
+        if ( properties != null )
+        {
+            for ( PomDocument.Element property : properties.getChildren() )
+            {
+                names.add( property.getName() );
+            }
+        }
+        return ( names );
+    }
 
-        xpp3writer.write( writer, model );
+    /**
+     * Scans the element structure of a POM text.
+     * 
+     * @param text POM file contents (optional).
+     * @return The document or <code>null</code> if there's no text or it can't be scanned.
+     */
+    private static PomDocument scan( String text )
+    {
+        if ( text == null )
+        {
+            return ( null );
+        }
+        try
+        {
+            return ( new PomDocument( text ) );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            return ( null );
+        }
+    }
 
-        writer.close();
+    /**
+     * Gets the charset of the model (from the XML declaration of the file it was read from).
+     * 
+     * @param model Maven model object.
+     * @return The model charset (UTF-8 by default).
+     */
+    private static Charset charsetOf( Model model )
+    {
+        String encoding = model.getModelEncoding();
+        if ( encoding != null && Charset.isSupported( encoding ) )
+        {
+            return ( Charset.forName( encoding ) );
+        }
+        return ( Charset.forName( "UTF-8" ) );
     }
 }
@@ -0,0 +1,411 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.FileSystemException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the same task over a set of POM files on a bounded pool of worker threads.
+ * <p>
+ * Every file is processed independently: a failure on a POM doesn't stop the others, and the results (or errors) for
+ * each file are collected and returned when all of them have finished.
+ * </p>
+ * <p>
+ * For very large sets of files, {@link #stream(PomFinder, Task, Listener)} processes the files as they are found
+ * instead: only a bounded number of them are in flight at any time and the results are handed to a listener instead
+ * of being collected, so the memory usage doesn't depend on the number of files.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class PomBatch
+{
+    /**
+     * Number of worker threads.
+     */
+    private final int threads;
+
+    /**
+     * Use virtual threads (when available) for streaming.
+     */
+    private final boolean virtualThreads;
+
+    /**
+     * Creates a batch runner.
+     *
+     * @param threads Number of worker threads (zero or less means one per available processor).
+     */
+    public PomBatch( int threads )
+    {
+        this( threads, false );
+    }
+
+    /**
+     * Creates a batch runner.
+     *
+     * @param threads Number of worker threads (zero or less means one per available processor). With virtual threads,
+     *            the number of files processed at the same time.
+     * @param virtualThreads Use a virtual thread per file when streaming (only on Java 21 or newer).
+     */
+    public PomBatch( int threads, boolean virtualThreads )
+    {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Runs the task over all the POM files and waits for them.
+     *
+     * @param poms POM files.
+     * @param task Task to run on every file.
+     * @return A result per file, in the same order as the <code>poms</code> list.
+     * @throws InterruptedException The current thread was interrupted while waiting for the workers.
+     */
+    public List<Result> run( List<File> poms, final Task task )
+        throws InterruptedException
+    {
+        List<Result> results = new ArrayList<Result>( poms.size() );
+        if ( poms.isEmpty() )
+        {
+            return ( results );
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( Math.min( threads, poms.size() ) );
+        try
+        {
+            List<Future<Result>> futures = new ArrayList<Future<Result>>( poms.size() );
+            for ( final File pom : poms )
+            {
+                futures.add( executor.submit( () -> execute( pom, task ) ) );
+            }
+
+            for ( Future<Result> future : futures )
+            {
+                try
+                {
+                    results.add( future.get() );
+                }
+                catch ( ExecutionException e )
+                {
+                    // execute() catches everything but errors
+                    throw new IllegalStateException( "Unexpected error on a batch worker.", e.getCause() );
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        return ( results );
+    }
+
+    /**
+     * Runs the task over the files found by a {@link PomFinder} while the walk is still going on.
+     * <p>
+     * The walk blocks when the maximum number of files in flight is reached (twice the number of threads for the
+     * fixed pool, the number of threads for virtual threads), so the discovery never gets far ahead of the workers.
+     * The directories and files the walk can't read are failed results too.
+     * </p>
+     *
+     * @param finder POM file finder.
+     * @param task Task to run on every file.
+     * @param listener Receives the result for every file (called from the worker threads, or from the current thread
+     *            for the paths that can't be read).
+     * @return The counters for the whole run.
+     * @throws IOException I/O error walking the directory tree.
+     * @throws InterruptedException The current thread was interrupted while waiting for the workers.
+     */
+    public Summary stream( PomFinder finder, final Task task, final Listener listener )
+        throws IOException, InterruptedException
+    {
+        long start = System.nanoTime();
+        final AtomicInteger total = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+
+        ExecutorService executor = virtualThreads ? newVirtualThreadExecutor() : null;
+        final int permits = executor != null ? threads : threads * 2;
+        if ( executor == null )
+        {
+            executor = Executors.newFixedThreadPool( threads );
+        }
+        final ExecutorService workers = executor;
+        final Semaphore inFlight = new Semaphore( permits );
+
+        try
+        {
+            finder.walk( new PomFinder.Visitor()
+            {
+                @Override
+                public void found( final Path file )
+                    throws InterruptedException
+                {
+                    // Backpressure: wait for a free slot before submitting
+                    inFlight.acquire();
+                    try
+                    {
+                        workers.execute( () -> {
+                            try
+                            {
+                                Result result = execute( file.toFile(), task );
+                                if ( !result.isSuccess() )
+                                {
+                                    failures.incrementAndGet();
+                                }
+                                listener.done( result );
+                            }
+                            finally
+                            {
+                                inFlight.release();
+                            }
+                        } );
+                    }
+                    catch ( RejectedExecutionException e )
+                    {
+                        inFlight.release();
+                        throw e;
+                    }
+                    total.incrementAndGet();
+                }
+
+                @Override
+                public void failed( Path file, IOException error )
+                {
+                    // The rest of the tree is still processed
+                    total.incrementAndGet();
+                    failures.incrementAndGet();
+                    listener.done( new Result( file.toFile(), null, unreadable( error ), 0 ) );
+                }
+            } );
+
+            // Wait for the files still in flight
+            inFlight.acquire( permits );
+        }
+        finally
+        {
+            workers.shutdownNow();
+        }
+
+        return ( new Summary( total.get(), failures.get(), System.nanoTime() - start ) );
+    }
+
+    /**
+     * Describes an error reading a path of the walk (the messages of the file system errors are usually just the
+     * path).
+     *
+     * @param error Error reading the path.
+     * @return The error for the result of the path.
+     */
+    private static IOException unreadable( IOException error )
+    {
+        String reason = error instanceof FileSystemException ? ( (FileSystemException) error ).getReason()
+                        : error.getMessage();
+        return ( new IOException( "Can't be read (" + ( reason != null ? reason : error.getClass().getSimpleName() )
+            + ").", error ) );
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor if the runtime supports it (Java 21 or newer).
+     *
+     * @return The executor or <code>null</code> if virtual threads are not available.
+     */
+    static ExecutorService newVirtualThreadExecutor()
+    {
+        try
+        {
+            Method factory = Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" );
+            return ( (ExecutorService) factory.invoke( null ) );
+        }
+        catch ( ReflectiveOperationException e )
+        {
+            return ( null );
+        }
+    }
+
+    /**
+     * Runs the task over a single file, capturing the outcome.
+     *
+     * @param pom POM file.
+     * @param task Task to run.
+     * @return The result for this file.
+     */
+    static Result execute( File pom, Task task )
+    {
+        long start = System.nanoTime();
+        try
+        {
+            String message = task.execute( pom );
+            return ( new Result( pom, message, null, System.nanoTime() - start ) );
+        }
+        catch ( Exception e )
+        {
+            return ( new Result( pom, null, e, System.nanoTime() - start ) );
+        }
+    }
+
+    // TYPES .................................................................
+
+    /**
+     * The work to do on every POM file.
+     */
+    public interface Task
+    {
+        /**
+         * Processes a POM file.
+         *
+         * @param pom POM file.
+         * @return A short message about the outcome (optional).
+         * @throws Exception Any error processing this file.
+         */
+        String execute( File pom )
+            throws Exception;
+    }
+
+    /**
+     * Receives the results of a streaming run.
+     */
+    public interface Listener
+    {
+        /**
+         * A file has been processed. This method is called from the worker threads.
+         *
+         * @param result The result for the file.
+         */
+        void done( Result result );
+    }
+
+    /**
+     * The counters of a streaming run.
+     */
+    public static class Summary
+    {
+        private final int total;
+
+        private final int failures;
+
+        private final long nanos;
+
+        Summary( int total, int failures, long nanos )
+        {
+            this.total = total;
+            this.failures = failures;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return Number of files processed.
+         */
+        public int getTotal()
+        {
+            return ( total );
+        }
+
+        /**
+         * @return Number of files with errors.
+         */
+        public int getFailures()
+        {
+            return ( failures );
+        }
+
+        /**
+         * @return Elapsed time in milliseconds.
+         */
+        public long getMillis()
+        {
+            return ( nanos / 1000000L );
+        }
+    }
+
+    /**
+     * The outcome of a task on a POM file.
+     */
+    public static class Result
+    {
+        private final File pom;
+
+        private final String message;
+
+        private final Exception error;
+
+        private final long nanos;
+
+        Result( File pom, String message, Exception error, long nanos )
+        {
+            this.pom = pom;
+            this.message = message;
+            this.error = error;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return The POM file.
+         */
+        public File getPom()
+        {
+            return ( pom );
+        }
+
+        /**
+         * @return The task message (may be <code>null</code>).
+         */
+        public String getMessage()
+        {
+            return ( message );
+        }
+
+        /**
+         * @return The error, or <code>null</code> if the task succeeded.
+         */
+        public Exception getError()
+        {
+            return ( error );
+        }
+
+        /**
+         * @return 'true' if the task succeeded.
+         */
+        public boolean isSuccess()
+        {
+            return ( error == null );
+        }
+
+        /**
+         * @return Elapsed time in milliseconds.
+         */
+        public long getMillis()
+        {
+            return ( nanos / 1000000L );
+        }
+    }
+}
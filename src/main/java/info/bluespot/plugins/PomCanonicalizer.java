@@ -0,0 +1,329 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.apache.maven.artifact.versioning.ComparableVersion;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.ModelBase;
+import org.apache.maven.model.Profile;
+
+/**
+ * Puts a project model in a canonical form: without duplicate dependencies and with the dependencies, managed
+ * dependencies and properties in a stable order.
+ * <p>
+ * The duplicates are found by their key (<code>groupId:artifactId:type[:classifier]</code>) with a single pass over
+ * every list; a {@link DuplicatePolicy} chooses the declaration that is kept, and it takes the position of the first
+ * one. The lists are then sorted with a stable sort, so two models with the same contents always get the same order.
+ * </p>
+ * <p>
+ * The dependency order is also the classpath order, so the dependencies are not sorted by default. The managed
+ * dependencies imported from BOMs (<code>import</code> scope) are never reordered among themselves: the first import
+ * wins on conflicts. They're kept after the other managed dependencies, which take precedence over them anyway.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class PomCanonicalizer
+{
+    /**
+     * Order of the dependency scopes.
+     */
+    private static final List<String> SCOPES =
+        Arrays.asList( "compile", "provided", "runtime", "test", "system", "import" );
+
+    /**
+     * Compares the dependencies by their coordinates.
+     */
+    private static final Comparator<Dependency> BY_COORDINATES =
+        Comparator.comparing( Dependency::getGroupId, Comparator.nullsFirst( Comparator.<String>naturalOrder() ) )
+            .thenComparing( Dependency::getArtifactId, Comparator.nullsFirst( Comparator.<String>naturalOrder() ) )
+            .thenComparing( Dependency::getType, Comparator.nullsFirst( Comparator.<String>naturalOrder() ) )
+            .thenComparing( Dependency::getClassifier, Comparator.nullsFirst( Comparator.<String>naturalOrder() ) );
+
+    /**
+     * Compares the dependencies by their scope, then by their coordinates.
+     */
+    private static final Comparator<Dependency> BY_SCOPE =
+        Comparator.comparingInt( PomCanonicalizer::scopeRank ).thenComparing( BY_COORDINATES );
+
+    private DuplicatePolicy duplicatePolicy = DuplicatePolicy.LAST;
+
+    private DependencyOrder dependencyOrder = DependencyOrder.NONE;
+
+    private DependencyOrder managedDependencyOrder = DependencyOrder.COORDINATES;
+
+    private PropertyOrder propertyOrder = PropertyOrder.NAME;
+
+    /**
+     * @param duplicatePolicy Which declaration of a duplicate dependency is kept (the last one by default, as Maven
+     *            does).
+     */
+    public void setDuplicatePolicy( DuplicatePolicy duplicatePolicy )
+    {
+        this.duplicatePolicy = duplicatePolicy;
+    }
+
+    /**
+     * @param dependencyOrder Order of the dependencies (not sorted by default).
+     */
+    public void setDependencyOrder( DependencyOrder dependencyOrder )
+    {
+        this.dependencyOrder = dependencyOrder;
+    }
+
+    /**
+     * @param managedDependencyOrder Order of the managed dependencies (by coordinates by default).
+     */
+    public void setManagedDependencyOrder( DependencyOrder managedDependencyOrder )
+    {
+        this.managedDependencyOrder = managedDependencyOrder;
+    }
+
+    /**
+     * @param propertyOrder Order of the properties (by name by default).
+     */
+    public void setPropertyOrder( PropertyOrder propertyOrder )
+    {
+        this.propertyOrder = propertyOrder;
+    }
+
+    /**
+     * @return 'true' if the properties are sorted (they must then be written in the model order, see
+     *         {@link SaveOptions#setKeepPropertyOrder(boolean)}).
+     */
+    public boolean sortsProperties()
+    {
+        return ( propertyOrder != PropertyOrder.NONE );
+    }
+
+    /**
+     * Canonicalizes a model (the project and the profiles).
+     *
+     * @param model Maven model (modified in place).
+     * @return Number of duplicate dependencies removed.
+     */
+    public int canonicalize( Model model )
+    {
+        int removed = canonicalize( (ModelBase) model );
+        for ( Profile profile : model.getProfiles() )
+        {
+            removed += canonicalize( profile );
+        }
+        return ( removed );
+    }
+
+    /**
+     * Canonicalizes a model section.
+     */
+    private int canonicalize( ModelBase section )
+    {
+        int removed = 0;
+
+        List<Dependency> dependencies = dedupe( section.getDependencies() );
+        removed += section.getDependencies().size() - dependencies.size();
+        sort( dependencies, dependencyOrder );
+        section.setDependencies( dependencies );
+
+        if ( section.getDependencyManagement() != null )
+        {
+            List<Dependency> managed = dedupe( section.getDependencyManagement().getDependencies() );
+            removed += section.getDependencyManagement().getDependencies().size() - managed.size();
+            section.getDependencyManagement().setDependencies( sortManaged( managed ) );
+        }
+
+        if ( propertyOrder == PropertyOrder.NAME )
+        {
+            Properties properties = section.getProperties();
+            OrderedProperties sorted = new OrderedProperties();
+            for ( Object key : new TreeSet<Object>( properties.keySet() ) )
+            {
+                sorted.put( key, properties.get( key ) );
+            }
+            section.setProperties( sorted );
+        }
+
+        return ( removed );
+    }
+
+    /**
+     * Removes the duplicate dependencies of a list.
+     *
+     * @return A new list, without duplicates.
+     */
+    private List<Dependency> dedupe( List<Dependency> dependencies )
+    {
+        List<Dependency> unique = new ArrayList<Dependency>( dependencies.size() );
+        Map<String, Integer> positions = new HashMap<String, Integer>( dependencies.size() * 2 );
+        for ( Dependency dependency : dependencies )
+        {
+            Integer position = positions.putIfAbsent( dependency.getManagementKey(), unique.size() );
+            if ( position == null )
+            {
+                unique.add( dependency );
+            }
+            else if ( wins( dependency, unique.get( position ) ) )
+            {
+                unique.set( position, dependency );
+            }
+        }
+        return ( unique );
+    }
+
+    /**
+     * Checks if a duplicate declaration replaces the previous one.
+     */
+    private boolean wins( Dependency duplicate, Dependency previous )
+    {
+        switch ( duplicatePolicy )
+        {
+            case FIRST:
+                return ( false );
+            case HIGHEST_VERSION:
+                if ( duplicate.getVersion() == null )
+                {
+                    return ( false );
+                }
+                if ( previous.getVersion() == null )
+                {
+                    return ( true );
+                }
+                return ( new ComparableVersion( duplicate.getVersion() )
+                    .compareTo( new ComparableVersion( previous.getVersion() ) ) > 0 );
+            default:
+                return ( true );
+        }
+    }
+
+    /**
+     * Sorts a dependency list (stable).
+     */
+    private static void sort( List<Dependency> dependencies, DependencyOrder order )
+    {
+        if ( order == DependencyOrder.COORDINATES )
+        {
+            dependencies.sort( BY_COORDINATES );
+        }
+        else if ( order == DependencyOrder.SCOPE )
+        {
+            dependencies.sort( BY_SCOPE );
+        }
+    }
+
+    /**
+     * Sorts a managed dependency list, keeping the imports in their order after the other dependencies.
+     */
+    private List<Dependency> sortManaged( List<Dependency> managed )
+    {
+        if ( managedDependencyOrder == DependencyOrder.NONE )
+        {
+            return ( managed );
+        }
+
+        List<Dependency> sorted = new ArrayList<Dependency>( managed.size() );
+        List<Dependency> imports = new ArrayList<Dependency>();
+        for ( Dependency dependency : managed )
+        {
+            ( "import".equals( dependency.getScope() ) ? imports : sorted ).add( dependency );
+        }
+        sort( sorted, managedDependencyOrder );
+        sorted.addAll( imports );
+        return ( sorted );
+    }
+
+    /**
+     * Gets the position of a dependency scope (the unknown scopes go last).
+     */
+    private static int scopeRank( Dependency dependency )
+    {
+        int rank = SCOPES.indexOf( dependency.getScope() != null ? dependency.getScope() : "compile" );
+        return ( rank >= 0 ? rank : SCOPES.size() );
+    }
+
+    // TYPES .................................................................
+
+    /**
+     * Which declaration of a duplicate dependency is kept.
+     */
+    public enum DuplicatePolicy
+    {
+        /**
+         * The first one.
+         */
+        FIRST,
+
+        /**
+         * The last one (the one Maven uses).
+         */
+        LAST,
+
+        /**
+         * The one with the highest version.
+         */
+        HIGHEST_VERSION
+    }
+
+    /**
+     * Order of a dependency list.
+     */
+    public enum DependencyOrder
+    {
+        /**
+         * The declaration order.
+         */
+        NONE,
+
+        /**
+         * By <code>groupId</code>, <code>artifactId</code>, <code>type</code> and <code>classifier</code>.
+         */
+        COORDINATES,
+
+        /**
+         * By scope (<code>compile</code>, <code>provided</code>, <code>runtime</code>, <code>test</code>,
+         * <code>system</code>), then by coordinates.
+         */
+        SCOPE
+    }
+
+    /**
+     * Order of the properties.
+     */
+    public enum PropertyOrder
+    {
+        /**
+         * The order of the file.
+         */
+        NONE,
+
+        /**
+         * By name.
+         */
+        NAME
+    }
+}
@@ -0,0 +1,466 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The element structure of a POM file text, with the position of every element.
+ * <p>
+ * This is not a full XML parser: it just finds where every element starts and ends on the original text (skipping
+ * comments, processing instructions, CDATA sections and the document type), so the text can be modified in place
+ * without reformatting the rest of the file. The text is expected to be well formed (it has been read by the Maven
+ * model reader before).
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class PomDocument
+{
+    /**
+     * Original text.
+     */
+    private final String text;
+
+    /**
+     * Root element.
+     */
+    private final Element root;
+
+    /**
+     * Line separator used on the document.
+     */
+    private final String lineSeparator;
+
+    /**
+     * Scans a POM text.
+     *
+     * @param text POM file contents.
+     * @throws IllegalArgumentException The text is not well formed.
+     */
+    public PomDocument( String text )
+    {
+        this( text, Integer.MAX_VALUE );
+    }
+
+    /**
+     * Scans the first levels of a POM text: the deeper elements are skipped (they are not on the element tree).
+     *
+     * @param text POM file contents.
+     * @param depth Levels of elements to scan (1 for the root element only).
+     * @throws IllegalArgumentException The text is not well formed.
+     */
+    public PomDocument( String text, int depth )
+    {
+        this.text = text;
+        this.root = scan( text, depth );
+        this.lineSeparator = text.contains( "\r\n" ) ? "\r\n" : "\n";
+    }
+
+    /**
+     * @return The original text.
+     */
+    public String getText()
+    {
+        return ( text );
+    }
+
+    /**
+     * @return The root element (<code>project</code>).
+     */
+    public Element getRoot()
+    {
+        return ( root );
+    }
+
+    /**
+     * @return The line separator of the document.
+     */
+    public String getLineSeparator()
+    {
+        return ( lineSeparator );
+    }
+
+    /**
+     * Gets the text content of a simple element (without child elements), trimmed.
+     *
+     * @param element An element.
+     * @return The element text (entities and CDATA sections are not decoded).
+     */
+    public String textOf( Element element )
+    {
+        return ( text.substring( element.getContentStart(), element.getContentEnd() ).trim() );
+    }
+
+    /**
+     * Gets the blanks before an element on its line.
+     *
+     * @param element An element.
+     * @return The indentation or <code>null</code> if the element is not the first thing on its line.
+     */
+    public String indentOf( Element element )
+    {
+        int position = element.getStart();
+        while ( position > 0 )
+        {
+            char c = text.charAt( position - 1 );
+            if ( c == '\n' )
+            {
+                return ( text.substring( position, element.getStart() ) );
+            }
+            if ( c != ' ' && c != '\t' )
+            {
+                return ( null );
+            }
+            position--;
+        }
+        return ( text.substring( 0, element.getStart() ) );
+    }
+
+    /**
+     * Gets the indentation unit of the document (the indentation of the root children).
+     *
+     * @return The indentation unit (two blanks by default).
+     */
+    public String indentUnit()
+    {
+        for ( Element child : root.getChildren() )
+        {
+            String indent = indentOf( child );
+            if ( indent != null && !indent.isEmpty() )
+            {
+                return ( indent );
+            }
+        }
+        return ( "  " );
+    }
+
+    // SCANNER ...............................................................
+
+    /**
+     * Builds the element tree of a text.
+     */
+    private static Element scan( String text, int maxDepth )
+    {
+        Element root = null;
+        Element current = null;
+        int length = text.length();
+        int i = 0;
+
+        // Open elements on the tree and below the depth limit
+        int depth = 0;
+        int skipped = 0;
+
+        while ( i < length )
+        {
+            int open = text.indexOf( '<', i );
+            if ( open < 0 )
+            {
+                break;
+            }
+
+            if ( text.startsWith( "<!--", open ) )
+            {
+                i = skipPast( text, "-->", open + 4 );
+            }
+            else if ( text.startsWith( "<![CDATA[", open ) )
+            {
+                i = skipPast( text, "]]>", open + 9 );
+            }
+            else if ( text.startsWith( "<?", open ) )
+            {
+                i = skipPast( text, "?>", open + 2 );
+            }
+            else if ( text.startsWith( "<!", open ) )
+            {
+                i = skipDeclaration( text, open + 2 );
+            }
+            else if ( text.startsWith( "</", open ) )
+            {
+                int close = skipPast( text, ">", open + 2 );
+                if ( skipped > 0 )
+                {
+                    skipped--;
+                    i = close;
+                    continue;
+                }
+                if ( current == null )
+                {
+                    throw new IllegalArgumentException( "Unexpected end tag at position " + open + "." );
+                }
+                current.contentEnd = open;
+                current.end = close;
+                current = current.parent;
+                depth--;
+                i = close;
+            }
+            else
+            {
+                int close = endOfStartTag( text, open + 1 );
+                if ( depth >= maxDepth )
+                {
+                    if ( text.charAt( close - 2 ) != '/' )
+                    {
+                        skipped++;
+                    }
+                    i = close;
+                    continue;
+                }
+
+                int nameEnd = open + 1;
+                while ( nameEnd < close && !Character.isWhitespace( text.charAt( nameEnd ) )
+                    && text.charAt( nameEnd ) != '/' && text.charAt( nameEnd ) != '>' )
+                {
+                    nameEnd++;
+                }
+
+                Element element = new Element( text.substring( open + 1, nameEnd ), current, open );
+                element.contentStart = close;
+                if ( current != null )
+                {
+                    current.children.add( element );
+                }
+                else if ( root == null )
+                {
+                    root = element;
+                }
+
+                if ( text.charAt( close - 2 ) == '/' )
+                {
+                    // Empty element: <name/>
+                    element.empty = true;
+                    element.contentEnd = close;
+                    element.end = close;
+                }
+                else
+                {
+                    current = element;
+                    depth++;
+                }
+                i = close;
+            }
+        }
+
+        if ( root == null || current != null )
+        {
+            throw new IllegalArgumentException( "The document is not well formed." );
+        }
+        return ( root );
+    }
+
+    /**
+     * Returns the position after the next occurrence of a delimiter.
+     */
+    private static int skipPast( String text, String delimiter, int from )
+    {
+        int position = text.indexOf( delimiter, from );
+        if ( position < 0 )
+        {
+            throw new IllegalArgumentException( "Missing '" + delimiter + "' after position " + from + "." );
+        }
+        return ( position + delimiter.length() );
+    }
+
+    /**
+     * Skips a declaration (<code>&lt;!DOCTYPE ...&gt;</code>), including an internal subset.
+     */
+    private static int skipDeclaration( String text, int from )
+    {
+        int depth = 0;
+        for ( int i = from; i < text.length(); i++ )
+        {
+            char c = text.charAt( i );
+            if ( c == '[' )
+            {
+                depth++;
+            }
+            else if ( c == ']' )
+            {
+                depth--;
+            }
+            else if ( c == '>' && depth <= 0 )
+            {
+                return ( i + 1 );
+            }
+        }
+        throw new IllegalArgumentException( "Unterminated declaration at position " + from + "." );
+    }
+
+    /**
+     * Finds the end of a start tag, skipping the quoted attribute values.
+     */
+    private static int endOfStartTag( String text, int from )
+    {
+        char quote = 0;
+        for ( int i = from; i < text.length(); i++ )
+        {
+            char c = text.charAt( i );
+            if ( quote != 0 )
+            {
+                if ( c == quote )
+                {
+                    quote = 0;
+                }
+            }
+            else if ( c == '"' || c == '\'' )
+            {
+                quote = c;
+            }
+            else if ( c == '>' )
+            {
+                return ( i + 1 );
+            }
+        }
+        throw new IllegalArgumentException( "Unterminated start tag at position " + from + "." );
+    }
+
+    // TYPES .................................................................
+
+    /**
+     * An element of the document and its position on the text.
+     */
+    public static class Element
+    {
+        private final String name;
+
+        private final Element parent;
+
+        private final List<Element> children = new ArrayList<Element>();
+
+        private final int start;
+
+        private int contentStart;
+
+        private int contentEnd;
+
+        private int end;
+
+        private boolean empty;
+
+        Element( String name, Element parent, int start )
+        {
+            this.name = name;
+            this.parent = parent;
+            this.start = start;
+        }
+
+        /**
+         * @return The element name.
+         */
+        public String getName()
+        {
+            return ( name );
+        }
+
+        /**
+         * @return The parent element (<code>null</code> for the root).
+         */
+        public Element getParent()
+        {
+            return ( parent );
+        }
+
+        /**
+         * @return The child elements, in document order.
+         */
+        public List<Element> getChildren()
+        {
+            return ( children );
+        }
+
+        /**
+         * Gets the first child element with a name.
+         *
+         * @param childName Child element name.
+         * @return The child or <code>null</code>.
+         */
+        public Element getChild( String childName )
+        {
+            for ( Element child : children )
+            {
+                if ( child.name.equals( childName ) )
+                {
+                    return ( child );
+                }
+            }
+            return ( null );
+        }
+
+        /**
+         * Gets all the child elements with a name.
+         *
+         * @param childName Child element name.
+         * @return The children, in document order.
+         */
+        public List<Element> getChildren( String childName )
+        {
+            List<Element> matching = new ArrayList<Element>();
+            for ( Element child : children )
+            {
+                if ( child.name.equals( childName ) )
+                {
+                    matching.add( child );
+                }
+            }
+            return ( matching );
+        }
+
+        /**
+         * @return Position of the start tag ('<code>&lt;</code>').
+         */
+        public int getStart()
+        {
+            return ( start );
+        }
+
+        /**
+         * @return Position after the start tag.
+         */
+        public int getContentStart()
+        {
+            return ( contentStart );
+        }
+
+        /**
+         * @return Position of the end tag (same as the content start for empty elements).
+         */
+        public int getContentEnd()
+        {
+            return ( contentEnd );
+        }
+
+        /**
+         * @return Position after the end tag.
+         */
+        public int getEnd()
+        {
+            return ( end );
+        }
+
+        /**
+         * @return 'true' for empty elements (<code>&lt;name/&gt;</code>).
+         */
+        public boolean isEmpty()
+        {
+            return ( empty );
+        }
+    }
+}
@@ -0,0 +1,673 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.ModelBase;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Edits a POM file outside of a Maven build.
+ * <p>
+ * This is the API behind the goals of the plugin, for tools that edit POM files in-process. It only needs the Maven
+ * model and the Plexus utilities at runtime (not the Maven plugin API):
+ * </p>
+ *
+ * <pre>
+ * PomEditor.open( "pom.xml" )
+ *     .addDependency( "org.slf4j:slf4j-api:1.7.32" )
+ *     .deleteDependencies( "junit", "org.hamcrest:*" )
+ *     .setProperties( Collections.singletonMap( "java.version", "11" ) )
+ *     .setVersion( "2.0.0" )
+ *     .save();
+ * </pre>
+ * <p>
+ * The fluent methods return the editor; the methods named after the goals (<code>addDependencies</code>,
+ * <code>removeDependencies</code>, <code>mergeProperties</code>) return what they have done. An editor can be shared
+ * by several threads: every operation is applied atomically on the model. The file is only written by
+ * {@link #save()}, and only if its contents change.
+ * </p>
+ * <p>
+ * Saving locks the file (see {@link PomLocks}), so editors of the same file in other threads (or processes, see
+ * {@link SaveOptions#setProcessLock(boolean)}) don't overwrite each other: if the file has been modified since it was
+ * opened, the operations of the editor are applied again to its current contents before writing it.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class PomEditor
+{
+    /**
+     * POM file name.
+     */
+    private final String pom;
+
+    /**
+     * How the file is written.
+     */
+    private final SaveOptions options;
+
+    /**
+     * The model being edited.
+     */
+    private Model model;
+
+    /**
+     * Sections of a partial model (<code>null</code> for the whole model).
+     */
+    private final PomSections sections;
+
+    /**
+     * Contents of the file the model has been read from.
+     */
+    private PomSource source;
+
+    /**
+     * Operations applied to the model since it was read, to apply them again if the file is modified by someone else.
+     */
+    private final List<Consumer<Model>> journal = new ArrayList<Consumer<Model>>();
+
+    /**
+     * Profiles of the model by ID (see {@link #profilesOf(Model)}).
+     */
+    private ProfileIndex profiles;
+
+    /**
+     * Sections modified since the model was read (<code>null</code> if any section may have been modified).
+     */
+    private PomSections changed = PomSections.of();
+
+    private PomEditor( String pom, SaveOptions options, Model model, PomSections sections, PomSource source )
+    {
+        this.pom = pom;
+        this.options = options;
+        this.model = model;
+        this.sections = sections;
+        this.source = source;
+    }
+
+    /**
+     * Opens a POM file, with the default writing options.
+     *
+     * @param pom POM file name.
+     * @return The editor.
+     * @throws IOException I/O error (or the file doesn't exist).
+     * @throws XmlPullParserException The file is not a valid POM.
+     */
+    public static PomEditor open( String pom )
+        throws IOException, XmlPullParserException
+    {
+        return ( open( pom, new SaveOptions() ) );
+    }
+
+    /**
+     * Opens a POM file.
+     *
+     * @param pom POM file name (<code>pom.xml</code> if <code>null</code>).
+     * @param options How the file is read (the model cache and the metrics) and written.
+     * @return The editor.
+     * @throws IOException I/O error (or the file doesn't exist).
+     * @throws XmlPullParserException The file is not a valid POM.
+     */
+    public static PomEditor open( String pom, SaveOptions options )
+        throws IOException, XmlPullParserException
+    {
+        return ( open( pom, options, null ) );
+    }
+
+    /**
+     * Opens some sections of a POM file (see {@link PomSections}). Only those sections are parsed, and only those
+     * can be edited: the rest of the file is written back as it is.
+     *
+     * @param pom POM file name (<code>pom.xml</code> if <code>null</code>).
+     * @param options How the file is read (the metrics) and written.
+     * @param sections Sections to edit (<code>null</code> for the whole model).
+     * @return The editor.
+     * @throws IOException I/O error (or the file doesn't exist).
+     * @throws XmlPullParserException The file is not a valid POM.
+     */
+    public static PomEditor open( String pom, SaveOptions options, PomSections sections )
+        throws IOException, XmlPullParserException
+    {
+        String file = pom != null ? pom : POMUtils.DEFAULT_POM_FILE;
+        PomSource[] source = new PomSource[1];
+        Model model = POMUtils.loadModel( new File( file ), options.getCache(), options.getMetrics(), sections,
+                                          contents -> source[0] = contents );
+        return ( new PomEditor( file, options, model, sections, source[0] ) );
+    }
+
+    // DEPENDENCIES ..........................................................
+
+    /**
+     * Adds a dependency, or updates the existing one with the same key.
+     *
+     * @param spec Dependency: '<code>groupId:artifactId[:version[:type[:classifier]]]</code>', followed by optional
+     *            '<code>scope=...</code>', '<code>optional=true</code>', etc. attributes (as in the edit scripts).
+     * @return This editor.
+     * @throws ParseException Invalid dependency.
+     */
+    public PomEditor addDependency( String spec )
+        throws ParseException
+    {
+        return ( addDependency( EditScript.parseDependency( spec, 1 ) ) );
+    }
+
+    /**
+     * Adds a dependency, or updates the existing one with the same key.
+     *
+     * @param dependency The dependency (it's copied).
+     * @return This editor.
+     */
+    public PomEditor addDependency( Dependency dependency )
+    {
+        addDependencies( Collections.singletonList( dependency ), false, null, DependencyIndex.ConflictPolicy.UPDATE );
+        return ( this );
+    }
+
+    /**
+     * Adds several dependencies, without duplicating the existing ones.
+     *
+     * @param dependencies New dependencies (they're copied).
+     * @param managed Adds them to the managed dependencies (<code>dependencyManagement</code>).
+     * @param profileId Profile for the dependencies (<code>null</code> for the main section). A missing profile is
+     *            created.
+     * @param policy What to do with the dependencies already on the section.
+     * @return Number of dependencies by outcome.
+     * @throws IllegalStateException A dependency already exists and the policy is <code>FAIL</code> (the
+     *             dependencies before it are added).
+     */
+    public synchronized Map<DependencyIndex.Outcome, Integer> addDependencies( List<Dependency> dependencies,
+                                                                               boolean managed, String profileId,
+                                                                               DependencyIndex.ConflictPolicy policy )
+    {
+        Map<DependencyIndex.Outcome, Integer> counts =
+            new EnumMap<DependencyIndex.Outcome, Integer>( DependencyIndex.Outcome.class );
+        for ( DependencyIndex.Outcome outcome : DependencyIndex.Outcome.values() )
+        {
+            counts.put( outcome, 0 );
+        }
+
+        List<Dependency> copies = new ArrayList<Dependency>( dependencies.size() );
+        for ( Dependency dependency : dependencies )
+        {
+            copies.add( dependency.clone() );
+        }
+
+        PomEvents.Mutation event = PomEvents.mutation( new File( pom ), "add-dependency" );
+        try
+        {
+            addDependencies( model, copies, managed, profileId, policy, counts );
+        }
+        finally
+        {
+            event.end( counts.get( DependencyIndex.Outcome.ADDED ) + counts.get( DependencyIndex.Outcome.UPDATED ) );
+        }
+        journal.add( m -> addDependencies( m, copies, managed, profileId, policy, null ) );
+        touch( profileId != null ? "profiles" : managed ? "dependencyManagement" : "dependencies" );
+        return ( counts );
+    }
+
+    /**
+     * Adds dependencies to a model section.
+     *
+     * @param counts Number of dependencies by outcome (optional).
+     */
+    private void addDependencies( Model model, List<Dependency> dependencies, boolean managed, String profileId,
+                                  DependencyIndex.ConflictPolicy policy, Map<DependencyIndex.Outcome, Integer> counts )
+    {
+        DependencyIndex index =
+            new DependencyIndex( DependencyIndex.sectionOf( profilesOf( model ), managed, profileId ) );
+        for ( Dependency dependency : dependencies )
+        {
+            DependencyIndex.Outcome outcome = index.merge( dependency, policy );
+            if ( counts != null )
+            {
+                counts.put( outcome, counts.get( outcome ) + 1 );
+            }
+        }
+    }
+
+    /**
+     * Deletes the dependencies that match any of the coordinates (from the main dependency list).
+     *
+     * @param coordinates Coordinates: <code>groupId[:artifactId[:version]]</code>, with wildcards or regular
+     *            expressions (see {@link DependencyMatcher}).
+     * @return This editor.
+     * @throws IllegalArgumentException Invalid coordinates.
+     */
+    public PomEditor deleteDependencies( String... coordinates )
+    {
+        DependencyMatcher matcher = new DependencyMatcher();
+        for ( String coordinate : coordinates )
+        {
+            matcher.add( coordinate );
+        }
+        removeDependencies( matcher, false, false );
+        return ( this );
+    }
+
+    /**
+     * Removes the matching dependencies.
+     *
+     * @param matcher Dependencies to remove.
+     * @param managed Also removes the managed dependencies.
+     * @param profiles Also removes the dependencies of the profiles.
+     * @return The removed dependencies.
+     */
+    public synchronized List<Dependency> removeDependencies( DependencyMatcher matcher, boolean managed,
+                                                             boolean profiles )
+    {
+        PomEvents.Mutation event = PomEvents.mutation( new File( pom ), "delete-dependency" );
+        List<Dependency> removed = matcher.removeFrom( model, managed, profiles );
+        event.end( removed.size() );
+        journal.add( m -> matcher.removeFrom( m, managed, profiles ) );
+        touch( "dependencies" );
+        if ( managed )
+        {
+            touch( "dependencyManagement" );
+        }
+        if ( profiles )
+        {
+            touch( "profiles" );
+        }
+        return ( removed );
+    }
+
+    /**
+     * Removes the duplicate dependencies and sorts the dependencies, managed dependencies and properties (see
+     * {@link PomCanonicalizer}). The sorted properties are only written in that order if the writing options keep
+     * the model order (see {@link SaveOptions#setKeepPropertyOrder(boolean)}).
+     *
+     * @param canonicalizer The canonical form.
+     * @return Number of duplicate dependencies removed.
+     */
+    public synchronized int canonicalize( PomCanonicalizer canonicalizer )
+    {
+        PomEvents.Mutation event = PomEvents.mutation( new File( pom ), "canonicalize" );
+        int removed = canonicalizer.canonicalize( model );
+        event.end( removed );
+        journal.add( m -> canonicalizer.canonicalize( m ) );
+        touch( "properties", "dependencyManagement", "dependencies", "profiles" );
+        return ( removed );
+    }
+
+    // PROPERTIES ............................................................
+
+    /**
+     * Adds (or replaces) properties on the general section.
+     *
+     * @param properties Properties (they're added in the map order).
+     * @return This editor.
+     */
+    public PomEditor setProperties( Map<String, String> properties )
+    {
+        return ( setProperties( null, properties ) );
+    }
+
+    /**
+     * Adds (or replaces) properties on a profile.
+     *
+     * @param profileId Profile ID (<code>null</code> for the general section). A missing profile is created.
+     * @param properties Properties (they're added in the map order).
+     * @return This editor.
+     */
+    public PomEditor setProperties( String profileId, Map<String, String> properties )
+    {
+        OrderedProperties ordered = new OrderedProperties();
+        ordered.putAll( properties );
+        mergeProperties( profileId, ordered );
+        return ( this );
+    }
+
+    /**
+     * Merges properties into the general section or a profile.
+     *
+     * @param profileId Profile ID (<code>null</code> for the general section). A missing profile is created.
+     * @param properties New properties.
+     * @return The merge counters.
+     */
+    public synchronized PropertyMerge.Counts mergeProperties( String profileId, Properties properties )
+    {
+        ModelBase section = profileId != null ? profilesOf( model ).getOrCreate( profileId ) : model;
+
+        PomEvents.Mutation event = PomEvents.mutation( new File( pom ), "merge-properties" );
+        PropertyMerge.Counts counts = PropertyMerge.merge( section, properties );
+        event.end( counts.getAdded() + counts.getOverwritten() );
+
+        OrderedProperties copy = new OrderedProperties();
+        copy.putAll( properties );
+        journal.add( m -> PropertyMerge.merge( profileId != null ? profilesOf( m ).getOrCreate( profileId ) : m,
+                                               copy ) );
+        touch( profileId != null ? "profiles" : "properties" );
+        return ( counts );
+    }
+
+    /**
+     * Renames properties, rewriting their references everywhere on the model (see {@link PropertyRenamer}).
+     *
+     * @param renamer The renames and rewrites.
+     * @return The rename counters.
+     */
+    public synchronized PropertyRenamer.Counts renameProperties( PropertyRenamer renamer )
+    {
+        PomEvents.Mutation event = PomEvents.mutation( new File( pom ), "rename-properties" );
+        PropertyRenamer.Counts counts = renamer.rename( model );
+        event.end( counts.getRenamed() + counts.getRewritten() );
+        journal.add( m -> renamer.rename( m ) );
+        // The references can be anywhere
+        changed = null;
+        return ( counts );
+    }
+
+    // PROJECT INFORMATION ...................................................
+
+    /**
+     * @param groupId New project <code>groupId</code>.
+     * @return This editor.
+     */
+    public synchronized PomEditor setGroupId( String groupId )
+    {
+        PomEvents.Mutation event = PomEvents.mutation( new File( pom ), "set-project" );
+        model.setGroupId( groupId );
+        event.end( 1 );
+        journal.add( m -> m.setGroupId( groupId ) );
+        touch( "groupId" );
+        return ( this );
+    }
+
+    /**
+     * @param artifactId New project <code>artifactId</code>.
+     * @return This editor.
+     */
+    public synchronized PomEditor setArtifactId( String artifactId )
+    {
+        PomEvents.Mutation event = PomEvents.mutation( new File( pom ), "set-project" );
+        model.setArtifactId( artifactId );
+        event.end( 1 );
+        journal.add( m -> m.setArtifactId( artifactId ) );
+        touch( "artifactId" );
+        return ( this );
+    }
+
+    /**
+     * @param version New project version.
+     * @return This editor.
+     */
+    public synchronized PomEditor setVersion( String version )
+    {
+        PomEvents.Mutation event = PomEvents.mutation( new File( pom ), "set-project" );
+        model.setVersion( version );
+        event.end( 1 );
+        journal.add( m -> m.setVersion( version ) );
+        touch( "version" );
+        return ( this );
+    }
+
+    /**
+     * @param name New project name.
+     * @return This editor.
+     */
+    public synchronized PomEditor setName( String name )
+    {
+        PomEvents.Mutation event = PomEvents.mutation( new File( pom ), "set-project" );
+        model.setName( name );
+        event.end( 1 );
+        journal.add( m -> m.setName( name ) );
+        touch( "name" );
+        return ( this );
+    }
+
+    /**
+     * @param description New project description.
+     * @return This editor.
+     */
+    public synchronized PomEditor setDescription( String description )
+    {
+        PomEvents.Mutation event = PomEvents.mutation( new File( pom ), "set-project" );
+        model.setDescription( description );
+        event.end( 1 );
+        journal.add( m -> m.setDescription( description ) );
+        touch( "description" );
+        return ( this );
+    }
+
+    /**
+     * @param url New project URL.
+     * @return This editor.
+     */
+    public synchronized PomEditor setUrl( String url )
+    {
+        PomEvents.Mutation event = PomEvents.mutation( new File( pom ), "set-project" );
+        model.setUrl( url );
+        event.end( 1 );
+        journal.add( m -> m.setUrl( url ) );
+        touch( "url" );
+        return ( this );
+    }
+
+    /**
+     * Changes the version of a reactor module and its references to the other modules (see {@link ModuleIndex}).
+     *
+     * @param modules The modules of the reactor.
+     * @param oldVersion Current version of the modules.
+     * @param newVersion New version.
+     * @return Number of versions changed.
+     */
+    public synchronized int setModuleVersions( ModuleIndex modules, String oldVersion, String newVersion )
+    {
+        PomEvents.Mutation event = PomEvents.mutation( new File( pom ), "release-version" );
+        int changes = modules.setVersion( model, oldVersion, newVersion );
+        event.end( changes );
+        journal.add( m -> modules.setVersion( m, oldVersion, newVersion ) );
+        touch( "parent", "version", "dependencyManagement", "dependencies", "profiles" );
+        return ( changes );
+    }
+
+    // SCRIPTS ...............................................................
+
+    /**
+     * Applies all the operations of an edit script.
+     *
+     * @param script Edit script.
+     * @return This editor.
+     */
+    public synchronized PomEditor apply( EditScript script )
+    {
+        script.apply( model, new File( pom ) );
+        journal.add( m -> script.apply( m ) );
+        touch( script.getSections() );
+        return ( this );
+    }
+
+    /**
+     * Applies an edit script operation.
+     *
+     * @param edit Operation.
+     * @return This editor.
+     */
+    public synchronized PomEditor apply( EditScript.Edit edit )
+    {
+        EditScript.apply( edit, model, new File( pom ) );
+        journal.add( m -> edit.apply( m ) );
+        touch( edit.getSections() );
+        return ( this );
+    }
+
+    // MODEL .................................................................
+
+    /**
+     * @return The POM file name.
+     */
+    public String getPom()
+    {
+        return ( pom );
+    }
+
+    /**
+     * @return The writing options.
+     */
+    public SaveOptions getOptions()
+    {
+        return ( options );
+    }
+
+    /**
+     * @return A copy of the current model (a partial one if the editor was opened for some sections).
+     */
+    public synchronized Model getModel()
+    {
+        return ( model.clone() );
+    }
+
+    /**
+     * Writes the model to the POM file (if its contents change).
+     *
+     * @return 'false' if the file already had the same contents (it's not written then).
+     * @throws IOException I/O error.
+     */
+    public boolean save()
+        throws IOException
+    {
+        return ( save( null ) );
+    }
+
+    /**
+     * Writes the model to the POM file (if its contents change), keeping a backup of the current file.
+     * <p>
+     * If the file has been modified since it was opened (or last saved), the model is read again from it and the
+     * operations of the editor are applied to it before writing it.
+     * </p>
+     *
+     * @param backup Backup file name (optional).
+     * @return 'false' if the file already had the same contents (it's not written then).
+     * @throws IOException I/O error (or the modified file is not a valid POM anymore).
+     */
+    public synchronized boolean save( String backup )
+        throws IOException
+    {
+        File file = new File( pom );
+        PomLocks.Lock lock = PomLocks.lock( file );
+        try
+        {
+            while ( true )
+            {
+                PomSource current = file.exists() ? PomSource.read( file ) : null;
+                if ( current != null && source != null && !current.contentEquals( source ) )
+                {
+                    rebase( current );
+                }
+
+                byte[] written;
+                try
+                {
+                    written = POMUtils.saveModel( model, file, current, backup, options, sections, changed );
+                }
+                catch ( PomLocks.ModifiedException e )
+                {
+                    // Written by another process before it was locked: apply the operations to the new contents
+                    continue;
+                }
+                source = written != null ? PomSource.of( written ) : current;
+                journal.clear();
+                changed = PomSections.of();
+                return ( written != null );
+            }
+        }
+        finally
+        {
+            lock.close();
+        }
+    }
+
+    /**
+     * Gets the profile index of a model: the one of the edited model, or the one of the model rebuilt by
+     * {@link #rebase(PomSource)}. The index is kept while the model is the same, so looking up the profiles of many
+     * operations doesn't scan the profile list every time.
+     *
+     * @param target Edited or rebuilt model.
+     * @return The profile index.
+     */
+    private ProfileIndex profilesOf( Model target )
+    {
+        if ( profiles == null || profiles.getModel() != target )
+        {
+            profiles = new ProfileIndex( target );
+        }
+        return ( profiles );
+    }
+
+    /**
+     * Records the sections modified by an operation.
+     *
+     * @param names Section names.
+     */
+    private void touch( String... names )
+    {
+        touch( PomSections.of( names ) );
+    }
+
+    /**
+     * Records the sections modified by an operation.
+     *
+     * @param modified Sections (<code>null</code> if the operation can modify any section).
+     */
+    private void touch( PomSections modified )
+    {
+        changed = changed != null && modified != null ? changed.with( modified ) : null;
+    }
+
+    /**
+     * Reads the model again from the current contents of the file and applies the operations of the editor to it.
+     *
+     * @param current Current contents of the file.
+     * @throws IOException The file is not a valid POM anymore.
+     */
+    private void rebase( PomSource current )
+        throws IOException
+    {
+        Model rebased;
+        try
+        {
+            rebased = current.parse( sections );
+        }
+        catch ( XmlPullParserException e )
+        {
+            throw new IOException( "The POM file '" + pom + "' has been modified and can't be read anymore.", e );
+        }
+        for ( Consumer<Model> operation : journal )
+        {
+            operation.accept( rebased );
+        }
+        model = rebased;
+        source = current;
+    }
+}
@@ -0,0 +1,173 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+
+/**
+ * Java Flight Recorder events for the POM operations: model loads, model changes and model saves.
+ * <p>
+ * The events show up in JDK Mission Control under the "Maven / POM Utils" category, with the POM file path, the
+ * bytes read and written and the number of changed elements, so the work of the plugin can be correlated with the rest
+ * of the build. They are only created when the JVM has Flight Recorder (Java 11, or Java 8 from update 262) and the
+ * event type is enabled on a running recording; otherwise every call returns a shared no-op event.
+ * </p>
+ *
+ * <pre>
+ *   MAVEN_OPTS="-XX:StartFlightRecording=filename=build.jfr" mvn ...
+ * </pre>
+ *
+ * @since 1.1.0
+ */
+public final class PomEvents
+{
+    /**
+     * The Flight Recorder API is available.
+     */
+    private static final boolean AVAILABLE = isAvailable();
+
+    /**
+     * Event that does nothing.
+     */
+    private static final NoEvent NO_EVENT = new NoEvent();
+
+    private PomEvents()
+    {
+    }
+
+    /**
+     * Starts a model load event.
+     *
+     * @param pom POM file.
+     * @return The event (to end it when the model is loaded).
+     */
+    public static Load load( File pom )
+    {
+        Load event = AVAILABLE ? JfrPomEvents.load( pom ) : null;
+        return ( event != null ? event : NO_EVENT );
+    }
+
+    /**
+     * Starts a model change event.
+     *
+     * @param pom POM file (may be <code>null</code> if unknown).
+     * @param operation Operation name (e.g. <code>add-dependency</code>).
+     * @return The event (to end it when the model is changed).
+     */
+    public static Mutation mutation( File pom, String operation )
+    {
+        Mutation event = AVAILABLE ? JfrPomEvents.mutation( pom, operation ) : null;
+        return ( event != null ? event : NO_EVENT );
+    }
+
+    /**
+     * Starts a model save event.
+     *
+     * @param pom POM file.
+     * @return The event (to end it when the model is saved).
+     */
+    public static Save save( File pom )
+    {
+        Save event = AVAILABLE ? JfrPomEvents.save( pom ) : null;
+        return ( event != null ? event : NO_EVENT );
+    }
+
+    /**
+     * Checks if the Flight Recorder API can be used.
+     */
+    private static boolean isAvailable()
+    {
+        try
+        {
+            Class.forName( "jdk.jfr.Event", false, PomEvents.class.getClassLoader() );
+            return ( true );
+        }
+        catch ( ClassNotFoundException | LinkageError e )
+        {
+            return ( false );
+        }
+    }
+
+    // TYPES .................................................................
+
+    /**
+     * A model load.
+     */
+    public interface Load
+    {
+        /**
+         * Ends the event.
+         *
+         * @param bytes Bytes read.
+         * @param cached The model has been taken from the model cache.
+         */
+        void end( long bytes, boolean cached );
+    }
+
+    /**
+     * A model change.
+     */
+    public interface Mutation
+    {
+        /**
+         * Ends the event.
+         *
+         * @param count Number of elements added, modified or removed.
+         */
+        void end( int count );
+    }
+
+    /**
+     * A model save.
+     */
+    public interface Save
+    {
+        /**
+         * Ends the event.
+         *
+         * @param bytesRead Bytes of the current file contents.
+         * @param bytesWritten Bytes written (zero if the file already had the same contents).
+         * @param preserveFormatting Only the modified elements have been rewritten.
+         */
+        void end( long bytesRead, long bytesWritten, boolean preserveFormatting );
+    }
+
+    /**
+     * The event used when the events are disabled.
+     */
+    private static final class NoEvent
+        implements Load, Mutation, Save
+    {
+        @Override
+        public void end( long bytes, boolean cached )
+        {
+        }
+
+        @Override
+        public void end( int count )
+        {
+        }
+
+        @Override
+        public void end( long bytesRead, long bytesWritten, boolean preserveFormatting )
+        {
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds POM files under a directory using include/exclude glob patterns.
+ * <p>
+ * Patterns are matched against the path relative to the base directory, using the <code>glob</code> syntax of
+ * {@link FileSystem#getPathMatcher(String)}. A leading '<code>**&#47;</code>' also matches files on the base
+ * directory itself, and exclude patterns ending with '<code>&#47;**</code>' prune whole directories from the walk.
+ * </p>
+ * <p>
+ * A directory or a matching file that can't be read (no permission, removed during the walk) doesn't stop the walk:
+ * it's passed to the visitor as a failure and the rest of the tree is still walked.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class PomFinder
+{
+    /**
+     * Base directory.
+     */
+    private final Path baseDirectory;
+
+    /**
+     * Include patterns.
+     */
+    private final List<PathMatcher> includes = new ArrayList<PathMatcher>();
+
+    /**
+     * Exclude patterns (for files).
+     */
+    private final List<PathMatcher> excludes = new ArrayList<PathMatcher>();
+
+    /**
+     * Exclude patterns for whole directories.
+     */
+    private final List<PathMatcher> excludedDirectories = new ArrayList<PathMatcher>();
+
+    /**
+     * Creates a POM finder.
+     *
+     * @param baseDirectory Directory to walk.
+     * @param includes Include patterns (at least one).
+     * @param excludes Exclude patterns (optional).
+     */
+    public PomFinder( Path baseDirectory, String[] includes, String[] excludes )
+    {
+        this.baseDirectory = baseDirectory;
+
+        FileSystem fileSystem = baseDirectory.getFileSystem();
+        for ( String pattern : includes )
+        {
+            addPattern( fileSystem, pattern, this.includes );
+        }
+        if ( excludes != null )
+        {
+            for ( String pattern : excludes )
+            {
+                addPattern( fileSystem, pattern, this.excludes );
+                if ( pattern.endsWith( "/**" ) )
+                {
+                    addPattern( fileSystem, pattern.substring( 0, pattern.length() - 3 ), excludedDirectories );
+                }
+            }
+        }
+    }
+
+    /**
+     * Compiles a pattern (and its base directory variant for '<code>**&#47;</code>' patterns).
+     */
+    private static void addPattern( FileSystem fileSystem, String pattern, List<PathMatcher> matchers )
+    {
+        matchers.add( fileSystem.getPathMatcher( "glob:" + pattern ) );
+        if ( pattern.startsWith( "**/" ) )
+        {
+            matchers.add( fileSystem.getPathMatcher( "glob:" + pattern.substring( 3 ) ) );
+        }
+    }
+
+    /**
+     * Walks the base directory, passing every matching file to the visitor as soon as it's found.
+     *
+     * @param visitor Receives the matching files (and the paths that can't be read).
+     * @throws IOException I/O error reading the base directory (or rethrown by the visitor).
+     * @throws InterruptedException The visitor was interrupted.
+     */
+    public void walk( final Visitor visitor )
+        throws IOException, InterruptedException
+    {
+        try
+        {
+            Files.walkFileTree( baseDirectory, new SimpleFileVisitor<Path>()
+            {
+                @Override
+                public FileVisitResult preVisitDirectory( Path dir, BasicFileAttributes attrs )
+                {
+                    Path relative = baseDirectory.relativize( dir );
+                    return ( matchesAny( excludedDirectories, relative ) ? FileVisitResult.SKIP_SUBTREE
+                                    : FileVisitResult.CONTINUE );
+                }
+
+                @Override
+                public FileVisitResult visitFile( Path file, BasicFileAttributes attrs )
+                    throws IOException
+                {
+                    Path relative = baseDirectory.relativize( file );
+                    if ( attrs.isRegularFile() && matchesAny( includes, relative )
+                        && !matchesAny( excludes, relative ) )
+                    {
+                        try
+                        {
+                            visitor.found( file );
+                        }
+                        catch ( InterruptedException e )
+                        {
+                            throw new InterruptedWalkException( e );
+                        }
+                    }
+                    return ( FileVisitResult.CONTINUE );
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed( Path file, IOException error )
+                    throws IOException
+                {
+                    if ( file.equals( baseDirectory ) )
+                    {
+                        throw error;
+                    }
+
+                    // Only the directories (they may hold POM files) and the matching files are failures
+                    Path relative = baseDirectory.relativize( file );
+                    boolean directory = Files.isDirectory( file, LinkOption.NOFOLLOW_LINKS );
+                    if ( directory ? !matchesAny( excludedDirectories, relative )
+                                    : matchesAny( includes, relative ) && !matchesAny( excludes, relative ) )
+                    {
+                        try
+                        {
+                            visitor.failed( file, error );
+                        }
+                        catch ( InterruptedException e )
+                        {
+                            throw new InterruptedWalkException( e );
+                        }
+                    }
+                    return ( FileVisitResult.CONTINUE );
+                }
+            } );
+        }
+        catch ( InterruptedWalkException e )
+        {
+            throw (InterruptedException) e.getCause();
+        }
+    }
+
+    /**
+     * Checks a relative path against a list of patterns.
+     */
+    private static boolean matchesAny( List<PathMatcher> matchers, Path relative )
+    {
+        for ( PathMatcher matcher : matchers )
+        {
+            if ( matcher.matches( relative ) )
+            {
+                return ( true );
+            }
+        }
+        return ( false );
+    }
+
+    // TYPES .................................................................
+
+    /**
+     * Receives the files found on the walk.
+     */
+    public interface Visitor
+    {
+        /**
+         * A matching file has been found.
+         *
+         * @param file The file.
+         * @throws InterruptedException The walk must stop.
+         */
+        void found( Path file )
+            throws InterruptedException;
+
+        /**
+         * A directory or a matching file can't be read. The walk goes on with the rest of the tree unless this method
+         * throws an exception (which is what it does by default).
+         *
+         * @param file The directory or file.
+         * @param error The error reading it.
+         * @throws IOException Stops the walk.
+         * @throws InterruptedException The walk must stop.
+         */
+        default void failed( Path file, IOException error )
+            throws IOException, InterruptedException
+        {
+            throw error;
+        }
+    }
+
+    /**
+     * Carries an interruption out of the file visitor.
+     */
+    private static class InterruptedWalkException
+        extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        InterruptedWalkException( InterruptedException cause )
+        {
+            super( cause );
+        }
+    }
+}
@@ -0,0 +1,543 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.ModelBase;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.Profile;
+
+/**
+ * Extracts the inventory of a POM file: its coordinates, dependencies, managed dependencies, properties and profiles,
+ * as a flat list of {@link Record}s.
+ * <p>
+ * The filters are applied while the records are extracted, so only the matching ones are ever created:
+ * </p>
+ * <ul>
+ * <li>The record kinds (see {@link Kind}). Only the POM sections holding those kinds are parsed (see
+ * {@link #getSections()}).</li>
+ * <li>The dependency coordinates (see {@link DependencyMatcher}) and a version range
+ * (<code>[,2.17)</code>), checked against the dependency version with the <code>${...}</code> properties of the POM
+ * replaced.</li>
+ * <li>The property names (with '<code>*</code>' and '<code>?</code>' wildcards).</li>
+ * </ul>
+ *
+ * @since 1.1.0
+ */
+public class PomInventory
+{
+    /**
+     * Property references on values.
+     */
+    private static final Pattern PROPERTY = Pattern.compile( "\\$\\{([^}]+)\\}" );
+
+    /**
+     * Kinds of records to extract.
+     */
+    private Set<Kind> kinds = EnumSet.allOf( Kind.class );
+
+    /**
+     * Dependency filter (optional).
+     */
+    private DependencyMatcher dependencies;
+
+    /**
+     * Dependency version filter (optional).
+     */
+    private VersionRange versions;
+
+    /**
+     * Property name filter (empty for all the properties).
+     */
+    private final List<Pattern> properties = new ArrayList<Pattern>();
+
+    /**
+     * Sets the kinds of records to extract (all of them by default).
+     *
+     * @param kinds Record kinds.
+     */
+    public void setKinds( Set<Kind> kinds )
+    {
+        this.kinds = EnumSet.copyOf( kinds );
+    }
+
+    /**
+     * Sets the dependency filter (for dependencies and managed dependencies).
+     *
+     * @param dependencies Dependency coordinates (<code>null</code> or empty for all the dependencies).
+     */
+    public void setDependencyFilter( DependencyMatcher dependencies )
+    {
+        this.dependencies = dependencies != null && !dependencies.isEmpty() ? dependencies : null;
+    }
+
+    /**
+     * Sets the dependency version filter (for dependencies and managed dependencies).
+     *
+     * @param range Version range, like <code>[,2.17)</code> (<code>null</code> for any version).
+     * @throws InvalidVersionSpecificationException Invalid range.
+     */
+    public void setVersionRange( String range )
+        throws InvalidVersionSpecificationException
+    {
+        this.versions = range != null ? VersionRange.createFromVersionSpec( range ) : null;
+    }
+
+    /**
+     * Sets the property name filter.
+     *
+     * @param patterns Property names, with '<code>*</code>' and '<code>?</code>' wildcards (none for all the
+     *            properties).
+     */
+    public void setPropertyFilter( String... patterns )
+    {
+        properties.clear();
+        for ( String pattern : patterns )
+        {
+            StringBuilder regex = new StringBuilder();
+            for ( String literal : pattern.trim().split( "((?<=[*?])|(?=[*?]))" ) )
+            {
+                regex.append( "*".equals( literal ) ? ".*" : "?".equals( literal ) ? "." : Pattern.quote( literal ) );
+            }
+            properties.add( Pattern.compile( regex.toString() ) );
+        }
+    }
+
+    /**
+     * Gets the POM sections holding the records to extract.
+     *
+     * @return The sections to parse.
+     */
+    public PomSections getSections()
+    {
+        PomSections sections = PomSections.PROJECT_INFO;
+        if ( kinds.contains( Kind.DEPENDENCY ) )
+        {
+            sections = sections.with( "dependencies" );
+        }
+        if ( kinds.contains( Kind.MANAGED_DEPENDENCY ) )
+        {
+            sections = sections.with( "dependencyManagement" );
+        }
+        if ( kinds.contains( Kind.PROPERTY ) || kinds.contains( Kind.DEPENDENCY )
+            || kinds.contains( Kind.MANAGED_DEPENDENCY ) )
+        {
+            // Also for the dependency versions
+            sections = sections.with( "properties" );
+        }
+        if ( kinds.size() > 1 || !kinds.contains( Kind.PROJECT ) )
+        {
+            sections = sections.with( "profiles" );
+        }
+        return ( sections );
+    }
+
+    /**
+     * Extracts the matching records of a POM file.
+     *
+     * @param pom POM file.
+     * @param model Project model (at least the sections returned by {@link #getSections()}).
+     * @return The records of the file, in document order.
+     */
+    public List<Record> extract( File pom, Model model )
+    {
+        List<Record> records = new ArrayList<Record>();
+        String path = pom.getPath();
+
+        if ( kinds.contains( Kind.PROJECT ) )
+        {
+            Parent parent = model.getParent();
+            Record project = new Record( path, Kind.PROJECT, null );
+            project.groupId = model.getGroupId() != null || parent == null ? model.getGroupId() : parent.getGroupId();
+            project.artifactId = model.getArtifactId();
+            project.version = model.getVersion() != null || parent == null ? model.getVersion() : parent.getVersion();
+            project.type = model.getPackaging();
+            records.add( project );
+        }
+
+        extract( path, model, null, model, records );
+        for ( Profile profile : model.getProfiles() )
+        {
+            if ( kinds.contains( Kind.PROFILE ) )
+            {
+                Record record = new Record( path, Kind.PROFILE, profile.getId() );
+                record.name = profile.getId();
+                records.add( record );
+            }
+            extract( path, model, profile, profile, records );
+        }
+        return ( records );
+    }
+
+    /**
+     * Extracts the records of a model section (the project or a profile).
+     */
+    private void extract( String path, Model model, Profile profile, ModelBase section, List<Record> records )
+    {
+        String profileId = profile != null ? profile.getId() : null;
+
+        if ( kinds.contains( Kind.DEPENDENCY ) )
+        {
+            dependencies( path, model, profile, Kind.DEPENDENCY, section.getDependencies(), records );
+        }
+        DependencyManagement management = section.getDependencyManagement();
+        if ( kinds.contains( Kind.MANAGED_DEPENDENCY ) && management != null )
+        {
+            dependencies( path, model, profile, Kind.MANAGED_DEPENDENCY, management.getDependencies(), records );
+        }
+
+        if ( kinds.contains( Kind.PROPERTY ) )
+        {
+            for ( String name : new TreeSet<String>( section.getProperties().stringPropertyNames() ) )
+            {
+                if ( matchesProperty( name ) )
+                {
+                    Record record = new Record( path, Kind.PROPERTY, profileId );
+                    record.name = name;
+                    record.value = section.getProperties().getProperty( name );
+                    records.add( record );
+                }
+            }
+        }
+    }
+
+    /**
+     * Extracts the matching dependencies of a list.
+     */
+    private void dependencies( String path, Model model, Profile profile, Kind kind, List<Dependency> list,
+                               List<Record> records )
+    {
+        for ( Dependency dependency : list )
+        {
+            if ( dependencies != null && !dependencies.matches( dependency ) )
+            {
+                continue;
+            }
+            String version = resolve( dependency.getVersion(), model, profile );
+            if ( versions != null && !inRange( version ) )
+            {
+                continue;
+            }
+
+            Record record = new Record( path, kind, profile != null ? profile.getId() : null );
+            record.groupId = dependency.getGroupId();
+            record.artifactId = dependency.getArtifactId();
+            record.version = version;
+            record.type = dependency.getType();
+            record.classifier = dependency.getClassifier();
+            record.scope = dependency.getScope();
+            records.add( record );
+        }
+    }
+
+    /**
+     * Checks a (resolved) dependency version against the version range.
+     */
+    private boolean inRange( String version )
+    {
+        if ( version == null || version.contains( "${" ) )
+        {
+            return ( false );
+        }
+        try
+        {
+            VersionRange declared = VersionRange.createFromVersionSpec( version );
+            return ( declared.getRecommendedVersion() != null
+                && versions.containsVersion( new DefaultArtifactVersion( version ) ) );
+        }
+        catch ( InvalidVersionSpecificationException e )
+        {
+            return ( false );
+        }
+    }
+
+    private boolean matchesProperty( String name )
+    {
+        if ( properties.isEmpty() )
+        {
+            return ( true );
+        }
+        for ( Pattern pattern : properties )
+        {
+            if ( pattern.matcher( name ).matches() )
+            {
+                return ( true );
+            }
+        }
+        return ( false );
+    }
+
+    /**
+     * Replaces the property references of a value with the properties of the POM (the profile ones first).
+     *
+     * @param value A value (optional).
+     * @param model Project model.
+     * @param profile Profile of the value (optional).
+     * @return The value with the known properties replaced.
+     */
+    static String resolve( String value, Model model, Profile profile )
+    {
+        // A few rounds for properties defined with other properties
+        for ( int round = 0; value != null && value.contains( "${" ) && round < 8; round++ )
+        {
+            Matcher matcher = PROPERTY.matcher( value );
+            StringBuffer resolved = new StringBuffer();
+            boolean changed = false;
+            while ( matcher.find() )
+            {
+                String replacement = property( matcher.group( 1 ), model, profile );
+                changed |= replacement != null;
+                matcher.appendReplacement( resolved,
+                                           Matcher.quoteReplacement( replacement != null ? replacement
+                                                           : matcher.group() ) );
+            }
+            matcher.appendTail( resolved );
+            if ( !changed )
+            {
+                break;
+            }
+            value = resolved.toString();
+        }
+        return ( value );
+    }
+
+    /**
+     * Gets the value of a property reference.
+     */
+    private static String property( String name, Model model, Profile profile )
+    {
+        Properties profileProperties = profile != null ? profile.getProperties() : null;
+        if ( profileProperties != null && profileProperties.containsKey( name ) )
+        {
+            return ( profileProperties.getProperty( name ) );
+        }
+        if ( model.getProperties().containsKey( name ) )
+        {
+            return ( model.getProperties().getProperty( name ) );
+        }
+        Parent parent = model.getParent();
+        switch ( name )
+        {
+            case "project.version":
+            case "pom.version":
+                return ( model.getVersion() != null || parent == null ? model.getVersion() : parent.getVersion() );
+            case "project.groupId":
+            case "pom.groupId":
+                return ( model.getGroupId() != null || parent == null ? model.getGroupId() : parent.getGroupId() );
+            case "project.parent.version":
+                return ( parent != null ? parent.getVersion() : null );
+            default:
+                return ( null );
+        }
+    }
+
+    // TYPES .................................................................
+
+    /**
+     * Kinds of inventory records.
+     */
+    public enum Kind
+    {
+        /**
+         * The project coordinates (the <code>type</code> is the packaging).
+         */
+        PROJECT,
+
+        /**
+         * A dependency.
+         */
+        DEPENDENCY,
+
+        /**
+         * A managed dependency (<code>dependencyManagement</code>).
+         */
+        MANAGED_DEPENDENCY,
+
+        /**
+         * A property (<code>name</code> and <code>value</code>).
+         */
+        PROPERTY,
+
+        /**
+         * A profile (the <code>name</code> is the profile ID).
+         */
+        PROFILE;
+
+        /**
+         * @return The kind name on the inventory files (<code>managed-dependency</code>).
+         */
+        public String getName()
+        {
+            return ( name().toLowerCase( Locale.ROOT ).replace( '_', '-' ) );
+        }
+
+        /**
+         * Gets a kind by its name.
+         *
+         * @param name Kind name (<code>managed-dependency</code> or <code>MANAGED_DEPENDENCY</code>).
+         * @return The kind.
+         * @throws IllegalArgumentException Unknown kind.
+         */
+        public static Kind of( String name )
+        {
+            return ( valueOf( name.trim().toUpperCase( Locale.ROOT ).replace( '-', '_' ) ) );
+        }
+    }
+
+    /**
+     * An inventory record: a line of the inventory file. Only the fields of its kind are set.
+     */
+    public static class Record
+    {
+        private final String pom;
+
+        private final Kind kind;
+
+        private final String profile;
+
+        private String groupId;
+
+        private String artifactId;
+
+        private String version;
+
+        private String type;
+
+        private String classifier;
+
+        private String scope;
+
+        private String name;
+
+        private String value;
+
+        Record( String pom, Kind kind, String profile )
+        {
+            this.pom = pom;
+            this.kind = kind;
+            this.profile = profile;
+        }
+
+        /**
+         * @return The POM file path.
+         */
+        public String getPom()
+        {
+            return ( pom );
+        }
+
+        /**
+         * @return The record kind.
+         */
+        public Kind getKind()
+        {
+            return ( kind );
+        }
+
+        /**
+         * @return The profile ID (<code>null</code> out of the profiles).
+         */
+        public String getProfile()
+        {
+            return ( profile );
+        }
+
+        /**
+         * @return The project or dependency <code>groupId</code> (inherited from the parent for the project).
+         */
+        public String getGroupId()
+        {
+            return ( groupId );
+        }
+
+        /**
+         * @return The project or dependency <code>artifactId</code>.
+         */
+        public String getArtifactId()
+        {
+            return ( artifactId );
+        }
+
+        /**
+         * @return The project version (inherited from the parent) or the dependency version (with the known
+         *         properties replaced).
+         */
+        public String getVersion()
+        {
+            return ( version );
+        }
+
+        /**
+         * @return The project packaging or the dependency type.
+         */
+        public String getType()
+        {
+            return ( type );
+        }
+
+        /**
+         * @return The dependency classifier.
+         */
+        public String getClassifier()
+        {
+            return ( classifier );
+        }
+
+        /**
+         * @return The dependency scope.
+         */
+        public String getScope()
+        {
+            return ( scope );
+        }
+
+        /**
+         * @return The property name or the profile ID.
+         */
+        public String getName()
+        {
+            return ( name );
+        }
+
+        /**
+         * @return The property value.
+         */
+        public String getValue()
+        {
+            return ( value );
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive locks for editing POM files, so that concurrent edits of the same file don't overwrite each other.
+ * <p>
+ * A file is identified by its canonical path. Inside the JVM, the path selects one of a fixed set of lock stripes:
+ * different files are edited in parallel (unless they share a stripe) and the same file is always edited by one
+ * thread at a time. The locks are reentrant for the thread that holds them.
+ * </p>
+ * <p>
+ * Editors in other processes are only waited for on request (see {@link SaveOptions#setProcessLock(boolean)}), and
+ * only when the file is actually going to be written (see {@link #lockProcesses(File, PomSource)}): a
+ * {@link FileLock} is then taken on a lock file next to the edited file, with the same name and the
+ * <code>.lock</code> extension (<code>pom.xml.lock</code>), so every editor of the file uses the same lock file
+ * whatever its user or temporary directory. The POM file itself can't be locked: it's replaced when it's written (see
+ * {@link PomWriter}). The lock file is left there for the next editors, since removing it while another process waits
+ * on it would let a third one lock a new file.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class PomLocks
+{
+    /**
+     * Number of lock stripes (a power of two).
+     */
+    private static final int STRIPES = 64;
+
+    /**
+     * In-process locks.
+     */
+    private static final ReentrantLock[] LOCKS = new ReentrantLock[STRIPES];
+
+    /**
+     * Locks currently held, by canonical path (only accessed holding the stripe of the path).
+     */
+    private static final Map<String, Held> HELD = new HashMap<String, Held>();
+
+    static
+    {
+        for ( int i = 0; i < STRIPES; i++ )
+        {
+            LOCKS[i] = new ReentrantLock();
+        }
+    }
+
+    private PomLocks()
+    {
+    }
+
+    /**
+     * Locks a file for editing, waiting for the other editors of the file in the JVM to finish.
+     *
+     * @param file File to edit (it doesn't need to exist).
+     * @return The lock, to be closed when the file has been written.
+     * @throws IOException I/O error resolving the file path.
+     */
+    public static Lock lock( File file )
+        throws IOException
+    {
+        String path = file.getCanonicalPath();
+        ReentrantLock stripe = stripeOf( path );
+        stripe.lock();
+        Held held;
+        synchronized ( HELD )
+        {
+            held = HELD.get( path );
+            if ( held == null )
+            {
+                held = new Held();
+                HELD.put( path, held );
+            }
+        }
+        held.count++;
+        return ( new Lock( path, stripe, held ) );
+    }
+
+    /**
+     * Locks a file locked by the current thread (see {@link #lock(File)}) for the other processes too, waiting for
+     * their editors to finish. It's meant to be called just before writing the file, so files that are not written
+     * don't get a lock file. The file lock is released with the lock of the file.
+     *
+     * @param file File to write.
+     * @param original Contents of the file when it was read (<code>null</code> if it didn't exist).
+     * @throws ModifiedException The file has been written by another process since it was read: it must be read
+     *             again (holding the lock).
+     * @throws IOException I/O error on the lock file.
+     */
+    static void lockProcesses( File file, PomSource original )
+        throws IOException
+    {
+        String path = file.getCanonicalPath();
+        Held held;
+        synchronized ( HELD )
+        {
+            held = HELD.get( path );
+        }
+        if ( held == null || !stripeOf( path ).isHeldByCurrentThread() )
+        {
+            throw new IllegalStateException( "The file '" + path + "' is not locked by the current thread." );
+        }
+        if ( held.lock != null )
+        {
+            return;
+        }
+
+        held.lock = lockFile( path );
+        PomSource current = file.exists() ? PomSource.read( file ) : null;
+        if ( current == null ? original != null : original == null || !current.contentEquals( original ) )
+        {
+            throw new ModifiedException( "The file '" + path + "' has been modified by another process." );
+        }
+    }
+
+    /**
+     * Gets the stripe of a path.
+     */
+    private static ReentrantLock stripeOf( String path )
+    {
+        return ( LOCKS[spread( path.hashCode() ) & ( STRIPES - 1 )] );
+    }
+
+    /**
+     * Opens and locks the lock file of a path.
+     */
+    private static FileLock lockFile( String path )
+        throws IOException
+    {
+        FileChannel channel =
+            FileChannel.open( Paths.get( path + ".lock" ), StandardOpenOption.CREATE, StandardOpenOption.WRITE );
+        try
+        {
+            return ( channel.lock() );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Spreads the bits of a hash code over the lower bits (as <code>HashMap</code> does).
+     */
+    private static int spread( int hash )
+    {
+        return ( hash ^ ( hash >>> 16 ) );
+    }
+
+    // TYPES .................................................................
+
+    /**
+     * The lock of a file.
+     */
+    public static class Lock
+        implements Closeable
+    {
+        private final String path;
+
+        private final ReentrantLock stripe;
+
+        private final Held held;
+
+        private boolean closed;
+
+        private Lock( String path, ReentrantLock stripe, Held held )
+        {
+            this.path = path;
+            this.stripe = stripe;
+            this.held = held;
+        }
+
+        /**
+         * Releases the lock.
+         *
+         * @throws IOException I/O error releasing the lock file.
+         */
+        @Override
+        public void close()
+            throws IOException
+        {
+            if ( closed )
+            {
+                return;
+            }
+            closed = true;
+
+            try
+            {
+                if ( --held.count == 0 )
+                {
+                    synchronized ( HELD )
+                    {
+                        HELD.remove( path );
+                    }
+                    if ( held.lock == null )
+                    {
+                        return;
+                    }
+                    try
+                    {
+                        held.lock.release();
+                    }
+                    finally
+                    {
+                        held.lock.channel().close();
+                    }
+                }
+            }
+            finally
+            {
+                stripe.unlock();
+            }
+        }
+    }
+
+    /**
+     * The file has been modified by another process since it was read (see {@link #lockProcesses(File, PomSource)}).
+     */
+    static class ModifiedException
+        extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        ModifiedException( String message )
+        {
+            super( message );
+        }
+    }
+
+    /**
+     * A lock held by a thread: the number of nested locks and the file lock, if taken.
+     */
+    private static class Held
+    {
+        private FileLock lock;
+
+        private int count;
+    }
+}
@@ -0,0 +1,482 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Profile;
+
+/**
+ * Timing and throughput metrics of the POM files handled by a goal.
+ * <p>
+ * Every file gets a {@link Sample} with the time spent on each {@link Phase} (reading, parsing, modifying the model,
+ * serializing and writing), the bytes read and written and the number of dependencies, properties and profiles of the
+ * saved model. The samples of all the files are aggregated into latency histograms (p50, p95 and maximum by phase),
+ * which can be written as a JSON report.
+ * </p>
+ * <p>
+ * The metrics are thread safe: the files of a batch can be handled in parallel.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class PomMetrics
+{
+    /**
+     * Samples by file (absolute path).
+     */
+    private final Map<String, Sample> samples = new ConcurrentHashMap<String, Sample>();
+
+    /**
+     * Gets the sample of a file, creating it on the first call.
+     *
+     * @param pom POM file.
+     * @return The file sample.
+     */
+    public Sample sample( File pom )
+    {
+        return ( samples.computeIfAbsent( pom.getAbsolutePath(), Sample::new ) );
+    }
+
+    /**
+     * @return The samples of all the files.
+     */
+    public Collection<Sample> getSamples()
+    {
+        return ( samples.values() );
+    }
+
+    /**
+     * Aggregates the time spent on a phase by all the files.
+     *
+     * @param phase A phase.
+     * @return The phase histogram.
+     */
+    public Histogram histogram( Phase phase )
+    {
+        List<Long> times = new ArrayList<Long>();
+        for ( Sample sample : samples.values() )
+        {
+            long nanos = sample.getNanos( phase );
+            if ( nanos > 0 )
+            {
+                times.add( nanos );
+            }
+        }
+        return ( new Histogram( times ) );
+    }
+
+    /**
+     * Gets a short summary of the metrics, with a line for every phase.
+     *
+     * @return The summary lines.
+     */
+    public List<String> summary()
+    {
+        long read = 0;
+        long written = 0;
+        for ( Sample sample : samples.values() )
+        {
+            read += sample.getBytesRead();
+            written += sample.getBytesWritten();
+        }
+
+        List<String> lines = new ArrayList<String>();
+        lines.add( samples.size() + " POM files, " + read + " bytes read, " + written + " bytes written." );
+        for ( Phase phase : Phase.values() )
+        {
+            Histogram histogram = histogram( phase );
+            if ( histogram.getCount() > 0 )
+            {
+                lines.add( String.format( Locale.ROOT, "%-11s p50 %s ms, p95 %s ms, max %s ms, total %s ms",
+                                          phase.getName() + ":", millis( histogram.getP50() ),
+                                          millis( histogram.getP95() ), millis( histogram.getMax() ),
+                                          millis( histogram.getTotal() ) ) );
+            }
+        }
+        return ( lines );
+    }
+
+    /**
+     * Writes the metrics as a JSON report.
+     *
+     * @param report Report file (the parent directories are created).
+     * @param goal Name of the goal that handled the files.
+     * @throws IOException I/O error.
+     */
+    public void writeReport( File report, String goal )
+        throws IOException
+    {
+        Sample[] sorted = samples.values().toArray( new Sample[0] );
+        Arrays.sort( sorted, ( a, b ) -> a.getFile().compareTo( b.getFile() ) );
+
+        if ( report.getParentFile() != null )
+        {
+            Files.createDirectories( report.getParentFile().toPath() );
+        }
+        try ( Writer out = Files.newBufferedWriter( report.toPath(), StandardCharsets.UTF_8 ) )
+        {
+            out.write( "{\n  \"goal\": " + Json.quote( goal ) + ",\n  \"files\": " + sorted.length + ",\n" );
+
+            // Histograms
+            out.write( "  \"phases\": {" );
+            String separator = "\n";
+            for ( Phase phase : Phase.values() )
+            {
+                Histogram histogram = histogram( phase );
+                out.write( separator + "    " + Json.quote( phase.getName() ) + ": { \"count\": " + histogram.getCount()
+                    + ", \"totalMs\": " + millis( histogram.getTotal() ) + ", \"p50Ms\": "
+                    + millis( histogram.getP50() ) + ", \"p95Ms\": " + millis( histogram.getP95() ) + ", \"maxMs\": "
+                    + millis( histogram.getMax() ) + " }" );
+                separator = ",\n";
+            }
+            out.write( "\n  },\n" );
+
+            // Files
+            out.write( "  \"samples\": [" );
+            separator = "\n";
+            for ( Sample sample : sorted )
+            {
+                out.write( separator + "    { \"file\": " + Json.quote( sample.getFile() ) + ", \"written\": "
+                    + sample.isWritten() + ", \"bytesRead\": " + sample.getBytesRead() + ", \"bytesWritten\": "
+                    + sample.getBytesWritten() + ", \"dependencies\": " + sample.getDependencies()
+                    + ", \"properties\": " + sample.getProperties() + ", \"profiles\": " + sample.getProfiles()
+                    + ", \"phasesMs\": {" );
+                String phaseSeparator = " ";
+                for ( Phase phase : Phase.values() )
+                {
+                    out.write( phaseSeparator + Json.quote( phase.getName() ) + ": "
+                        + millis( sample.getNanos( phase ) ) );
+                    phaseSeparator = ", ";
+                }
+                out.write( " } }" );
+                separator = ",\n";
+            }
+            out.write( "\n  ]\n}\n" );
+        }
+    }
+
+    private static String millis( long nanos )
+    {
+        return ( String.format( Locale.ROOT, "%.3f", nanos / 1e6 ) );
+    }
+
+    // TYPES .................................................................
+
+    /**
+     * The phases of a POM file edit.
+     */
+    public enum Phase
+    {
+        /**
+         * Reading the file (and the current contents before writing it).
+         */
+        READ( "read" ),
+
+        /**
+         * Parsing the model (or getting it from the model cache).
+         */
+        PARSE( "parse" ),
+
+        /**
+         * Modifying the model: the time between loading and saving it.
+         */
+        MUTATE( "mutate" ),
+
+        /**
+         * Building the new file contents.
+         */
+        SERIALIZE( "serialize" ),
+
+        /**
+         * Writing the file.
+         */
+        WRITE( "write" );
+
+        private final String name;
+
+        Phase( String name )
+        {
+            this.name = name;
+        }
+
+        /**
+         * @return Name of the phase on the reports.
+         */
+        public String getName()
+        {
+            return ( name );
+        }
+    }
+
+    /**
+     * The metrics of a file.
+     */
+    public static class Sample
+    {
+        private final String file;
+
+        private final Map<Phase, Long> nanos = new EnumMap<Phase, Long>( Phase.class );
+
+        private long bytesRead;
+
+        private long bytesWritten;
+
+        private int dependencies;
+
+        private int properties;
+
+        private int profiles;
+
+        private boolean written;
+
+        /**
+         * End of the last load (start of the model changes).
+         */
+        private long loaded;
+
+        Sample( String file )
+        {
+            this.file = file;
+        }
+
+        /**
+         * Adds the time spent on a phase since a given instant.
+         *
+         * @param phase The phase.
+         * @param start Start of the phase (from {@link System#nanoTime()}).
+         * @return The current time (the start of the next phase).
+         */
+        public synchronized long time( Phase phase, long start )
+        {
+            long now = System.nanoTime();
+            nanos.merge( phase, now - start, Long::sum );
+            return ( now );
+        }
+
+        /**
+         * Records the end of a load: the model changes start.
+         *
+         * @param bytes Bytes read.
+         */
+        public synchronized void loaded( long bytes )
+        {
+            bytesRead += bytes;
+            loaded = System.nanoTime();
+        }
+
+        /**
+         * Records the start of a save: the time since the last load is taken as the time spent on the model changes.
+         */
+        public synchronized void saving()
+        {
+            if ( loaded != 0 )
+            {
+                time( Phase.MUTATE, loaded );
+                loaded = 0;
+            }
+        }
+
+        /**
+         * Records the end of a save.
+         *
+         * @param model The saved model.
+         * @param bytesRead Bytes of the current file contents.
+         * @param bytesWritten Bytes written (zero if the file already had the same contents).
+         */
+        public synchronized void saved( Model model, long bytesRead, long bytesWritten )
+        {
+            this.bytesRead += bytesRead;
+            this.bytesWritten += bytesWritten;
+            this.written |= bytesWritten > 0;
+
+            dependencies = model.getDependencies().size() + managedDependencies( model.getDependencyManagement() );
+            properties = model.getProperties().size();
+            profiles = model.getProfiles().size();
+            for ( Profile profile : model.getProfiles() )
+            {
+                dependencies += profile.getDependencies().size()
+                    + managedDependencies( profile.getDependencyManagement() );
+                properties += profile.getProperties().size();
+            }
+        }
+
+        private static int managedDependencies( DependencyManagement management )
+        {
+            return ( management != null ? management.getDependencies().size() : 0 );
+        }
+
+        /**
+         * @return Absolute path of the file.
+         */
+        public String getFile()
+        {
+            return ( file );
+        }
+
+        /**
+         * @param phase A phase.
+         * @return Nanoseconds spent on the phase.
+         */
+        public synchronized long getNanos( Phase phase )
+        {
+            Long value = nanos.get( phase );
+            return ( value != null ? value : 0 );
+        }
+
+        /**
+         * @return Bytes read.
+         */
+        public synchronized long getBytesRead()
+        {
+            return ( bytesRead );
+        }
+
+        /**
+         * @return Bytes written.
+         */
+        public synchronized long getBytesWritten()
+        {
+            return ( bytesWritten );
+        }
+
+        /**
+         * @return Number of dependencies of the saved model (including the managed and profile ones).
+         */
+        public synchronized int getDependencies()
+        {
+            return ( dependencies );
+        }
+
+        /**
+         * @return Number of properties of the saved model (including the profile ones).
+         */
+        public synchronized int getProperties()
+        {
+            return ( properties );
+        }
+
+        /**
+         * @return Number of profiles of the saved model.
+         */
+        public synchronized int getProfiles()
+        {
+            return ( profiles );
+        }
+
+        /**
+         * @return 'true' if the file has been written.
+         */
+        public synchronized boolean isWritten()
+        {
+            return ( written );
+        }
+    }
+
+    /**
+     * The distribution of the times of a phase.
+     */
+    public static class Histogram
+    {
+        private final long[] sorted;
+
+        private final long total;
+
+        Histogram( List<Long> times )
+        {
+            sorted = new long[times.size()];
+            long sum = 0;
+            for ( int i = 0; i < sorted.length; i++ )
+            {
+                sorted[i] = times.get( i );
+                sum += sorted[i];
+            }
+            Arrays.sort( sorted );
+            total = sum;
+        }
+
+        /**
+         * @return Number of files that went through the phase.
+         */
+        public int getCount()
+        {
+            return ( sorted.length );
+        }
+
+        /**
+         * @return Total nanoseconds.
+         */
+        public long getTotal()
+        {
+            return ( total );
+        }
+
+        /**
+         * @return Median, in nanoseconds.
+         */
+        public long getP50()
+        {
+            return ( percentile( 50 ) );
+        }
+
+        /**
+         * @return 95th percentile, in nanoseconds.
+         */
+        public long getP95()
+        {
+            return ( percentile( 95 ) );
+        }
+
+        /**
+         * @return Maximum, in nanoseconds.
+         */
+        public long getMax()
+        {
+            return ( sorted.length > 0 ? sorted[sorted.length - 1] : 0 );
+        }
+
+        /**
+         * Gets a percentile (nearest rank).
+         */
+        private long percentile( int percent )
+        {
+            if ( sorted.length == 0 )
+            {
+                return ( 0 );
+            }
+            int rank = (int) Math.ceil( percent / 100.0 * sorted.length );
+            return ( sorted[Math.max( rank, 1 ) - 1] );
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * The sections of a POM file a goal reads or writes, for parsing only those.
+ * <p>
+ * A partial model only has the sections of the set (the other ones are left empty), so building it takes a fraction
+ * of the time and memory of the whole model on large POM files. The file is then written by applying the changes of
+ * the sections to the original text (see {@link PomSplicer}): everything else is copied back verbatim. If the changes
+ * can't be applied that way, the whole model is read again and the sections are copied to it.
+ * </p>
+ * <p>
+ * The sections are the children of the <code>project</code> element; the <code>profiles</code> section holds all the
+ * profiles.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class PomSections
+{
+    /**
+     * Sections that can be copied to a whole model.
+     */
+    private static final List<String> SUPPORTED =
+        Arrays.asList( "modelVersion", "parent", "groupId", "artifactId", "version", "packaging", "name",
+                       "description", "url", "inceptionYear", "properties", "dependencyManagement", "dependencies",
+                       "profiles" );
+
+    /**
+     * The basic project information (see {@link ModifyProject}).
+     */
+    public static final PomSections PROJECT_INFO =
+        of( "modelVersion", "parent", "groupId", "artifactId", "version", "packaging", "name", "description", "url",
+            "inceptionYear" );
+
+    /**
+     * Section names.
+     */
+    private final Set<String> names;
+
+    private PomSections( Set<String> names )
+    {
+        this.names = Collections.unmodifiableSet( names );
+    }
+
+    /**
+     * Creates a section set.
+     *
+     * @param names Section names (children of the <code>project</code> element).
+     * @return The section set.
+     * @throws IllegalArgumentException A section can't be parsed on its own.
+     */
+    public static PomSections of( String... names )
+    {
+        Set<String> set = new LinkedHashSet<String>();
+        for ( String name : names )
+        {
+            if ( !SUPPORTED.contains( name ) )
+            {
+                throw new IllegalArgumentException( "Unsupported POM section: '" + name + "'." );
+            }
+            set.add( name );
+        }
+        return ( new PomSections( set ) );
+    }
+
+    /**
+     * Adds sections to this set.
+     *
+     * @param others Section names.
+     * @return A new section set.
+     */
+    public PomSections with( String... others )
+    {
+        Set<String> set = new LinkedHashSet<String>( names );
+        set.addAll( of( others ).names );
+        return ( new PomSections( set ) );
+    }
+
+    /**
+     * Adds the sections of another set to this set.
+     *
+     * @param others Section set.
+     * @return A new section set.
+     */
+    public PomSections with( PomSections others )
+    {
+        Set<String> set = new LinkedHashSet<String>( names );
+        set.addAll( others.names );
+        return ( new PomSections( set ) );
+    }
+
+    /**
+     * @return The section names.
+     */
+    public Set<String> getNames()
+    {
+        return ( names );
+    }
+
+    /**
+     * Parses the sections of a POM text.
+     *
+     * @param text POM file contents.
+     * @return The partial model.
+     * @throws IOException I/O error.
+     * @throws XmlPullParserException The contents are not a valid POM.
+     */
+    public Model parse( String text )
+        throws IOException, XmlPullParserException
+    {
+        return ( new MavenXpp3Reader().read( new StringReader( extract( text ) ) ) );
+    }
+
+    /**
+     * Copies the sections from a (partial) model to another one.
+     *
+     * @param from Source model.
+     * @param to Target model (a whole one).
+     */
+    public void copy( Model from, Model to )
+    {
+        Model source = from.clone();
+        for ( String name : names )
+        {
+            switch ( name )
+            {
+                case "modelVersion":
+                    to.setModelVersion( source.getModelVersion() );
+                    break;
+                case "parent":
+                    to.setParent( source.getParent() );
+                    break;
+                case "groupId":
+                    to.setGroupId( source.getGroupId() );
+                    break;
+                case "artifactId":
+                    to.setArtifactId( source.getArtifactId() );
+                    break;
+                case "version":
+                    to.setVersion( source.getVersion() );
+                    break;
+                case "packaging":
+                    to.setPackaging( source.getPackaging() );
+                    break;
+                case "name":
+                    to.setName( source.getName() );
+                    break;
+                case "description":
+                    to.setDescription( source.getDescription() );
+                    break;
+                case "url":
+                    to.setUrl( source.getUrl() );
+                    break;
+                case "inceptionYear":
+                    to.setInceptionYear( source.getInceptionYear() );
+                    break;
+                case "properties":
+                    to.setProperties( source.getProperties() );
+                    break;
+                case "dependencyManagement":
+                    to.setDependencyManagement( source.getDependencyManagement() );
+                    break;
+                case "dependencies":
+                    to.setDependencies( source.getDependencies() );
+                    break;
+                default:
+                    to.setProfiles( source.getProfiles() );
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Extracts the sections from a POM text: the text of the <code>project</code> element without the other
+     * children.
+     *
+     * @param text POM file contents.
+     * @return The partial POM text (the whole text if it can't be scanned).
+     */
+    private String extract( String text )
+    {
+        PomDocument.Element project;
+        try
+        {
+            // Only the project children
+            project = new PomDocument( text, 2 ).getRoot();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // Let the parser report the problem
+            return ( text );
+        }
+        if ( project == null || project.isEmpty() )
+        {
+            return ( text );
+        }
+
+        StringBuilder partial = new StringBuilder();
+        partial.append( text, 0, project.getContentStart() ).append( '\n' );
+        for ( PomDocument.Element child : project.getChildren() )
+        {
+            if ( names.contains( child.getName() ) )
+            {
+                partial.append( text, child.getStart(), child.getEnd() ).append( '\n' );
+            }
+        }
+        partial.append( text, project.getContentEnd(), project.getEnd() );
+        return ( partial.toString() );
+    }
+
+    @Override
+    public String toString()
+    {
+        return ( names.toString() );
+    }
+}
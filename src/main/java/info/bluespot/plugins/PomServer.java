@@ -0,0 +1,656 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A long-running POM editing server, for tools that edit many POM files in a loop without paying the startup of
+ * Maven and a cold JVM on every edit.
+ * <p>
+ * The server reads edit requests as line-delimited JSON from the standard input or from local socket connections,
+ * and writes a JSON line with the result of every request. Each request applies edit script lines (the same syntax
+ * as the <code>apply-edits</code> goal) to a POM file:
+ * </p>
+ *
+ * <pre>
+ *   {"id": 1, "pom": "app/pom.xml", "edits": ["set-project version=2.0.0", "delete-dependency junit"]}
+ *   {"id": 1, "pom": "app/pom.xml", "status": "written", "timings": {"read": 0.041, ..., "total": 2.310}}
+ * </pre>
+ * <p>
+ * Optional request members: <code>backup</code> (backup file name) and <code>preserveFormatting</code>. The status is
+ * <code>written</code>, <code>unchanged</code> or <code>error</code> (with an <code>error</code> message); the timings
+ * are in milliseconds. Requests on different files are processed concurrently and the responses are written as they
+ * finish, so they may come in a different order; requests on the same file are processed one at a time, in the order
+ * they are received. The parsed models are kept on a cache between requests. Editors of the same files in other
+ * processes are only waited for with <code>--process-lock true</code> (see
+ * {@link SaveOptions#setProcessLock(boolean)}).
+ * </p>
+ * <p>
+ * The socket connections are only accepted on the loopback interface, and they must send the token printed by the
+ * server when it starts as their first line; a bounded number of them are served at the same time (the rest wait to
+ * be accepted). With <code>--root</code>, the POM and backup files must be under that directory.
+ * </p>
+ *
+ * <pre>
+ *   java -cp &lt;plugin and dependencies&gt; info.bluespot.plugins.PomServer [--port n] [--threads n]
+ *        [--cache-size n] [--fsync ALWAYS|NEVER|BATCH] [--process-lock true|false] [--connections n] [--root dir]
+ * </pre>
+ *
+ * @since 1.1.0
+ */
+public class PomServer
+{
+    /**
+     * Default number of cached models.
+     */
+    private static final int DEFAULT_CACHE_SIZE = 256;
+
+    /**
+     * Default number of connections served at the same time.
+     */
+    private static final int DEFAULT_CONNECTIONS = 8;
+
+    /**
+     * Time for a new connection to send the token, in milliseconds.
+     */
+    private static final int TOKEN_TIMEOUT = 10000;
+
+    /**
+     * Workers.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Maximum number of requests of a stream in flight (read but not answered yet).
+     */
+    private final int maxPending;
+
+    /**
+     * Models shared by all the requests.
+     */
+    private final ModelCache cache;
+
+    /**
+     * File writer shared by all the requests.
+     */
+    private final PomWriter writer;
+
+    /**
+     * Waits for the editors of the files in other processes too.
+     */
+    private boolean processLock;
+
+    /**
+     * Maximum number of connections served at the same time.
+     */
+    private int maxConnections = DEFAULT_CONNECTIONS;
+
+    /**
+     * Directory the edited files must be in (<code>null</code> for any directory).
+     */
+    private File root;
+
+    /**
+     * Last request queued for every file (by canonical path): the requests on the same file are chained.
+     */
+    private final Map<String, CompletableFuture<Void>> queues =
+        new ConcurrentHashMap<String, CompletableFuture<Void>>();
+
+    /**
+     * Creates a server.
+     *
+     * @param threads Number of requests processed at the same time.
+     * @param cacheSize Maximum number of cached models.
+     * @param fsync When the written files are flushed to the device.
+     */
+    public PomServer( int threads, int cacheSize, PomWriter.FsyncPolicy fsync )
+    {
+        this.executor = Executors.newFixedThreadPool( threads );
+        this.maxPending = threads * 2;
+        this.cache = cacheSize > 0 ? new ModelCache( cacheSize ) : null;
+        this.writer = new PomWriter( fsync );
+    }
+
+    /**
+     * Starts the server.
+     *
+     * @param args Command line options.
+     * @throws IOException I/O error.
+     */
+    public static void main( String[] args )
+        throws IOException
+    {
+        int port = -1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int cacheSize = DEFAULT_CACHE_SIZE;
+        PomWriter.FsyncPolicy fsync = PomWriter.FsyncPolicy.ALWAYS;
+        boolean processLock = false;
+        int connections = DEFAULT_CONNECTIONS;
+        File root = null;
+
+        for ( int i = 0; i < args.length; i++ )
+        {
+            String option = args[i];
+            String value = i + 1 < args.length ? args[++i] : null;
+            if ( value == null )
+            {
+                usage( "Missing value for '" + option + "'." );
+            }
+            try
+            {
+                switch ( option )
+                {
+                    case "--port":
+                        port = Integer.parseInt( value );
+                        break;
+                    case "--threads":
+                        threads = Math.max( 1, Integer.parseInt( value ) );
+                        break;
+                    case "--cache-size":
+                        cacheSize = Integer.parseInt( value );
+                        break;
+                    case "--fsync":
+                        fsync = PomWriter.FsyncPolicy.valueOf( value.toUpperCase( Locale.ROOT ) );
+                        break;
+                    case "--process-lock":
+                        if ( !value.equals( "true" ) && !value.equals( "false" ) )
+                        {
+                            throw new IllegalArgumentException( value );
+                        }
+                        processLock = Boolean.parseBoolean( value );
+                        break;
+                    case "--connections":
+                        connections = Math.max( 1, Integer.parseInt( value ) );
+                        break;
+                    case "--root":
+                        root = new File( value );
+                        break;
+                    default:
+                        usage( "Unknown option '" + option + "'." );
+                        break;
+                }
+            }
+            catch ( IllegalArgumentException e )
+            {
+                usage( "Invalid value for '" + option + "': '" + value + "'." );
+            }
+        }
+
+        PomServer server = new PomServer( threads, cacheSize, fsync );
+        server.setProcessLock( processLock );
+        server.setMaxConnections( connections );
+        if ( root != null )
+        {
+            server.setRoot( root );
+        }
+        try
+        {
+            if ( port >= 0 )
+            {
+                server.listen( port );
+            }
+            else
+            {
+                server.serve( System.in, System.out );
+            }
+        }
+        finally
+        {
+            server.close();
+        }
+    }
+
+    /**
+     * @param processLock Waits for the editors of the files in other processes too (see
+     *            {@link SaveOptions#setProcessLock(boolean)}).
+     */
+    public void setProcessLock( boolean processLock )
+    {
+        this.processLock = processLock;
+    }
+
+    /**
+     * @param maxConnections Maximum number of socket connections served at the same time (see {@link #listen(int)}).
+     */
+    public void setMaxConnections( int maxConnections )
+    {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * @param root Directory the POM and backup files of the requests must be in.
+     * @throws IOException I/O error resolving the directory.
+     */
+    public void setRoot( File root )
+        throws IOException
+    {
+        this.root = root.getCanonicalFile();
+    }
+
+    /**
+     * Processes the requests of a stream until its end (all the responses are written before returning).
+     * <p>
+     * A bounded number of requests are in flight at the same time: the stream is not read while they're all pending.
+     * </p>
+     *
+     * @param in Requests (JSON lines).
+     * @param out Responses (JSON lines).
+     * @throws IOException I/O error (or the current thread was interrupted).
+     */
+    public void serve( InputStream in, OutputStream out )
+        throws IOException
+    {
+        serve( new BufferedReader( new InputStreamReader( in, StandardCharsets.UTF_8 ) ),
+               new BufferedWriter( new OutputStreamWriter( out, StandardCharsets.UTF_8 ) ) );
+    }
+
+    /**
+     * Processes the requests of a stream until its end (see {@link #serve(InputStream, OutputStream)}).
+     */
+    private void serve( BufferedReader reader, final Writer responses )
+        throws IOException
+    {
+        // Every pending request holds a permit
+        final Semaphore inFlight = new Semaphore( maxPending );
+        String line;
+        while ( ( line = reader.readLine() ) != null )
+        {
+            if ( line.trim().isEmpty() )
+            {
+                continue;
+            }
+
+            final long start = System.nanoTime();
+            final Object request;
+            try
+            {
+                request = Json.parse( line );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                respond( responses, error( null, null, e, start ) );
+                continue;
+            }
+
+            // Backpressure: wait for a free slot before queueing the request
+            acquire( inFlight, 1 );
+
+            // The requests on the same file run in order, the rest in parallel (a failed request must not stop the
+            // next ones: they would never release their permits)
+            final String key = keyOf( request );
+            CompletableFuture<Void> task = queues.compute( key, ( k, last ) -> {
+                CompletableFuture<Void> previous = last != null ? last.exceptionally( e -> null )
+                                : CompletableFuture.completedFuture( null );
+                return ( previous.thenRunAsync( () -> {
+                    try
+                    {
+                        respond( responses, process( request, start ) );
+                    }
+                    finally
+                    {
+                        inFlight.release();
+                    }
+                }, executor ) );
+            } );
+            task.whenComplete( ( result, error ) -> queues.remove( key, task ) );
+        }
+
+        // Wait for the requests still in flight
+        acquire( inFlight, maxPending );
+        writer.sync();
+    }
+
+    /**
+     * Acquires permits, turning an interruption into an I/O error.
+     */
+    private static void acquire( Semaphore semaphore, int permits )
+        throws InterruptedIOException
+    {
+        try
+        {
+            semaphore.acquire( permits );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for the pending requests." );
+        }
+    }
+
+    /**
+     * Accepts connections on a local port (loopback interface only). Every connection sends the token printed on the
+     * standard error as its first line, and is then served as a request stream. A bounded number of connections are
+     * served at the same time by a fixed pool of threads: the rest wait to be accepted.
+     *
+     * @param port Port number (zero for any free port).
+     * @throws IOException I/O error.
+     */
+    public void listen( int port )
+        throws IOException
+    {
+        byte[] random = new byte[16];
+        new SecureRandom().nextBytes( random );
+        StringBuilder token = new StringBuilder();
+        for ( byte b : random )
+        {
+            token.append( String.format( "%02x", b & 0xFF ) );
+        }
+
+        try ( ServerSocket server = new ServerSocket( port, 50, InetAddress.getLoopbackAddress() ) )
+        {
+            System.err.println( "Listening on " + server.getLocalSocketAddress() + " (token " + token + ")" );
+            listen( server, token.toString() );
+        }
+    }
+
+    /**
+     * Accepts connections on a server socket until it's closed (see {@link #listen(int)}).
+     *
+     * @param server Server socket.
+     * @param token Token the connections must send.
+     * @throws IOException I/O error (or the current thread was interrupted).
+     */
+    void listen( ServerSocket server, String token )
+        throws IOException
+    {
+        ExecutorService connections = Executors.newFixedThreadPool( maxConnections, runnable -> {
+            Thread thread = new Thread( runnable, "pom-server-connection" );
+            thread.setDaemon( true );
+            return ( thread );
+        } );
+        final Semaphore free = new Semaphore( maxConnections );
+        try
+        {
+            while ( !server.isClosed() )
+            {
+                // Connections over the limit wait on the socket backlog
+                acquire( free, 1 );
+                final Socket socket;
+                try
+                {
+                    socket = server.accept();
+                }
+                catch ( IOException e )
+                {
+                    free.release();
+                    throw e;
+                }
+
+                connections.execute( () -> {
+                    try ( Socket s = socket )
+                    {
+                        BufferedReader reader = new BufferedReader( new InputStreamReader( s.getInputStream(),
+                                                                                           StandardCharsets.UTF_8 ) );
+                        Writer responses = new BufferedWriter( new OutputStreamWriter( s.getOutputStream(),
+                                                                                       StandardCharsets.UTF_8 ) );
+                        if ( authenticate( s, reader, token ) )
+                        {
+                            serve( reader, responses );
+                        }
+                        else
+                        {
+                            respond( responses, error( null, null, new IOException( "Invalid token." ),
+                                                       System.nanoTime() ) );
+                        }
+                    }
+                    catch ( IOException e )
+                    {
+                        System.err.println( "Connection error: " + e.getMessage() );
+                    }
+                    finally
+                    {
+                        free.release();
+                    }
+                } );
+            }
+        }
+        finally
+        {
+            connections.shutdownNow();
+        }
+    }
+
+    /**
+     * Checks the token sent by a new connection as its first line (it has a limited time for sending it).
+     */
+    private static boolean authenticate( Socket socket, BufferedReader reader, String token )
+        throws IOException
+    {
+        socket.setSoTimeout( TOKEN_TIMEOUT );
+        String line = reader.readLine();
+        socket.setSoTimeout( 0 );
+        return ( line != null && MessageDigest.isEqual( line.trim().getBytes( StandardCharsets.UTF_8 ),
+                                                        token.getBytes( StandardCharsets.UTF_8 ) ) );
+    }
+
+    /**
+     * Stops the workers.
+     */
+    public void close()
+    {
+        executor.shutdown();
+    }
+
+    /**
+     * Processes a request.
+     *
+     * @param request The parsed request.
+     * @param start When the request has been received (from {@link System#nanoTime()}).
+     * @return The response JSON line.
+     */
+    String process( Object request, long start )
+    {
+        Object id = null;
+        String pom = null;
+        try
+        {
+            if ( !( request instanceof Map ) )
+            {
+                throw new IllegalArgumentException( "A JSON object is expected." );
+            }
+            Map<?, ?> members = (Map<?, ?>) request;
+            id = members.get( "id" );
+            pom = string( members, "pom" );
+            if ( pom == null )
+            {
+                throw new IllegalArgumentException( "The 'pom' member is needed." );
+            }
+            String backup = string( members, "backup" );
+            checkPath( pom );
+            checkPath( backup );
+
+            EditScript script = script( members.get( "edits" ) );
+            SaveOptions options = new SaveOptions();
+            options.setPreserveFormatting( Boolean.TRUE.equals( members.get( "preserveFormatting" ) ) );
+            options.setCache( cache );
+            options.setWriter( writer );
+            options.setProcessLock( processLock );
+            options.setMetrics( new PomMetrics() );
+
+            boolean written = PomEditor.open( pom, options ).apply( script ).save( backup );
+
+            StringBuilder response = head( id, pom, written ? "written" : "unchanged" );
+            PomMetrics.Sample sample = options.getMetrics().sample( new File( pom ) );
+            response.append( ", \"timings\": {" );
+            for ( PomMetrics.Phase phase : PomMetrics.Phase.values() )
+            {
+                response.append( ' ' ).append( Json.quote( phase.getName() ) ).append( ": " )
+                    .append( millis( sample.getNanos( phase ) ) ).append( ',' );
+            }
+            response.append( " \"total\": " ).append( millis( System.nanoTime() - start ) ).append( " } }" );
+            return ( response.toString() );
+        }
+        catch ( Exception | LinkageError e )
+        {
+            // Linkage errors too (a missing dependency on the class path): the client waits for a response
+            return ( error( id, pom, e, start ) );
+        }
+    }
+
+    /**
+     * Checks that a file of a request is under the root directory (if there's one).
+     */
+    private void checkPath( String path )
+        throws IOException
+    {
+        if ( root != null && path != null && !new File( path ).getCanonicalFile().toPath().startsWith( root.toPath() ) )
+        {
+            throw new IllegalArgumentException( "The file '" + path + "' is not under '" + root + "'." );
+        }
+    }
+
+    /**
+     * Gets the key of the file of a request (the requests with the same key are processed in order).
+     */
+    private static String keyOf( Object request )
+    {
+        Object pom = request instanceof Map ? ( (Map<?, ?>) request ).get( "pom" ) : null;
+        if ( pom == null )
+        {
+            return ( "" );
+        }
+        try
+        {
+            return ( new File( String.valueOf( pom ) ).getCanonicalPath() );
+        }
+        catch ( IOException e )
+        {
+            return ( new File( String.valueOf( pom ) ).getAbsolutePath() );
+        }
+    }
+
+    /**
+     * Builds an error response.
+     */
+    private static String error( Object id, String pom, Throwable e, long start )
+    {
+        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+        return ( head( id, pom, "error" ).append( ", \"error\": " ).append( Json.quote( message ) )
+            .append( ", \"timings\": { \"total\": " ).append( millis( System.nanoTime() - start ) ).append( " } }" )
+            .toString() );
+    }
+
+    /**
+     * Parses the edit lines of a request.
+     */
+    private static EditScript script( Object edits )
+        throws ParseException
+    {
+        if ( !( edits instanceof List ) )
+        {
+            throw new IllegalArgumentException( "The 'edits' member must be a list of edit script lines." );
+        }
+
+        List<EditScript.Edit> parsed = new ArrayList<EditScript.Edit>();
+        int lineNumber = 0;
+        for ( Object line : (List<?>) edits )
+        {
+            lineNumber++;
+            EditScript.Edit edit = EditScript.parseLine( String.valueOf( line ), lineNumber );
+            if ( edit != null )
+            {
+                parsed.add( edit );
+            }
+        }
+        return ( new EditScript( parsed ) );
+    }
+
+    /**
+     * Writes a response line.
+     */
+    private static void respond( Writer responses, String response )
+    {
+        synchronized ( responses )
+        {
+            try
+            {
+                responses.write( response );
+                responses.write( '\n' );
+                responses.flush();
+            }
+            catch ( IOException e )
+            {
+                // The client has gone away
+            }
+        }
+    }
+
+    private static StringBuilder head( Object id, String pom, String status )
+    {
+        String idValue = id instanceof String ? Json.quote( (String) id )
+                        : id instanceof Double ? numberOf( (Double) id ) : String.valueOf( id );
+        return ( new StringBuilder( "{\"id\": " ).append( idValue ).append( ", \"pom\": " ).append( Json.quote( pom ) )
+            .append( ", \"status\": \"" ).append( status ).append( '"' ) );
+    }
+
+    private static String numberOf( Double number )
+    {
+        return ( number == Math.rint( number ) && !Double.isInfinite( number ) ? String.valueOf( number.longValue() )
+                        : number.toString() );
+    }
+
+    private static String string( Map<?, ?> members, String name )
+    {
+        Object value = members.get( name );
+        return ( value != null ? String.valueOf( value ) : null );
+    }
+
+    private static String millis( long nanos )
+    {
+        return ( String.format( Locale.ROOT, "%.3f", nanos / 1e6 ) );
+    }
+
+    /**
+     * Shows the command line usage and exits.
+     */
+    private static void usage( String error )
+    {
+        System.err.println( error );
+        System.err.println( "Usage: PomServer [--port n] [--threads n] [--cache-size n] [--fsync ALWAYS|NEVER|BATCH]"
+            + " [--process-lock true|false] [--connections n] [--root dir]" );
+        System.exit( 2 );
+    }
+}
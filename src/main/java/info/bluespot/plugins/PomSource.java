@@ -0,0 +1,481 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * The raw contents of a POM file and their encoding.
+ * <p>
+ * The file is read in a single bulk read (or memory-mapped, if it's large) and its encoding is detected from the
+ * byte order mark or the XML declaration, as the XML specification says; the contents are then decoded once for the
+ * parser. The same encoding (and byte order mark) is used when the file is written again, so a POM file never
+ * changes its encoding: the characters the encoding can't represent are written as character references.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class PomSource
+{
+    /**
+     * Files from this size are memory-mapped instead of read.
+     */
+    private static final long MAP_THRESHOLD = 4 * 1024 * 1024;
+
+    /**
+     * Maximum size of the XML declaration.
+     */
+    private static final int PROLOG_SIZE = 1024;
+
+    private static final Pattern ENCODING =
+        Pattern.compile( "^<\\?xml[^>]*?\\sencoding\\s*=\\s*[\"']([A-Za-z][A-Za-z0-9._\\-]*)[\"']" );
+
+    private static final byte[] UTF8_BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+    private static final byte[] UTF16BE_BOM = { (byte) 0xFE, (byte) 0xFF };
+
+    private static final byte[] UTF16LE_BOM = { (byte) 0xFF, (byte) 0xFE };
+
+    /**
+     * Parts of the XML text, for escaping the characters the encoding can't represent.
+     */
+    private static final int TEXT = 0;
+
+    private static final int TAG = 1;
+
+    private static final int COMMENT = 2;
+
+    private static final int CDATA = 3;
+
+    private static final int PI = 4;
+
+    /**
+     * File name (<code>null</code> if the contents don't come from a file).
+     */
+    private final String name;
+
+    /**
+     * File contents (including the byte order mark).
+     */
+    private final ByteBuffer bytes;
+
+    /**
+     * Detected encoding.
+     */
+    private final Charset charset;
+
+    /**
+     * Byte order mark of the file (empty if none).
+     */
+    private final byte[] bom;
+
+    private PomSource( String name, ByteBuffer bytes )
+    {
+        this.name = name;
+        this.bytes = bytes.asReadOnlyBuffer();
+
+        // Byte order mark
+        if ( startsWith( bytes, UTF8_BOM ) )
+        {
+            this.bom = UTF8_BOM;
+            this.charset = StandardCharsets.UTF_8;
+        }
+        else if ( startsWith( bytes, UTF16BE_BOM ) )
+        {
+            this.bom = UTF16BE_BOM;
+            this.charset = StandardCharsets.UTF_16BE;
+        }
+        else if ( startsWith( bytes, UTF16LE_BOM ) )
+        {
+            this.bom = UTF16LE_BOM;
+            this.charset = StandardCharsets.UTF_16LE;
+        }
+        else
+        {
+            this.bom = new byte[0];
+            this.charset = detect( bytes );
+        }
+    }
+
+    /**
+     * Reads a file.
+     *
+     * @param file POM file.
+     * @return The file contents.
+     * @throws IOException I/O error.
+     */
+    public static PomSource read( File file )
+        throws IOException
+    {
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) )
+        {
+            long size = channel.size();
+            // Mapped files can't be replaced on Windows until they are unmapped (by the garbage collector)
+            if ( size >= MAP_THRESHOLD && File.separatorChar == '/' )
+            {
+                return ( new PomSource( file.getPath(), channel.map( FileChannel.MapMode.READ_ONLY, 0, size ) ) );
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate( (int) size );
+            while ( buffer.hasRemaining() && channel.read( buffer ) >= 0 )
+            {
+                // Bulk read
+            }
+            buffer.flip();
+            return ( new PomSource( file.getPath(), buffer ) );
+        }
+    }
+
+    /**
+     * Wraps contents already read.
+     *
+     * @param contents File contents.
+     * @return The contents and their encoding.
+     */
+    public static PomSource of( byte[] contents )
+    {
+        return ( new PomSource( null, ByteBuffer.wrap( contents ) ) );
+    }
+
+    /**
+     * @return The contents (a read-only view, including the byte order mark).
+     */
+    public ByteBuffer getBytes()
+    {
+        return ( bytes.duplicate() );
+    }
+
+    /**
+     * @return Size of the contents, in bytes.
+     */
+    public int size()
+    {
+        return ( bytes.remaining() );
+    }
+
+    /**
+     * @return The encoding of the contents.
+     */
+    public Charset getCharset()
+    {
+        return ( charset );
+    }
+
+    /**
+     * @return 'true' if the contents start with a byte order mark.
+     */
+    public boolean hasBom()
+    {
+        return ( bom.length > 0 );
+    }
+
+    /**
+     * Decodes the contents (without the byte order mark). Invalid bytes are not replaced: they would be written back
+     * as replacement characters.
+     *
+     * @return The text.
+     * @throws IOException The contents are not valid in their encoding.
+     */
+    public String decode()
+        throws IOException
+    {
+        ByteBuffer text = bytes.duplicate();
+        text.position( text.position() + bom.length );
+        try
+        {
+            return ( charset.newDecoder().onMalformedInput( CodingErrorAction.REPORT )
+                .onUnmappableCharacter( CodingErrorAction.REPORT ).decode( text ).toString() );
+        }
+        catch ( CharacterCodingException e )
+        {
+            throw new IOException( ( name != null ? "The POM file '" + name + "'" : "The POM contents" )
+                + " can't be decoded as " + charset.name() + ": invalid bytes at offset " + text.position()
+                + " (check the encoding on the XML declaration).", e );
+        }
+    }
+
+    /**
+     * Parses the project model.
+     *
+     * @return The project model.
+     * @throws IOException I/O error.
+     * @throws XmlPullParserException The contents are not a valid POM.
+     */
+    public Model parse()
+        throws IOException, XmlPullParserException
+    {
+        return ( parse( null ) );
+    }
+
+    /**
+     * Parses some sections of the project model.
+     *
+     * @param sections Sections to parse (<code>null</code> for the whole model).
+     * @return The (partial) project model.
+     * @throws IOException I/O error.
+     * @throws XmlPullParserException The contents are not a valid POM.
+     */
+    public Model parse( PomSections sections )
+        throws IOException, XmlPullParserException
+    {
+        Model model = sections != null ? sections.parse( decode() )
+                        : new MavenXpp3Reader().read( new StringReader( decode() ) );
+        if ( model.getModelEncoding() == null || !isDeclared() )
+        {
+            model.setModelEncoding( charset.name() );
+        }
+        return ( model );
+    }
+
+    /**
+     * Encodes a new text for the same file, with the same encoding and byte order mark. The characters the encoding
+     * can't represent are written as character references (they are not replaced by question marks).
+     *
+     * @param text New contents.
+     * @return The bytes to write.
+     * @throws IOException Some characters can't be represented, and can't be written as character references (they
+     *             are in a name, a comment or a <code>CDATA</code> section).
+     */
+    public byte[] encode( String text )
+        throws IOException
+    {
+        return ( encode( text, charset, bom, name ) );
+    }
+
+    /**
+     * Encodes the text of a new file (see {@link #encode(String)}).
+     *
+     * @param text Contents.
+     * @param charset Encoding.
+     * @param name File name (for the error messages).
+     * @return The bytes to write.
+     * @throws IOException Some characters can't be represented.
+     */
+    static byte[] encode( String text, Charset charset, String name )
+        throws IOException
+    {
+        return ( encode( text, charset, new byte[0], name ) );
+    }
+
+    private static byte[] encode( String text, Charset charset, byte[] bom, String name )
+        throws IOException
+    {
+        CharsetEncoder encoder = charset.newEncoder().onMalformedInput( CodingErrorAction.REPORT )
+            .onUnmappableCharacter( CodingErrorAction.REPORT );
+        ByteBuffer encoded;
+        try
+        {
+            encoded = encoder.encode( CharBuffer.wrap( text ) );
+        }
+        catch ( CharacterCodingException e )
+        {
+            encoded = encoder.encode( CharBuffer.wrap( escapeUnmappable( text, charset, name ) ) );
+        }
+
+        byte[] bytes = new byte[bom.length + encoded.remaining()];
+        System.arraycopy( bom, 0, bytes, 0, bom.length );
+        encoded.get( bytes, bom.length, bytes.length - bom.length );
+        return ( bytes );
+    }
+
+    /**
+     * Replaces the characters an encoding can't represent by character references. References are only allowed in
+     * the text and the attribute values: anywhere else (names, comments, <code>CDATA</code> sections, processing
+     * instructions) those characters are an error.
+     */
+    private static String escapeUnmappable( String text, Charset charset, String name )
+        throws IOException
+    {
+        CharsetEncoder probe = charset.newEncoder();
+        StringBuilder escaped = new StringBuilder( text.length() + 16 );
+        int state = TEXT;
+        char quote = 0;
+        int i = 0;
+        while ( i < text.length() )
+        {
+            // Track where we are
+            char c = text.charAt( i );
+            String end = state == COMMENT ? "-->" : state == CDATA ? "]]>" : state == PI ? "?>" : null;
+            if ( end != null && text.startsWith( end, i ) )
+            {
+                escaped.append( end );
+                i += end.length();
+                state = TEXT;
+                continue;
+            }
+            if ( state == TEXT && c == '<' )
+            {
+                state = text.startsWith( "<!--", i ) ? COMMENT : text.startsWith( "<![CDATA[", i ) ? CDATA
+                                : text.startsWith( "<?", i ) ? PI : TAG;
+            }
+            else if ( state == TAG && quote == 0 && ( c == '"' || c == '\'' ) )
+            {
+                quote = c;
+            }
+            else if ( state == TAG && c == quote )
+            {
+                quote = 0;
+            }
+            else if ( state == TAG && quote == 0 && c == '>' )
+            {
+                state = TEXT;
+            }
+
+            // Copy or escape the character
+            int codePoint = text.codePointAt( i );
+            int length = Character.charCount( codePoint );
+            if ( probe.canEncode( text.subSequence( i, i + length ) ) )
+            {
+                escaped.append( text, i, i + length );
+            }
+            else if ( ( state == TEXT || state == TAG && quote != 0 )
+                && Character.getType( codePoint ) != Character.SURROGATE )
+            {
+                escaped.append( "&#x" ).append( Integer.toHexString( codePoint ).toUpperCase() ).append( ';' );
+            }
+            else
+            {
+                throw new IOException( ( name != null ? "The POM file '" + name + "'" : "The POM contents" )
+                    + " can't be encoded as " + charset.name() + ": the character U+"
+                    + Integer.toHexString( codePoint ).toUpperCase() + " at offset " + i
+                    + " can't be written as a character reference (change the encoding on the XML declaration)." );
+            }
+            i += length;
+        }
+        return ( escaped.toString() );
+    }
+
+    /**
+     * Compares the contents with new ones.
+     *
+     * @param contents New contents.
+     * @return 'true' if they are the same.
+     */
+    public boolean contentEquals( byte[] contents )
+    {
+        return ( bytes.equals( ByteBuffer.wrap( contents ) ) );
+    }
+
+    /**
+     * Compares the contents with the contents of another source.
+     *
+     * @param other Other source.
+     * @return 'true' if they are the same.
+     */
+    public boolean contentEquals( PomSource other )
+    {
+        return ( bytes.equals( other.bytes ) );
+    }
+
+    /**
+     * Checks if the XML declaration sets the encoding.
+     */
+    private boolean isDeclared()
+    {
+        return ( bom.length > 0 || declaredEncoding( bytes ) != null );
+    }
+
+    /**
+     * Detects the encoding of contents without a byte order mark.
+     */
+    private static Charset detect( ByteBuffer bytes )
+    {
+        // UTF-16 without byte order mark ('<?' in two bytes per character)
+        if ( startsWith( bytes, new byte[] { 0x00, 0x3C, 0x00, 0x3F } ) )
+        {
+            return ( StandardCharsets.UTF_16BE );
+        }
+        if ( startsWith( bytes, new byte[] { 0x3C, 0x00, 0x3F, 0x00 } ) )
+        {
+            return ( StandardCharsets.UTF_16LE );
+        }
+
+        String declared = declaredEncoding( bytes );
+        if ( declared != null )
+        {
+            try
+            {
+                if ( Charset.isSupported( declared ) )
+                {
+                    return ( Charset.forName( declared ) );
+                }
+            }
+            catch ( IllegalCharsetNameException e )
+            {
+                // Default encoding
+            }
+        }
+        return ( StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Gets the encoding of the XML declaration (read as ASCII).
+     */
+    private static String declaredEncoding( ByteBuffer bytes )
+    {
+        int length = Math.min( bytes.remaining(), PROLOG_SIZE );
+        StringBuilder prolog = new StringBuilder( length );
+        for ( int i = 0; i < length; i++ )
+        {
+            char c = (char) ( bytes.get( bytes.position() + i ) & 0xFF );
+            prolog.append( c );
+            if ( c == '>' )
+            {
+                break;
+            }
+        }
+        Matcher matcher = ENCODING.matcher( prolog );
+        return ( matcher.find() ? matcher.group( 1 ) : null );
+    }
+
+    private static boolean startsWith( ByteBuffer bytes, byte[] prefix )
+    {
+        if ( bytes.remaining() < prefix.length )
+        {
+            return ( false );
+        }
+        for ( int i = 0; i < prefix.length; i++ )
+        {
+            if ( bytes.get( bytes.position() + i ) != prefix[i] )
+            {
+                return ( false );
+            }
+        }
+        return ( true );
+    }
+}
@@ -0,0 +1,1220 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.Profile;
+import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
+
+/**
+ * Applies the changes of a project model to the original POM text, leaving the rest of the file untouched.
+ * <p>
+ * The original and the modified models are compared and only the elements that changed are rewritten on the text:
+ * comments, formatting and element order are kept everywhere else. The supported changes are the ones the goals of
+ * this plugin make:
+ * </p>
+ * <ul>
+ * <li>The basic project information (<code>groupId</code>, <code>artifactId</code>, <code>version</code>,
+ * <code>name</code>, etc.).</li>
+ * <li>The version of the parent.</li>
+ * <li>The properties of the project and of the profiles.</li>
+ * <li>The dependencies and managed dependencies of the project and of the profiles (added, removed or modified, as long
+ * as the remaining ones keep their order).</li>
+ * <li>Added or removed profiles.</li>
+ * </ul>
+ * <p>
+ * Any other change makes {@link #splice(String, Model, Model)} return <code>null</code>, so the caller can fall back
+ * to writing the whole model.
+ * </p>
+ * <p>
+ * Finding out that the models only differ on those sections means serializing both of them, unless the caller knows
+ * which sections have been modified (see {@link #splice(String, Model, Model, PomSections)}): then only those are
+ * compared, and the models can be partial ones with just those sections.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class PomSplicer
+{
+    /**
+     * Children order of the <code>project</code> element (for inserting new elements).
+     */
+    private static final List<String> PROJECT_ORDER =
+        Arrays.asList( "modelVersion", "parent", "groupId", "artifactId", "version", "packaging", "name",
+                       "description", "url", "inceptionYear", "organization", "licenses", "developers",
+                       "contributors", "mailingLists", "prerequisites", "modules", "scm", "issueManagement",
+                       "ciManagement", "distributionManagement", "properties", "dependencyManagement",
+                       "dependencies", "repositories", "pluginRepositories", "build", "reporting", "profiles" );
+
+    /**
+     * Children order of the <code>parent</code> element.
+     */
+    private static final List<String> PARENT_ORDER =
+        Arrays.asList( "groupId", "artifactId", "version", "relativePath" );
+
+    /**
+     * Children order of the <code>profile</code> element.
+     */
+    private static final List<String> PROFILE_ORDER =
+        Arrays.asList( "id", "activation", "build", "modules", "distributionManagement", "properties",
+                       "dependencyManagement", "dependencies", "repositories", "pluginRepositories", "reporting" );
+
+    /**
+     * Children order of the <code>dependency</code> element.
+     */
+    private static final List<String> DEPENDENCY_ORDER =
+        Arrays.asList( "groupId", "artifactId", "version", "type", "classifier", "scope", "systemPath", "exclusions",
+                       "optional" );
+
+    /**
+     * Basic project fields handled by the splicer.
+     */
+    private static final List<String> PROJECT_FIELDS =
+        Arrays.asList( "groupId", "artifactId", "version", "packaging", "name", "description", "url",
+                       "inceptionYear" );
+
+    /**
+     * Original document.
+     */
+    private final PomDocument document;
+
+    /**
+     * Indentation unit of the document.
+     */
+    private final String unit;
+
+    /**
+     * Pending text modifications.
+     */
+    private final List<Splice> splices = new ArrayList<Splice>();
+
+    /**
+     * Sections to compare (<code>null</code> for all the handled sections).
+     */
+    private final PomSections changed;
+
+    /**
+     * Creates a splicer for a document.
+     *
+     * @param document Original document.
+     * @param changed Sections to compare (<code>null</code> for all the handled sections).
+     */
+    private PomSplicer( PomDocument document, PomSections changed )
+    {
+        this.document = document;
+        this.unit = document.indentUnit();
+        this.changed = changed;
+    }
+
+    /**
+     * Applies the differences between two models to the original POM text.
+     *
+     * @param text Original POM text (the one <code>before</code> was read from).
+     * @param before Model read from the original text.
+     * @param after Modified model.
+     * @return The new POM text, or <code>null</code> if the changes can't be applied without rewriting the whole
+     *         model.
+     */
+    public static String splice( String text, Model before, Model after )
+    {
+        return ( splice( text, before, after, null ) );
+    }
+
+    /**
+     * Applies the differences between two models to the original POM text, comparing only the modified sections.
+     *
+     * @param text Original POM text (the one <code>before</code> was read from).
+     * @param before Model read from the original text (a partial one with the modified sections is enough).
+     * @param after Modified model.
+     * @param changed The only sections that can differ between the models (<code>null</code> if unknown).
+     * @return The new POM text, or <code>null</code> if the changes can't be applied without rewriting the whole
+     *         model.
+     */
+    public static String splice( String text, Model before, Model after, PomSections changed )
+    {
+        boolean supported = changed != null ? onlySupportedChanges( before, after, changed )
+                        : onlySupportedChanges( before, after );
+        if ( !supported )
+        {
+            return ( null );
+        }
+
+        try
+        {
+            PomSplicer splicer = new PomSplicer( new PomDocument( text ), changed );
+            splicer.diffProject( before, after );
+            return ( splicer.apply() );
+        }
+        catch ( IllegalArgumentException | UnsupportedChangeException e )
+        {
+            return ( null );
+        }
+    }
+
+    // DIFFERENCES ...........................................................
+
+    /**
+     * Compares the project sections.
+     */
+    private void diffProject( Model before, Model after )
+        throws UnsupportedChangeException
+    {
+        PomDocument.Element project = document.getRoot();
+
+        for ( String field : PROJECT_FIELDS )
+        {
+            if ( compares( field ) )
+            {
+                setField( project, PROJECT_ORDER, field, projectField( before, field ),
+                          projectField( after, field ) );
+            }
+        }
+
+        // Only the version of the parent can change (see strip())
+        if ( compares( "parent" ) && before.getParent() != null
+            && !Objects.equals( before.getParent().getVersion(), after.getParent().getVersion() ) )
+        {
+            setField( project.getChild( "parent" ), PARENT_ORDER, "version", before.getParent().getVersion(),
+                      after.getParent().getVersion() );
+        }
+
+        if ( compares( "properties" ) )
+        {
+            diffProperties( project, PROJECT_ORDER, before.getProperties(), after.getProperties() );
+        }
+        if ( compares( "dependencies" ) )
+        {
+            diffDependencies( project, PROJECT_ORDER, before.getDependencies(), after.getDependencies() );
+        }
+        if ( compares( "dependencyManagement" ) )
+        {
+            diffManagedDependencies( project, PROJECT_ORDER, before.getDependencyManagement(),
+                                     after.getDependencyManagement() );
+        }
+        if ( compares( "profiles" ) )
+        {
+            diffProfiles( project, before.getProfiles(), after.getProfiles() );
+        }
+    }
+
+    /**
+     * Checks if a section has to be compared.
+     */
+    private boolean compares( String section )
+    {
+        return ( changed == null || changed.getNames().contains( section ) );
+    }
+
+    /**
+     * Gets a basic project field.
+     */
+    private static String projectField( Model model, String field )
+    {
+        switch ( field )
+        {
+            case "groupId":
+                return ( model.getGroupId() );
+            case "artifactId":
+                return ( model.getArtifactId() );
+            case "version":
+                return ( model.getVersion() );
+            case "packaging":
+                return ( model.getPackaging() );
+            case "name":
+                return ( model.getName() );
+            case "description":
+                return ( model.getDescription() );
+            case "url":
+                return ( model.getUrl() );
+            default:
+                return ( model.getInceptionYear() );
+        }
+    }
+
+    /**
+     * Sets, adds or removes a simple text element.
+     */
+    private void setField( PomDocument.Element parent, List<String> order, String name, String oldValue,
+                           String newValue )
+    {
+        if ( Objects.equals( oldValue, newValue ) )
+        {
+            return;
+        }
+
+        PomDocument.Element element = parent.getChild( name );
+        if ( element == null )
+        {
+            if ( newValue != null )
+            {
+                insertChild( parent, order, name,
+                             Collections.singletonList( "<" + name + ">" + escape( newValue ) + "</" + name + ">" ) );
+            }
+        }
+        else if ( newValue == null )
+        {
+            remove( element );
+        }
+        else
+        {
+            replaceContent( element, escape( newValue ) );
+        }
+    }
+
+    /**
+     * Checks if the properties on a document section are in the same order as on an ordered model.
+     */
+    private static boolean sameOrder( PomDocument.Element container, Properties after )
+    {
+        if ( container == null )
+        {
+            return ( true );
+        }
+
+        Set<String> onDocument = new LinkedHashSet<String>();
+        for ( PomDocument.Element element : container.getChildren() )
+        {
+            if ( after.containsKey( element.getName() ) )
+            {
+                onDocument.add( element.getName() );
+            }
+        }
+
+        Iterator<String> expected = onDocument.iterator();
+        for ( Object key : after.keySet() )
+        {
+            if ( onDocument.contains( key ) && !key.equals( expected.next() ) )
+            {
+                return ( false );
+            }
+        }
+        return ( true );
+    }
+
+    /**
+     * Compares a <code>properties</code> section.
+     */
+    private void diffProperties( PomDocument.Element parent, List<String> order, Properties before,
+                                 Properties after )
+        throws UnsupportedChangeException
+    {
+        if ( after instanceof OrderedProperties && !sameOrder( parent.getChild( "properties" ), after ) )
+        {
+            // The properties have been reordered
+            throw new UnsupportedChangeException();
+        }
+        if ( before.equals( after ) )
+        {
+            return;
+        }
+
+        List<String> added = new ArrayList<String>();
+        for ( Object key : after.keySet() )
+        {
+            if ( !before.containsKey( key ) )
+            {
+                added.add( property( (String) key, after.getProperty( (String) key ) ) );
+            }
+        }
+
+        PomDocument.Element container = parent.getChild( "properties" );
+        if ( container == null )
+        {
+            if ( !added.isEmpty() )
+            {
+                insertChild( parent, order, "properties", Collections.singletonList( wrap( "properties", added ) ) );
+            }
+            return;
+        }
+
+        for ( Object key : before.keySet() )
+        {
+            List<PomDocument.Element> elements = container.getChildren( (String) key );
+            String value = after.getProperty( (String) key );
+
+            if ( value == null )
+            {
+                for ( PomDocument.Element element : elements )
+                {
+                    remove( element );
+                }
+            }
+            else if ( !value.equals( before.getProperty( (String) key ) ) && !elements.isEmpty() )
+            {
+                // The last occurrence is the one that counts
+                replaceContent( elements.get( elements.size() - 1 ), escape( value ) );
+            }
+        }
+
+        if ( !added.isEmpty() )
+        {
+            appendChildren( container, added );
+        }
+    }
+
+    /**
+     * Compares the <code>dependencies</code> section of a project or profile.
+     */
+    private void diffDependencies( PomDocument.Element parent, List<String> order, List<Dependency> before,
+                                   List<Dependency> after )
+        throws UnsupportedChangeException
+    {
+        if ( sameDependencies( before, after ) )
+        {
+            return;
+        }
+
+        PomDocument.Element container = parent.getChild( "dependencies" );
+        if ( container == null )
+        {
+            if ( !before.isEmpty() )
+            {
+                throw new UnsupportedChangeException();
+            }
+            insertChild( parent, order, "dependencies",
+                         Collections.singletonList( wrap( "dependencies", dependencyFragments( after ) ) ) );
+            return;
+        }
+
+        diffDependencyList( container, before, after );
+    }
+
+    /**
+     * Compares the <code>dependencyManagement</code> section of a project or profile.
+     */
+    private void diffManagedDependencies( PomDocument.Element parent, List<String> order,
+                                          DependencyManagement before, DependencyManagement after )
+        throws UnsupportedChangeException
+    {
+        List<Dependency> beforeList = before != null ? before.getDependencies() : Collections.emptyList();
+        List<Dependency> afterList = after != null ? after.getDependencies() : Collections.emptyList();
+        if ( sameDependencies( beforeList, afterList ) )
+        {
+            return;
+        }
+
+        PomDocument.Element management = parent.getChild( "dependencyManagement" );
+        if ( management == null )
+        {
+            if ( !beforeList.isEmpty() )
+            {
+                throw new UnsupportedChangeException();
+            }
+            String dependencies = wrap( "dependencies", dependencyFragments( afterList ) );
+            insertChild( parent, order, "dependencyManagement",
+                         Collections.singletonList( wrap( "dependencyManagement",
+                                                          Collections.singletonList( dependencies ) ) ) );
+            return;
+        }
+
+        PomDocument.Element container = management.getChild( "dependencies" );
+        if ( container == null )
+        {
+            if ( !beforeList.isEmpty() )
+            {
+                throw new UnsupportedChangeException();
+            }
+            appendChildren( management,
+                            Collections.singletonList( wrap( "dependencies", dependencyFragments( afterList ) ) ) );
+            return;
+        }
+
+        diffDependencyList( container, beforeList, afterList );
+    }
+
+    /**
+     * Compares a dependency list against an existing <code>dependencies</code> element.
+     */
+    private void diffDependencyList( PomDocument.Element container, List<Dependency> before, List<Dependency> after )
+        throws UnsupportedChangeException
+    {
+        List<PomDocument.Element> elements = container.getChildren( "dependency" );
+        if ( elements.size() != before.size() )
+        {
+            throw new UnsupportedChangeException();
+        }
+
+        // Everything removed: remove the whole section
+        if ( after.isEmpty() )
+        {
+            remove( container );
+            return;
+        }
+
+        // Match the dependencies by their management key (first free occurrence)
+        Map<String, Deque<Integer>> positions = new HashMap<String, Deque<Integer>>();
+        for ( int i = 0; i < before.size(); i++ )
+        {
+            positions.computeIfAbsent( before.get( i ).getManagementKey(), k -> new ArrayDeque<Integer>() ).add( i );
+        }
+
+        boolean[] kept = new boolean[before.size()];
+        int lastMatched = -1;
+        List<String> pending = new ArrayList<String>();
+
+        for ( Dependency dependency : after )
+        {
+            Deque<Integer> candidates = positions.get( dependency.getManagementKey() );
+            Integer match = candidates != null ? candidates.pollFirst() : null;
+
+            if ( match == null )
+            {
+                pending.add( dependencyFragment( dependency ) );
+                continue;
+            }
+            if ( match < lastMatched )
+            {
+                // The dependencies have been reordered
+                throw new UnsupportedChangeException();
+            }
+
+            // New dependencies go after the previous kept one
+            insertAfterOrFirst( container, lastMatched >= 0 ? elements.get( lastMatched ) : null, pending );
+            pending = new ArrayList<String>();
+
+            kept[match] = true;
+            lastMatched = match;
+            diffDependency( elements.get( match ), before.get( match ), dependency );
+        }
+        insertAfterOrFirst( container, lastMatched >= 0 ? elements.get( lastMatched ) : null, pending );
+
+        for ( int i = 0; i < kept.length; i++ )
+        {
+            if ( !kept[i] )
+            {
+                remove( elements.get( i ) );
+            }
+        }
+    }
+
+    /**
+     * Compares a single dependency.
+     */
+    private void diffDependency( PomDocument.Element element, Dependency before, Dependency after )
+    {
+        if ( signature( before ).equals( signature( after ) ) )
+        {
+            return;
+        }
+
+        if ( !exclusions( before ).equals( exclusions( after ) ) )
+        {
+            replace( element, dependencyFragment( after ) );
+            return;
+        }
+
+        setField( element, DEPENDENCY_ORDER, "groupId", before.getGroupId(), after.getGroupId() );
+        setField( element, DEPENDENCY_ORDER, "artifactId", before.getArtifactId(), after.getArtifactId() );
+        setField( element, DEPENDENCY_ORDER, "version", before.getVersion(), after.getVersion() );
+        setField( element, DEPENDENCY_ORDER, "type", before.getType(), after.getType() );
+        setField( element, DEPENDENCY_ORDER, "classifier", before.getClassifier(), after.getClassifier() );
+        setField( element, DEPENDENCY_ORDER, "scope", before.getScope(), after.getScope() );
+        setField( element, DEPENDENCY_ORDER, "systemPath", before.getSystemPath(), after.getSystemPath() );
+        setField( element, DEPENDENCY_ORDER, "optional", before.getOptional(), after.getOptional() );
+    }
+
+    /**
+     * Compares the <code>profiles</code> section.
+     */
+    private void diffProfiles( PomDocument.Element project, List<Profile> before, List<Profile> after )
+        throws UnsupportedChangeException
+    {
+        if ( before.isEmpty() && after.isEmpty() )
+        {
+            // Nothing to compare (or the profiles have not been read: see PomSections)
+            return;
+        }
+
+        PomDocument.Element container = project.getChild( "profiles" );
+        List<PomDocument.Element> elements =
+            container != null ? container.getChildren( "profile" ) : Collections.<PomDocument.Element>emptyList();
+        if ( elements.size() != before.size() )
+        {
+            throw new UnsupportedChangeException();
+        }
+
+        Map<String, Integer> positions = new HashMap<String, Integer>();
+        for ( int i = 0; i < before.size(); i++ )
+        {
+            if ( positions.put( before.get( i ).getId(), i ) != null )
+            {
+                // Duplicated profile IDs
+                throw new UnsupportedChangeException();
+            }
+        }
+
+        boolean[] kept = new boolean[before.size()];
+        int lastMatched = -1;
+        List<String> pending = new ArrayList<String>();
+
+        for ( Profile profile : after )
+        {
+            Integer match = positions.remove( profile.getId() );
+            if ( match == null )
+            {
+                pending.add( writeFragment( profileModel( profile ), "profiles", "profile" ) );
+                continue;
+            }
+            if ( match < lastMatched )
+            {
+                throw new UnsupportedChangeException();
+            }
+
+            if ( container != null )
+            {
+                insertAfterOrFirst( container, lastMatched >= 0 ? elements.get( lastMatched ) : null, pending );
+                pending = new ArrayList<String>();
+            }
+
+            kept[match] = true;
+            lastMatched = match;
+            diffProfile( elements.get( match ), before.get( match ), profile );
+        }
+
+        if ( container == null )
+        {
+            if ( !pending.isEmpty() )
+            {
+                insertChild( project, PROJECT_ORDER, "profiles",
+                             Collections.singletonList( wrap( "profiles", pending ) ) );
+            }
+            return;
+        }
+        insertAfterOrFirst( container, lastMatched >= 0 ? elements.get( lastMatched ) : null, pending );
+
+        for ( int i = 0; i < kept.length; i++ )
+        {
+            if ( !kept[i] )
+            {
+                remove( elements.get( i ) );
+            }
+        }
+    }
+
+    /**
+     * Compares a single profile (the sections handled by the splicer).
+     */
+    private void diffProfile( PomDocument.Element element, Profile before, Profile after )
+        throws UnsupportedChangeException
+    {
+        diffProperties( element, PROFILE_ORDER, before.getProperties(), after.getProperties() );
+        diffDependencies( element, PROFILE_ORDER, before.getDependencies(), after.getDependencies() );
+        diffManagedDependencies( element, PROFILE_ORDER, before.getDependencyManagement(),
+                                 after.getDependencyManagement() );
+    }
+
+    // SUPPORTED CHANGES .....................................................
+
+    /**
+     * Checks that the models only differ on the sections handled by the splicer.
+     */
+    private static boolean onlySupportedChanges( Model before, Model after )
+    {
+        Set<String> beforeIds = profileIds( before );
+        Set<String> afterIds = profileIds( after );
+
+        return ( write( strip( before.clone(), afterIds ) ).equals( write( strip( after.clone(), beforeIds ) ) ) );
+    }
+
+    /**
+     * Checks that the models only differ on the sections handled by the splicer, knowing the only sections that can
+     * differ: the ones that are not handled as a whole are compared on their own.
+     */
+    private static boolean onlySupportedChanges( Model before, Model after, PomSections changed )
+    {
+        for ( String section : changed.getNames() )
+        {
+            switch ( section )
+            {
+                case "modelVersion":
+                    if ( !Objects.equals( before.getModelVersion(), after.getModelVersion() ) )
+                    {
+                        return ( false );
+                    }
+                    break;
+                case "parent":
+                    if ( !sameParent( before.getParent(), after.getParent() ) )
+                    {
+                        return ( false );
+                    }
+                    break;
+                case "profiles":
+                    if ( !sameProfiles( before, after ) )
+                    {
+                        return ( false );
+                    }
+                    break;
+                default:
+                    // Project fields, properties and dependencies
+                    break;
+            }
+        }
+        return ( true );
+    }
+
+    /**
+     * Compares two parents, but their versions.
+     */
+    private static boolean sameParent( Parent before, Parent after )
+    {
+        if ( before == null || after == null )
+        {
+            return ( before == after );
+        }
+        return ( Objects.equals( before.getGroupId(), after.getGroupId() )
+            && Objects.equals( before.getArtifactId(), after.getArtifactId() )
+            && Objects.equals( before.getRelativePath(), after.getRelativePath() ) );
+    }
+
+    /**
+     * Compares the profiles of two models, but the handled sections (see {@link #strip(Model, Set)}).
+     */
+    private static boolean sameProfiles( Model before, Model after )
+    {
+        Model beforeProfiles = strip( profilesOf( before ), profileIds( after ) );
+        Model afterProfiles = strip( profilesOf( after ), profileIds( before ) );
+
+        return ( write( beforeProfiles ).equals( write( afterProfiles ) ) );
+    }
+
+    /**
+     * Builds a model with a copy of the profiles of another one.
+     */
+    private static Model profilesOf( Model model )
+    {
+        Model profiles = new Model();
+        for ( Profile profile : model.getProfiles() )
+        {
+            profiles.addProfile( profile.clone() );
+        }
+        return ( profiles );
+    }
+
+    /**
+     * Removes the handled sections from a model copy.
+     */
+    private static Model strip( Model model, Set<String> otherProfileIds )
+    {
+        // The XML declaration of the file is kept as it is
+        model.setModelEncoding( "UTF-8" );
+        model.setGroupId( null );
+        model.setArtifactId( null );
+        model.setVersion( null );
+        model.setPackaging( null );
+        model.setName( null );
+        model.setDescription( null );
+        model.setUrl( null );
+        model.setInceptionYear( null );
+        if ( model.getParent() != null )
+        {
+            model.getParent().setVersion( null );
+        }
+        model.setProperties( new Properties() );
+        model.setDependencies( new ArrayList<Dependency>() );
+        model.setDependencyManagement( null );
+
+        // Added or removed profiles are handled as a whole; the common ones must be equal
+        List<Profile> common = new ArrayList<Profile>();
+        for ( Profile profile : model.getProfiles() )
+        {
+            if ( otherProfileIds.contains( profile.getId() ) )
+            {
+                profile.setProperties( new Properties() );
+                profile.setDependencies( new ArrayList<Dependency>() );
+                profile.setDependencyManagement( null );
+                common.add( profile );
+            }
+        }
+        model.setProfiles( common );
+
+        return ( model );
+    }
+
+    /**
+     * Gets the profile IDs of a model.
+     */
+    private static Set<String> profileIds( Model model )
+    {
+        Set<String> ids = new HashSet<String>();
+        for ( Profile profile : model.getProfiles() )
+        {
+            ids.add( profile.getId() );
+        }
+        return ( ids );
+    }
+
+    /**
+     * Serializes a model to a string.
+     */
+    private static String write( Model model )
+    {
+        StringWriter writer = new StringWriter();
+        try
+        {
+            new MavenXpp3Writer().write( writer, model );
+        }
+        catch ( IOException e )
+        {
+            // Not on a StringWriter
+            throw new IllegalStateException( e );
+        }
+        return ( writer.toString() );
+    }
+
+    /**
+     * Compares two dependency lists by content.
+     */
+    private static boolean sameDependencies( List<Dependency> before, List<Dependency> after )
+    {
+        if ( before.size() != after.size() )
+        {
+            return ( false );
+        }
+        for ( int i = 0; i < before.size(); i++ )
+        {
+            if ( !signature( before.get( i ) ).equals( signature( after.get( i ) ) ) )
+            {
+                return ( false );
+            }
+        }
+        return ( true );
+    }
+
+    /**
+     * Builds a string with all the fields of a dependency.
+     */
+    private static String signature( Dependency dependency )
+    {
+        return ( dependency.getGroupId() + ':' + dependency.getArtifactId() + ':' + dependency.getVersion() + ':'
+            + dependency.getType() + ':' + dependency.getClassifier() + ':' + dependency.getScope() + ':'
+            + dependency.getSystemPath() + ':' + dependency.getOptional() + ':' + exclusions( dependency ) );
+    }
+
+    /**
+     * Builds a string with the exclusions of a dependency.
+     */
+    private static String exclusions( Dependency dependency )
+    {
+        StringBuilder builder = new StringBuilder();
+        for ( Exclusion exclusion : dependency.getExclusions() )
+        {
+            builder.append( exclusion.getGroupId() ).append( ':' ).append( exclusion.getArtifactId() ).append( ',' );
+        }
+        return ( builder.toString() );
+    }
+
+    // FRAGMENTS .............................................................
+
+    /**
+     * Builds a property element.
+     */
+    private static String property( String key, String value )
+    {
+        return ( "<" + key + ">" + escape( value ) + "</" + key + ">" );
+    }
+
+    /**
+     * Wraps some fragments on a new element (the fragment lines are separated by '\n' and indented relative to the
+     * first line).
+     */
+    private String wrap( String name, List<String> fragments )
+    {
+        StringBuilder builder = new StringBuilder( "<" ).append( name ).append( '>' );
+        for ( String fragment : fragments )
+        {
+            builder.append( '\n' ).append( unit ).append( fragment.replace( "\n", "\n" + unit ) );
+        }
+        return ( builder.append( "\n</" ).append( name ).append( '>' ).toString() );
+    }
+
+    /**
+     * Builds the fragments for a dependency list.
+     */
+    private List<String> dependencyFragments( List<Dependency> dependencies )
+    {
+        List<String> fragments = new ArrayList<String>( dependencies.size() );
+        for ( Dependency dependency : dependencies )
+        {
+            fragments.add( dependencyFragment( dependency ) );
+        }
+        return ( fragments );
+    }
+
+    /**
+     * Builds the fragment for a dependency.
+     */
+    private String dependencyFragment( Dependency dependency )
+    {
+        Model model = new Model();
+        model.addDependency( dependency );
+        return ( writeFragment( model, "dependencies", "dependency" ) );
+    }
+
+    /**
+     * Builds a model that only contains a profile.
+     */
+    private static Model profileModel( Profile profile )
+    {
+        Model model = new Model();
+        model.addProfile( profile );
+        return ( model );
+    }
+
+    /**
+     * Serializes a model with the Maven writer and extracts an element (<code>project/section/element</code>),
+     * adapting its indentation to the document.
+     */
+    private String writeFragment( Model model, String section, String element )
+    {
+        String text = write( model );
+        PomDocument.Element fragment = new PomDocument( text ).getRoot().getChild( section ).getChild( element );
+
+        // The Maven writer indents with two blanks; the element is on the second level
+        String[] lines = text.substring( fragment.getStart(), fragment.getEnd() ).split( "\r?\n", -1 );
+        StringBuilder builder = new StringBuilder( lines[0] );
+        for ( int i = 1; i < lines.length; i++ )
+        {
+            String line = lines[i];
+            int blanks = 0;
+            while ( blanks < line.length() && line.charAt( blanks ) == ' ' )
+            {
+                blanks++;
+            }
+            builder.append( '\n' );
+            for ( int level = ( blanks - 4 ) / 2; level > 0; level-- )
+            {
+                builder.append( unit );
+            }
+            builder.append( line, blanks, line.length() );
+        }
+        return ( builder.toString() );
+    }
+
+    /**
+     * Escapes the XML special characters on a text.
+     */
+    private static String escape( String text )
+    {
+        StringBuilder builder = new StringBuilder( text.length() );
+        for ( int i = 0; i < text.length(); i++ )
+        {
+            char c = text.charAt( i );
+            switch ( c )
+            {
+                case '&':
+                    builder.append( "&amp;" );
+                    break;
+                case '<':
+                    builder.append( "&lt;" );
+                    break;
+                case '>':
+                    builder.append( "&gt;" );
+                    break;
+                default:
+                    builder.append( c );
+            }
+        }
+        return ( builder.toString() );
+    }
+
+    // TEXT MODIFICATIONS ....................................................
+
+    /**
+     * Replaces the content of an element.
+     */
+    private void replaceContent( PomDocument.Element element, String content )
+    {
+        if ( element.isEmpty() )
+        {
+            splices.add( new Splice( element.getStart(), element.getEnd(),
+                                     "<" + element.getName() + ">" + content + "</" + element.getName() + ">" ) );
+        }
+        else
+        {
+            splices.add( new Splice( element.getContentStart(), element.getContentEnd(), content ) );
+        }
+    }
+
+    /**
+     * Replaces a whole element by a fragment.
+     */
+    private void replace( PomDocument.Element element, String fragment )
+    {
+        String indent = indentOrDefault( element );
+        splices.add( new Splice( element.getStart(), element.getEnd(), render( fragment, indent ) ) );
+    }
+
+    /**
+     * Removes an element and the blanks before it on its line.
+     */
+    private void remove( PomDocument.Element element )
+    {
+        String text = document.getText();
+        int start = element.getStart();
+
+        if ( document.indentOf( element ) != null )
+        {
+            start -= document.indentOf( element ).length();
+            if ( start > 0 && text.charAt( start - 1 ) == '\n' )
+            {
+                start--;
+                if ( start > 0 && text.charAt( start - 1 ) == '\r' )
+                {
+                    start--;
+                }
+            }
+        }
+        splices.add( new Splice( start, element.getEnd(), "" ) );
+    }
+
+    /**
+     * Inserts a new child element at its place according to an element order.
+     */
+    private void insertChild( PomDocument.Element parent, List<String> order, String name, List<String> fragments )
+    {
+        int position = order.indexOf( name );
+        PomDocument.Element anchor = null;
+
+        if ( position < 0 )
+        {
+            appendChildren( parent, fragments );
+            return;
+        }
+
+        for ( PomDocument.Element child : parent.getChildren() )
+        {
+            int childPosition = order.indexOf( child.getName() );
+            if ( childPosition >= 0 && childPosition < position )
+            {
+                anchor = child;
+            }
+        }
+        insertAfterOrFirst( parent, anchor, fragments );
+    }
+
+    /**
+     * Inserts fragments after an element, or as the first children of the parent if there's no element.
+     */
+    private void insertAfterOrFirst( PomDocument.Element parent, PomDocument.Element anchor, List<String> fragments )
+    {
+        if ( fragments.isEmpty() )
+        {
+            return;
+        }
+
+        if ( anchor != null )
+        {
+            String indent = indentOrDefault( anchor );
+            splices.add( new Splice( anchor.getEnd(), anchor.getEnd(), lines( fragments, indent ) ) );
+        }
+        else if ( parent.getChildren().isEmpty() )
+        {
+            appendChildren( parent, fragments );
+        }
+        else
+        {
+            String indent = childIndent( parent );
+            splices.add( new Splice( parent.getContentStart(), parent.getContentStart(),
+                                     lines( fragments, indent ) ) );
+        }
+    }
+
+    /**
+     * Inserts fragments as the last children of an element.
+     */
+    private void appendChildren( PomDocument.Element parent, List<String> fragments )
+    {
+        String text = document.getText();
+        String indent = childIndent( parent );
+        List<PomDocument.Element> children = parent.getChildren();
+
+        if ( !children.isEmpty() )
+        {
+            PomDocument.Element last = children.get( children.size() - 1 );
+            splices.add( new Splice( last.getEnd(), last.getEnd(), lines( fragments, indent ) ) );
+            return;
+        }
+
+        String parentIndent = indentOrDefault( parent );
+        if ( parent.isEmpty() )
+        {
+            // <name/> becomes <name> ... </name>
+            String startTag = text.substring( parent.getStart(), parent.getEnd() - 2 ).trim() + ">";
+            splices.add( new Splice( parent.getStart(), parent.getEnd(),
+                                     startTag + lines( fragments, indent ) + document.getLineSeparator()
+                                         + parentIndent + "</" + parent.getName() + ">" ) );
+            return;
+        }
+
+        // Skip the trailing blanks of the content
+        int position = parent.getContentEnd();
+        while ( position > parent.getContentStart() && Character.isWhitespace( text.charAt( position - 1 ) ) )
+        {
+            position--;
+        }
+
+        if ( position == parent.getContentStart() )
+        {
+            splices.add( new Splice( position, parent.getContentEnd(),
+                                     lines( fragments, indent ) + document.getLineSeparator() + parentIndent ) );
+        }
+        else
+        {
+            splices.add( new Splice( position, position, lines( fragments, indent ) ) );
+        }
+    }
+
+    /**
+     * Renders fragments, each one on a new line with the given indentation.
+     */
+    private String lines( List<String> fragments, String indent )
+    {
+        StringBuilder builder = new StringBuilder();
+        for ( String fragment : fragments )
+        {
+            builder.append( document.getLineSeparator() ).append( indent ).append( render( fragment, indent ) );
+        }
+        return ( builder.toString() );
+    }
+
+    /**
+     * Renders a fragment with the document line separator and indentation.
+     */
+    private String render( String fragment, String indent )
+    {
+        return ( fragment.replace( "\n", document.getLineSeparator() + indent ) );
+    }
+
+    /**
+     * Gets the indentation of an element, or a computed one if it's not alone on its line.
+     */
+    private String indentOrDefault( PomDocument.Element element )
+    {
+        String indent = document.indentOf( element );
+        if ( indent != null )
+        {
+            return ( indent );
+        }
+
+        StringBuilder computed = new StringBuilder();
+        for ( PomDocument.Element parent = element.getParent(); parent != null; parent = parent.getParent() )
+        {
+            computed.append( unit );
+        }
+        return ( computed.toString() );
+    }
+
+    /**
+     * Gets the indentation for the children of an element.
+     */
+    private String childIndent( PomDocument.Element parent )
+    {
+        for ( PomDocument.Element child : parent.getChildren() )
+        {
+            String indent = document.indentOf( child );
+            if ( indent != null )
+            {
+                return ( indent );
+            }
+        }
+        return ( indentOrDefault( parent ) + unit );
+    }
+
+    /**
+     * Applies all the pending modifications to the original text.
+     */
+    private String apply()
+        throws UnsupportedChangeException
+    {
+        String text = document.getText();
+
+        // Stable sort: insertions before replacements at the same position
+        List<Splice> sorted = new ArrayList<Splice>( splices );
+        sorted.sort( ( a, b ) -> a.start != b.start ? Integer.compare( a.start, b.start )
+                        : Integer.compare( a.end - a.start, b.end - b.start ) );
+
+        StringBuilder builder = new StringBuilder( text.length() + 256 );
+        int cursor = 0;
+        for ( Splice splice : sorted )
+        {
+            if ( splice.start < cursor )
+            {
+                // Overlapping modifications
+                throw new UnsupportedChangeException();
+            }
+            builder.append( text, cursor, splice.start ).append( splice.replacement );
+            cursor = splice.end;
+        }
+        builder.append( text, cursor, text.length() );
+
+        return ( builder.toString() );
+    }
+
+    // TYPES .................................................................
+
+    /**
+     * A text modification: the range is replaced by a new text.
+     */
+    private static class Splice
+    {
+        private final int start;
+
+        private final int end;
+
+        private final String replacement;
+
+        Splice( int start, int end, String replacement )
+        {
+            this.start = start;
+            this.end = end;
+            this.replacement = replacement;
+        }
+    }
+
+    /**
+     * The changes can't be applied in place.
+     */
+    private static class UnsupportedChangeException
+        extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,270 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes files so that they are never left half written.
+ * <p>
+ * The new contents are written to a temporary file on the same directory, which then replaces the target file with
+ * an atomic move: if the process dies in the middle, the target file still has its old contents. The backup of the
+ * old file is made with a hard link (or a copy where links are not supported) before the move, so the target file
+ * never disappears.
+ * </p>
+ * <p>
+ * The {@link FsyncPolicy} sets when the data is flushed to the storage device (which only matters on a system crash
+ * or power loss): after every file, never, or once for a whole batch of files.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class PomWriter
+{
+    /**
+     * Number of files written before a batch flush.
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Sequence for the temporary file names.
+     */
+    private static final AtomicLong TEMP_SEQUENCE = new AtomicLong();
+
+    /**
+     * When to flush the written files to the device.
+     */
+    private final FsyncPolicy fsync;
+
+    /**
+     * Files written and not flushed yet (batch policy).
+     */
+    private final List<Path> pending = new ArrayList<Path>();
+
+    /**
+     * Creates a writer.
+     *
+     * @param fsync When to flush the written files to the device.
+     */
+    public PomWriter( FsyncPolicy fsync )
+    {
+        this.fsync = fsync != null ? fsync : FsyncPolicy.ALWAYS;
+    }
+
+    /**
+     * @return When the written files are flushed to the device.
+     */
+    public FsyncPolicy getFsync()
+    {
+        return ( fsync );
+    }
+
+    /**
+     * Replaces the contents of a file.
+     *
+     * @param target File to write.
+     * @param contents New file contents.
+     * @param backup Backup file for the current contents of the target (optional).
+     * @throws IOException I/O error (the target file is not modified then).
+     */
+    public void write( Path target, byte[] contents, Path backup )
+        throws IOException
+    {
+        Path directory = target.toAbsolutePath().getParent();
+        Path temp = directory.resolve( "." + target.getFileName() + "." + TEMP_SEQUENCE.incrementAndGet() + ".tmp" );
+
+        try
+        {
+            // Write the new contents aside
+            try ( FileChannel channel = FileChannel.open( temp, StandardOpenOption.CREATE_NEW,
+                                                          StandardOpenOption.WRITE ) )
+            {
+                ByteBuffer buffer = ByteBuffer.wrap( contents );
+                while ( buffer.hasRemaining() )
+                {
+                    channel.write( buffer );
+                }
+                if ( fsync == FsyncPolicy.ALWAYS )
+                {
+                    channel.force( true );
+                }
+            }
+
+            boolean exists = Files.exists( target );
+            if ( exists )
+            {
+                copyPermissions( target, temp );
+            }
+
+            // Keep the current file as the backup
+            if ( exists && backup != null )
+            {
+                backup( target, backup );
+            }
+
+            // Replace the target
+            try
+            {
+                Files.move( temp, target, StandardCopyOption.ATOMIC_MOVE );
+            }
+            catch ( AtomicMoveNotSupportedException e )
+            {
+                Files.move( temp, target, StandardCopyOption.REPLACE_EXISTING );
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists( temp );
+        }
+
+        if ( fsync == FsyncPolicy.ALWAYS )
+        {
+            forceDirectory( directory );
+        }
+        else if ( fsync == FsyncPolicy.BATCH )
+        {
+            boolean full;
+            synchronized ( pending )
+            {
+                pending.add( target );
+                full = pending.size() >= BATCH_SIZE;
+            }
+            if ( full )
+            {
+                sync();
+            }
+        }
+    }
+
+    /**
+     * Flushes the files written since the last flush (batch policy) to the device.
+     *
+     * @throws IOException I/O error.
+     */
+    public void sync()
+        throws IOException
+    {
+        List<Path> files;
+        synchronized ( pending )
+        {
+            files = new ArrayList<Path>( pending );
+            pending.clear();
+        }
+
+        Set<Path> directories = new LinkedHashSet<Path>();
+        for ( Path file : files )
+        {
+            try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.WRITE ) )
+            {
+                channel.force( true );
+            }
+            directories.add( file.toAbsolutePath().getParent() );
+        }
+        for ( Path directory : directories )
+        {
+            forceDirectory( directory );
+        }
+    }
+
+    /**
+     * Makes a backup of a file with a hard link, or a copy if links are not supported.
+     */
+    private static void backup( Path target, Path backup )
+        throws IOException
+    {
+        Files.deleteIfExists( backup );
+        try
+        {
+            Files.createLink( backup, target );
+        }
+        catch ( UnsupportedOperationException | FileSystemException e )
+        {
+            Files.copy( target, backup, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES );
+        }
+    }
+
+    /**
+     * Gives the new file the permissions of the file it replaces (where the file system supports them).
+     */
+    private static void copyPermissions( Path from, Path to )
+        throws IOException
+    {
+        try
+        {
+            Files.setPosixFilePermissions( to, Files.getPosixFilePermissions( from ) );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            // Not a POSIX file system
+        }
+    }
+
+    /**
+     * Flushes a directory entry changes (the file renames) to the device. Not all the platforms can open a
+     * directory, so it's done on a best-effort basis.
+     */
+    private static void forceDirectory( Path directory )
+    {
+        try ( FileChannel channel = FileChannel.open( directory, StandardOpenOption.READ ) )
+        {
+            channel.force( true );
+        }
+        catch ( IOException e )
+        {
+            // Directories can't be opened on some platforms (e.g. Windows)
+        }
+    }
+
+    // TYPES .................................................................
+
+    /**
+     * When the written files are flushed to the storage device.
+     */
+    public enum FsyncPolicy
+    {
+        /**
+         * Every file is flushed before replacing the target.
+         */
+        ALWAYS,
+
+        /**
+         * The files are never flushed explicitly (the operating system does it eventually).
+         */
+        NEVER,
+
+        /**
+         * The files are flushed together at the end of a batch (and every thousand files).
+         */
+        BATCH
+    }
+}
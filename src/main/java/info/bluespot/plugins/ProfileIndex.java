@@ -0,0 +1,129 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Profile;
+
+/**
+ * The profiles of a model by ID, for looking up many profiles without scanning the profile list every time.
+ * <p>
+ * The profiles added to the model out of the index are indexed on the next lookup, so an index can be kept for the
+ * life of the model (as long as no profile is removed).
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class ProfileIndex
+{
+    /**
+     * Indexed model.
+     */
+    private final Model model;
+
+    /**
+     * Profiles by ID.
+     */
+    private final Map<String, Profile> profiles = new HashMap<String, Profile>();
+
+    /**
+     * The indexed profile list.
+     */
+    private List<Profile> indexed;
+
+    /**
+     * Number of profiles of the list already indexed.
+     */
+    private int count;
+
+    /**
+     * Indexes the profiles of a model.
+     *
+     * @param model Maven model.
+     */
+    public ProfileIndex( Model model )
+    {
+        this.model = model;
+        refresh();
+    }
+
+    /**
+     * @return The indexed model.
+     */
+    public Model getModel()
+    {
+        return ( model );
+    }
+
+    /**
+     * Gets a profile.
+     *
+     * @param id Profile ID.
+     * @return The profile or <code>null</code> if the model doesn't have it.
+     */
+    public Profile get( String id )
+    {
+        refresh();
+        return ( profiles.get( id ) );
+    }
+
+    /**
+     * Gets a profile, adding an empty one to the model if it doesn't exist.
+     *
+     * @param id Profile ID.
+     * @return The profile.
+     */
+    public Profile getOrCreate( String id )
+    {
+        Profile profile = get( id );
+        if ( profile == null )
+        {
+            profile = new Profile();
+            profile.setId( id );
+            model.addProfile( profile );
+            profiles.put( id, profile );
+            count++;
+        }
+        return ( profile );
+    }
+
+    /**
+     * Indexes the profiles added to the model since the last lookup (all of them if the list has been replaced).
+     */
+    private void refresh()
+    {
+        List<Profile> list = model.getProfiles();
+        if ( list != indexed || list.size() < count )
+        {
+            profiles.clear();
+            indexed = list;
+            count = 0;
+        }
+        for ( ; count < list.size(); count++ )
+        {
+            Profile profile = list.get( count );
+            profiles.putIfAbsent( profile.getId(), profile );
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.model.ModelBase;
+
+/**
+ * Loads and merges large sets of properties into a POM.
+ * <p>
+ * The property files are read in parallel and merged in the order they are given (a property on a file replaces the
+ * same property on the previous files). A file can hold the properties of several profiles, in
+ * '<code>[profile:id]</code>' sections. The result is then merged into the model section in a single pass, counting
+ * the properties added, overwritten and left unchanged.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class PropertyMerge
+{
+    /**
+     * Name of the section for the properties out of any profile section.
+     */
+    public static final String DEFAULT_SECTION = "";
+
+    /**
+     * Start of a profile section line.
+     */
+    private static final String PROFILE_SECTION = "[profile:";
+
+    /**
+     * Loads several property files.
+     *
+     * @param files Property files, from the lowest to the highest precedence.
+     * @param charset File encoding.
+     * @param threads Maximum number of files read at the same time.
+     * @return The merged properties of every section (in file order), by section name (see
+     *         {@link #load(File, Charset)}).
+     * @throws IOException I/O error reading a file.
+     * @throws InterruptedException The current thread was interrupted while waiting for the readers.
+     */
+    public static Map<String, OrderedProperties> load( List<File> files, final Charset charset, int threads )
+        throws IOException, InterruptedException
+    {
+        List<Map<String, OrderedProperties>> loaded = new ArrayList<Map<String, OrderedProperties>>( files.size() );
+
+        if ( files.size() <= 1 || threads <= 1 )
+        {
+            for ( File file : files )
+            {
+                loaded.add( load( file, charset ) );
+            }
+        }
+        else
+        {
+            ExecutorService executor = Executors.newFixedThreadPool( Math.min( threads, files.size() ) );
+            try
+            {
+                List<Future<Map<String, OrderedProperties>>> futures =
+                    new ArrayList<Future<Map<String, OrderedProperties>>>( files.size() );
+                for ( final File file : files )
+                {
+                    futures.add( executor.submit( () -> load( file, charset ) ) );
+                }
+                for ( Future<Map<String, OrderedProperties>> future : futures )
+                {
+                    loaded.add( get( future ) );
+                }
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+        }
+
+        // Merge in precedence order
+        Map<String, OrderedProperties> merged = new LinkedHashMap<String, OrderedProperties>();
+        merged.put( DEFAULT_SECTION, new OrderedProperties() );
+        for ( Map<String, OrderedProperties> sections : loaded )
+        {
+            for ( Map.Entry<String, OrderedProperties> section : sections.entrySet() )
+            {
+                merged.computeIfAbsent( section.getKey(), key -> new OrderedProperties() ).putAll( section.getValue() );
+            }
+        }
+        return ( merged );
+    }
+
+    /**
+     * Loads a property file. The file can be split in sections for several profiles with
+     * '<code>[profile:id]</code>' lines; the properties before the first section go to the default section
+     * (<code>""</code>).
+     *
+     * <pre>
+     *   server.protocol=https
+     *
+     *   [profile:dev]
+     *   server.hostname=dev.example.com
+     *
+     *   [profile:prod]
+     *   server.hostname=www.example.com
+     * </pre>
+     *
+     * @param file Property file.
+     * @param charset File encoding.
+     * @return The properties of every section (in file order), by profile ID.
+     * @throws IOException I/O error.
+     */
+    public static Map<String, OrderedProperties> load( File file, Charset charset )
+        throws IOException
+    {
+        // Split the file by sections
+        Map<String, StringBuilder> texts = new LinkedHashMap<String, StringBuilder>();
+        StringBuilder current = new StringBuilder();
+        texts.put( DEFAULT_SECTION, current );
+        try ( BufferedReader reader = Files.newBufferedReader( file.toPath(), charset ) )
+        {
+            String line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                String trimmed = line.trim();
+                if ( trimmed.startsWith( PROFILE_SECTION ) && trimmed.endsWith( "]" ) )
+                {
+                    String profileId = trimmed.substring( PROFILE_SECTION.length(), trimmed.length() - 1 ).trim();
+                    current = texts.computeIfAbsent( profileId, key -> new StringBuilder() );
+                }
+                else
+                {
+                    current.append( line ).append( '\n' );
+                }
+            }
+        }
+
+        // Load every section with the standard property file syntax
+        Map<String, OrderedProperties> sections = new LinkedHashMap<String, OrderedProperties>();
+        for ( Map.Entry<String, StringBuilder> text : texts.entrySet() )
+        {
+            OrderedProperties properties = new OrderedProperties();
+            properties.load( new StringReader( text.getValue().toString() ) );
+            sections.put( text.getKey(), properties );
+        }
+        return ( sections );
+    }
+
+    /**
+     * Merges properties into a model section (the general section or a profile). The section properties are replaced
+     * at once with the merged ones.
+     *
+     * @param section Model or profile.
+     * @param properties New properties.
+     * @return The merge counters.
+     */
+    public static Counts merge( ModelBase section, Properties properties )
+    {
+        Counts counts = new Counts();
+
+        OrderedProperties merged = new OrderedProperties();
+        merged.putAll( section.getProperties() );
+        for ( Map.Entry<Object, Object> entry : properties.entrySet() )
+        {
+            Object previous = merged.put( entry.getKey(), entry.getValue() );
+            if ( previous == null )
+            {
+                counts.added++;
+            }
+            else if ( previous.equals( entry.getValue() ) )
+            {
+                counts.unchanged++;
+            }
+            else
+            {
+                counts.overwritten++;
+            }
+        }
+
+        section.setProperties( merged );
+        return ( counts );
+    }
+
+    /**
+     * Waits for a file reader.
+     */
+    private static <T> T get( Future<T> future )
+        throws IOException, InterruptedException
+    {
+        try
+        {
+            return ( future.get() );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof IOException )
+            {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException( "Unexpected error reading a property file.", e.getCause() );
+        }
+    }
+
+    // TYPES .................................................................
+
+    /**
+     * The counters of a merge.
+     */
+    public static class Counts
+    {
+        private int added;
+
+        private int overwritten;
+
+        private int unchanged;
+
+        /**
+         * @return Number of new properties.
+         */
+        public int getAdded()
+        {
+            return ( added );
+        }
+
+        /**
+         * @return Number of properties with a new value.
+         */
+        public int getOverwritten()
+        {
+            return ( overwritten );
+        }
+
+        /**
+         * @return Number of properties that already had the same value.
+         */
+        public int getUnchanged()
+        {
+            return ( unchanged );
+        }
+
+        @Override
+        public String toString()
+        {
+            return ( added + " added, " + overwritten + " overwritten, " + unchanged + " unchanged" );
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.ModelBase;
+import org.apache.maven.model.Profile;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * Renames properties and rewrites their references everywhere on a project model.
+ * <p>
+ * The renamed properties get their new names on the <code>properties</code> sections of the project and of the
+ * profiles (if the new name is already there, its value is kept and the old property is removed). Every
+ * '<code>${old}</code>' reference is replaced with '<code>${new}</code>', and the literal rewrites (any text, e.g. a
+ * value that changes) are applied as well.
+ * </p>
+ * <p>
+ * All the replacements are compiled into a single {@link MultiPatternReplacer}, and every string of the model is
+ * visited once: the fields of the model objects (found by reflection, once per class), the strings of their lists,
+ * the property values and the plugin configurations. So the cost of a rename grows with the size of the model, not
+ * with the size of the model times the number of renames.
+ * </p>
+ * <p>
+ * A renamer is immutable and can be shared by several threads (as long as they edit different models).
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class PropertyRenamer
+{
+    /**
+     * Package of the model classes.
+     */
+    private static final String MODEL_PACKAGE = Model.class.getPackage().getName();
+
+    /**
+     * The properties of every model class (looked up once per class).
+     */
+    private static final ClassValue<List<Accessor>> ACCESSORS = new ClassValue<List<Accessor>>()
+    {
+        @Override
+        protected List<Accessor> computeValue( Class<?> type )
+        {
+            return ( accessorsOf( type ) );
+        }
+    };
+
+    /**
+     * New property names, by old name.
+     */
+    private final Map<String, String> renames;
+
+    /**
+     * All the text replacements.
+     */
+    private final MultiPatternReplacer replacer;
+
+    /**
+     * Creates a renamer.
+     *
+     * @param renames New property names, by old name.
+     * @param rewrites Literal text replacements, by text (optional).
+     */
+    public PropertyRenamer( Map<String, String> renames, Map<String, String> rewrites )
+    {
+        this.renames = Collections.unmodifiableMap( new HashMap<String, String>( renames ) );
+
+        Map<String, String> replacements = new HashMap<String, String>();
+        if ( rewrites != null )
+        {
+            replacements.putAll( rewrites );
+        }
+        for ( Map.Entry<String, String> rename : renames.entrySet() )
+        {
+            replacements.put( "${" + rename.getKey() + "}", "${" + rename.getValue() + "}" );
+        }
+        this.replacer = new MultiPatternReplacer( replacements );
+    }
+
+    /**
+     * Renames the properties and rewrites the strings of a model.
+     *
+     * @param model Maven model (modified in place).
+     * @return The rename counters.
+     */
+    public Counts rename( Model model )
+    {
+        Counts counts = new Counts();
+
+        counts.renamed += renameKeys( model );
+        for ( Profile profile : model.getProfiles() )
+        {
+            counts.renamed += renameKeys( profile );
+        }
+        counts.rewritten += walk( model );
+
+        return ( counts );
+    }
+
+    /**
+     * Renames the properties of a model section.
+     *
+     * @return Number of renamed properties.
+     */
+    private int renameKeys( ModelBase section )
+    {
+        Properties properties = section.getProperties();
+        int renamed = 0;
+        for ( Map.Entry<String, String> rename : renames.entrySet() )
+        {
+            Object value = properties.remove( rename.getKey() );
+            if ( value != null )
+            {
+                properties.putIfAbsent( rename.getValue(), value );
+                renamed++;
+            }
+        }
+        return ( renamed );
+    }
+
+    /**
+     * Rewrites the strings of a model object (and of the objects it contains).
+     *
+     * @return Number of strings changed.
+     */
+    private int walk( Object object )
+    {
+        int changes = 0;
+        for ( Accessor accessor : ACCESSORS.get( object.getClass() ) )
+        {
+            Object value = accessor.get( object );
+            if ( value == null )
+            {
+                continue;
+            }
+
+            switch ( accessor.kind )
+            {
+                case STRING:
+                    String text = replacer.replace( (String) value );
+                    if ( text != value )
+                    {
+                        accessor.set( object, text );
+                        changes++;
+                    }
+                    break;
+                case LIST:
+                    changes += walkList( (List<?>) value );
+                    break;
+                case PROPERTIES:
+                    changes += walkProperties( (Properties) value );
+                    break;
+                case CONFIGURATION:
+                    if ( value instanceof Xpp3Dom )
+                    {
+                        changes += walkDom( (Xpp3Dom) value );
+                    }
+                    break;
+                default:
+                    changes += walk( value );
+                    break;
+            }
+        }
+        return ( changes );
+    }
+
+    /**
+     * Rewrites the strings of a list (or of the model objects on it).
+     */
+    @SuppressWarnings( "unchecked" )
+    private int walkList( List<?> list )
+    {
+        int changes = 0;
+        for ( int i = 0; i < list.size(); i++ )
+        {
+            Object element = list.get( i );
+            if ( element instanceof String )
+            {
+                String text = replacer.replace( (String) element );
+                if ( text != element )
+                {
+                    ( (List<Object>) list ).set( i, text );
+                    changes++;
+                }
+            }
+            else if ( element != null && isModelClass( element.getClass() ) )
+            {
+                changes += walk( element );
+            }
+        }
+        return ( changes );
+    }
+
+    /**
+     * Rewrites the property values.
+     */
+    private int walkProperties( Properties properties )
+    {
+        Map<Object, Object> changed = new HashMap<Object, Object>();
+        for ( Map.Entry<Object, Object> entry : properties.entrySet() )
+        {
+            if ( entry.getValue() instanceof String )
+            {
+                String text = replacer.replace( (String) entry.getValue() );
+                if ( text != entry.getValue() )
+                {
+                    changed.put( entry.getKey(), text );
+                }
+            }
+        }
+        properties.putAll( changed );
+        return ( changed.size() );
+    }
+
+    /**
+     * Rewrites the values and attributes of a plugin configuration.
+     */
+    private int walkDom( Xpp3Dom dom )
+    {
+        int changes = 0;
+
+        String value = replacer.replace( dom.getValue() );
+        if ( value != dom.getValue() )
+        {
+            dom.setValue( value );
+            changes++;
+        }
+        for ( String name : dom.getAttributeNames() )
+        {
+            String attribute = replacer.replace( dom.getAttribute( name ) );
+            if ( attribute != dom.getAttribute( name ) )
+            {
+                dom.setAttribute( name, attribute );
+                changes++;
+            }
+        }
+        for ( Xpp3Dom child : dom.getChildren() )
+        {
+            changes += walkDom( child );
+        }
+
+        return ( changes );
+    }
+
+    /**
+     * Finds the properties (a getter and a setter of the same type) of a model class that can hold strings.
+     */
+    private static List<Accessor> accessorsOf( Class<?> type )
+    {
+        List<Accessor> accessors = new ArrayList<Accessor>();
+        for ( Method getter : type.getMethods() )
+        {
+            if ( !getter.getName().startsWith( "get" ) || getter.getParameterCount() != 0
+                || Modifier.isStatic( getter.getModifiers() ) )
+            {
+                continue;
+            }
+
+            Class<?> valueType = getter.getReturnType();
+            Kind kind;
+            if ( valueType == String.class )
+            {
+                kind = Kind.STRING;
+            }
+            else if ( List.class.isAssignableFrom( valueType ) )
+            {
+                kind = Kind.LIST;
+            }
+            else if ( Properties.class.isAssignableFrom( valueType ) )
+            {
+                kind = Kind.PROPERTIES;
+            }
+            else if ( valueType == Object.class )
+            {
+                kind = Kind.CONFIGURATION;
+            }
+            else if ( isModelClass( valueType ) )
+            {
+                kind = Kind.MODEL;
+            }
+            else
+            {
+                continue;
+            }
+
+            // Computed values (without a setter) are skipped
+            Method setter;
+            try
+            {
+                setter = type.getMethod( "set" + getter.getName().substring( 3 ), valueType );
+            }
+            catch ( NoSuchMethodException e )
+            {
+                continue;
+            }
+            accessors.add( new Accessor( getter, setter, kind ) );
+        }
+        return ( accessors );
+    }
+
+    /**
+     * Checks if a class is a model class.
+     */
+    private static boolean isModelClass( Class<?> type )
+    {
+        return ( type.getPackage() != null && MODEL_PACKAGE.equals( type.getPackage().getName() ) );
+    }
+
+    // TYPES .................................................................
+
+    /**
+     * What a model property holds.
+     */
+    private enum Kind
+    {
+        STRING, LIST, PROPERTIES, CONFIGURATION, MODEL
+    }
+
+    /**
+     * A property of a model class.
+     */
+    private static class Accessor
+    {
+        private final Method getter;
+
+        private final Method setter;
+
+        private final Kind kind;
+
+        private Accessor( Method getter, Method setter, Kind kind )
+        {
+            this.getter = getter;
+            this.setter = setter;
+            this.kind = kind;
+        }
+
+        private Object get( Object object )
+        {
+            try
+            {
+                return ( getter.invoke( object ) );
+            }
+            catch ( IllegalAccessException | InvocationTargetException e )
+            {
+                throw new IllegalStateException( "Can't read '" + getter.getName() + "' on a model object.", e );
+            }
+        }
+
+        private void set( Object object, Object value )
+        {
+            try
+            {
+                setter.invoke( object, value );
+            }
+            catch ( IllegalAccessException | InvocationTargetException e )
+            {
+                throw new IllegalStateException( "Can't write '" + setter.getName() + "' on a model object.", e );
+            }
+        }
+    }
+
+    /**
+     * The counters of a rename.
+     */
+    public static class Counts
+    {
+        private int renamed;
+
+        private int rewritten;
+
+        /**
+         * @return Number of properties renamed.
+         */
+        public int getRenamed()
+        {
+            return ( renamed );
+        }
+
+        /**
+         * @return Number of strings rewritten (references to the renamed properties and literal rewrites).
+         */
+        public int getRewritten()
+        {
+            return ( rewritten );
+        }
+
+        @Override
+        public String toString()
+        {
+            return ( renamed + " properties renamed, " + rewritten + " values rewritten" );
+        }
+    }
+}
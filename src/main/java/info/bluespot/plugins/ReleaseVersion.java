@@ -0,0 +1,178 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Changes the version of all the modules of a multi-module project.
+ * <p>
+ * The modules are taken from the build (or from the <code>modules</code> tree of the POM file when it's not a
+ * multi-module build). They're read once, in parallel, and indexed by their <code>groupId:artifactId</code>. Then
+ * every module with the old version gets the new one, as well as every reference to those modules: the parents and
+ * the dependencies and managed dependencies (also on the profiles). The modules are edited in parallel and only the
+ * files that change are written. See {@link ModuleIndex}.
+ * </p>
+ *
+ * <pre>
+ *   mvn pomutils:release-version -DnewVersion=2.0.0
+ * </pre>
+ *
+ * @since 1.1.0
+ */
+@Mojo( name = "release-version", requiresProject = false, inheritByDefault = false, threadSafe = true )
+public class ReleaseVersion
+    extends AbstractPOMMojo
+{
+    /**
+     * Sections edited by the goal (with the <code>partialParsing</code> parameter).
+     */
+    private static final PomSections SECTIONS =
+        PomSections.of( "parent", "groupId", "artifactId", "version", "dependencyManagement", "dependencies",
+                        "profiles" );
+
+    // PARAMETERS ............................................................
+
+    /**
+     * New version of the modules.
+     */
+    @Parameter( property = "newVersion", required = true, readonly = true )
+    private String newVersion;
+
+    /**
+     * Current version of the modules (by default, the version of the root module). The modules with another version
+     * are left as they are.
+     */
+    @Parameter( property = "oldVersion", required = false, readonly = true )
+    private String oldVersion;
+
+    /**
+     * Number of worker threads (by default, one per available processor).
+     */
+    @Parameter( property = "threads", required = false, readonly = true, defaultValue = "0" )
+    private int threads;
+
+    // METHODS ...............................................................
+
+    /**
+     * Main goal method.
+     */
+    @Override
+    public void execute()
+        throws MojoExecutionException, MojoFailureException
+    {
+        // Run only once for the whole build (this goal is also invoked for every module)
+        List<File> poms = getModules();
+        if ( poms == null )
+        {
+            return;
+        }
+
+        // Read all the modules once and index them
+        final SaveOptions options = getSaveOptions();
+        final PomSections sections = partialParsing ? SECTIONS : null;
+        final Map<File, PomEditor> editors = new ConcurrentHashMap<File, PomEditor>();
+        List<PomBatch.Result> results = runOnModules( poms, threads, pom -> {
+            editors.put( pom, PomEditor.open( pom.getPath(), options, sections ) );
+            return ( null );
+        } );
+        for ( PomBatch.Result result : results )
+        {
+            if ( !result.isSuccess() )
+            {
+                logResult( result );
+            }
+        }
+        checkFailures( results, "modules", "read" );
+
+        ModuleIndex modules = new ModuleIndex();
+        for ( File pom : poms )
+        {
+            modules.add( editors.get( pom ).getModel() );
+        }
+        final String from = oldVersion != null ? oldVersion : rootVersion( poms, editors );
+        if ( from == null )
+        {
+            throw new MojoFailureException( "The version of the root module is unknown: use the 'oldVersion' "
+                + "parameter." );
+        }
+        getLog().info( "Changing the version of " + modules.size() + " modules from '" + from + "' to '"
+            + newVersion + "'" );
+
+        // Edit the modules in parallel
+        results = runOnModules( poms, threads, pom -> {
+            PomEditor editor = editors.get( pom );
+            int changes = editor.setModuleVersions( modules, from, newVersion );
+            if ( changes == 0 )
+            {
+                return ( "unchanged" );
+            }
+            editor.save( backupFile( pom ) );
+            return ( changes + ( changes == 1 ? " version" : " versions" ) + " changed" );
+        } );
+
+        sync( options );
+
+        // Report the results
+        for ( PomBatch.Result result : results )
+        {
+            logResult( result );
+        }
+        checkFailures( results, "modules", "edited" );
+    }
+
+    /**
+     * Gets the version of the root module: the top level project of the build (the first module of the build order
+     * can be another one), or the POM file when it's not a multi-module build.
+     *
+     * @param poms Module POM files.
+     * @param editors Editors of the modules.
+     * @return The version (<code>null</code> if unknown).
+     * @throws MojoExecutionException Error reading the root module (when it's not on the build).
+     */
+    private String rootVersion( List<File> poms, Map<File, PomEditor> editors )
+        throws MojoExecutionException
+    {
+        File root = session.getProjects().size() > 1 ? session.getTopLevelProject().getFile() : poms.get( 0 );
+        PomEditor editor = editors.get( root );
+        try
+        {
+            if ( editor == null )
+            {
+                editor = PomEditor.open( root.getPath(), getSaveOptions(), partialParsing ? SECTIONS : null );
+            }
+        }
+        catch ( IOException | XmlPullParserException e )
+        {
+            throw new MojoExecutionException( "Error while reading the root module '" + root + "'.", e );
+        }
+        return ( ModuleIndex.versionOf( editor.getModel() ) );
+    }
+}
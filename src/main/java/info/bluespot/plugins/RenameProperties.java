@@ -0,0 +1,193 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Renames properties on a POM file and rewrites every reference to them.
+ * <p>
+ * The renames (<code>old=new</code> property names) can be provided in a Java property file or via the
+ * '<code>renames</code>' parameter as a list (comma separated). The renamed properties keep their values on the
+ * <code>properties</code> sections of the project and of the profiles, and every '<code>${old}</code>' reference is
+ * replaced with '<code>${new}</code>' anywhere on the POM: dependencies, plugins and their configuration, profiles,
+ * etc. Literal text rewrites can be added the same way (the '<code>rewrites</code>' and <code>rewritesFile</code>
+ * parameters).
+ * </p>
+ * <p>
+ * All the renames and rewrites are applied in a single pass over the model, so hundreds of them take about the same
+ * time as one (see {@link PropertyRenamer}).
+ * </p>
+ *
+ * <pre>
+ *   mvn pomutils:rename-properties -Drenames=spring.version=spring-framework.version
+ * </pre>
+ *
+ * @since 1.1.0
+ */
+@Mojo( name = "rename-properties", requiresProject = false, inheritByDefault = false, threadSafe = true )
+public class RenameProperties
+    extends AbstractPOMMojo
+{
+    // PARAMETERS ............................................................
+
+    /**
+     * Property renames (comma separated <code>old=new</code> property names).
+     */
+    @Parameter( property = "renames", required = false, readonly = true )
+    private String[] renames;
+
+    /**
+     * Property file with the renames: every key is a property to rename and its value is the new name.
+     */
+    @Parameter( property = "renamesFile", required = false, readonly = true )
+    private String renamesFile;
+
+    /**
+     * Literal text rewrites (comma separated <code>text=replacement</code> pairs), applied to every value on the POM.
+     */
+    @Parameter( property = "rewrites", required = false, readonly = true )
+    private String[] rewrites;
+
+    /**
+     * Property file with the literal text rewrites: every key is replaced with its value.
+     */
+    @Parameter( property = "rewritesFile", required = false, readonly = true )
+    private String rewritesFile;
+
+    /**
+     * Encoding of the renames and rewrites files (UTF-8 by default).
+     */
+    @Parameter( property = "renamesEncoding", required = false, readonly = true, defaultValue = "UTF-8" )
+    private String renamesEncoding;
+
+    // METHODS ...............................................................
+
+    /**
+     * Main goal method.
+     */
+    @Override
+    public void execute()
+        throws MojoExecutionException, MojoFailureException
+    {
+        // Check: we need something to rename
+        if ( renames == null && renamesFile == null && rewrites == null && rewritesFile == null )
+        {
+            getLog().warn( "This goal needs the renames or rewrites list parameters or files." );
+            return;
+        }
+        if ( isUpToDate() )
+        {
+            return;
+        }
+
+        // Compile all the renames and rewrites at once
+        PropertyRenamer renamer;
+        try
+        {
+            Map<String, String> renameMap = load( renamesFile, renames );
+            Map<String, String> rewriteMap = load( rewritesFile, rewrites );
+            getLog().info( "Renaming " + renameMap.size() + " properties and applying " + rewriteMap.size()
+                + " rewrites." );
+            renamer = new PropertyRenamer( renameMap, rewriteMap );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "I/O error while reading the renames file.", e );
+        }
+
+        // The references can be anywhere: the whole model is needed
+        PomEditor editor = openEditor();
+        getLog().info( editor.renameProperties( renamer ) + "." );
+        save( editor );
+    }
+
+    /**
+     * The renames and rewrites files are inputs of the goal.
+     */
+    @Override
+    protected List<File> getInputFiles()
+    {
+        List<File> files = new ArrayList<File>();
+        if ( renamesFile != null )
+        {
+            files.add( new File( renamesFile ) );
+        }
+        if ( rewritesFile != null )
+        {
+            files.add( new File( rewritesFile ) );
+        }
+        return ( files );
+    }
+
+    /**
+     * Loads a replacement map from a property file and a list parameter (the list entries replace the file ones).
+     *
+     * @param file Property file (optional).
+     * @param entries List of '<code>key=value</code>' entries (optional).
+     * @return The map, in file and list order.
+     * @throws IOException I/O error reading the file.
+     * @throws MojoFailureException Invalid list entry.
+     */
+    private Map<String, String> load( String file, String[] entries )
+        throws IOException, MojoFailureException
+    {
+        Map<String, String> map = new LinkedHashMap<String, String>();
+        if ( file != null )
+        {
+            OrderedProperties properties = new OrderedProperties();
+            try ( Reader reader = Files.newBufferedReader( new File( file ).toPath(),
+                                                           Charset.forName( renamesEncoding ) ) )
+            {
+                properties.load( reader );
+            }
+            for ( String key : properties.stringPropertyNames() )
+            {
+                map.put( key, properties.getProperty( key ) );
+            }
+        }
+        if ( entries != null )
+        {
+            for ( String entry : entries )
+            {
+                int equalsPosition = entry.indexOf( "=" );
+                if ( equalsPosition <= 0 )
+                {
+                    throw new MojoFailureException( "Invalid entry '" + entry + "' (expected: 'old=new')." );
+                }
+                map.put( entry.substring( 0, equalsPosition ), entry.substring( equalsPosition + 1 ) );
+            }
+        }
+        return ( map );
+    }
+}
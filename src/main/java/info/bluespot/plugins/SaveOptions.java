@@ -0,0 +1,160 @@
+package info.bluespot.plugins;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * How a project model is written to its POM file.
+ * <p>
+ * The same options object can be shared by all the files written in a batch.
+ * </p>
+ *
+ * @since 1.1.0
+ */
+public class SaveOptions
+{
+    /**
+     * Rewrites only the modified elements of the file.
+     */
+    private boolean preserveFormatting;
+
+    /**
+     * Writes the properties in the model order instead of the file order.
+     */
+    private boolean keepPropertyOrder;
+
+    /**
+     * Waits for the editors of the file in other processes too.
+     */
+    private boolean processLock;
+
+    /**
+     * Cache that receives the written models.
+     */
+    private ModelCache cache;
+
+    /**
+     * File writer.
+     */
+    private PomWriter writer = new PomWriter( PomWriter.FsyncPolicy.ALWAYS );
+
+    /**
+     * Metrics of the written files.
+     */
+    private PomMetrics metrics;
+
+    /**
+     * @return 'true' if only the modified elements of the file are rewritten.
+     */
+    public boolean isPreserveFormatting()
+    {
+        return ( preserveFormatting );
+    }
+
+    /**
+     * @param preserveFormatting Rewrites only the modified elements of the file, keeping comments and formatting.
+     */
+    public void setPreserveFormatting( boolean preserveFormatting )
+    {
+        this.preserveFormatting = preserveFormatting;
+    }
+
+    /**
+     * @return 'true' if the properties are written in the model order.
+     */
+    public boolean isKeepPropertyOrder()
+    {
+        return ( keepPropertyOrder );
+    }
+
+    /**
+     * @param keepPropertyOrder Writes the properties in the model order (for properties that have been sorted)
+     *            instead of keeping the order of the existing properties on the file.
+     */
+    public void setKeepPropertyOrder( boolean keepPropertyOrder )
+    {
+        this.keepPropertyOrder = keepPropertyOrder;
+    }
+
+    /**
+     * @return 'true' if the editors of the file in other processes are waited for.
+     */
+    public boolean isProcessLock()
+    {
+        return ( processLock );
+    }
+
+    /**
+     * @param processLock Waits for the editors of the file in other processes too, with a lock file next to it
+     *            (<code>pom.xml.lock</code>, created when the file is written for the first time). Without it, only
+     *            the editors in the same JVM are waited for.
+     */
+    public void setProcessLock( boolean processLock )
+    {
+        this.processLock = processLock;
+    }
+
+    /**
+     * @return The cache that receives the written models (may be <code>null</code>).
+     */
+    public ModelCache getCache()
+    {
+        return ( cache );
+    }
+
+    /**
+     * @param cache A cache that receives the written models (optional).
+     */
+    public void setCache( ModelCache cache )
+    {
+        this.cache = cache;
+    }
+
+    /**
+     * @return The file writer.
+     */
+    public PomWriter getWriter()
+    {
+        return ( writer );
+    }
+
+    /**
+     * @param writer The file writer.
+     */
+    public void setWriter( PomWriter writer )
+    {
+        this.writer = writer;
+    }
+
+    /**
+     * @return The metrics of the written files (may be <code>null</code>).
+     */
+    public PomMetrics getMetrics()
+    {
+        return ( metrics );
+    }
+
+    /**
+     * @param metrics Metrics that record the times and sizes of the written files (optional).
+     */
+    public void setMetrics( PomMetrics metrics )
+    {
+        this.metrics = metrics;
+    }
+}